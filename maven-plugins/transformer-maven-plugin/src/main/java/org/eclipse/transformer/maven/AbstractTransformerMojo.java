@@ -59,7 +59,7 @@ public abstract class AbstractTransformerMojo extends AbstractMojo {
 	 * <p>
 	 * The rules configuration includes: selections, renames, versions, bundles,
 	 * directs, texts, perClassConstants, immediates, invert, overwrite, widen,
-	 * jakartaDefaults, and stripSignatures.
+	 * jakartaDefaults, stripSignatures, and threads.
 	 */
 	@Parameter
 	private TransformerRules		rules	= new TransformerRules();
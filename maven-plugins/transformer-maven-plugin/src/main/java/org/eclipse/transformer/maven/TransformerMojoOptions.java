@@ -14,6 +14,7 @@ package org.eclipse.transformer.maven;
 import static java.util.Objects.requireNonNull;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
@@ -72,6 +73,7 @@ public class TransformerMojoOptions implements TransformOptions {
 			case RULES_RENAMES -> rules.getRenames();
 			case RULES_SELECTIONS -> rules.getSelections();
 			case RULES_VERSIONS -> rules.getVersions();
+			case THREADS -> new ArrayList<>(List.of(Integer.toString(rules.getThreads())));
 			default -> null;
 		};
 		return condition(values);
@@ -63,6 +63,9 @@ public class TransformerRunMojo extends AbstractMojo {
 	@Parameter(defaultValue = "false", property = "transformer-plugin.stripSignatures", required = false)
 	private boolean				stripSignatures;
 
+	@Parameter(defaultValue = "1", property = "transformer-plugin.threads", required = false)
+	private int					threads	= 1;
+
 	@Parameter(defaultValue = "true", property = "transformer-plugin.attach", required = true)
 	private boolean				attach;
 
@@ -147,6 +150,7 @@ public class TransformerRunMojo extends AbstractMojo {
 					case RULES_DIRECT -> emptyAsNull(rulesDirectUri);
 					case RULES_MASTER_TEXT -> emptyAsNull(rulesXmlsUri);
 					case RULES_PER_CLASS_CONSTANT -> emptyAsNull(rulesPerClassConstantUri);
+					case THREADS -> Integer.toString(threads);
 					default -> null;
 				};
 			}
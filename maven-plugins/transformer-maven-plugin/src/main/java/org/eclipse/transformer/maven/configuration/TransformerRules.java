@@ -30,6 +30,7 @@ public class TransformerRules {
 	private boolean			widen;
 	private boolean			jakartaDefaults;
 	private boolean			stripSignatures;
+	private int				threads	= 1;
 
 	public TransformerRules() {}
 
@@ -149,12 +150,27 @@ public class TransformerRules {
 		this.stripSignatures = stripSignatures;
 	}
 
+	/**
+	 * @return the threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads the threads to set
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
 	@Override
 	public String toString() {
 		return String.format(
-			"selections=%s, renames=%s, versions=%s, bundles=%s, directs=%s, texts=%s, perClassConstants=%s, immediates=%s, invert=%s, overwrite=%s, widen=%s, jakartaDefaults=%s, stripSignatures=%s",
+			"selections=%s, renames=%s, versions=%s, bundles=%s, directs=%s, texts=%s, perClassConstants=%s, immediates=%s, invert=%s, overwrite=%s, widen=%s, jakartaDefaults=%s, stripSignatures=%s, threads=%s",
 			getSelections(), getRenames(), getVersions(), getBundles(), getDirects(), getTexts(),
-			getPerClassConstants(), getImmediates(), isInvert(), isOverwrite(), isWiden(), isJakartaDefaults(), isStripSignatures());
+			getPerClassConstants(), getImmediates(), isInvert(), isOverwrite(), isWiden(), isJakartaDefaults(), isStripSignatures(),
+			getThreads());
 	}
 
 }
@@ -0,0 +1,66 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.ElementAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transform single classes using the class action which is selected by the
+ * transformer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassActionBenchmark {
+	/**
+	 * Classes which reference renamed packages from annotations, signatures,
+	 * and code, and a class which is not changed.
+	 */
+	@Param({
+		"Sample_InjectAPI_Javax", "Sample_SecurityAPI_Javax", "Sample_Annotation", "Sample_Value"
+	})
+	public String		className;
+
+	private ElementAction	action;
+	private ByteData		inputData;
+
+	@Setup
+	public void setUp() throws Exception {
+		String resourceName = Fixtures.DATA_PACKAGE + className + ".class";
+		action = JakartaRules.load(null)
+			.selectAction(resourceName);
+		inputData = Fixtures.byteData(resourceName, Fixtures.classBytes(Fixtures.DATA_PACKAGE + className));
+	}
+
+	@Benchmark
+	public ByteData apply() throws TransformException {
+		return action.apply(inputData);
+	}
+}
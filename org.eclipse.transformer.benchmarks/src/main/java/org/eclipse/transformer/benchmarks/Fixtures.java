@@ -0,0 +1,288 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.impl.ByteDataImpl;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Generated benchmark inputs.
+ * <p>
+ * Classes are the test data classes of the transformer. Descriptors,
+ * manifests, and archives are generated. The same inputs are generated on
+ * every run: Archive entries are written in a fixed order with a fixed time.
+ */
+final class Fixtures {
+	private Fixtures() {
+		// Static helpers only.
+	}
+
+	static final String			DATA_PACKAGE	= "transformer/test/data/";
+
+	/** Test data classes, most of which reference javax packages. */
+	static final List<String>	CLASS_NAMES		= List.of(DATA_PACKAGE + "Sample_Annotation",
+		DATA_PACKAGE + "Sample_Color", DATA_PACKAGE + "Sample_Color$Color", DATA_PACKAGE + "Sample_DirectStrings",
+		DATA_PACKAGE + "Sample_InjectAPI_Javax", DATA_PACKAGE + "Sample_InjectAPI_Javax$Color",
+		DATA_PACKAGE + "Sample_InjectAPI_Javax$Lifetime", DATA_PACKAGE + "Sample_InjectAPI_Javax$SampleValue",
+		DATA_PACKAGE + "Sample_Repeat_Target", DATA_PACKAGE + "Sample_SecurityAPI_Javax",
+		DATA_PACKAGE + "Sample_StringConstant", DATA_PACKAGE + "Sample_Value");
+
+	/** Packages which are renamed by the Jakarta rules. */
+	static final List<String>	JAVAX_PACKAGES	= List.of("javax.annotation", "javax.ejb", "javax.enterprise.context",
+		"javax.faces", "javax.inject", "javax.persistence", "javax.servlet", "javax.servlet.http",
+		"javax.transaction", "javax.validation", "javax.ws.rs", "javax.ws.rs.core");
+
+	private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+	static ByteData byteData(String name, byte[] bytes) {
+		return new ByteDataImpl(name, ByteBuffer.wrap(bytes), FileUtils.DEFAULT_CHARSET);
+	}
+
+	static byte[] classBytes(String className) {
+		String resourceName = "/" + className + ".class";
+		try (InputStream inputStream = Fixtures.class.getResourceAsStream(resourceName)) {
+			if (inputStream == null) {
+				throw new IllegalStateException("Test data class not found [ " + resourceName + " ]");
+			}
+			return inputStream.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Generate a web module descriptor. Most lines are not changed by the
+	 * Jakarta rules.
+	 *
+	 * @param servletCount The number of servlets which are declared.
+	 * @return The descriptor bytes.
+	 */
+	static byte[] webXml(int servletCount) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+			.append("<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\"\n")
+			.append("  xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n")
+			.append(
+				"  xsi:schemaLocation=\"http://xmlns.jcp.org/xml/ns/javaee http://xmlns.jcp.org/xml/ns/javaee/web-app_4_0.xsd\"\n")
+			.append("  version=\"4.0\">\n")
+			.append("  <context-param>\n")
+			.append("    <param-name>javax.faces.PROJECT_STAGE</param-name>\n")
+			.append("    <param-value>Production</param-value>\n")
+			.append("  </context-param>\n");
+		for (int servletNo = 0; servletNo < servletCount; servletNo++) {
+			xml.append("  <servlet>\n")
+				.append("    <servlet-name>servlet")
+				.append(servletNo)
+				.append("</servlet-name>\n")
+				.append("    <servlet-class>org.example.web.Servlet")
+				.append(servletNo)
+				.append("</servlet-class>\n")
+				.append("    <init-param>\n")
+				.append("      <param-name>javax.ws.rs.Application</param-name>\n")
+				.append("      <param-value>org.example.web.Application")
+				.append(servletNo)
+				.append("</param-value>\n")
+				.append("    </init-param>\n")
+				.append("    <load-on-startup>1</load-on-startup>\n")
+				.append("  </servlet>\n")
+				.append("  <servlet-mapping>\n")
+				.append("    <servlet-name>servlet")
+				.append(servletNo)
+				.append("</servlet-name>\n")
+				.append("    <url-pattern>/service")
+				.append(servletNo)
+				.append("/*</url-pattern>\n")
+				.append("  </servlet-mapping>\n")
+				.append("  <resource-ref>\n")
+				.append("    <res-ref-name>jdbc/DataSource")
+				.append(servletNo)
+				.append("</res-ref-name>\n")
+				.append("    <res-type>javax.sql.DataSource</res-type>\n")
+				.append("    <res-auth>Container</res-auth>\n")
+				.append("  </resource-ref>\n");
+		}
+		xml.append("  <listener>\n")
+			.append("    <listener-class>javax.servlet.request.RequestContextListener</listener-class>\n")
+			.append("  </listener>\n")
+			.append("</web-app>\n");
+		return xml.toString()
+			.getBytes(UTF_8);
+	}
+
+	/**
+	 * Generate a bundle manifest with a heavy Import-Package header: Each
+	 * renamed package is imported, followed by packages which are not renamed.
+	 *
+	 * @param packageCount The number of imported packages which are not
+	 *            renamed.
+	 * @return The manifest bytes.
+	 */
+	static byte[] manifest(int packageCount) {
+		StringBuilder imports = new StringBuilder();
+		for (String javaxPackage : JAVAX_PACKAGES) {
+			imports.append(javaxPackage)
+				.append(";version=\"[1.0,2)\",");
+		}
+		for (int packageNo = 0; packageNo < packageCount; packageNo++) {
+			imports.append("org.example.module")
+				.append(packageNo % 10)
+				.append(".pkg")
+				.append(packageNo)
+				.append(";version=\"[1.")
+				.append(packageNo % 7)
+				.append(",2)\";resolution:=optional,");
+		}
+		imports.setLength(imports.length() - 1);
+
+		StringBuilder manifest = new StringBuilder();
+		header(manifest, "Manifest-Version", "1.0");
+		header(manifest, "Bundle-ManifestVersion", "2");
+		header(manifest, "Bundle-SymbolicName", "org.example.benchmark");
+		header(manifest, "Bundle-Version", "1.0.0");
+		header(manifest, "Export-Package",
+			"org.example.benchmark;uses:=\"javax.servlet,javax.servlet.http,javax.inject\";version=\"1.0.0\"");
+		header(manifest, "Import-Package", imports.toString());
+		manifest.append("\r\n");
+		return manifest.toString()
+			.getBytes(UTF_8);
+	}
+
+	/**
+	 * Append a manifest header. Lines are limited to 72 bytes: Longer headers
+	 * are continued on lines which start with a space.
+	 */
+	private static void header(StringBuilder manifest, String name, String value) {
+		String line = name + ": " + value;
+		int lineLength = 72;
+		for (int offset = 0; offset < line.length(); offset += lineLength, lineLength = 71) {
+			if (offset > 0) {
+				manifest.append(' ');
+			}
+			manifest.append(line, offset, Math.min(offset + lineLength, line.length()))
+				.append("\r\n");
+		}
+	}
+
+	/**
+	 * Generate a library archive: A manifest, a service configuration, and the
+	 * test data classes.
+	 */
+	static byte[] jar() {
+		Archive jar = new Archive();
+		jar.add("META-INF/MANIFEST.MF", manifest(40));
+		jar.add("META-INF/services/javax.servlet.ServletContainerInitializer",
+			"transformer.test.data.Sample_InjectAPI_Javax\n".getBytes(UTF_8));
+		for (String className : CLASS_NAMES) {
+			jar.add(className + ".class", classBytes(className));
+		}
+		return jar.toByteArray();
+	}
+
+	/**
+	 * Generate a web archive: A web module descriptor, the test data classes,
+	 * and nested library archives.
+	 *
+	 * @param libraryCount The number of nested library archives.
+	 */
+	static byte[] war(int libraryCount) {
+		Archive war = new Archive();
+		war.add("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(UTF_8));
+		war.add("WEB-INF/web.xml", webXml(50));
+		for (String className : CLASS_NAMES) {
+			war.add("WEB-INF/classes/" + className + ".class", classBytes(className));
+		}
+		byte[] library = jar();
+		for (int libraryNo = 0; libraryNo < libraryCount; libraryNo++) {
+			war.add("WEB-INF/lib/library" + libraryNo + ".jar", library);
+		}
+		return war.toByteArray();
+	}
+
+	/**
+	 * Generate an enterprise archive: An application descriptor, nested web
+	 * archives, and nested library archives.
+	 *
+	 * @param warCount The number of nested web archives.
+	 * @param libraryCount The number of nested library archives, both in the
+	 *            enterprise archive and in each web archive.
+	 */
+	static byte[] ear(int warCount, int libraryCount) {
+		StringBuilder applicationXml = new StringBuilder();
+		applicationXml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+			.append("<application xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"8\">\n");
+		for (int warNo = 0; warNo < warCount; warNo++) {
+			applicationXml.append("  <module><web><web-uri>web")
+				.append(warNo)
+				.append(".war</web-uri><context-root>/web")
+				.append(warNo)
+				.append("</context-root></web></module>\n");
+		}
+		applicationXml.append("</application>\n");
+
+		Archive ear = new Archive();
+		ear.add("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(UTF_8));
+		ear.add("META-INF/application.xml", applicationXml.toString()
+			.getBytes(UTF_8));
+		byte[] war = war(libraryCount);
+		for (int warNo = 0; warNo < warCount; warNo++) {
+			ear.add("web" + warNo + ".war", war);
+		}
+		byte[] library = jar();
+		for (int libraryNo = 0; libraryNo < libraryCount; libraryNo++) {
+			ear.add("lib/library" + libraryNo + ".jar", library);
+		}
+		return ear.toByteArray();
+	}
+
+	/**
+	 * An archive which is written in memory. Entries have a fixed time, so
+	 * that the same bytes are written on every run.
+	 */
+	private static final class Archive {
+		private final ByteArrayOutputStream	bytes	= new ByteArrayOutputStream();
+		private final ZipOutputStream		zip		= new ZipOutputStream(bytes);
+
+		void add(String name, byte[] content) {
+			ZipEntry entry = new ZipEntry(name);
+			entry.setTimeLocal(ENTRY_TIME);
+			try {
+				zip.putNextEntry(entry);
+				zip.write(content);
+				zip.closeEntry();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		byte[] toByteArray() {
+			try {
+				zip.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return bytes.toByteArray();
+		}
+	}
+}
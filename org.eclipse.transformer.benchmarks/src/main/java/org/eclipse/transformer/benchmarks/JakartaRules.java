@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.transformer.AppOption;
+import org.eclipse.transformer.TransformOptions;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ActionSelector;
+import org.eclipse.transformer.action.ElementAction;
+import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.jakarta.JakartaTransform;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * The default Jakarta rules, loaded the same as by the Jakarta command line
+ * interface. Logging is disabled, so that logging is not measured.
+ */
+final class JakartaRules {
+	/**
+	 * Load the default Jakarta rules.
+	 *
+	 * @param threads The value of the threads option. Null to use a single
+	 *            thread.
+	 * @return The loaded rules.
+	 * @throws Exception Thrown if the rules cannot be loaded.
+	 */
+	static JakartaRules load(String threads) throws Exception {
+		Map<String, String> optionDefaults = JakartaTransform.getOptionDefaults();
+		Function<String, URL> ruleLoader = JakartaTransform.getRuleLoader();
+
+		TransformOptions options = new TransformOptions() {
+			@Override
+			public String getOptionValue(AppOption option) {
+				return (option == AppOption.THREADS) ? threads : null;
+			}
+
+			@Override
+			public String getDefaultValue(AppOption option) {
+				return optionDefaults.get(option.getLongTag());
+			}
+
+			@Override
+			public Function<String, URL> getRuleLoader() {
+				return ruleLoader;
+			}
+		};
+
+		Transformer transformer = new Transformer(NOPLogger.NOP_LOGGER, options);
+		if (!transformer.setRules(transformer.getImmediateData())) {
+			throw new IllegalStateException("The Jakarta rules are not valid");
+		}
+		return new JakartaRules(transformer);
+	}
+
+	private JakartaRules(Transformer transformer) {
+		this.transformer = transformer;
+	}
+
+	private final Transformer transformer;
+
+	ActionContext getActionContext() {
+		return transformer.getActionContext();
+	}
+
+	SignatureRule getSignatureRule() {
+		return transformer.getSignatureRule();
+	}
+
+	ActionSelector getActionSelector() {
+		return transformer.getActionSelector();
+	}
+
+	/**
+	 * Select the action which the transformer uses for a resource.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @return The action which is selected for the resource.
+	 */
+	ElementAction selectAction(String resourceName) {
+		Action action = getActionSelector().selectAction(resourceName, null);
+		if (!(action instanceof ElementAction)) {
+			throw new IllegalStateException("No element action for [ " + resourceName + " ]: [ " + action + " ]");
+		}
+		return (ElementAction) action;
+	}
+}
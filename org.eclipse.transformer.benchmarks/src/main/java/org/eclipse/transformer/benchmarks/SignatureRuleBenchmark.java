@@ -0,0 +1,103 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Transform package names, descriptors, and signatures using the Jakarta
+ * signature rule. Each benchmark invocation transforms a fixed mix of values,
+ * most of which are not changed, the same as for typical classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureRuleBenchmark {
+	static final String[]	TEXTS				= {
+		"javax.servlet.http.HttpServletRequest", "import javax.inject.Inject;", "org.example.service.OrderService",
+		"An error occurred while processing the request", "javax.faces.PROJECT_STAGE",
+		"java.util.concurrent.ConcurrentHashMap", "@javax.ws.rs.Path(\"/orders\")", "toString"
+	};
+
+	static final String[]	DESCRIPTORS			= {
+		"(Ljavax/servlet/ServletRequest;Ljavax/servlet/ServletResponse;)V", "()V", "Ljava/lang/String;",
+		"(Ljava/lang/Object;)Z", "Ljavax/inject/Provider;", "(ILjava/lang/String;[Ljava/lang/Object;)V",
+		"Lorg/example/model/Customer;", "(Ljavax/persistence/EntityManager;)Ljava/util/List;"
+	};
+
+	static final String[]	CLASS_SIGNATURES	= {
+		"<K:Ljava/lang/Object;V:Ljava/lang/Object;>Ljava/lang/Object;",
+		"Ljava/lang/Object;Ljavax/enterprise/inject/Instance<Ljava/lang/String;>;"
+	};
+
+	static final String[]	FIELD_SIGNATURES	= {
+		"Ljava/util/List<Ljavax/servlet/Filter;>;", "Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;",
+		"Ljava/util/Optional<Ljava/lang/String;>;", "Ljavax/inject/Provider<Lorg/example/service/OrderService;>;"
+	};
+
+	static final String[]	METHOD_SIGNATURES	= {
+		"<T:Ljava/lang/Object;>(Ljavax/enterprise/event/Event<TT;>;)V",
+		"(Ljava/util/List<Ljava/lang/String;>;)Ljava/util/Set<Ljava/lang/Integer;>;"
+	};
+
+	private SignatureRule				signatureRule;
+
+	@Setup
+	public void setUp() throws Exception {
+		signatureRule = JakartaRules.load(null)
+			.getSignatureRule();
+	}
+
+	@Benchmark
+	public void replacePackages(Blackhole blackhole) {
+		for (String text : TEXTS) {
+			blackhole.consume(signatureRule.replacePackages(text));
+		}
+	}
+
+	@Benchmark
+	public void transformDescriptor(Blackhole blackhole) {
+		for (String descriptor : DESCRIPTORS) {
+			blackhole.consume(signatureRule.transformDescriptor(descriptor));
+		}
+	}
+
+	@Benchmark
+	public void transformSignature(Blackhole blackhole) {
+		for (String signature : CLASS_SIGNATURES) {
+			blackhole.consume(signatureRule.transformSignature(signature, SignatureType.CLASS));
+		}
+		for (String signature : FIELD_SIGNATURES) {
+			blackhole.consume(signatureRule.transformSignature(signature, SignatureType.FIELD));
+		}
+		for (String signature : METHOD_SIGNATURES) {
+			blackhole.consume(signatureRule.transformSignature(signature, SignatureType.METHOD));
+		}
+	}
+}
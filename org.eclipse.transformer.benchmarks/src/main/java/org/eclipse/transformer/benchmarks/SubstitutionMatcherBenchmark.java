@@ -0,0 +1,117 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.util.SubstitutionMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Apply text substitutions using the compiled substitution matcher, and using
+ * the key-by-key replacement which it replaces. The inputs model the UTF8
+ * constants of class files: Most contain no keys. A few contain one key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubstitutionMatcherBenchmark {
+	static final String[]	PACKAGES	= {
+		"javax.servlet", "javax.servlet.http", "javax.servlet.jsp", "javax.faces", "javax.ws.rs", "javax.ejb",
+		"javax.persistence", "javax.enterprise.context", "javax.annotation", "javax.xml.bind"
+	};
+
+	static final String[]	CONSTANTS	= {
+		"java/lang/Object", "()V", "Ljava/lang/String;", "toString", "hashCode", "Code", "LineNumberTable",
+		"(Ljava/lang/Object;)Z", "org/example/service/OrderService", "this", "StackMapTable", "SourceFile",
+		"Lorg/example/model/Customer;", "An error occurred while processing the request", "getName"
+	};
+
+	static final int		INPUT_COUNT	= 10_000;
+
+	@Param({
+		"10", "160"
+	})
+	public int					keyCount;
+
+	private Map<String, String>	substitutions;
+	private SubstitutionMatcher	matcher;
+	private List<String>		inputs;
+
+	@Setup
+	public void setUp() {
+		substitutions = new HashMap<>();
+		for (int keyNo = 0; substitutions.size() < keyCount; keyNo++) {
+			String key = PACKAGES[keyNo % PACKAGES.length] + ".attribute_" + keyNo;
+			substitutions.put(key, key.replace("javax.", "jakarta."));
+		}
+		matcher = new SubstitutionMatcher(substitutions);
+
+		Random random = new Random(0);
+		List<String> keys = new ArrayList<>(substitutions.keySet());
+		inputs = new ArrayList<>(INPUT_COUNT);
+		for (int inputNo = 0; inputNo < INPUT_COUNT; inputNo++) {
+			String constant = CONSTANTS[random.nextInt(CONSTANTS.length)];
+			if (random.nextInt(100) == 0) {
+				constant = "Attribute " + keys.get(random.nextInt(keys.size())) + " is not set";
+			}
+			inputs.add(constant);
+		}
+	}
+
+	@Benchmark
+	public void compiled(Blackhole blackhole) {
+		for (String input : inputs) {
+			blackhole.consume(matcher.replace(input));
+		}
+	}
+
+	@Benchmark
+	public void byKey(Blackhole blackhole) {
+		for (String input : inputs) {
+			blackhole.consume(replaceByKey(input));
+		}
+	}
+
+	/**
+	 * The replacement which was used before the compiled matcher.
+	 */
+	private String replaceByKey(String initialValue) {
+		String finalValue = initialValue;
+		for (Map.Entry<String, String> substitution : substitutions.entrySet()) {
+			String key = substitution.getKey();
+			if (finalValue.contains(key)) {
+				finalValue = finalValue.replace(key, substitution.getValue());
+			}
+		}
+		return (finalValue != initialValue) ? finalValue : null;
+	}
+}
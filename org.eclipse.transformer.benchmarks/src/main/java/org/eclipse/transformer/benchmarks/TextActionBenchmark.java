@@ -0,0 +1,74 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.XmlActionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transform a large web module descriptor using the text action, which
+ * applies the text rules which are selected for the descriptor, and using the
+ * XML action, which applies the package renames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextActionBenchmark {
+	static final String	RESOURCE_NAME	= "WEB-INF/web.xml";
+
+	@Param({
+		"100", "1000"
+	})
+	public int			servletCount;
+
+	private TextActionImpl	textAction;
+	private XmlActionImpl	xmlAction;
+	private ByteData		inputData;
+
+	@Setup
+	public void setUp() throws Exception {
+		ActionContext context = JakartaRules.load(null)
+			.getActionContext();
+		textAction = new TextActionImpl(context);
+		xmlAction = new XmlActionImpl(context);
+		inputData = Fixtures.byteData(RESOURCE_NAME, Fixtures.webXml(servletCount));
+	}
+
+	@Benchmark
+	public ByteData text() throws TransformException {
+		return textAction.apply(inputData);
+	}
+
+	@Benchmark
+	public ByteData xml() throws TransformException {
+		return xmlAction.apply(inputData);
+	}
+}
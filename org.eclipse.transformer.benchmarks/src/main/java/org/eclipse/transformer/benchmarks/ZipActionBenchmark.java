@@ -0,0 +1,72 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.ElementAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transform generated web and enterprise archives end to end, using the
+ * archive action which is selected by the transformer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipActionBenchmark {
+	@Param({
+		"war", "ear"
+	})
+	public String			archiveType;
+
+	/**
+	 * The value of the threads option: One to transform on the calling thread,
+	 * zero to use one thread per processor.
+	 */
+	@Param({
+		"1", "0"
+	})
+	public String			threads;
+
+	private ElementAction	action;
+	private ByteData		inputData;
+
+	@Setup
+	public void setUp() throws Exception {
+		String resourceName = "benchmark." + archiveType;
+		byte[] archive = archiveType.equals("war") ? Fixtures.war(20) : Fixtures.ear(4, 10);
+		action = JakartaRules.load(threads)
+			.selectAction(resourceName);
+		inputData = Fixtures.byteData(resourceName, archive);
+	}
+
+	@Benchmark
+	public ByteData apply() throws TransformException {
+		return action.apply(inputData);
+	}
+}
@@ -13,6 +13,7 @@ package org.eclipse.transformer.cli;
 
 import static org.eclipse.transformer.Transformer.consoleMarker;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -84,6 +85,38 @@ public class TransformerCLI implements TransformOptions {
 		}
 
 		logger = new TransformerLoggerFactory(this).createLogger();
+		workingDirectory = null;
+	}
+
+	/**
+	 * Create the options of a request which a daemon received from a client.
+	 * The request uses the logger, the output streams, and the option
+	 * defaults of the daemon: Logging options of the request are ignored.
+	 * Relative input and output names are resolved against the working
+	 * directory of the client.
+	 *
+	 * @param daemonCli The command line of the daemon.
+	 * @param workingDirectory The working directory of the client.
+	 * @param args The command line arguments of the client.
+	 */
+	TransformerCLI(TransformerCLI daemonCli, File workingDirectory, String... args) {
+		this.sysOut = daemonCli.getSystemOut();
+		this.sysErr = daemonCli.getSystemErr();
+		this.args = args;
+
+		appOptions = daemonCli.getAppOptions();
+
+		try {
+			CommandLineParser parser = new DefaultParser();
+			parsedArgs = parser.parse(getAppOptions(), getArgs());
+		} catch (ParseException e) {
+			throw new TransformException("Exception parsing command line arguments", e);
+		}
+
+		logger = daemonCli.getLogger();
+		this.workingDirectory = workingDirectory;
+		ruleLoader = daemonCli.getRuleLoader();
+		optionDefaults = daemonCli.getOptionDefaults();
 	}
 
 	public Logger getLogger() {
@@ -226,6 +259,7 @@ public class TransformerCLI implements TransformOptions {
 
 	private final String[]			args;
 	private final CommandLine		parsedArgs;
+	private final File				workingDirectory;
 
 	private Changes					lastActiveChanges;
 
@@ -274,7 +308,7 @@ public class TransformerCLI implements TransformOptions {
 		String[] useArgs = getParsedArgs().getArgs();
 		if (useArgs != null) {
 			if (useArgs.length > 0) {
-				return useArgs[0]; // First argument
+				return resolve(useArgs[0]); // First argument
 			}
 		}
 		return null;
@@ -285,12 +319,19 @@ public class TransformerCLI implements TransformOptions {
 		String[] useArgs = getParsedArgs().getArgs();
 		if (useArgs != null) {
 			if (useArgs.length > 1) {
-				return useArgs[1]; // Second argument
+				return resolve(useArgs[1]); // Second argument
 			}
 		}
 		return null;
 	}
 
+	private String resolve(String fileName) {
+		if ((workingDirectory == null) || new File(fileName).isAbsolute()) {
+			return fileName;
+		}
+		return new File(workingDirectory, fileName).getPath();
+	}
+
 	@Override
 	public boolean hasOption(AppOption option) {
 		return getParsedArgs().hasOption(option.getShortTag());
@@ -382,6 +423,12 @@ public class TransformerCLI implements TransformOptions {
 			return logResult(ResultCode.SUCCESS_RC);
 		}
 
+		if (hasOption(AppOption.DAEMON)) {
+			return logResult(new TransformerDaemon(this).run());
+		} else if (hasOption(AppOption.DAEMON_CONNECT)) {
+			return logResult(new TransformerDaemonClient(this).run());
+		}
+
 		try {
 			Transformer transformer = new Transformer(getLogger(), this);
 			ResultCode rc = transformer.run();
@@ -0,0 +1,448 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.cli;
+
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.transformer.Transformer.consoleMarker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import org.eclipse.transformer.AppOption;
+import org.eclipse.transformer.BatchTransformer;
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.ResultCode;
+import org.slf4j.Logger;
+
+/**
+ * A transformer which runs as a daemon: Transformation requests are received
+ * from clients, see {@link TransformerDaemonClient}, and are transformed
+ * using rules which are loaded once, and which are kept in memory. See
+ * {@link AppOption#DAEMON}.
+ * <p>
+ * The daemon listens at a Unix domain socket, which only the owner of the
+ * daemon may use: The user of each client is verified using the credentials
+ * of its connection, and connections of other users, or of users which cannot
+ * be verified, are refused. A request is the command line of a client, with
+ * the working directory of the client.
+ * The input and output of the request are resolved against that working
+ * directory. The input of a request is a single input, or is a batch when the
+ * batch option is set. See {@link BatchTransformer}.
+ * <p>
+ * Requests which have the same rule set share a transformer, which is created,
+ * which loads its rules, and which builds its action graph, for the first
+ * request of the rule set. The rule set of a request is the options of the
+ * request, less the options which only apply to the request: the logging,
+ * overwrite, file type, and batch options. Relative rule references are
+ * resolved against the working directory of the client, which is part of the
+ * rule set when rule options are specified. Other relative paths, for example,
+ * the archive cache directory, are resolved against the working directory of
+ * the daemon. A rule set the rules files of which have changed since they
+ * were loaded is loaded again.
+ * <p>
+ * Requests are run concurrently on a worker pool which is sized by the thread
+ * count option of the daemon. The thread count defaults to the number of
+ * available processors.
+ * <p>
+ * The protocol is a single exchange per connection, using the encodings of
+ * {@link DataOutputStream}. A transformation request is
+ * {@link #TRANSFORM_REQUEST}, the working directory, the argument count, and
+ * the arguments, which are limited by {@link #MAX_ARG_COUNT} and
+ * {@link #MAX_ARGS_LENGTH}. A stop request is {@link #STOP_REQUEST}. The
+ * response is the ordinal of the result code.
+ */
+public class TransformerDaemon {
+	public static final String	TRANSFORM_REQUEST	= "transform";
+	public static final String	STOP_REQUEST		= "stop";
+
+	/** Maximum number of arguments of a transformation request. */
+	public static final int		MAX_ARG_COUNT		= 1024;
+	/** Maximum total length of the arguments of a transformation request. */
+	public static final int		MAX_ARGS_LENGTH		= 1024 * 1024;
+
+	/**
+	 * Options which apply to a single request, and which are not part of the
+	 * rule set of the request.
+	 */
+	private static final Set<AppOption> REQUEST_OPTIONS = EnumSet.of(AppOption.USAGE, AppOption.HELP,
+		AppOption.LOG_QUIET, AppOption.LOG_DEBUG, AppOption.LOG_TRACE, AppOption.LOG_SHOW_DATE_TIME,
+		AppOption.LOG_PROPERTY, AppOption.LOG_PROPERTY_FILE, AppOption.LOG_NAME, AppOption.LOG_LEVEL,
+		AppOption.LOG_FILE, AppOption.FILE_TYPE, AppOption.OVERWRITE, AppOption.BATCH, AppOption.DAEMON,
+		AppOption.DAEMON_CONNECT, AppOption.DAEMON_STOP);
+
+	public TransformerDaemon(TransformerCLI cli) {
+		this.cli = requireNonNull(cli);
+	}
+
+	private final TransformerCLI					cli;
+	private final Map<List<String>, Transformer>	ruleSets		= new ConcurrentHashMap<>();
+	private final AtomicInteger						requestCount	= new AtomicInteger();
+	private volatile ServerSocketChannel			serverChannel;
+	private Path									socketPath;
+	private UserPrincipal							socketOwner;
+
+	public Logger getLogger() {
+		return cli.getLogger();
+	}
+
+	/**
+	 * Answer the number of rule sets which are held by the daemon.
+	 *
+	 * @return The number of rule sets which are held by the daemon.
+	 */
+	public int getRuleSetCount() {
+		return ruleSets.size();
+	}
+
+	/**
+	 * Answer the socket address of a daemon address, which is the path of a
+	 * Unix domain socket.
+	 *
+	 * @param addressText The daemon address.
+	 * @return The socket address of the daemon.
+	 * @throws IllegalArgumentException Thrown if the address is not a valid
+	 *             path.
+	 */
+	public static UnixDomainSocketAddress getAddress(String addressText) {
+		return UnixDomainSocketAddress.of(addressText);
+	}
+
+	/**
+	 * Run the daemon: Bind the daemon address, then serve requests until the
+	 * daemon is stopped.
+	 *
+	 * @return The result of the daemon.
+	 */
+	public ResultCode run() {
+		try {
+			bind();
+		} catch (IllegalArgumentException e) {
+			getLogger().error(consoleMarker, "Non-valid daemon address [ {} ]",
+				cli.getOptionValue(AppOption.DAEMON), e);
+			return ResultCode.ARGS_ERROR_RC;
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Daemon address cannot be bound [ {} ]",
+				cli.getOptionValue(AppOption.DAEMON), e);
+			return ResultCode.TRANSFORM_ERROR_RC;
+		}
+		return serve();
+	}
+
+	/**
+	 * Bind the daemon address. A Unix domain socket file which is left by a
+	 * daemon which is no longer running is replaced. The socket file is made
+	 * readable and writable by its owner only, on file systems which support
+	 * POSIX permissions. Since the socket file exists before its permissions
+	 * are set, and since not every file system has POSIX permissions, the
+	 * user of each connection is also verified to be the owner of the socket
+	 * file, which is the user of the daemon.
+	 *
+	 * @return The bound address.
+	 * @throws IOException Thrown if the address cannot be bound, or is in use
+	 *             by a running daemon.
+	 */
+	public SocketAddress bind() throws IOException {
+		UnixDomainSocketAddress address = getAddress(cli.getOptionValue(AppOption.DAEMON));
+		Path path = address.getPath();
+		if (Files.exists(path)) {
+			if (isListening(address)) {
+				throw new IOException("Daemon address is in use [ " + path + " ]");
+			}
+			Files.delete(path);
+		}
+		ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			channel.bind(address);
+			socketPath = path;
+			socketOwner = Files.getOwner(path);
+			if (Files.getFileStore(path)
+				.supportsFileAttributeView(PosixFileAttributeView.class)) {
+				Files.setPosixFilePermissions(path, OWNER_ONLY);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		serverChannel = channel;
+
+		SocketAddress boundAddress = channel.getLocalAddress();
+		getLogger().info(consoleMarker, "Transformer daemon listening [ {} ]", boundAddress);
+		return boundAddress;
+	}
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ,
+		PosixFilePermission.OWNER_WRITE);
+
+	private static boolean isListening(SocketAddress address) {
+		try (SocketChannel channel = SocketChannel.open(address)) {
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Serve requests until the daemon is stopped. Requests which are in
+	 * progress when the daemon is stopped are completed.
+	 *
+	 * @return The result of the daemon.
+	 */
+	public ResultCode serve() {
+		ServerSocketChannel channel = requireNonNull(serverChannel, "The daemon address is not bound");
+
+		int workers = cli.hasOption(AppOption.THREADS) ? new Transformer(getLogger(), cli).getThreadCount()
+			: Runtime.getRuntime()
+				.availableProcessors();
+		getLogger().info(consoleMarker, "Daemon requests will be transformed using [ {} ] threads.", workers);
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+			Thread thread = new Thread(r, "transformer-daemon-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		ResultCode rc = ResultCode.SUCCESS_RC;
+		try {
+			while (true) {
+				SocketChannel clientChannel;
+				try {
+					clientChannel = channel.accept();
+				} catch (ClosedChannelException e) {
+					break; // The daemon was stopped.
+				}
+				executor.execute(() -> handle(clientChannel));
+			}
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Daemon failure", e);
+			rc = ResultCode.TRANSFORM_ERROR_RC;
+		} finally {
+			stop();
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(10L, TimeUnit.SECONDS)) {
+					getLogger().info(consoleMarker, "Daemon is waiting for requests to complete");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+			}
+			if (socketPath != null) {
+				try {
+					Files.deleteIfExists(socketPath);
+				} catch (IOException e) {
+					getLogger().error(consoleMarker, "Daemon socket cannot be deleted [ {} ]", socketPath, e);
+				}
+			}
+		}
+
+		getLogger().info(consoleMarker, "Transformer daemon stopped: [ {} ] requests", requestCount.get());
+		return rc;
+	}
+
+	/**
+	 * Stop the daemon: No new requests are accepted.
+	 */
+	public void stop() {
+		ServerSocketChannel channel = serverChannel;
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				getLogger().error(consoleMarker, "Daemon address cannot be closed", e);
+			}
+		}
+	}
+
+	/**
+	 * Answer the user of a client connection.
+	 *
+	 * @return The user of the client. Null if the user cannot be obtained.
+	 */
+	private static UserPrincipal getPeer(SocketChannel clientChannel) {
+		try {
+			UnixDomainPrincipal peer = clientChannel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+			return peer.user();
+		} catch (UnsupportedOperationException | IOException e) {
+			return null;
+		}
+	}
+
+	private void handle(SocketChannel clientChannel) {
+		int requestNo = requestCount.incrementAndGet();
+		UserPrincipal peer = getPeer(clientChannel);
+		if ((peer == null) || !peer.equals(socketOwner)) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ]: Refused connection of user [ {} ]", requestNo,
+				(peer == null) ? "unknown" : peer.getName());
+			try {
+				clientChannel.close();
+			} catch (IOException e) {
+				getLogger().error(consoleMarker, "Daemon request [ {} ] failed", requestNo, e);
+			}
+			return;
+		}
+
+		try (SocketChannel channel = clientChannel;
+			DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+
+			String request = input.readUTF();
+			ResultCode rc;
+			if (STOP_REQUEST.equals(request)) {
+				getLogger().info(consoleMarker, "Daemon request [ {} ]: Stop", requestNo);
+				rc = ResultCode.SUCCESS_RC;
+			} else if (TRANSFORM_REQUEST.equals(request)) {
+				File workingDirectory = new File(input.readUTF());
+				int argCount = input.readInt();
+				if ((argCount < 0) || (argCount > MAX_ARG_COUNT)) {
+					throw new IOException("Non-valid argument count [ " + argCount + " ]");
+				}
+				String[] args = new String[argCount];
+				long argsLength = 0L;
+				for (int argNo = 0; argNo < argCount; argNo++) {
+					args[argNo] = input.readUTF();
+					argsLength += args[argNo].length();
+					if (argsLength > MAX_ARGS_LENGTH) {
+						throw new IOException("Arguments are longer than [ " + MAX_ARGS_LENGTH + " ]");
+					}
+				}
+				rc = transform(requestNo, workingDirectory, args);
+			} else {
+				getLogger().error(consoleMarker, "Daemon request [ {} ]: Unknown request [ {} ]", requestNo, request);
+				rc = ResultCode.ARGS_ERROR_RC;
+			}
+
+			output.writeInt(rc.ordinal());
+			output.flush();
+
+			if (STOP_REQUEST.equals(request)) {
+				stop();
+			}
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ] failed", requestNo, e);
+		}
+	}
+
+	/**
+	 * Transform a request, using the transformer of the rule set of the
+	 * request.
+	 */
+	protected ResultCode transform(int requestNo, File workingDirectory, String... args) {
+		getLogger().info(consoleMarker, "Daemon request [ {} ]: Directory [ {} ] Arguments {}", requestNo,
+			workingDirectory, Arrays.toString(args));
+
+		TransformerCLI requestCli;
+		try {
+			requestCli = new TransformerCLI(cli, workingDirectory, args);
+		} catch (TransformException e) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ]: Non-valid arguments", requestNo, e);
+			return ResultCode.ARGS_ERROR_RC;
+		}
+		if (requestCli.hasOption(AppOption.DAEMON)) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ]: A daemon cannot be requested", requestNo);
+			return ResultCode.ARGS_ERROR_RC;
+		}
+		if (requestCli.getInputFileName() == null) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ]: No input was specified", requestNo);
+			return ResultCode.ARGS_ERROR_RC;
+		}
+
+		ResultCode rc;
+		try {
+			List<String> ruleSetKey = getRuleSetKey(requestCli, workingDirectory);
+			Function<List<String>, Transformer> newRuleSet = k -> {
+				getLogger().info(consoleMarker, "Daemon request [ {} ]: New rule set {}", requestNo, k);
+				Transformer ruleSet = new Transformer(getLogger(), requestCli);
+				ruleSet.setBase(workingDirectory.toURI());
+				return ruleSet;
+			};
+			Transformer transformer = ruleSets.computeIfAbsent(ruleSetKey, newRuleSet);
+
+			// A rule set the rules files of which have changed is replaced.
+			// Requests which are using the prior rule set complete using
+			// the prior rules.
+			if (transformer.isRulesChanged()) {
+				ruleSets.remove(ruleSetKey, transformer);
+				transformer = ruleSets.computeIfAbsent(ruleSetKey, newRuleSet);
+			}
+
+			// A rule set which cannot be loaded is discarded, so that a later
+			// request can load the rules again.
+			rc = transformer.loadRules();
+			if (rc != ResultCode.SUCCESS_RC) {
+				ruleSets.remove(ruleSetKey, transformer);
+			} else {
+				rc = new BatchTransformer(transformer, requestCli).run();
+			}
+		} catch (Throwable th) {
+			getLogger().error(consoleMarker, "Daemon request [ {} ]: Unexpected failure", requestNo, th);
+			rc = ResultCode.TRANSFORM_ERROR_RC;
+		}
+
+		getLogger().info(consoleMarker, "Daemon request [ {} ]: Return Code [ {} ] [ {} ]", requestNo, rc.ordinal(),
+			rc);
+		return rc;
+	}
+
+	private static List<String> getRuleSetKey(TransformerCLI requestCli, File workingDirectory) {
+		List<String> key = new ArrayList<>();
+		boolean hasRules = false;
+		for (AppOption option : AppOption.values()) {
+			if (REQUEST_OPTIONS.contains(option) || !requestCli.hasOption(option)) {
+				continue;
+			}
+			key.add(option.getLongTag());
+			if (option.getHasArg() || option.getHasArgs() || option.getHasArgCount()) {
+				key.addAll(requestCli.getOptionValues(option));
+			}
+			if (Transformer.TARGETABLE_RULES.contains(option)) {
+				hasRules = true;
+			}
+		}
+		if (hasRules) {
+			key.add(workingDirectory.getAbsolutePath());
+		}
+		return key;
+	}
+}
@@ -0,0 +1,99 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.cli;
+
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.transformer.Transformer.consoleMarker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.AppOption;
+import org.eclipse.transformer.Transformer.ResultCode;
+import org.slf4j.Logger;
+
+/**
+ * A client of a transformer daemon: The command line of the client is sent
+ * to the daemon, which transforms the request, and which answers the result
+ * of the transformation. See {@link TransformerDaemon} and
+ * {@link AppOption#DAEMON_CONNECT}.
+ * <p>
+ * When the stop option is set, the daemon is stopped instead.
+ */
+public class TransformerDaemonClient {
+	public TransformerDaemonClient(TransformerCLI cli) {
+		this.cli = requireNonNull(cli);
+	}
+
+	private final TransformerCLI cli;
+
+	public Logger getLogger() {
+		return cli.getLogger();
+	}
+
+	/**
+	 * Send the request to the daemon, and wait for the result.
+	 *
+	 * @return The result of the request. An error if the daemon cannot be
+	 *         reached.
+	 */
+	public ResultCode run() {
+		String addressText = cli.getOptionValue(AppOption.DAEMON_CONNECT);
+		SocketAddress address;
+		try {
+			address = TransformerDaemon.getAddress(addressText);
+		} catch (IllegalArgumentException e) {
+			getLogger().error(consoleMarker, "Non-valid daemon address [ {} ]", addressText, e);
+			return ResultCode.ARGS_ERROR_RC;
+		}
+
+		try (SocketChannel channel = SocketChannel.open(address);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+
+			if (cli.hasOption(AppOption.DAEMON_STOP)) {
+				getLogger().info(consoleMarker, "Stopping daemon [ {} ]", address);
+				output.writeUTF(TransformerDaemon.STOP_REQUEST);
+			} else {
+				getLogger().info(consoleMarker, "Sending transformation to daemon [ {} ]", address);
+				String[] args = cli.getArgs();
+				output.writeUTF(TransformerDaemon.TRANSFORM_REQUEST);
+				output.writeUTF(IO.work.getAbsolutePath());
+				output.writeInt(args.length);
+				for (String arg : args) {
+					output.writeUTF(arg);
+				}
+			}
+			output.flush();
+
+			int resultNo = input.readInt();
+			ResultCode[] resultCodes = ResultCode.values();
+			if ((resultNo < 0) || (resultNo >= resultCodes.length)) {
+				getLogger().error(consoleMarker, "Non-valid daemon result [ {} ]", resultNo);
+				return ResultCode.TRANSFORM_ERROR_RC;
+			}
+			return resultCodes[resultNo];
+
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Daemon request failed [ {} ]", address, e);
+			return ResultCode.TRANSFORM_ERROR_RC;
+		}
+	}
+}
@@ -12,30 +12,55 @@
 package transformer.test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import aQute.lib.io.IO;
 import org.assertj.core.api.SoftAssertions;
 import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ContainerChanges;
 import org.eclipse.transformer.action.ElementAction;
+import org.eclipse.transformer.action.impl.ByteDataImpl;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
 import org.eclipse.transformer.action.impl.ZipActionImpl;
 import org.eclipse.transformer.cli.JakartaTransformerCLI;
 import org.eclipse.transformer.cli.TransformerCLI;
+import org.eclipse.transformer.cli.TransformerDaemon;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -241,6 +266,646 @@ class TestCommandLine {
 		verifyAction(ZipActionImpl.class.getName(), inputFileName, outputFileName, outputFileName, 3);
 	}
 
+	// Test that transforming entries in parallel writes the same entries, in
+	// the same order, and detects the same duplicates, as a single thread.
+	@Test
+	void zip_parallel_entries() throws Exception {
+		String inputFileName = STATIC_CONTENT_DIR + "/command-line/servlet_plu_singlethreadmodel_web.war";
+		String serialFileName = DYNAMIC_CONTENT_DIR + "/serial.war";
+		String parallelFileName = DYNAMIC_CONTENT_DIR + "/parallel.war";
+		verifyAction(ZipActionImpl.class.getName(), inputFileName, serialFileName, serialFileName, 3);
+		verifyAction(ZipActionImpl.class.getName(), inputFileName, parallelFileName, parallelFileName, 3, "--threads",
+			"4");
+		assertThat(readEntries(parallelFileName)).containsExactlyEntriesOf(readEntries(serialFileName));
+	}
+
+	// Test that an archive file, which is read through its central directory,
+	// is transformed the same as when the archive is read as a stream.
+	@Test
+	void zip_random_access() throws Exception {
+		String inputFileName = STATIC_CONTENT_DIR + "/command-line/nested_stored_archive.war";
+		String outputFileName = DYNAMIC_CONTENT_DIR + "/nested_stored_archive.war";
+
+		TransformerCLI cli = new JakartaTransformerCLI(System.out, System.err, inputFileName, outputFileName, "-o");
+		Transformer transformer = new Transformer(cli.getLogger(), cli);
+		assertThat(transformer.run()).as("transformer run")
+			.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+
+		ZipActionImpl zipAction = (ZipActionImpl) transformer.acceptedAction;
+		ByteData inputData = new ByteDataImpl(inputFileName, ByteBuffer.wrap(IO.read(new File(inputFileName))),
+			StandardCharsets.UTF_8);
+		ByteData outputData = zipAction.apply(inputData);
+
+		File streamedFile = new File(DYNAMIC_CONTENT_DIR, "streamed.war");
+		IO.copy(outputData.stream(), streamedFile);
+
+		assertThat(readEntries(outputFileName)).containsExactlyEntriesOf(readEntries(streamedFile.getPath()));
+	}
+
+	// Test that transforming nested archives in parallel writes the same
+	// entries, and records the same changes, as transforming them serially.
+	@Test
+	void zip_parallel_nested_archives() throws Exception {
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "nested.ear");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(IO.outputStream(inputFile))) {
+			for (int copy = 0; copy < 3; copy++) {
+				for (String nestedName : List.of("sac-1.3.jar", "nested_stored_archive.war",
+					"servlet_plu_singlethreadmodel_web.war")) {
+					zipOutputStream.putNextEntry(new ZipEntry("lib" + copy + "/" + nestedName));
+					zipOutputStream.write(IO.read(new File(STATIC_CONTENT_DIR + "/command-line/" + nestedName)));
+					zipOutputStream.closeEntry();
+				}
+			}
+		}
+		String serialFileName = DYNAMIC_CONTENT_DIR + "/serial.ear";
+		String parallelFileName = DYNAMIC_CONTENT_DIR + "/parallel.ear";
+
+		ContainerChanges serialChanges = runTransformer(inputFile.getPath(), serialFileName);
+		ContainerChanges parallelChanges = runTransformer(inputFile.getPath(), parallelFileName, "--threads", "4");
+
+		assertThat(readNestedEntries(parallelFileName)).containsExactlyEntriesOf(readNestedEntries(serialFileName));
+
+		assertThat(parallelChanges.getAllResources()).isEqualTo(serialChanges.getAllResources());
+		assertThat(parallelChanges.getAllChanged()).isEqualTo(serialChanges.getAllChanged());
+		assertThat(parallelChanges.getAllUnchanged()).isEqualTo(serialChanges.getAllUnchanged());
+		assertThat(parallelChanges.getAllDuplicated()).isEqualTo(serialChanges.getAllDuplicated())
+			.isEqualTo(9);
+		assertThat(parallelChanges.getAllFailed()).isEqualTo(serialChanges.getAllFailed())
+			.isZero();
+	}
+
+	// Test that archives which are restored from the archive cache, either as
+	// top level archives or as nested archives, have the same entries, and
+	// record the same changes, as archives which are transformed.
+	@Test
+	void zip_archive_cache() throws Exception {
+		File cacheDirectory = new File(DYNAMIC_CONTENT_DIR, "archive-cache");
+		IO.delete(cacheDirectory);
+		List<String> nestedNames = List.of("sac-1.3.jar", "nested_stored_archive.war",
+			"servlet_plu_singlethreadmodel_web.war");
+
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "cached.ear");
+		writeArchive(inputFile, nestedNames);
+		String uncachedFileName = DYNAMIC_CONTENT_DIR + "/uncached.ear";
+		String coldFileName = DYNAMIC_CONTENT_DIR + "/cached-cold.ear";
+		String warmFileName = DYNAMIC_CONTENT_DIR + "/cached-warm.ear";
+
+		ContainerChanges uncachedChanges = runTransformer(inputFile.getPath(), uncachedFileName);
+		ContainerChanges coldChanges = runTransformer(inputFile.getPath(), coldFileName, "--archiveCache",
+			cacheDirectory.getPath());
+		ContainerChanges warmChanges = runTransformer(inputFile.getPath(), warmFileName, "--archiveCache",
+			cacheDirectory.getPath());
+
+		File[] cachedArchives = cacheDirectory.listFiles((dir, name) -> name.endsWith(".archive"));
+		assertThat(cachedArchives).hasSizeGreaterThan(nestedNames.size());
+
+		Map<String, byte[]> uncachedEntries = readNestedEntries(uncachedFileName);
+		assertThat(readNestedEntries(coldFileName)).containsExactlyEntriesOf(uncachedEntries);
+		assertThat(readNestedEntries(warmFileName)).containsExactlyEntriesOf(uncachedEntries);
+		for (ContainerChanges cachedChanges : List.of(coldChanges, warmChanges)) {
+			assertThat(cachedChanges.getAllResources()).isEqualTo(uncachedChanges.getAllResources());
+			assertThat(cachedChanges.getAllChanged()).isEqualTo(uncachedChanges.getAllChanged());
+			assertThat(cachedChanges.getAllUnchanged()).isEqualTo(uncachedChanges.getAllUnchanged());
+			assertThat(cachedChanges.getAllFailed()).isZero();
+		}
+
+		// A different enclosing archive reuses the cached nested archives.
+
+		File otherInputFile = new File(DYNAMIC_CONTENT_DIR, "cached-other.ear");
+		writeArchive(otherInputFile, nestedNames.subList(1, nestedNames.size()));
+		String otherUncachedFileName = DYNAMIC_CONTENT_DIR + "/uncached-other.ear";
+		String otherCachedFileName = DYNAMIC_CONTENT_DIR + "/cached-other-warm.ear";
+
+		ContainerChanges otherUncachedChanges = runTransformer(otherInputFile.getPath(), otherUncachedFileName);
+		ContainerChanges otherCachedChanges = runTransformer(otherInputFile.getPath(), otherCachedFileName,
+			"--archiveCache", cacheDirectory.getPath());
+
+		assertThat(readNestedEntries(otherCachedFileName))
+			.containsExactlyEntriesOf(readNestedEntries(otherUncachedFileName));
+		assertThat(otherCachedChanges.getAllResources()).isEqualTo(otherUncachedChanges.getAllResources());
+		assertThat(otherCachedChanges.getAllChanged()).isEqualTo(otherUncachedChanges.getAllChanged());
+		assertThat(cacheDirectory.listFiles((dir, name) -> name.endsWith(".archive")))
+			.hasSize(cachedArchives.length + 1);
+
+		// Nested archives which contain archives, and which are more than the
+		// archive threads, do not wait on their archives queued behind them.
+
+		File threadsCacheDirectory = new File(DYNAMIC_CONTENT_DIR, "archive-cache-threads");
+		IO.delete(threadsCacheDirectory);
+		File threadsInputFile = new File(DYNAMIC_CONTENT_DIR, "cached-threads.ear");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(IO.outputStream(threadsInputFile))) {
+			for (int warNo = 0; warNo < 5; warNo++) {
+				ByteArrayOutputStream warBytes = new ByteArrayOutputStream();
+				try (ZipOutputStream warOutputStream = new ZipOutputStream(warBytes)) {
+					warOutputStream.putNextEntry(new ZipEntry("WEB-INF/web" + warNo + ".txt"));
+					warOutputStream.write(("web " + warNo).getBytes(StandardCharsets.UTF_8));
+					warOutputStream.closeEntry();
+					for (String nestedName : List.of("sac-1.3.jar", "signed-jar-with-javax.jar")) {
+						warOutputStream.putNextEntry(new ZipEntry("WEB-INF/lib/" + nestedName));
+						warOutputStream.write(IO.read(new File(STATIC_CONTENT_DIR + "/command-line/" + nestedName)));
+						warOutputStream.closeEntry();
+					}
+				}
+				zipOutputStream.putNextEntry(new ZipEntry("web" + warNo + ".war"));
+				zipOutputStream.write(warBytes.toByteArray());
+				zipOutputStream.closeEntry();
+			}
+		}
+		String threadsUncachedFileName = DYNAMIC_CONTENT_DIR + "/uncached-threads.ear";
+		String threadsCachedFileName = DYNAMIC_CONTENT_DIR + "/cached-threads-output.ear";
+
+		ContainerChanges threadsUncachedChanges = runTransformer(threadsInputFile.getPath(), threadsUncachedFileName);
+		ContainerChanges threadsCachedChanges = CompletableFuture
+			.supplyAsync(() -> runTransformer(threadsInputFile.getPath(), threadsCachedFileName, "--threads", "2",
+				"--archiveCache", threadsCacheDirectory.getPath()))
+			.get(60L, TimeUnit.SECONDS);
+
+		assertThat(readNestedEntries(threadsCachedFileName))
+			.containsExactlyEntriesOf(readNestedEntries(threadsUncachedFileName));
+		assertThat(threadsCachedChanges.getAllResources()).isEqualTo(threadsUncachedChanges.getAllResources());
+		assertThat(threadsCachedChanges.getAllChanged()).isEqualTo(threadsUncachedChanges.getAllChanged());
+		assertThat(threadsCachedChanges.getAllFailed()).isZero();
+	}
+
+	// Test that archives which are not changed are written as the original
+	// archives, both as top level archives and as nested archives, and that
+	// stripping signature files is a change.
+	@Test
+	void zip_unchanged_archive() throws Exception {
+		File unchangedInputFile = new File(STATIC_CONTENT_DIR + "/command-line/sac-1.3.jar");
+		String unchangedOutputFileName = DYNAMIC_CONTENT_DIR + "/unchanged-sac-1.3.jar";
+		ContainerChanges unchangedChanges = runTransformer(unchangedInputFile.getPath(), unchangedOutputFileName);
+		assertThat(unchangedChanges.isContentChanged()).isFalse();
+		assertThat(IO.read(new File(unchangedOutputFileName))).isEqualTo(IO.read(unchangedInputFile));
+
+		File nestedInputFile = new File(DYNAMIC_CONTENT_DIR, "unchanged-nested.ear");
+		writeArchive(nestedInputFile, List.of("sac-1.3.jar", "signed-jar-with-javax.jar"));
+		String nestedOutputFileName = DYNAMIC_CONTENT_DIR + "/unchanged-nested-output.ear";
+		ContainerChanges nestedChanges = runTransformer(nestedInputFile.getPath(), nestedOutputFileName);
+		assertThat(nestedChanges.isContentChanged()).isTrue();
+		try (ZipFile outputZip = new ZipFile(nestedOutputFileName)) {
+			assertThat(IO.read(outputZip.getInputStream(outputZip.getEntry("lib/sac-1.3.jar"))))
+				.isEqualTo(IO.read(unchangedInputFile));
+		}
+
+		File signedInputFile = new File(DYNAMIC_CONTENT_DIR, "unchanged-signed.jar");
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(IO.outputStream(signedInputFile))) {
+			for (String entryName : List.of("META-INF/MYKEY.SF", "notes.txt")) {
+				zipOutputStream.putNextEntry(new ZipEntry(entryName));
+				zipOutputStream.write(entryName.getBytes(StandardCharsets.UTF_8));
+				zipOutputStream.closeEntry();
+			}
+		}
+		String signedOutputFileName = DYNAMIC_CONTENT_DIR + "/unchanged-signed-output.jar";
+		ContainerChanges signedChanges = runTransformer(signedInputFile.getPath(), signedOutputFileName,
+			"--stripSignatures");
+		assertThat(signedChanges.isContentChanged()).isTrue();
+		assertThat(readNestedEntries(signedOutputFileName)).containsOnlyKeys("notes.txt");
+
+		// Write two entries with names of the same length, then give the
+		// second entry the name of the first entry.
+		ByteArrayOutputStream duplicateBytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(duplicateBytes)) {
+			for (String entryName : List.of("notes.txt", "notez.txt")) {
+				zipOutputStream.putNextEntry(new ZipEntry(entryName));
+				zipOutputStream.write(entryName.toUpperCase().getBytes(StandardCharsets.UTF_8));
+				zipOutputStream.closeEntry();
+			}
+		}
+		File duplicateInputFile = new File(DYNAMIC_CONTENT_DIR, "unchanged-duplicate.jar");
+		IO.store(replaceAll(duplicateBytes.toByteArray(), "notez.txt", "notes.txt"), duplicateInputFile);
+		String duplicateOutputFileName = DYNAMIC_CONTENT_DIR + "/unchanged-duplicate-output.jar";
+		ContainerChanges duplicateChanges = runTransformer(duplicateInputFile.getPath(), duplicateOutputFileName);
+		assertThat(duplicateChanges.getAllDuplicated()).isOne();
+		assertThat(duplicateChanges.isContentChanged()).isTrue();
+		assertThat(IO.read(new File(duplicateOutputFileName))).isNotEqualTo(IO.read(duplicateInputFile));
+		assertThat(readNestedEntries(duplicateOutputFileName)).containsOnlyKeys("notes.txt");
+	}
+
+	private static byte[] replaceAll(byte[] bytes, String target, String replacement) {
+		byte[] targetBytes = target.getBytes(StandardCharsets.UTF_8);
+		byte[] replacementBytes = replacement.getBytes(StandardCharsets.UTF_8);
+		for (int offset = 0; offset <= bytes.length - targetBytes.length; offset++) {
+			if (Arrays.equals(bytes, offset, offset + targetBytes.length, targetBytes, 0, targetBytes.length)) {
+				System.arraycopy(replacementBytes, 0, bytes, offset, replacementBytes.length);
+			}
+		}
+		return bytes;
+	}
+
+	// Test that resources which are held in temporary files, with a spill
+	// threshold of zero, in a spill directory, are transformed the same as
+	// resources which are held in memory.
+	@Test
+	void zip_spill_threshold() throws Exception {
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "spill.ear");
+		writeArchive(inputFile, List.of("sac-1.3.jar", "nested_stored_archive.war",
+			"servlet_plu_singlethreadmodel_web.war", "signed-jar-with-javax.jar"));
+		String memoryFileName = DYNAMIC_CONTENT_DIR + "/spill-memory.ear";
+		String spillFileName = DYNAMIC_CONTENT_DIR + "/spill-files.ear";
+
+		ContainerChanges memoryChanges = runTransformer(inputFile.getPath(), memoryFileName);
+		File spillDirectory = new File(DYNAMIC_CONTENT_DIR, "spill");
+		IO.delete(spillDirectory);
+		ContainerChanges spillChanges = runTransformer(inputFile.getPath(), spillFileName, "--spillThreshold", "0",
+			"--spillDirectory", spillDirectory.getPath());
+		assertThat(spillDirectory).isDirectory();
+
+		assertThat(readNestedEntries(spillFileName)).containsExactlyEntriesOf(readNestedEntries(memoryFileName));
+		assertThat(spillChanges.getAllResources()).isEqualTo(memoryChanges.getAllResources());
+		assertThat(spillChanges.getAllChanged()).isEqualTo(memoryChanges.getAllChanged());
+		assertThat(spillChanges.getAllFailed()).isZero();
+	}
+
+	// Test that STORED archives which are nested in a streamed archive are
+	// written with their size and CRC, and that an unchanged STORED archive
+	// is written as the original archive.
+	@Test
+	void zip_streamed_stored_archive() throws Exception {
+		byte[] unchangedBytes = IO.read(new File(STATIC_CONTENT_DIR + "/command-line/sac-1.3.jar"));
+		byte[] changedBytes = IO.read(new File(STATIC_CONTENT_DIR + "/command-line/signed-jar-with-javax.jar"));
+
+		ByteArrayOutputStream warBytes = new ByteArrayOutputStream();
+		try (ZipOutputStream warStream = new ZipOutputStream(warBytes)) {
+			putStored(warStream, "WEB-INF/lib/unchanged.jar", unchangedBytes);
+			putStored(warStream, "WEB-INF/lib/changed.jar", changedBytes);
+		}
+		// The web archive is nested in an enterprise archive: The entries of
+		// the web archive are streamed.
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "streamed-stored.ear");
+		try (ZipOutputStream earStream = new ZipOutputStream(IO.outputStream(inputFile))) {
+			earStream.putNextEntry(new ZipEntry("web.war"));
+			earStream.write(warBytes.toByteArray());
+			earStream.closeEntry();
+		}
+		String outputFileName = DYNAMIC_CONTENT_DIR + "/streamed-stored-output.ear";
+
+		ContainerChanges changes = runTransformer(inputFile.getPath(), outputFileName);
+		assertThat(changes.getAllFailed()).isZero();
+
+		try (ZipFile earFile = new ZipFile(outputFileName);
+			ZipInputStream warStream = new ZipInputStream(earFile.getInputStream(earFile.getEntry("web.war")))) {
+			Map<String, byte[]> warEntries = new LinkedHashMap<>();
+			for (ZipEntry entry; (entry = warStream.getNextEntry()) != null;) {
+				assertThat(entry.getMethod()).as(entry.getName())
+					.isEqualTo(ZipEntry.STORED);
+				warEntries.put(entry.getName(), warStream.readAllBytes());
+			}
+			assertThat(warEntries).containsOnlyKeys("WEB-INF/lib/unchanged.jar", "WEB-INF/lib/changed.jar");
+			assertThat(warEntries.get("WEB-INF/lib/unchanged.jar")).isEqualTo(unchangedBytes);
+			assertThat(warEntries.get("WEB-INF/lib/changed.jar")).isNotEqualTo(changedBytes);
+		}
+	}
+
+	private static void putStored(ZipOutputStream zipOutputStream, String name, byte[] bytes) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(bytes.length);
+		entry.setCompressedSize(bytes.length);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		entry.setCrc(crc.getValue());
+		zipOutputStream.putNextEntry(entry);
+		zipOutputStream.write(bytes);
+		zipOutputStream.closeEntry();
+	}
+
+	private static void writeArchive(File outputFile, List<String> nestedNames) throws IOException {
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(IO.outputStream(outputFile))) {
+			for (String nestedName : nestedNames) {
+				zipOutputStream.putNextEntry(new ZipEntry("lib/" + nestedName));
+				zipOutputStream.write(IO.read(new File(STATIC_CONTENT_DIR + "/command-line/" + nestedName)));
+				zipOutputStream.closeEntry();
+			}
+		}
+	}
+
+	// Test that transforming directory files in parallel writes the same
+	// files, and records the same changes, as transforming them serially.
+	@Test
+	void directory_parallel_files() throws Exception {
+		File inputDirectory = new File(DYNAMIC_CONTENT_DIR, "input");
+		for (int copy = 0; copy < 3; copy++) {
+			File copyDirectory = new File(inputDirectory, "copy" + copy);
+			copyStatic("A.java", new File(copyDirectory, "src/A.java"));
+			copyStatic("MANIFEST.MF", new File(copyDirectory, "META-INF/MANIFEST.MF"));
+			for (String nestedName : List.of("sac-1.3.jar", "nested_stored_archive.war",
+				"servlet_plu_singlethreadmodel_web.war")) {
+				copyStatic(nestedName, new File(copyDirectory, "lib/" + nestedName));
+			}
+		}
+		String serialDirectoryName = DYNAMIC_CONTENT_DIR + "/serial";
+		String parallelDirectoryName = DYNAMIC_CONTENT_DIR + "/parallel";
+
+		ContainerChanges serialChanges = runTransformer(inputDirectory.getPath(), serialDirectoryName);
+		ContainerChanges parallelChanges = runTransformer(inputDirectory.getPath(), parallelDirectoryName,
+			"--threads", "4");
+
+		assertThat(readDirectory(parallelDirectoryName)).containsExactlyInAnyOrderEntriesOf(
+			readDirectory(serialDirectoryName));
+
+		assertThat(parallelChanges.getAllResources()).isEqualTo(serialChanges.getAllResources());
+		assertThat(parallelChanges.getAllSelected()).isEqualTo(serialChanges.getAllSelected());
+		assertThat(parallelChanges.getAllChanged()).isEqualTo(serialChanges.getAllChanged());
+		assertThat(parallelChanges.getAllUnchanged()).isEqualTo(serialChanges.getAllUnchanged());
+		assertThat(parallelChanges.getAllRenamed()).isEqualTo(serialChanges.getAllRenamed());
+		assertThat(parallelChanges.getAllContentChanged()).isEqualTo(serialChanges.getAllContentChanged());
+		assertThat(parallelChanges.getChangedByAction()).containsOnlyKeys(serialChanges.getChangedByAction()
+			.keySet());
+		assertThat(parallelChanges.getAllDuplicated()).isEqualTo(serialChanges.getAllDuplicated());
+		assertThat(parallelChanges.getAllFailed()).isEqualTo(serialChanges.getAllFailed())
+			.isZero();
+	}
+
+	// Test that an incremental directory transformation skips unchanged files,
+	// transforms changed files, and removes the outputs of deleted files.
+	@Test
+	void directory_incremental() throws Exception {
+		File inputDirectory = new File(DYNAMIC_CONTENT_DIR, "input");
+		String outputDirectoryName = DYNAMIC_CONTENT_DIR + "/output";
+		IO.delete(inputDirectory);
+		IO.delete(new File(outputDirectoryName));
+
+		copyStatic("A.java", new File(inputDirectory, "src/A.java"));
+		copyStatic("MANIFEST.MF", new File(inputDirectory, "META-INF/MANIFEST.MF"));
+		copyStatic("sac-1.3.jar", new File(inputDirectory, "lib/sac-1.3.jar"));
+		File notesFile = new File(inputDirectory, "notes/notes.txt");
+		IO.mkdirs(notesFile.getParentFile());
+		IO.store("Uses javax.servlet\n", notesFile);
+
+		ContainerChanges initialChanges = runTransformer(inputDirectory.getPath(), outputDirectoryName,
+			"--incremental");
+		assertThat(initialChanges.getAllChanged()).isPositive();
+		assertThat(new File(outputDirectoryName, ".transformer-state.properties")).isFile();
+		Map<String, byte[]> initialOutput = readDirectory(outputDirectoryName);
+		initialOutput.remove(".transformer-state.properties");
+
+		ContainerChanges unchangedChanges = runTransformer(inputDirectory.getPath(), outputDirectoryName,
+			"--incremental");
+		assertThat(unchangedChanges.getAllChanged()).isZero();
+		assertThat(unchangedChanges.getAllUnchanged()).isEqualTo(4);
+		assertThat(readDirectory(outputDirectoryName)).containsAllEntriesOf(initialOutput)
+			.hasSize(initialOutput.size() + 1);
+
+		File javaFile = new File(inputDirectory, "src/A.java");
+		IO.store(IO.collect(javaFile) + "// Changed\n", javaFile);
+		IO.delete(notesFile.getParentFile());
+
+		ContainerChanges updateChanges = runTransformer(inputDirectory.getPath(), outputDirectoryName,
+			"--incremental");
+		assertThat(updateChanges.getAllChanged()).isOne();
+		assertThat(updateChanges.getAllUnchanged()).isEqualTo(2);
+		assertThat(IO.collect(new File(outputDirectoryName, "src/A.java"))).endsWith("// Changed\n")
+			.doesNotContain("javax.servlet");
+		assertThat(new File(outputDirectoryName, "notes")).doesNotExist();
+	}
+
+	// Test that an incremental directory transformation does not remove files
+	// outside of the output directory, when the state of a deleted file names
+	// an output path which leads out of the output directory.
+	@Test
+	void directory_incremental_outside() throws Exception {
+		File inputDirectory = new File(DYNAMIC_CONTENT_DIR, "input");
+		String outputDirectoryName = DYNAMIC_CONTENT_DIR + "/output";
+		IO.delete(inputDirectory);
+		IO.delete(new File(outputDirectoryName));
+
+		copyStatic("A.java", new File(inputDirectory, "src/A.java"));
+		runTransformer(inputDirectory.getPath(), outputDirectoryName, "--incremental");
+
+		File outsideFile = new File(DYNAMIC_CONTENT_DIR, "outside.txt");
+		IO.store("Outside\n", outsideFile);
+		File stateFile = new File(outputDirectoryName, ".transformer-state.properties");
+		IO.store(IO.collect(stateFile) + "gone.txt=1,1,digest,../outside.txt\n", stateFile);
+
+		runTransformer(inputDirectory.getPath(), outputDirectoryName, "--incremental");
+		assertThat(outsideFile).isFile();
+	}
+
+	// Test that a batch transforms every archive under a directory, in
+	// parallel, into the same relative paths, the same as when each archive
+	// is transformed on its own.
+	@Test
+	void batch_directory() throws Exception {
+		File inputDirectory = new File(DYNAMIC_CONTENT_DIR, "server");
+		IO.delete(inputDirectory);
+		copyStatic("sac-1.3.jar", new File(inputDirectory, "lib/sac-1.3.jar"));
+		copyStatic("servlet_plu_singlethreadmodel_web.war", new File(inputDirectory, "apps/web.war"));
+		copyStatic("A.java", new File(inputDirectory, "src/A.java"));
+		String outputDirectoryName = DYNAMIC_CONTENT_DIR + "/output";
+		IO.delete(new File(outputDirectoryName));
+
+		ContainerChanges batchChanges = runTransformer(inputDirectory.getPath(), outputDirectoryName, "--batch",
+			"--threads", "2");
+		assertThat(batchChanges.getAllResources()).isEqualTo(2);
+		assertThat(batchChanges.getAllFailed()).isZero();
+		assertThat(new File(outputDirectoryName, "src/A.java")).doesNotExist();
+
+		String singleFileName = DYNAMIC_CONTENT_DIR + "/single.war";
+		runTransformer(new File(inputDirectory, "apps/web.war").getPath(), singleFileName);
+		assertThat(readEntries(outputDirectoryName + "/apps/web.war")).containsExactlyEntriesOf(
+			readEntries(singleFileName));
+		assertThat(new File(outputDirectoryName, "lib/sac-1.3.jar")).isFile();
+	}
+
+	// Test that a batch manifest lists inputs with and without outputs, and
+	// that a failed input fails the batch without stopping the other inputs.
+	@Test
+	void batch_manifest() throws Exception {
+		File inputDirectory = new File(DYNAMIC_CONTENT_DIR, "inputs");
+		IO.delete(inputDirectory);
+		copyStatic("sac-1.3.jar", new File(inputDirectory, "sac-1.3.jar"));
+		copyStatic("A.java", new File(inputDirectory, "A.java"));
+		File outputDirectory = new File(DYNAMIC_CONTENT_DIR, "output");
+		IO.delete(outputDirectory);
+
+		File manifestFile = new File(DYNAMIC_CONTENT_DIR, "batch.txt");
+		IO.store(String.join("\n", "# Batch inputs", "", "inputs/sac-1.3.jar",
+			"inputs/A.java = output/renamed/B.java", "inputs/missing.jar"), manifestFile);
+
+		TransformerCLI cli = new JakartaTransformerCLI(System.out, System.err, manifestFile.getPath(),
+			outputDirectory.getPath(), "--batch", "-o");
+		Transformer transformer = new Transformer(cli.getLogger(), cli);
+		assertThat(transformer.run()).as("transformer run")
+			.isEqualTo(Transformer.ResultCode.TRANSFORM_ERROR_RC);
+
+		ContainerChanges batchChanges = (ContainerChanges) transformer.getLastActiveChanges();
+		assertThat(batchChanges.getAllResources()).isEqualTo(3);
+		assertThat(batchChanges.getAllFailed()).isOne();
+
+		assertThat(new File(outputDirectory, "sac-1.3.jar")).isFile();
+		assertThat(IO.collect(new File(outputDirectory, "renamed/B.java"))).doesNotContain("javax.servlet");
+	}
+
+	// Test that a daemon transforms the requests of clients, using rules
+	// which are loaded once, and that a client stops the daemon.
+	@Test
+	void daemon_requests() throws Exception {
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "A.java");
+		copyStatic("A.java", inputFile);
+
+		Path socketDirectory = Files.createTempDirectory("transformer");
+		String socketName = socketDirectory.resolve("daemon.sock")
+			.toString();
+		TransformerDaemon daemon = new TransformerDaemon(
+			new JakartaTransformerCLI(System.out, System.err, "--daemon", socketName, "--threads", "2"));
+		daemon.bind();
+		CompletableFuture<Transformer.ResultCode> served = CompletableFuture.supplyAsync(daemon::serve);
+		try {
+			for (String outputName : List.of("first/A.java", "second/A.java")) {
+				File outputFile = new File(DYNAMIC_CONTENT_DIR, outputName);
+				IO.delete(outputFile);
+				TransformerCLI client = new JakartaTransformerCLI(System.out, System.err, inputFile.getPath(),
+					outputFile.getPath(), "--connect", socketName);
+				assertThat(client.run()).as("daemon request")
+					.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+				assertThat(IO.collect(outputFile)).doesNotContain("javax.servlet");
+			}
+			assertThat(daemon.getRuleSetCount()).isOne();
+
+			TransformerCLI missing = new JakartaTransformerCLI(System.out, System.err,
+				DYNAMIC_CONTENT_DIR + "/missing.jar", "--connect", socketName);
+			assertThat(missing.run()).as("daemon request")
+				.isEqualTo(Transformer.ResultCode.TRANSFORM_ERROR_RC);
+
+			TransformerCLI stop = new JakartaTransformerCLI(System.out, System.err, "--connect", socketName,
+				"--stopDaemon");
+			assertThat(stop.run()).as("daemon stop")
+				.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+		} finally {
+			daemon.stop();
+		}
+		assertThat(served.get(30L, TimeUnit.SECONDS)).isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+		IO.delete(socketDirectory.toFile());
+	}
+
+	// Test that a daemon listens at a Unix domain socket, that requests which
+	// have different rule sets use different transformers, and that the
+	// socket is removed when the daemon stops.
+	@Test
+	void daemon_unix_socket() throws Exception {
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "sac-1.3.jar");
+		copyStatic("sac-1.3.jar", inputFile);
+
+		Path socketDirectory = Files.createTempDirectory("transformer");
+		String socketName = socketDirectory.resolve("daemon.sock")
+			.toString();
+		TransformerDaemon daemon = new TransformerDaemon(
+			new JakartaTransformerCLI(System.out, System.err, "--daemon", socketName));
+		daemon.bind();
+		Path socketPath = Path.of(socketName);
+		if (Files.getFileStore(socketPath)
+			.supportsFileAttributeView(PosixFileAttributeView.class)) {
+			assertThat(Files.getPosixFilePermissions(socketPath)).containsExactlyInAnyOrder(
+				PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+		}
+		CompletableFuture<Transformer.ResultCode> served = CompletableFuture.supplyAsync(daemon::serve);
+		try {
+			File outputFile = new File(DYNAMIC_CONTENT_DIR, "output/sac-1.3.jar");
+			IO.delete(outputFile);
+			TransformerCLI client = new JakartaTransformerCLI(System.out, System.err, inputFile.getPath(),
+				outputFile.getPath(), "--connect", socketName);
+			assertThat(client.run()).as("daemon request")
+				.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+			assertThat(outputFile).isFile();
+
+			TransformerCLI stripped = new JakartaTransformerCLI(System.out, System.err, inputFile.getPath(),
+				outputFile.getPath(), "-o", "-s", "--connect", socketName);
+			assertThat(stripped.run()).as("daemon request")
+				.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+			assertThat(daemon.getRuleSetCount()).isEqualTo(2);
+		} finally {
+			daemon.stop();
+		}
+		assertThat(served.get(30L, TimeUnit.SECONDS)).isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+		assertThat(new File(socketName)).doesNotExist();
+		IO.delete(socketDirectory.toFile());
+	}
+
+	// Test that a daemon loads the rules of a rule set again when a rules file
+	// changes, and that a request which has too many arguments is closed
+	// without a response.
+	@Test
+	void daemon_rules_changed() throws Exception {
+		File inputFile = new File(DYNAMIC_CONTENT_DIR, "A.java");
+		copyStatic("A.java", inputFile);
+		File renamesFile = new File(DYNAMIC_CONTENT_DIR, "renames.properties");
+		IO.store("javax.servlet=one.servlet\n", renamesFile);
+
+		Path socketDirectory = Files.createTempDirectory("transformer");
+		String socketName = socketDirectory.resolve("daemon.sock")
+			.toString();
+		TransformerDaemon daemon = new TransformerDaemon(
+			new JakartaTransformerCLI(System.out, System.err, "--daemon", socketName));
+		daemon.bind();
+		CompletableFuture<Transformer.ResultCode> served = CompletableFuture.supplyAsync(daemon::serve);
+		try {
+			File outputFile = new File(DYNAMIC_CONTENT_DIR, "output/A.java");
+			String[] args = {
+				inputFile.getPath(), outputFile.getPath(), "-o", "-tr", renamesFile.getPath(), "--connect", socketName
+			};
+			assertThat(new JakartaTransformerCLI(System.out, System.err, args).run()).as("daemon request")
+				.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+			assertThat(IO.collect(outputFile)).contains("import one.servlet.A;");
+
+			IO.store("javax.servlet=second.servlet\n", renamesFile);
+			assertThat(new JakartaTransformerCLI(System.out, System.err, args).run()).as("daemon request")
+				.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+			assertThat(IO.collect(outputFile)).contains("import second.servlet.A;");
+			assertThat(daemon.getRuleSetCount()).isOne();
+
+			try (SocketChannel channel = SocketChannel.open(TransformerDaemon.getAddress(socketName));
+				DataInputStream input = new DataInputStream(Channels.newInputStream(channel));
+				DataOutputStream output = new DataOutputStream(Channels.newOutputStream(channel))) {
+				output.writeUTF(TransformerDaemon.TRANSFORM_REQUEST);
+				output.writeUTF(IO.work.getAbsolutePath());
+				output.writeInt(TransformerDaemon.MAX_ARG_COUNT + 1);
+				output.flush();
+				assertThatExceptionOfType(IOException.class).isThrownBy(input::readInt);
+			}
+		} finally {
+			daemon.stop();
+		}
+		assertThat(served.get(30L, TimeUnit.SECONDS)).isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+		IO.delete(socketDirectory.toFile());
+	}
+
+	private static void copyStatic(String fileName, File outputFile) throws IOException {
+		IO.mkdirs(outputFile.getParentFile());
+		IO.copy(new File(STATIC_CONTENT_DIR + "/command-line/" + fileName), outputFile);
+	}
+
+	// Archives are expanded, as for nested archives.
+	private static Map<String, byte[]> readDirectory(String directoryName) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		readDirectory(new File(directoryName), "", entries);
+		return entries;
+	}
+
+	private static void readDirectory(File directory, String prefix, Map<String, byte[]> entries)
+		throws IOException {
+		for (File file : IO.listFiles(directory)) {
+			String name = prefix + file.getName();
+			if (file.isDirectory()) {
+				readDirectory(file, name + "/", entries);
+			} else if (name.endsWith(".jar") || name.endsWith(".war")) {
+				readNestedEntries(IO.stream(file), name + "!/", entries);
+			} else {
+				entries.put(name, IO.read(file));
+			}
+		}
+	}
+
+	private ContainerChanges runTransformer(String inputFileName, String outputFileName, String... extraArgs) {
+		List<String> args = new ArrayList<>(List.of(inputFileName, outputFileName, "-o"));
+		args.addAll(List.of(extraArgs));
+		TransformerCLI cli = new JakartaTransformerCLI(System.out, System.err, args.toArray(new String[0]));
+		Transformer transformer = new Transformer(cli.getLogger(), cli);
+		assertThat(transformer.run()).as("transformer run")
+			.isEqualTo(Transformer.ResultCode.SUCCESS_RC);
+		return (ContainerChanges) transformer.getLastActiveChanges();
+	}
+
 	@Test
 	void testSetLogLevelQuiet() throws Exception {
 		TransformerCLI cli = new TransformerCLI(System.out, System.err, "--logName", name, "--quiet");
@@ -351,6 +1016,15 @@ class TestCommandLine {
 
 	private void verifyAction(String actionClassName, String inputFileName, String outputFileName, String expectedOutputFileName,
 							  int duplicates, boolean stripSignatures) throws Exception {
+		if (stripSignatures) {
+			verifyAction(actionClassName, inputFileName, outputFileName, expectedOutputFileName, duplicates, "-s");
+		} else {
+			verifyAction(actionClassName, inputFileName, outputFileName, expectedOutputFileName, duplicates, new String[0]);
+		}
+	}
+
+	private void verifyAction(String actionClassName, String inputFileName, String outputFileName, String expectedOutputFileName,
+							  int duplicates, String... extraArgs) throws Exception {
 		System.out.printf("verifyAction: Input is: [%s] Output is: [%s]\n", inputFileName, outputFileName);
 		String[] args = outputFileName != null ? new String[] {
 			inputFileName, outputFileName, "-o"
@@ -358,10 +1032,10 @@ class TestCommandLine {
 			inputFileName, "-o"
 		};
 
-		if (stripSignatures) {
-			String[] moreArgs = new String[args.length + 1];
+		if (extraArgs.length != 0) {
+			String[] moreArgs = new String[args.length + extraArgs.length];
 			System.arraycopy(args, 0, moreArgs, 0, args.length);
-			moreArgs[args.length] = "-s";
+			System.arraycopy(extraArgs, 0, moreArgs, args.length, extraArgs.length);
 			args = moreArgs;
 		}
 
@@ -427,6 +1101,38 @@ class TestCommandLine {
 			.isFalse();
 	}
 
+	private static Map<String, byte[]> readEntries(String zipFilePath) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(IO.stream(new File(zipFilePath)))) {
+			for (ZipEntry zipEntry; (zipEntry = zipInputStream.getNextEntry()) != null;) {
+				entries.put(zipEntry.getName(), zipInputStream.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	// Nested archives are expanded: Their bytes depend on the time at which
+	// their modified entries were written.
+	private static Map<String, byte[]> readNestedEntries(String zipFilePath) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		readNestedEntries(IO.stream(new File(zipFilePath)), "", entries);
+		return entries;
+	}
+
+	private static void readNestedEntries(InputStream inputStream, String prefix, Map<String, byte[]> entries)
+		throws IOException {
+		ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+		for (ZipEntry zipEntry; (zipEntry = zipInputStream.getNextEntry()) != null;) {
+			String name = prefix + zipEntry.getName();
+			byte[] bytes = zipInputStream.readAllBytes();
+			if (name.endsWith(".jar") || name.endsWith(".war")) {
+				readNestedEntries(new ByteArrayInputStream(bytes), name + "!/", entries);
+			} else {
+				entries.put(name, bytes);
+			}
+		}
+	}
+
 	private static Map<String, byte[]> extractSignatureFileEntries(String zipFilePath) throws IOException {
 		try (ZipFile zipFile = new ZipFile(zipFilePath)) {
 			final Enumeration<? extends ZipEntry> entries = zipFile.entries();
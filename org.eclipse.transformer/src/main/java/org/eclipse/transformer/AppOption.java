@@ -90,7 +90,81 @@ public enum AppOption {
 
 	RULES_PER_CLASS_CONSTANT(
 		new Settings("tp", "per-class-constant", "Transformation per class constant string replacements",
-			Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP));
+			Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// Batch inputs, directory files, archive entries, and nested archives are
+	// transformed on the calling thread unless a thread count greater than one
+	// is specified. A thread count of zero uses the number of available
+	// processors.
+
+	THREADS(new Settings("j", "threads",
+		"Number of threads used to transform batch inputs, directory files, archive entries, and nested archives (0 for the number of available processors)",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// The signature rule caches transformed binary types, descriptors, and
+	// signatures. Each cache is bounded, with the oldest entries evicted first.
+
+	SIGNATURE_CACHE_SIZE(new Settings("sc", "signatureCacheSize",
+		"Maximum number of entries of each signature cache (0 disables caching)",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// An incremental directory transformation records the transformed files
+	// in a state file in the output directory. Files which are unchanged since
+	// the prior transformation, which used the same rules, are skipped, and
+	// outputs of deleted files are removed. Implies overwrite.
+
+	INCREMENTAL(new Settings("inc", "incremental",
+		"Transform only the directory files which changed since the prior transformation",
+		!Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// The archive cache stores transformed archives, including nested
+	// archives, keyed by the digest of the input archive and the fingerprint
+	// of the rules. The cache is bounded by size, with the least recently used
+	// archives evicted first.
+
+	ARCHIVE_CACHE(new Settings("ac", "archiveCache",
+		"Directory used to cache transformed archives across transformations",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	ARCHIVE_CACHE_SIZE(new Settings("acs", "archiveCacheSize",
+		"Maximum size of the archive cache, in megabytes",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// Resources which are larger than the spill threshold, including nested
+	// archives, are held in temporary files instead of in memory.
+
+	SPILL_THRESHOLD(new Settings("st", "spillThreshold",
+		"Size, in megabytes, above which resources are held in temporary files instead of in memory",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	SPILL_DIRECTORY(new Settings("sd", "spillDirectory",
+		"Directory of the temporary files which hold resources which are larger than the spill threshold",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// A batch transforms many inputs using rules which are loaded once. The
+	// input is a directory, every archive under which is transformed, a
+	// manifest file which lists inputs and outputs, or a glob. The output is
+	// the directory into which outputs are written. See BatchTransformer.
+
+	BATCH(new Settings("b", "batch",
+		"Transform a batch of inputs: The input is a directory of archives, a manifest of 'input [ = output ]' lines, or a glob, and the output is a directory",
+		!Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	// A daemon keeps loaded rules in memory, and transforms the requests of
+	// clients, which send their command lines to the daemon. The address is
+	// the path of a Unix domain socket, which only the owner of the daemon may
+	// use.
+
+	DAEMON(new Settings("dmn", "daemon",
+		"Run as a daemon which accepts transformation requests at an address: A Unix domain socket path",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	DAEMON_CONNECT(new Settings("dc", "connect",
+		"Send the transformation to the daemon at an address, instead of transforming in this process",
+		Settings.HAS_ARG, !Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP)),
+
+	DAEMON_STOP(new Settings("ds", "stopDaemon", "Stop the daemon at the connect address", !Settings.HAS_ARG,
+		!Settings.HAS_ARGS, !Settings.IS_REQUIRED, Settings.NO_GROUP));
 
 	AppOption(Settings settings) {
 		this.settings = settings;
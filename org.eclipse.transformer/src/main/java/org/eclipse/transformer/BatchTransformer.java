@@ -0,0 +1,507 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.transformer.Transformer.consoleMarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.Transformer.ResultCode;
+import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.action.ActionSelector;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.Changes;
+import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.slf4j.Logger;
+
+/**
+ * Transform many inputs using rules which are loaded once, and using one
+ * action graph. See {@link AppOption#BATCH}.
+ * <p>
+ * The input of the transformer is a batch specification, which is one of:
+ * <ul>
+ * <li>A directory: Every archive under the directory is transformed.</li>
+ * <li>A file: The file is a manifest which lists the inputs, one per line,
+ * as either <code>input</code> or as <code>input = output</code>. Blank lines
+ * and lines which start with '#' are ignored. Relative paths are resolved
+ * against the directory of the manifest.</li>
+ * <li>Otherwise, a glob, for example <code>server/lib/**.jar</code>: Every
+ * file which matches the glob is transformed.</li>
+ * </ul>
+ * The output of the transformer is the directory into which outputs are
+ * written. The outputs of a directory or of a glob are written to the same
+ * relative paths as their inputs, starting from the directory, or from the
+ * leading directories of the glob. The default output directory is a sibling
+ * of that directory, which is named using {@link Transformer#OUTPUT_PREFIX}.
+ * The outputs of a manifest which do not have an output are written into the
+ * output directory, if one is specified, or are written as siblings of their
+ * inputs, named using {@link Transformer#OUTPUT_PREFIX}.
+ * <p>
+ * When the batch option is not set, the batch has a single input, which is
+ * the input of the transformer, and which is transformed to the output of the
+ * transformer, or to a sibling of the input which is named using
+ * {@link Transformer#OUTPUT_PREFIX}. This allows a transformer which has
+ * loaded its rules to be shared by many single transformations.
+ * <p>
+ * Inputs are transformed using the thread count of the transformer. Changes
+ * are reported for each input, in the order of the inputs, followed by the
+ * changes of the batch as a whole. The result of the batch is the result of
+ * the first input which failed, or success if no input failed.
+ */
+public class BatchTransformer {
+	/**
+	 * An input of a batch and the output to which it is transformed.
+	 */
+	public record Input(String inputName, File inputFile, String outputName, File outputFile) {}
+
+	/**
+	 * The result of transforming an input of a batch. The action and the
+	 * changes are null if the input was not transformed.
+	 */
+	public record Result(Input input, ResultCode resultCode, Action action, Changes changes) {}
+
+	public BatchTransformer(Transformer transformer, TransformOptions options) {
+		this.transformer = requireNonNull(transformer);
+		this.options = requireNonNull(options);
+	}
+
+	private final Transformer		transformer;
+	private final TransformOptions	options;
+	private ContainerChangesImpl	changes;
+
+	public Logger getLogger() {
+		return transformer.getLogger();
+	}
+
+	/**
+	 * Answer the changes of the batch as a whole: Each input is recorded as a
+	 * single resource.
+	 *
+	 * @return The changes of the batch. Null if the batch was not run.
+	 */
+	public ContainerChanges getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Run the batch: Resolve the inputs, load the rules, and transform the
+	 * inputs.
+	 *
+	 * @return The result of the batch.
+	 */
+	public ResultCode run() {
+		String specName = options.getInputFileName();
+		if (specName == null) {
+			getLogger().error(consoleMarker, "No batch input was specified");
+			return ResultCode.ARGS_ERROR_RC;
+		}
+		specName = options.normalize(specName);
+
+		List<Input> inputs;
+		try {
+			inputs = resolveInputs(specName, options.normalize(options.getOutputFileName()));
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Failed to resolve batch inputs [ {} ]", specName, e);
+			return ResultCode.TRANSFORM_ERROR_RC;
+		}
+		if (inputs == null) {
+			return ResultCode.TRANSFORM_ERROR_RC;
+		}
+		if (inputs.isEmpty()) {
+			getLogger().error(consoleMarker, "No batch inputs were found [ {} ]", specName);
+			return ResultCode.TRANSFORM_ERROR_RC;
+		}
+		getLogger().info(consoleMarker, "Batch [ {} ]: [ {} ] inputs", specName, inputs.size());
+
+		ResultCode rulesResult = transformer.loadRules();
+		if (rulesResult != ResultCode.SUCCESS_RC) {
+			return rulesResult;
+		}
+
+		ActionSelector selector = transformer.getActionSelector();
+		String actionName = options.getOptionValue(AppOption.FILE_TYPE);
+		Action forcedAction = null;
+		if (actionName != null) {
+			forcedAction = selector.acceptType(actionName);
+			if (forcedAction == null) {
+				getLogger().error(consoleMarker, "No match for forced action [ {} ]", actionName);
+				return ResultCode.FILE_TYPE_ERROR_RC;
+			}
+			getLogger().info(consoleMarker, "Forced action [ {} ]", actionName);
+		}
+
+		List<Result> results = transformAll(inputs, selector, forcedAction);
+		return report(specName, options.normalize(options.getOutputFileName()), results);
+	}
+
+	//
+
+	/**
+	 * Resolve the inputs of a batch specification. Answer the single input of
+	 * the transformer when the batch option is not set.
+	 *
+	 * @param specName The batch specification.
+	 * @param outputRootName The output directory. Null to use the default
+	 *            output directory.
+	 * @return The inputs. Null if the specification cannot be used.
+	 * @throws IOException Thrown if a directory cannot be walked, or if a
+	 *             manifest cannot be read.
+	 */
+	protected List<Input> resolveInputs(String specName, String outputRootName) throws IOException {
+		File specFile = new File(specName);
+		if (!options.hasOption(AppOption.BATCH)) {
+			File outputFile = (outputRootName != null) ? new File(outputRootName)
+				: new File(specFile.getAbsoluteFile()
+					.getParentFile(), Transformer.OUTPUT_PREFIX + specFile.getName());
+			return List.of(new Input(specName, specFile, options.normalize(outputFile.getPath()), outputFile));
+
+		} else if (specFile.isDirectory()) {
+			File outputRoot = outputRoot(specFile, outputRootName);
+			if (outputRoot == null) {
+				return null;
+			}
+			Predicate<String> archives = ActionType.ZIP.resourceNameMatcher()
+				.or(ActionType.JAR.resourceNameMatcher())
+				.or(ActionType.WAR.resourceNameMatcher())
+				.or(ActionType.RAR.resourceNameMatcher())
+				.or(ActionType.EAR.resourceNameMatcher());
+			getLogger().debug(consoleMarker, "Batch archives of directory [ {} ]", specName);
+			return walk(specFile.toPath(), outputRoot, path -> archives.test(path.getFileName()
+				.toString()));
+
+		} else if (specFile.isFile()) {
+			getLogger().debug(consoleMarker, "Batch manifest [ {} ]", specName);
+			return readManifest(specFile, outputRootName);
+
+		} else {
+			// The glob is matched against paths relative to its leading
+			// directories, which are the segments which have no glob
+			// characters.
+			String[] segments = specName.split("/", -1);
+			int baseCount = 0;
+			while ((baseCount < segments.length - 1) && !isGlob(segments[baseCount])) {
+				baseCount++;
+			}
+			if (!isGlob(segments[baseCount])) {
+				getLogger().error(consoleMarker, "Batch input does not exist [ {} ]", specName);
+				return null;
+			}
+			String baseName = String.join("/", List.of(segments)
+				.subList(0, baseCount));
+			File baseFile = new File(baseName.isEmpty() ? "." : baseName);
+			if (!baseFile.isDirectory()) {
+				getLogger().error(consoleMarker, "Batch glob directory does not exist [ {} ]", baseFile);
+				return null;
+			}
+			File outputRoot = outputRoot(baseFile, outputRootName);
+			if (outputRoot == null) {
+				return null;
+			}
+			String pattern = String.join("/", List.of(segments)
+				.subList(baseCount, segments.length));
+			PathMatcher matcher = FileSystems.getDefault()
+				.getPathMatcher("glob:" + pattern);
+			getLogger().debug(consoleMarker, "Batch glob [ {} ] of directory [ {} ]", pattern, baseFile);
+			Path basePath = baseFile.toPath();
+			return walk(basePath, outputRoot, path -> matcher.matches(basePath.relativize(path)));
+		}
+	}
+
+	private static boolean isGlob(String segment) {
+		for (int charNo = 0; charNo < segment.length(); charNo++) {
+			switch (segment.charAt(charNo)) {
+				case '*' :
+				case '?' :
+				case '[' :
+				case '{' :
+					return true;
+				default :
+					break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Answer the output directory of a directory or of a glob. The output
+	 * directory must not be under the input directory.
+	 */
+	private File outputRoot(File inputRoot, String outputRootName) throws IOException {
+		File canonicalInputRoot = inputRoot.getCanonicalFile();
+		File outputRoot;
+		if (outputRootName != null) {
+			outputRoot = new File(outputRootName).getCanonicalFile();
+		} else {
+			File parent = canonicalInputRoot.getParentFile();
+			if (parent == null) {
+				getLogger().error(consoleMarker,
+					"Input directory is invalid. Don't designate the top directory. [ {} ]", inputRoot);
+				return null;
+			}
+			outputRoot = new File(parent, Transformer.OUTPUT_PREFIX + canonicalInputRoot.getName());
+		}
+		if (outputRoot.getPath()
+			.startsWith(canonicalInputRoot.getPath() + File.separator) || outputRoot.equals(canonicalInputRoot)) {
+			getLogger().error(consoleMarker, "Output path is under input directory [ {} ]", outputRoot);
+			return null;
+		}
+		getLogger().info(consoleMarker, "Batch output [ {} ]", outputRoot);
+		return outputRoot;
+	}
+
+	private List<Input> walk(Path inputRoot, File outputRoot, Predicate<Path> selector) throws IOException {
+		List<Input> inputs = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(inputRoot)) {
+			paths.filter(Files::isRegularFile)
+				.filter(selector)
+				.sorted()
+				.forEach(path -> {
+					String relativeName = options.normalize(inputRoot.relativize(path)
+						.toString());
+					File outputFile = new File(outputRoot, relativeName);
+					inputs.add(new Input(options.normalize(path.toString()), path.toFile(),
+						options.normalize(outputFile.getPath()), outputFile));
+				});
+		}
+		return inputs;
+	}
+
+	private List<Input> readManifest(File manifestFile, String outputRootName) throws IOException {
+		File manifestDirectory = manifestFile.getAbsoluteFile()
+			.getParentFile();
+		File outputRoot = (outputRootName == null) ? null : new File(outputRootName);
+
+		List<Input> inputs = new ArrayList<>();
+		int lineNo = 0;
+		for (String line : Files.readAllLines(manifestFile.toPath())) {
+			lineNo++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			String inputText;
+			String outputText;
+			int separator = line.indexOf('=');
+			if (separator == -1) {
+				inputText = line;
+				outputText = null;
+			} else {
+				inputText = line.substring(0, separator)
+					.trim();
+				outputText = line.substring(separator + 1)
+					.trim();
+				if (outputText.isEmpty()) {
+					outputText = null;
+				}
+			}
+			if (inputText.isEmpty()) {
+				getLogger().error(consoleMarker, "Batch manifest [ {} ] line [ {} ]: No input [ {} ]", manifestFile,
+					lineNo, line);
+				return null;
+			}
+
+			File inputFile = IO.getFile(manifestDirectory, inputText);
+			File outputFile;
+			if (outputText != null) {
+				outputFile = IO.getFile(manifestDirectory, outputText);
+			} else if (outputRoot != null) {
+				outputFile = new File(outputRoot, inputFile.getName());
+			} else {
+				outputFile = new File(inputFile.getParentFile(), Transformer.OUTPUT_PREFIX + inputFile.getName());
+			}
+			inputs.add(new Input(options.normalize(inputText), inputFile, options.normalize(outputFile.getPath()),
+				outputFile));
+		}
+		return inputs;
+	}
+
+	//
+
+	/**
+	 * Transform the inputs, using the thread count of the transformer. The
+	 * results are answered in the order of the inputs.
+	 */
+	private List<Result> transformAll(List<Input> inputs, ActionSelector selector, Action forcedAction) {
+		boolean allowOverwrite = options.hasOption(AppOption.OVERWRITE) || options.hasOption(AppOption.INCREMENTAL);
+
+		// Two inputs must not be written to the same output. The check is
+		// made before any input is transformed.
+		Set<String> outputPaths = new HashSet<>();
+		List<String> duplicateOutputs = new ArrayList<>();
+		for (Input input : inputs) {
+			String outputPath = input.outputFile()
+				.getAbsolutePath();
+			duplicateOutputs.add(outputPaths.add(outputPath) ? null : outputPath);
+		}
+
+		int threads = transformer.getThreadCount();
+		ExecutorService executor = ((threads > 1) && (inputs.size() > 1))
+			? Transformer.createExecutor("transformer-batch-", threads)
+			: null;
+		if (executor != null) {
+			getLogger().info(consoleMarker, "Batch inputs will be transformed using [ {} ] threads.", threads);
+		}
+		try {
+			List<CompletableFuture<Result>> pending = new ArrayList<>(inputs.size());
+			for (int inputNo = 0; inputNo < inputs.size(); inputNo++) {
+				Input input = inputs.get(inputNo);
+				String duplicateOutput = duplicateOutputs.get(inputNo);
+				if (duplicateOutput != null) {
+					getLogger().error(consoleMarker, "Output of [ {} ] is the output of a prior input [ {} ]",
+						input.inputName(), duplicateOutput);
+					pending.add(
+						CompletableFuture.completedFuture(new Result(input, ResultCode.ARGS_ERROR_RC, null, null)));
+				} else if (executor == null) {
+					pending.add(
+						CompletableFuture.completedFuture(transform(input, selector, forcedAction, allowOverwrite)));
+				} else {
+					pending.add(CompletableFuture
+						.supplyAsync(() -> transform(input, selector, forcedAction, allowOverwrite), executor));
+				}
+			}
+
+			List<Result> results = new ArrayList<>(inputs.size());
+			for (CompletableFuture<Result> result : pending) {
+				results.add(result.join());
+			}
+			return results;
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Transform one input of the batch. Failures are answered as the result
+	 * of the input.
+	 */
+	protected Result transform(Input input, ActionSelector selector, Action forcedAction, boolean allowOverwrite) {
+		File inputFile = input.inputFile();
+		if (!inputFile.exists()) {
+			getLogger().error(consoleMarker, "Input does not exist [ {} ] [ {} ]", input.inputName(),
+				inputFile.getAbsolutePath());
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, null, null);
+		}
+
+		File outputFile = input.outputFile();
+		String inputPath;
+		String outputPath;
+		try {
+			inputPath = inputFile.getCanonicalPath();
+			outputPath = outputFile.getCanonicalPath();
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Input error [ {} ] [ {} ] ", input.inputName(), e.toString(), e);
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, null, null);
+		}
+		if (outputPath.startsWith(inputPath + File.separator)) {
+			getLogger().error(consoleMarker, "Output path is under input directory [ {} ]", outputPath);
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, null, null);
+		}
+		if (Transformer.outputExists(outputFile) && !allowOverwrite) {
+			getLogger().error(consoleMarker, "Output already exists [ {} ]", outputPath);
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, null, null);
+		}
+
+		Action action = (forcedAction != null) ? forcedAction : selector.selectAction(input.inputName(), inputFile);
+		if (action == null) {
+			getLogger().error(consoleMarker, "No action selected for input [ {} ]", input.inputName());
+			return new Result(input, ResultCode.FILE_TYPE_ERROR_RC, null, null);
+		}
+
+		try {
+			IO.mkdirs(outputFile.getAbsoluteFile()
+				.getParentFile());
+			action.apply(input.inputName(), inputFile, input.outputName(), outputFile);
+		} catch (IOException | TransformException e) {
+			getLogger().error(consoleMarker, "Transform failure [ {} ]", input.inputName(), e);
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, action, null);
+		} catch (Throwable th) {
+			getLogger().error(consoleMarker, "Unexpected failure [ {} ]", input.inputName(), th);
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, action, null);
+		}
+
+		Changes lastChanges = action.getLastActiveChanges();
+		if ((lastChanges instanceof ContainerChanges containerChanges) && (containerChanges.getAllFailed() != 0)) {
+			return new Result(input, ResultCode.TRANSFORM_ERROR_RC, action, lastChanges);
+		}
+		return new Result(input, ResultCode.SUCCESS_RC, action, lastChanges);
+	}
+
+	/**
+	 * Report the results of the batch, in the order of the inputs, then the
+	 * changes of the batch as a whole.
+	 *
+	 * @return The result of the first input which failed. Success if no input
+	 *         failed.
+	 */
+	private ResultCode report(String specName, String outputRootName, List<Result> results) {
+		Logger useLogger = getLogger();
+
+		ContainerChangesImpl batchChanges = new ContainerChangesImpl();
+		batchChanges.setInputResourceName(specName);
+		batchChanges.setOutputResourceName((outputRootName == null) ? specName : outputRootName);
+
+		ResultCode batchResult = ResultCode.SUCCESS_RC;
+		int failed = 0;
+		for (Result result : results) {
+			Input input = result.input();
+			Changes inputChanges = result.changes();
+			if (inputChanges != null) {
+				inputChanges.log(useLogger, input.inputFile()
+					.getAbsolutePath(),
+					input.outputFile()
+						.getAbsolutePath());
+			}
+
+			if (result.resultCode() == ResultCode.SUCCESS_RC) {
+				batchChanges.recordAction(result.action(), inputChanges);
+				continue;
+			}
+
+			failed++;
+			if (result.resultCode() == ResultCode.FILE_TYPE_ERROR_RC) {
+				batchChanges.recordUnaccepted();
+			} else {
+				batchChanges.recordFailed(result.action());
+			}
+			useLogger.error(consoleMarker, "Batch input [ {} ] failed [ {} ]", input.inputName(),
+				result.resultCode());
+			if (batchResult == ResultCode.SUCCESS_RC) {
+				batchResult = result.resultCode();
+			}
+		}
+
+		changes = batchChanges;
+		batchChanges.log(useLogger, specName, batchChanges.getOutputResourceName());
+		useLogger.info(consoleMarker, "Batch [ {} ]: [ {} ] inputs, [ {} ] succeeded, [ {} ] failed", specName,
+			results.size(), results.size() - failed, failed);
+		return batchResult;
+	}
+}
@@ -29,8 +29,17 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import aQute.bnd.unmodifiable.Sets;
@@ -48,6 +57,7 @@ import org.eclipse.transformer.action.ContainerChanges;
 import org.eclipse.transformer.action.SelectionRule;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.impl.ActionSelectorImpl;
+import org.eclipse.transformer.action.impl.ArchiveCache;
 import org.eclipse.transformer.action.impl.BundleDataImpl;
 import org.eclipse.transformer.action.impl.ClassActionImpl;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
@@ -62,6 +72,7 @@ import org.eclipse.transformer.action.impl.SignatureRuleImpl;
 import org.eclipse.transformer.action.impl.TextActionImpl;
 import org.eclipse.transformer.action.impl.XmlActionImpl;
 import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.PropertiesUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -125,6 +136,7 @@ public class Transformer {
 	public boolean							widenArchiveNesting;
 	private ActionSelector					actionSelector;
 	public Action							acceptedAction;
+	private ContainerChanges				batchChanges;
 
 	public String							inputName;
 	public String							inputPath;
@@ -158,6 +170,13 @@ public class Transformer {
 	}
 
 	protected ResultCode basicRun() {
+		if (options.hasOption(AppOption.BATCH)) {
+			BatchTransformer batchTransformer = new BatchTransformer(this, options);
+			ResultCode rc = batchTransformer.run();
+			batchChanges = batchTransformer.getChanges();
+			return rc;
+		}
+
 		if (!setInput()) {
 			return ResultCode.TRANSFORM_ERROR_RC;
 		}
@@ -165,18 +184,10 @@ public class Transformer {
 			return ResultCode.TRANSFORM_ERROR_RC;
 		}
 
-		boolean loadedRules;
-		try {
-			loadedRules = setRules(getImmediateData());
-		} catch (Exception e) {
-			getLogger().error(consoleMarker, "Exception loading rules:", e);
-			return ResultCode.RULES_ERROR_RC;
+		ResultCode rulesResult = loadRules();
+		if (rulesResult != ResultCode.SUCCESS_RC) {
+			return rulesResult;
 		}
-		if (!loadedRules) {
-			getLogger().error(consoleMarker, "Transformation rules cannot be used");
-			return ResultCode.RULES_ERROR_RC;
-		}
-		logRules();
 
 		if (!acceptAction()) {
 			getLogger().error(consoleMarker, "No action selected");
@@ -450,6 +461,35 @@ public class Transformer {
 		return validateVersionUpdates(orphanedFinalPackages);
 	}
 
+	private ResultCode rulesResult;
+
+	/**
+	 * Load and log the rules. The rules are loaded once: Later calls answer
+	 * the result of the first call. This allows a transformer, once its rules
+	 * are loaded, to be shared by many transformations.
+	 *
+	 * @return {@link ResultCode#SUCCESS_RC} if the rules were loaded.
+	 *         {@link ResultCode#RULES_ERROR_RC} if the rules could not be
+	 *         loaded or cannot be used.
+	 */
+	public synchronized ResultCode loadRules() {
+		if (rulesResult == null) {
+			try {
+				if (setRules(getImmediateData())) {
+					logRules();
+					rulesResult = ResultCode.SUCCESS_RC;
+				} else {
+					getLogger().error(consoleMarker, "Transformation rules cannot be used");
+					rulesResult = ResultCode.RULES_ERROR_RC;
+				}
+			} catch (Exception e) {
+				getLogger().error(consoleMarker, "Exception loading rules:", e);
+				rulesResult = ResultCode.RULES_ERROR_RC;
+			}
+		}
+		return rulesResult;
+	}
+
 	protected void processImmediateData(
 		ImmediateRuleData[] immediateData, String masterTextRef,
 		Set<String> orphanedFinalVersions)
@@ -634,9 +674,52 @@ public class Transformer {
 		}
 		getLogger().info(consoleMarker, "Properties [ {} ] URL [ {} ]", referenceName, url);
 
+		if ("file".equals(url.getProtocol())) {
+			Path rulesPath = Paths.get(url.toURI());
+			rulesFiles.put(rulesPath, Optional.ofNullable(RulesFileState.of(rulesPath)));
+		}
 		return PropertiesUtils.loadProperties(url);
 	}
 
+	/**
+	 * The size and last modified time of a rules file. Null if the file cannot
+	 * be read.
+	 */
+	private record RulesFileState(long size, long lastModified) {
+		static RulesFileState of(Path path) {
+			try {
+				return new RulesFileState(Files.size(path), Files.getLastModifiedTime(path)
+					.toMillis());
+			} catch (IOException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * The rules files which were loaded, with their state from when they were
+	 * loaded. Rules which are loaded as resources are not recorded.
+	 */
+	private final Map<Path, Optional<RulesFileState>> rulesFiles = new ConcurrentHashMap<>();
+
+	/**
+	 * Tell if any of the rules files which were loaded has changed since it
+	 * was loaded: Its size or its last modified time has changed, or it
+	 * can no longer be read.
+	 *
+	 * @return True or false telling if any loaded rules file has changed.
+	 */
+	public boolean isRulesChanged() {
+		for (Map.Entry<Path, Optional<RulesFileState>> rulesFile : rulesFiles.entrySet()) {
+			if (!rulesFile.getValue()
+				.equals(Optional.ofNullable(RulesFileState.of(rulesFile.getKey())))) {
+				getLogger().info(consoleMarker, "Rules file [ {} ] has changed", rulesFile.getKey());
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected void merge(String sinkName, Map<String, String> sink, String sourceName, Properties source,
 		Set<String> orphanedValues) {
 
@@ -959,11 +1042,153 @@ public class Transformer {
 				getLogger(),
 				packageRenames, packageVersions, specificPackageVersions,
 				bundleUpdates,
-				masterTextUpdates, directStrings, perClassConstantStrings);
+				masterTextUpdates, directStrings, perClassConstantStrings,
+				getSignatureCacheSize());
 		}
 		return signatureRules;
 	}
 
+	/**
+	 * Answer the maximum number of entries of each of the signature rule
+	 * caches. Answer the default cache size if the cache size option is not
+	 * set or is not valid.
+	 *
+	 * @return The maximum number of entries of each signature rule cache.
+	 */
+	public int getSignatureCacheSize() {
+		String cacheSizeText = options.getOptionValue(AppOption.SIGNATURE_CACHE_SIZE);
+		if (cacheSizeText == null) {
+			return SignatureRuleImpl.DEFAULT_CACHE_SIZE;
+		}
+
+		int cacheSize;
+		try {
+			cacheSize = Integer.parseInt(cacheSizeText.trim());
+		} catch (NumberFormatException e) {
+			cacheSize = -1;
+		}
+		if (cacheSize < 0) {
+			getLogger().error(consoleMarker, "Non-valid signature cache size [ {} ]: Using the default cache size [ {} ]",
+				cacheSizeText, SignatureRuleImpl.DEFAULT_CACHE_SIZE);
+			return SignatureRuleImpl.DEFAULT_CACHE_SIZE;
+		}
+		return cacheSize;
+	}
+
+	private String rulesFingerprint;
+
+	/**
+	 * Answer a fingerprint of the rules used by the transformation. The
+	 * fingerprint is a digest of the selection rules, of the transformation
+	 * rules, of the options which change transformed content, and of the
+	 * version of the transformer. Different rules should be expected to have
+	 * different fingerprints.
+	 * <p>
+	 * The rules must have been set before the fingerprint is obtained.
+	 *
+	 * @return The fingerprint of the rules.
+	 */
+	public String getRulesFingerprint() {
+		if (rulesFingerprint == null) {
+			StringBuilder rules = new StringBuilder();
+			appendRule(rules, "version", Transformer.class.getPackage()
+				.getImplementationVersion());
+			appendRule(rules, "includes", includes);
+			appendRule(rules, "excludes", excludes);
+			appendRule(rules, "packageRenames", packageRenames);
+			appendRule(rules, "packageVersions", packageVersions);
+			appendRule(rules, "specificPackageVersions", specificPackageVersions);
+			appendRule(rules, "bundleUpdates", bundleUpdates);
+			appendRule(rules, "masterTextUpdates", masterTextUpdates);
+			appendRule(rules, "directStrings", directStrings);
+			appendRule(rules, "perClassConstantStrings", perClassConstantStrings);
+			appendRule(rules, "widenArchiveNesting", options.hasOption(AppOption.WIDEN_ARCHIVE_NESTING));
+			appendRule(rules, "stripSignatures", options.hasOption(AppOption.STRIP_SIGNATURES));
+			appendRule(rules, "invert", invert);
+			rulesFingerprint = FileUtils.digest(rules.toString());
+		}
+		return rulesFingerprint;
+	}
+
+	private static void appendRule(StringBuilder rules, String name, Object value) {
+		rules.append(name)
+			.append('=');
+		appendRuleValue(rules, value);
+		rules.append('\n');
+	}
+
+	// Maps are written in key order, and text is written with its length, so
+	// that the same rules are always written the same, and different rules are
+	// never written the same.
+
+	private static void appendRuleValue(StringBuilder rules, Object value) {
+		if (value instanceof Map<?, ?> map) {
+			rules.append('{');
+			for (Map.Entry<?, ?> entry : new TreeMap<>(map).entrySet()) {
+				appendRuleValue(rules, entry.getKey());
+				rules.append('=');
+				appendRuleValue(rules, entry.getValue());
+				rules.append(',');
+			}
+			rules.append('}');
+		} else if (value instanceof BundleData bundleData) {
+			appendRuleValue(rules, bundleData.getPrintString());
+		} else if (value == null) {
+			rules.append('-');
+		} else {
+			String text = value.toString();
+			rules.append(text.length())
+				.append(':')
+				.append(text);
+		}
+	}
+
+	/**
+	 * Create the cache of transformed archives. Answer null if the archive
+	 * cache option is not set, or if the cache directory cannot be created.
+	 *
+	 * @return The cache of transformed archives. Null if archives are not to
+	 *         be cached.
+	 */
+	protected ArchiveCache createArchiveCache() {
+		String cacheDirectoryName = options.getOptionValue(AppOption.ARCHIVE_CACHE);
+		if (cacheDirectoryName == null) {
+			return null;
+		}
+		File cacheDirectory = new File(options.normalize(cacheDirectoryName));
+
+		long maxSize = ArchiveCache.DEFAULT_MAX_SIZE;
+		String cacheSizeText = options.getOptionValue(AppOption.ARCHIVE_CACHE_SIZE);
+		if (cacheSizeText != null) {
+			long cacheSize;
+			try {
+				cacheSize = Long.parseLong(cacheSizeText.trim());
+			} catch (NumberFormatException e) {
+				cacheSize = -1L;
+			}
+			if (cacheSize < 0L) {
+				getLogger().error(consoleMarker,
+					"Non-valid archive cache size [ {} ]: Using the default cache size [ {} ] megabytes", cacheSizeText,
+					ArchiveCache.DEFAULT_MAX_SIZE / (1024L * 1024L));
+			} else {
+				maxSize = cacheSize * 1024L * 1024L;
+			}
+		}
+
+		ArchiveCache archiveCache;
+		try {
+			archiveCache = new ArchiveCache(getLogger(), cacheDirectory, maxSize, getRulesFingerprint());
+		} catch (IOException e) {
+			getLogger().error(consoleMarker, "Archive cache [ {} ] cannot be created: Archives will not be cached",
+				cacheDirectory.getAbsolutePath(), e);
+			return null;
+		}
+
+		getLogger().info(consoleMarker, "Archive cache [ {} ]: [ {} ] archives, [ {} ] bytes",
+			cacheDirectory.getAbsolutePath(), archiveCache.getCount(), archiveCache.getSize());
+		return archiveCache;
+	}
+
 	public boolean setInput() {
 		String useInputName = options.getInputFileName();
 		if (useInputName == null) {
@@ -1057,6 +1282,10 @@ public class Transformer {
 		if (allowOverwrite) {
 			getLogger().info(consoleMarker, "Overwrite of output is enabled");
 		}
+		if (options.hasOption(AppOption.INCREMENTAL)) {
+			getLogger().info(consoleMarker, "Incremental transformation is enabled");
+			allowOverwrite = true;
+		}
 
 		if (outputExists(useOutputFile)) {
 			if (allowOverwrite) {
@@ -1083,7 +1312,7 @@ public class Transformer {
 		return true;
 	}
 
-	private boolean outputExists(File outputFile) {
+	static boolean outputExists(File outputFile) {
 		if (outputFile.isFile()) {
 			return true;
 		}
@@ -1101,15 +1330,88 @@ public class Transformer {
 	// As a separate method to allow re-use.
 
 	public ActionContext getActionContext() {
-		return new ActionContext(getLogger(), getSelectionRule(), getSignatureRule());
+		return new ActionContext(getLogger(), getSelectionRule(), getSignatureRule(), getSpillThreshold(),
+			getSpillDirectory());
 	}
 
-	public ActionSelector getActionSelector() {
+	/**
+	 * Answer the directory of the temporary files which hold resources which
+	 * are larger than the spill threshold. Answer null, which selects the
+	 * default temporary file directory, if the spill directory option is not
+	 * set, or if the spill directory cannot be created.
+	 *
+	 * @return The spill directory. Null to use the default temporary file
+	 *         directory.
+	 */
+	public Path getSpillDirectory() {
+		String directoryName = options.getOptionValue(AppOption.SPILL_DIRECTORY);
+		if (directoryName == null) {
+			return null;
+		}
+		File spillDirectory = new File(options.normalize(directoryName));
+		try {
+			IO.mkdirs(spillDirectory);
+		} catch (IOException e) {
+			getLogger().error(consoleMarker,
+				"Spill directory [ {} ] cannot be created: Using the default temporary file directory",
+				spillDirectory.getAbsolutePath(), e);
+			return null;
+		}
+		return spillDirectory.toPath();
+	}
+
+	/**
+	 * Answer the size above which resources are held in temporary files
+	 * instead of in memory. Answer the default threshold if the spill
+	 * threshold option is not set or is not valid.
+	 *
+	 * @return The spill threshold, in bytes.
+	 */
+	public long getSpillThreshold() {
+		String thresholdText = options.getOptionValue(AppOption.SPILL_THRESHOLD);
+		if (thresholdText == null) {
+			return ActionContext.DEFAULT_SPILL_THRESHOLD;
+		}
+
+		long threshold;
+		try {
+			threshold = Long.parseLong(thresholdText.trim());
+		} catch (NumberFormatException e) {
+			threshold = -1L;
+		}
+		if ((threshold < 0L) || (threshold > Integer.MAX_VALUE / (1024L * 1024L))) {
+			getLogger().error(consoleMarker,
+				"Non-valid spill threshold [ {} ]: Using the default spill threshold [ {} ] megabytes", thresholdText,
+				ActionContext.DEFAULT_SPILL_THRESHOLD / (1024L * 1024L));
+			return ActionContext.DEFAULT_SPILL_THRESHOLD;
+		}
+		return threshold * 1024L * 1024L;
+	}
+
+	/**
+	 * Answer the selector of the root actions. The action graph is created
+	 * when first requested.
+	 * <p>
+	 * The action graph is shared: Actions record their changes per thread, and
+	 * may be applied concurrently by any number of threads. See
+	 * {@link Action#getLastActiveChanges()}.
+	 *
+	 * @return The selector of the root actions.
+	 */
+	public synchronized ActionSelector getActionSelector() {
 		if (actionSelector == null) {
 			ActionSelector useSelector = new ActionSelectorImpl();
 			ActionContext context = getActionContext();
 
-			ContainerAction directoryAction = useSelector.addUsing(DirectoryActionImpl::new, context);
+			ZipActionImpl.Options zipOptions = ZipActionImpl.Options.DEFAULT.withEntryExecutor(createEntryExecutor())
+				.withArchiveExecutor(createArchiveExecutor())
+				.withArchiveCache(createArchiveCache());
+			Executor fileExecutor = createFileExecutor();
+
+			String rulesFingerprint = options.hasOption(AppOption.INCREMENTAL) ? getRulesFingerprint() : null;
+
+			ContainerAction directoryAction = useSelector
+				.addUsing(c -> new DirectoryActionImpl(c, fileExecutor, rulesFingerprint), context);
 
 			Action classAction = useSelector.addUsing(ClassActionImpl::new, context);
 			// The java and JSP actions must be before the text action.
@@ -1134,15 +1436,15 @@ public class Transformer {
 			standardActions.add(xmlAction); // after text so text can supersede
 
 			ContainerAction jarAction = useSelector.addUsing(c -> new ZipActionImpl(c, ActionType.JAR,
-				options.hasOption(AppOption.STRIP_SIGNATURES)), context);
+				options.hasOption(AppOption.STRIP_SIGNATURES), zipOptions), context);
 			ContainerAction warAction = useSelector.addUsing(c -> new ZipActionImpl(c, ActionType.WAR,
-				options.hasOption(AppOption.STRIP_SIGNATURES)), context);
+				options.hasOption(AppOption.STRIP_SIGNATURES), zipOptions), context);
 			ContainerAction rarAction = useSelector.addUsing(c -> new ZipActionImpl(c, ActionType.RAR,
-				options.hasOption(AppOption.STRIP_SIGNATURES)), context);
+				options.hasOption(AppOption.STRIP_SIGNATURES), zipOptions), context);
 			ContainerAction earAction = useSelector.addUsing(c -> new ZipActionImpl(c, ActionType.EAR,
-				options.hasOption(AppOption.STRIP_SIGNATURES)), context);
+				options.hasOption(AppOption.STRIP_SIGNATURES), zipOptions), context);
 			ContainerAction zipAction = useSelector.addUsing(c -> new ZipActionImpl(c, ActionType.ZIP,
-				options.hasOption(AppOption.STRIP_SIGNATURES)), context);
+				options.hasOption(AppOption.STRIP_SIGNATURES), zipOptions), context);
 
 			Action renameAction = useSelector.addUsing(RenameActionImpl::new, context);
 
@@ -1215,6 +1517,121 @@ public class Transformer {
 		return actionSelector;
 	}
 
+	/**
+	 * Answer the number of threads which are to be used to transform archive
+	 * entries. Answer one if the thread count option is not set or is not
+	 * valid. Answer the number of available processors if the thread count
+	 * option is zero.
+	 *
+	 * @return The number of threads used to transform archive entries.
+	 */
+	public int getThreadCount() {
+		String threadsText = options.getOptionValue(AppOption.THREADS);
+		if (threadsText == null) {
+			return 1;
+		}
+
+		int threads;
+		try {
+			threads = Integer.parseInt(threadsText.trim());
+		} catch (NumberFormatException e) {
+			threads = -1;
+		}
+		if (threads < 0) {
+			getLogger().error(consoleMarker, "Non-valid thread count [ {} ]: Archive entries will be transformed using a single thread",
+				threadsText);
+			return 1;
+		} else if (threads == 0) {
+			return Runtime.getRuntime()
+				.availableProcessors();
+		} else {
+			return threads;
+		}
+	}
+
+	/**
+	 * Create the executor used by archive actions to transform archive entries.
+	 * Answer null if archive entries are to be transformed on the calling
+	 * thread.
+	 * <p>
+	 * Idle executor threads time out, which allows the executor to be
+	 * discarded without being shut down.
+	 *
+	 * @return The executor used to transform archive entries. Null if a single
+	 *         thread is to be used.
+	 */
+	protected Executor createEntryExecutor() {
+		int threads = getThreadCount();
+		if (threads <= 1) {
+			return null;
+		}
+
+		getLogger().info(consoleMarker, "Archive entries will be transformed using [ {} ] threads.", threads);
+
+		return createExecutor("transformer-entry-", threads);
+	}
+
+	/**
+	 * Create the executor used by archive actions to transform nested
+	 * archives. Answer null if nested archives are to be transformed on the
+	 * calling thread.
+	 * <p>
+	 * Nested archive tasks wait on the transformation of their entries. The
+	 * entries are transformed using the entry executor: A separate executor is
+	 * used for the nested archives so that nested archive tasks never wait on
+	 * tasks which are queued behind them. For the same reason, a nested archive
+	 * task does not submit the archives which are nested within its archive
+	 * to this executor: Those are transformed by the nested archive task.
+	 *
+	 * @return The executor used to transform nested archives. Null if a
+	 *         single thread is to be used.
+	 */
+	protected Executor createArchiveExecutor() {
+		int threads = getThreadCount();
+		if (threads <= 1) {
+			return null;
+		}
+
+		getLogger().info(consoleMarker, "Nested archives will be transformed using [ {} ] threads.", threads);
+
+		return createExecutor("transformer-archive-", threads);
+	}
+
+	/**
+	 * Create the executor used by the directory action to transform the files
+	 * of a directory. Answer null if files are to be transformed on the
+	 * calling thread.
+	 * <p>
+	 * File tasks which transform archives wait on the tasks of the archive
+	 * executors: A separate executor is used for the files for the same
+	 * reason as is given for the archive executor.
+	 *
+	 * @return The executor used to transform directory files. Null if a single
+	 *         thread is to be used.
+	 */
+	protected Executor createFileExecutor() {
+		int threads = getThreadCount();
+		if (threads <= 1) {
+			return null;
+		}
+
+		getLogger().info(consoleMarker, "Directory files will be transformed using [ {} ] threads.", threads);
+
+		return createExecutor("transformer-file-", threads);
+	}
+
+	static ExecutorService createExecutor(String threadPrefix, int threads) {
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> {
+				Thread thread = new Thread(r, threadPrefix + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	public boolean acceptAction() {
 		String actionName = options.getOptionValue(AppOption.FILE_TYPE);
 		if (actionName != null) {
@@ -1245,13 +1662,25 @@ public class Transformer {
 
 		acceptedAction.getLastActiveChanges()
 			.log(getLogger(), inputPath, outputPath);
+
+		if ((signatureRules instanceof SignatureRuleImpl signatureRuleImpl) && getLogger().isDebugEnabled()) {
+			signatureRuleImpl.getCacheStatistics()
+				.forEach(statistics -> getLogger().debug("Signature {}", statistics));
+		}
 	}
 
+	/**
+	 * Answer the changes of the last transformation. For a batch, answer the
+	 * changes of the batch as a whole. See {@link BatchTransformer#getChanges()}.
+	 *
+	 * @return The changes of the last transformation. Null if nothing was
+	 *         transformed.
+	 */
 	public Changes getLastActiveChanges() {
 		if (acceptedAction != null) {
 			return acceptedAction.getLastActiveChanges();
 		}
-		return null;
+		return batchChanges;
 	}
 
 	/**
@@ -13,6 +13,7 @@ package org.eclipse.transformer.action;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import org.eclipse.transformer.TransformException;
 
@@ -94,6 +95,37 @@ public interface Action {
 	 */
 	boolean acceptResource(String resourceName, File resourceFile);
 
+	/**
+	 * Answer the resource name suffixes which select this action. An action
+	 * which answers suffixes must accept exactly the resources the names of
+	 * which end with one of the suffixes, ignoring case, regardless of the
+	 * resource file. Suffixes must not contain '/'.
+	 * <p>
+	 * Action selectors use the suffixes to select actions without asking the
+	 * actions to accept resources. See {@link ActionSelector#selectAction}.
+	 *
+	 * @return The suffixes which select this action. Null if this action does
+	 *         not select resources by suffix.
+	 */
+	default List<String> getSelectionSuffixes() {
+		return null;
+	}
+
+	/**
+	 * Tell if this action accepts resources using only the simple names of the
+	 * resources, which are the last segments of the resource names,
+	 * regardless of the resource files. Action selectors may remember the
+	 * selection of resources which have the same simple name.
+	 * <p>
+	 * Actions which select resources by suffix select by simple name.
+	 *
+	 * @return True or false telling if this action accepts resources using
+	 *         only their simple names.
+	 */
+	default boolean selectsBySimpleName() {
+		return getSelectionSuffixes() != null;
+	}
+
 	/**
 	 * Tell if the action matches the specified action type name.
 	 * <p>
@@ -129,6 +161,18 @@ public interface Action {
 		return getResourceSelectionRule().charset(resourceName);
 	}
 
+	/**
+	 * Answer the selection and the charset of a resource. This matches the
+	 * resource name once, instead of once for {@link #selectResource(String)}
+	 * and again for {@link #resourceCharset(String)}.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @return The selection of the resource.
+	 */
+	default SelectionRule.Selection resourceSelection(String resourceName) {
+		return getResourceSelectionRule().selection(resourceName);
+	}
+
 	//
 
 	/**
@@ -165,6 +209,10 @@ public interface Action {
 
 	/**
 	 * Start recording transformation of a resource.
+	 * <p>
+	 * Recording is held per thread: An action may be applied concurrently by
+	 * several threads, each of which records its own changes. Recording must
+	 * be stopped by the thread which started it.
 	 *
 	 * @param inputName The name of the resource.
 	 */
@@ -183,21 +231,25 @@ public interface Action {
 	}
 
 	/**
-	 * Stop recording transformation of a resource.
+	 * Stop recording transformation of a resource. The changes which were
+	 * recorded become the last active changes of the calling thread.
 	 *
 	 * @param inputName The name of the resource.
 	 */
 	void stopRecording(String inputName);
 
 	/**
-	 * Answer the last active changes.
+	 * Answer the last active changes of the calling thread: The changes of the
+	 * last application of this action which was completed by the calling
+	 * thread.
 	 *
-	 * @return The last active changes.
+	 * @return The last active changes. Null if the calling thread has not
+	 *         completed an application of this action.
 	 */
 	Changes getLastActiveChanges();
 
 	/**
-	 * Answer the current active changes.
+	 * Answer the current active changes of the calling thread.
 	 *
 	 * @return The current active changes.
 	 */
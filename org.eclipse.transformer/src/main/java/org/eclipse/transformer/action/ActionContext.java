@@ -17,15 +17,55 @@
  *******************************************************************************/
 package org.eclipse.transformer.action;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.slf4j.Logger;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * The context of actions: The logger, the rules, the size above which
+ * resources are held in temporary files instead of in memory, and the
+ * directory of those temporary files. A null spill directory selects the
+ * default temporary file directory.
+ */
 public record ActionContext(Logger logger, SelectionRule selectionRule,
-								SignatureRule signatureRule) {
+								SignatureRule signatureRule, long spillThreshold, Path spillDirectory) {
+	/** Default size above which resources are held in temporary files. */
+	public static final long DEFAULT_SPILL_THRESHOLD = 64L * 1024L * 1024L;
+
+	public ActionContext {
+		requireNonNull(logger);
+		requireNonNull(selectionRule);
+		requireNonNull(signatureRule);
+		if (spillThreshold < 0L) {
+			throw new IllegalArgumentException("Non-valid spill threshold [ " + spillThreshold + " ]");
+		}
+	}
+
 	public ActionContext(Logger logger, SelectionRule selectionRule, SignatureRule signatureRule) {
-		this.logger = requireNonNull(logger);
-		this.selectionRule = requireNonNull(selectionRule);
-		this.signatureRule = requireNonNull(signatureRule);
+		this(logger, selectionRule, signatureRule, DEFAULT_SPILL_THRESHOLD);
+	}
+
+	public ActionContext(Logger logger, SelectionRule selectionRule, SignatureRule signatureRule,
+		long spillThreshold) {
+		this(logger, selectionRule, signatureRule, spillThreshold, null);
+	}
+
+	/**
+	 * Create a temporary file in the spill directory.
+	 *
+	 * @param prefix The prefix of the name of the file.
+	 * @param suffix The suffix of the name of the file.
+	 * @return The path of the new file.
+	 * @throws IOException Thrown if the file cannot be created.
+	 */
+	public Path createSpillFile(String prefix, String suffix) throws IOException {
+		if (spillDirectory == null) {
+			return Files.createTempFile(prefix, suffix);
+		}
+		return Files.createTempFile(spillDirectory, prefix, suffix);
 	}
 }
@@ -38,6 +38,18 @@ public interface ActionSelector {
 		return action;
 	}
 
+	/**
+	 * Select the first action which accepts a resource. Implementations may
+	 * compile the actions for faster selection, but must answer the same
+	 * action as this implementation, which asks each action, in order. See
+	 * {@link Action#getSelectionSuffixes()} and
+	 * {@link Action#selectsBySimpleName()}.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @param resourceFile The file of the resource. This can be null.
+	 * @return The first action which accepts the resource. Null if no action
+	 *         accepts the resource.
+	 */
 	default Action selectAction(String resourceName, File resourceFile) {
 		for (Action action : getActions()) {
 			if (action.acceptResource(resourceName, resourceFile)) {
@@ -12,6 +12,7 @@
 package org.eclipse.transformer.action;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Predicate;
 
 public enum ActionType {
@@ -37,10 +38,12 @@ public enum ActionType {
 	DIRECTORY("Directory Action");
 
 	private final String name;
+	private final List<String> extensions;
 	private final Predicate<String> matcher;
 
 	ActionType(String name, String... extensions) {
 		this.name = name;
+		this.extensions = List.of(extensions);
 		this.matcher = Arrays.stream(extensions)
 			.map(this::extensionPredicate)
 			.reduce(Predicate::or)
@@ -60,6 +63,18 @@ public enum ActionType {
 		return matcher;
 	}
 
+	/**
+	 * Answer the resource name extensions of this type, which are matched by
+	 * the resource name matcher of this type. See
+	 * {@link #resourceNameMatcher()}.
+	 *
+	 * @return The extensions of this type. Null if this type does not support
+	 *         resource name matching.
+	 */
+	public List<String> getExtensions() {
+		return extensions.isEmpty() ? null : extensions;
+	}
+
 	public String getName() {
 		return name;
 	}
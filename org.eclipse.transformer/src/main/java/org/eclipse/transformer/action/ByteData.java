@@ -112,4 +112,22 @@ public interface ByteData {
 	 * @return The copied byte data.
 	 */
 	ByteData copy(String name);
+
+	//
+
+	/**
+	 * Release the storage of this byte data. Storage which was borrowed from a
+	 * buffer pool is returned to the pool, and a temporary file is deleted.
+	 * <p>
+	 * Storage is shared with copies of the byte data. Release is to be
+	 * performed only after both this byte data and all of its copies are no
+	 * longer used. Releasing a copy has no effect. Releasing byte data a
+	 * second time has no effect.
+	 * <p>
+	 * Release is optional: Storage which is not released is reclaimed by the
+	 * garbage collector. The default implementation does nothing.
+	 */
+	default void release() {
+		// Nothing to release.
+	}
 }
@@ -64,6 +64,22 @@ public interface ContainerChanges extends Changes {
 	void recordUnaccepted();
 	void recordUnchanged(Action action);
 	void recordAction(Action action);
+
+	/**
+	 * Record the application of an action using changes which were captured
+	 * when the action was applied, which may have been on another thread.
+	 * <p>
+	 * The default implementation ignores the captured changes, and records
+	 * the last active changes of the action on the calling thread. See
+	 * {@link #recordAction(Action)}.
+	 *
+	 * @param action The action which was applied.
+	 * @param lastChanges The changes made by the application of the action.
+	 */
+	default void recordAction(Action action, Changes lastChanges) {
+		recordAction(action);
+	}
+
 	void recordFailed(Action action);
 	void recordDuplicated(Action action);
 
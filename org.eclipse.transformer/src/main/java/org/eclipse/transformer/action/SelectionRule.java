@@ -21,4 +21,36 @@ public interface SelectionRule {
 	boolean rejectExcluded(String resourceName);
 
 	Charset charset(String resourceName);
+
+	/**
+	 * The selection of a resource, and the charset of the resource.
+	 *
+	 * @param included True or false telling if the resource is included.
+	 * @param excluded True or false telling if the resource is excluded.
+	 * @param charset The charset to use when reading or writing the resource.
+	 */
+	record Selection(boolean included, boolean excluded, Charset charset) {
+		/**
+		 * Tell if the resource is to be transformed: The resource is included
+		 * and is not excluded.
+		 *
+		 * @return True or false telling if the resource is to be transformed.
+		 */
+		public boolean selected() {
+			return included && !excluded;
+		}
+	}
+
+	/**
+	 * Answer the selection and the charset of a resource. This answers the
+	 * same as {@link #selectIncluded(String)}, {@link #rejectExcluded(String)}
+	 * and {@link #charset(String)}, but implementations are expected to
+	 * match the resource name only once.
+	 *
+	 * @param resourceName The name of the resource.
+	 * @return The selection of the resource.
+	 */
+	default Selection selection(String resourceName) {
+		return new Selection(selectIncluded(resourceName), rejectExcluded(resourceName), charset(resourceName));
+	}
 }
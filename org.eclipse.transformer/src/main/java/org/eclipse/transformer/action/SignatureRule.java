@@ -12,6 +12,8 @@
 package org.eclipse.transformer.action;
 
 import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 import org.eclipse.transformer.util.SignatureUtils;
@@ -79,6 +81,76 @@ public interface SignatureRule {
 	String replacePackage(String initialName);
 	String replacePackages(String text);
 
+	/**
+	 * Replace all package names in text, updating the text which follows each
+	 * replaced package name.
+	 * <p>
+	 * The default implementation applies the package renames one at a time,
+	 * in their rename order.
+	 *
+	 * @param text Text embedding zero, one, or more package names.
+	 * @param tailUpdate Update of the text which follows each replaced package
+	 *            name. Applied to the replacement package name and to the
+	 *            text which follows it, and answers the updated text, or null
+	 *            if the text is not updated. May be null.
+	 * @return The text with all embedded package names replaced. Null if no
+	 *         replacements were performed.
+	 */
+	default String replacePackages(String text, BinaryOperator<String> tailUpdate) {
+		String initialText = text;
+
+		for (Map.Entry<String, String> renameEntry : getPackageRenames().entrySet()) {
+			String key = renameEntry.getKey(); // Package name match data.
+
+			boolean matchPackageStem = SignatureUtils.containsWildcard(key);
+			if (matchPackageStem) {
+				key = SignatureUtils.stripWildcard(key);
+			}
+
+			final int keyLen = key.length();
+			int textLimit = text.length() - keyLen;
+
+			for (int matchEnd = 0; matchEnd <= textLimit;) {
+				final int matchStart = text.indexOf(key, matchEnd);
+				if (matchStart == -1) {
+					break;
+				}
+
+				matchEnd = matchStart + keyLen;
+				int packageEnd = SignatureUtils.packageMatch(text, matchStart, matchEnd, matchPackageStem);
+				if (packageEnd == -1) {
+					continue;
+				}
+
+				String value = renameEntry.getValue();
+				if (matchEnd < packageEnd) {
+					value = value.concat(text.substring(matchEnd, packageEnd));
+				}
+
+				String head = text.substring(0, matchStart);
+				String tail = text.substring(packageEnd);
+
+				if (tailUpdate != null) {
+					String updatedTail = tailUpdate.apply(value, tail);
+					if (updatedTail != null) {
+						tail = updatedTail;
+					}
+				}
+
+				text = head + value + tail;
+
+				matchEnd = matchStart + value.length();
+				textLimit = text.length() - keyLen;
+			}
+		}
+
+		if (initialText == text) {
+			return null;
+		} else {
+			return text;
+		}
+	}
+
 	Map<String, String> getBinaryPackageRenames();
 	String replaceBinaryPackage(String initialName);
 	String replaceBinaryPackages(String text);
@@ -102,6 +174,26 @@ public interface SignatureRule {
 
 	Map<String, String> getTextSubstitutions(String inputName);
 
+	/**
+	 * Answer the text update of a resource. The text substitutions are
+	 * located once, so that the lines of the resource can be updated without
+	 * locating them again. The update answers the updated text, or null if
+	 * the text is not changed. See {@link #getTextSubstitutions(String)}.
+	 * <p>
+	 * The default implementation answers an update which uses
+	 * {@link #replaceText(String, String)}.
+	 *
+	 * @param inputName The name of the resource.
+	 * @return The text update of the resource. Null if there are no text
+	 *         substitutions for the resource.
+	 */
+	default UnaryOperator<String> getTextUpdate(String inputName) {
+		if (getTextSubstitutions(inputName) == null) {
+			return null;
+		}
+		return text -> replaceText(inputName, text);
+	}
+
 	String replaceText(String inputName, String initialText);
 
 	// Category 5: Direct string updates
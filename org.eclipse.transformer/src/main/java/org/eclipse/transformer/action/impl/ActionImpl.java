@@ -24,6 +24,8 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
 
 import aQute.lib.io.IO;
 import org.eclipse.transformer.TransformException;
@@ -35,6 +37,7 @@ import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.SelectionRule;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.util.ByteMatcher;
 import org.eclipse.transformer.util.FileUtils;
 import org.slf4j.Logger;
 
@@ -71,7 +74,10 @@ import org.slf4j.Logger;
  * accumulated change record. The active resource is passed as method
  * parameters. The accumulated change record is managed within the actions as a
  * stack, with each 'apply' being required to begin and end with
- * {@link #startRecording(String)} and {@link #stopRecording(String)}.
+ * {@link #startRecording(String)} and {@link #stopRecording(String)}. The stack
+ * is held per thread, which allows a single action to be applied concurrently
+ * to distinct resources, as is done when the entries of an archive are
+ * transformed in parallel.
  * <p>
  * Third, there is data which is not transformation rules data and which is is
  * not related to the active resource or to accumulated Changes. This additional
@@ -86,9 +92,7 @@ public abstract class ActionImpl implements Action {
 
 		// Change tracking ...
 
-		this.changes = new ArrayDeque<>();
-		this.activeChanges = null;
-		this.lastActiveChanges = null;
+		this.recording = ThreadLocal.withInitial(Recording::new);
 	}
 
 	//
@@ -133,6 +137,10 @@ public abstract class ActionImpl implements Action {
 		return getSignatureRule().replacePackages(initialText);
 	}
 
+	public String replacePackages(String initialText, BinaryOperator<String> tailUpdate) {
+		return getSignatureRule().replacePackages(initialText, tailUpdate);
+	}
+
 	public String replaceBinaryPackages(String initialText) {
 		return getSignatureRule().replaceBinaryPackages(initialText);
 	}
@@ -192,9 +200,16 @@ public abstract class ActionImpl implements Action {
 
 	protected abstract Changes newChanges();
 
-	private final Deque<Changes>	changes;
-	private Changes					activeChanges;
-	private Changes					lastActiveChanges;
+	/**
+	 * Change recording state of the current thread.
+	 */
+	private static final class Recording {
+		final Deque<Changes>	changes	= new ArrayDeque<>();
+		Changes					activeChanges;
+		Changes					lastActiveChanges;
+	}
+
+	private final ThreadLocal<Recording> recording;
 
 	protected void startRecording(ByteData inputData) {
 		startRecording(inputData.name());
@@ -208,37 +223,39 @@ public abstract class ActionImpl implements Action {
 	public void startRecording(String inputName) {
 		getLogger().debug("Start processing [ {} ] using [ {} ]", inputName, getName());
 
-		Changes useActiveChanges = activeChanges;
+		Recording useRecording = recording.get();
+		Changes useActiveChanges = useRecording.activeChanges;
 		if (useActiveChanges != null) {
-			changes.addLast(useActiveChanges);
+			useRecording.changes.addLast(useActiveChanges);
 		}
-		activeChanges = newChanges();
+		useRecording.activeChanges = newChanges();
 	}
 
 	@Override
 	public void stopRecording(String inputName) {
-		Changes useActiveChanges = activeChanges;
+		Recording useRecording = recording.get();
+		Changes useActiveChanges = useRecording.activeChanges;
 		Logger useLogger = getLogger();
 		if (useLogger.isDebugEnabled()) {
 			useLogger.debug("Stop processing [ {} ] using [ {} ] took [ {}ms ]: {}", inputName, getName(),
 				useActiveChanges.getElapsedMillis(), useActiveChanges.getChangeText());
 		}
-		lastActiveChanges = useActiveChanges;
-		activeChanges = changes.pollLast();
+		useRecording.lastActiveChanges = useActiveChanges;
+		useRecording.activeChanges = useRecording.changes.pollLast();
 	}
 
 	//
 
 	@Override
 	public Changes getActiveChanges() {
-		return activeChanges;
+		return recording.get().activeChanges;
 	}
 
 	//
 
 	@Override
 	public Changes getLastActiveChanges() {
-		return lastActiveChanges;
+		return recording.get().lastActiveChanges;
 	}
 
 	//
@@ -248,6 +265,10 @@ public abstract class ActionImpl implements Action {
 	 * structure containing input data upon which the action can be performed.
 	 * If the specified count is greater than or equal to zero, read that many
 	 * bytes. Otherwise, read all available bytes.
+	 * <p>
+	 * Data which is larger than the spill threshold of the action context, or
+	 * the size of which is not known, is collected using a temporary file once
+	 * the threshold is reached. See {@link ActionContext#spillThreshold()}.
 	 *
 	 * @param inputName A name associated with the input data.
 	 * @param inputStream A stream containing input data.
@@ -258,20 +279,49 @@ public abstract class ActionImpl implements Action {
 	 */
 	public ByteData collect(String inputName, InputStream inputStream, int inputCount)
 		throws TransformException {
+		return collect(inputName, inputStream, inputCount, resourceCharset(inputName));
+	}
+
+	/**
+	 * Collect the data for an action on an input stream, using a charset
+	 * which was already obtained for the input. See
+	 * {@link #collect(String, InputStream, int)} and
+	 * {@link #resourceSelection(String)}.
+	 *
+	 * @param inputName A name associated with the input data.
+	 * @param inputStream A stream containing input data.
+	 * @param inputCount The count of bytes which are to be read. If less than
+	 *            zero, all available bytes are read.
+	 * @param charset The charset of the input data.
+	 * @return The read data.
+	 * @throws TransformException Thrown if the input data cannot be read.
+	 */
+	public ByteData collect(String inputName, InputStream inputStream, int inputCount, Charset charset)
+		throws TransformException {
 
 		// (BJH, TFB):
 		//
 		// Very large entries are specifically allowed to be read.
 		//
-		// Failing with an out-of-memory error is acceptable.
-		//
-		// This is a good case for a category of files and entries which should
-		// be omitted.
+		// Entries which are larger than the spill threshold are written to
+		// temporary files instead of being read into memory.
+
+		long spillThreshold = getContext().spillThreshold();
+		if ((inputCount >= 0) && (inputCount <= spillThreshold)) {
+			try {
+				return FileUtils.read(getLogger(), inputName, charset, inputStream, inputCount);
+			} catch (IOException e) {
+				throw new TransformException("Failed to read [ " + inputName + " ] count [ " + inputCount + " ]", e);
+			}
+		}
 
-		Charset charset = resourceCharset(inputName);
+		SpillOutputStream spillStream = new SpillOutputStream(getContext(),
+			(inputCount >= 0) ? inputCount : FileUtils.BUFFER_ADJUSTMENT);
 		try {
-			return FileUtils.read(getLogger(), inputName, charset, inputStream, inputCount);
+			FileUtils.transfer(inputStream, spillStream);
+			return spillStream.toByteData(inputName, charset);
 		} catch (IOException e) {
+			spillStream.discard();
 			throw new TransformException("Failed to read [ " + inputName + " ] count [ " + inputCount + " ]", e);
 		}
 	}
@@ -297,8 +347,32 @@ public abstract class ActionImpl implements Action {
 	 * @throws TransformException Thrown if the file cannot be read.
 	 */
 	public ByteData collect(String inputPath, File inputFile) throws TransformException {
+		return collect(inputPath, inputFile, resourceCharset(inputPath));
+	}
+
+	/**
+	 * Read all bytes from a file, using a charset which was already obtained
+	 * for the file. See {@link #collect(String, File)}.
+	 *
+	 * @param inputPath A name associated with the file.
+	 * @param inputFile A file which is to be read.
+	 * @param charset The charset of the file.
+	 * @return The read data.
+	 * @throws TransformException Thrown if the file cannot be read.
+	 */
+	public ByteData collect(String inputPath, File inputFile, Charset charset) throws TransformException {
+		// A file which is larger than the spill threshold is used in place.
+		long inputLength = inputFile.length();
+		if (inputLength > getContext().spillThreshold()) {
+			if (inputLength > Integer.MAX_VALUE) {
+				throw new TransformException(
+					"Input [ " + inputFile.getAbsolutePath() + " ] of [ " + inputLength + " ] bytes is too large");
+			}
+			return new FileByteDataImpl(inputPath, inputFile.toPath(), (int) inputLength, charset, false);
+		}
+
 		try (InputStream inputStream = IO.stream(inputFile)) {
-			return collect(inputPath, inputStream, Math.toIntExact(inputFile.length()));
+			return collect(inputPath, inputStream, Math.toIntExact(inputFile.length()), charset);
 		} catch (IOException e) {
 			throw new TransformException("Failed to read input [ " + inputFile.getAbsolutePath() + " ]", e);
 		}
@@ -430,12 +504,64 @@ public abstract class ActionImpl implements Action {
 		String apply(String inputName, String initialValue, List<String> cases);
 	}
 
+	/**
+	 * A replacement which locates its updates using the resource name. The
+	 * updates are located once when the replacement is bound to a resource,
+	 * instead of once for each updated value. See
+	 * {@link ActionImpl#bindReplacements(String)}.
+	 */
+	@FunctionalInterface
+	public interface ResourceReplacement extends StringReplacement {
+		/**
+		 * Bind the replacement to a resource.
+		 *
+		 * @param inputName The name of the resource.
+		 * @return The replacement for the values of the resource. Null if the
+		 *         replacement makes no updates to the resource.
+		 */
+		StringReplacement bind(String inputName);
+
+		@Override
+		default String apply(String inputName, String initialValue, List<String> cases) {
+			StringReplacement bound = bind(inputName);
+			return (bound == null) ? null : bound.apply(inputName, initialValue, cases);
+		}
+	}
+
 	public static final List<StringReplacement> NO_ACTIVE_REPLACEMENTS = Collections.emptyList();
 
 	protected List<StringReplacement> getActiveReplacements() {
 		return NO_ACTIVE_REPLACEMENTS;
 	}
 
+	/**
+	 * Answer the active replacements, bound to a resource. Resource
+	 * replacements are replaced by their binding, and are omitted when they
+	 * make no updates to the resource.
+	 *
+	 * @param inputName The name of the resource.
+	 * @return The replacements for the values of the resource.
+	 */
+	protected List<StringReplacement> bindReplacements(String inputName) {
+		List<StringReplacement> useReplacements = getActiveReplacements();
+		if ((useReplacements == null) || useReplacements.isEmpty()) {
+			return NO_ACTIVE_REPLACEMENTS;
+		}
+
+		List<StringReplacement> boundReplacements = new ArrayList<>(useReplacements.size());
+		for (StringReplacement replacement : useReplacements) {
+			if (replacement instanceof ResourceReplacement resourceReplacement) {
+				StringReplacement boundReplacement = resourceReplacement.bind(inputName);
+				if (boundReplacement != null) {
+					boundReplacements.add(boundReplacement);
+				}
+			} else {
+				boundReplacements.add(replacement);
+			}
+		}
+		return boundReplacements;
+	}
+
 	/**
 	 * Control API: Subclasses should override to control whether they want to
 	 * continue applying updates, or stop after the first update which had a
@@ -450,7 +576,7 @@ public abstract class ActionImpl implements Action {
 	}
 
 	// ClassActionImpl.transformString(String, String, String)
-	// TextActionImpl.transformString(String, String, String)
+	// TextActionImpl.transformString(String, String, String, List)
 
 	protected String updateString(String inputName, String valueCase, String initialValue) {
 		List<StringReplacement> useReplacements = getActiveReplacements();
@@ -528,6 +654,53 @@ public abstract class ActionImpl implements Action {
 		return finalValue;
 	}
 
+	/**
+	 * Bind the text update to a resource. The text substitutions of the
+	 * resource are located once.
+	 *
+	 * @param inputName The name of the resource.
+	 * @return The text update of the resource. Null if there are no text
+	 *         substitutions for the resource.
+	 */
+	protected StringReplacement bindTextUpdate(String inputName) {
+		UnaryOperator<String> textUpdate = getSignatureRule().getTextUpdate(inputName);
+		if (textUpdate == null) {
+			return null;
+		}
+		return (boundName, initialValue, cases) -> {
+			String finalValue = textUpdate.apply(initialValue);
+			if (finalValue != null) {
+				cases.add("text");
+			}
+			return finalValue;
+		};
+	}
+
+	/**
+	 * Answer a matcher of the UTF-8 encoded keys of the text substitutions of
+	 * a resource. Text which does not contain any of the keys is not changed
+	 * by the text substitutions.
+	 * <p>
+	 * The matchers of {@link SignatureRuleImpl} are compiled when the rules
+	 * are loaded. For other signature rules, the matcher is compiled from the
+	 * text substitutions of the resource.
+	 *
+	 * @param inputName The name of the resource.
+	 * @return The matcher of the text substitution keys. Null if there are no
+	 *         text substitutions for the resource.
+	 */
+	protected ByteMatcher getTextKeyMatcher(String inputName) {
+		SignatureRule signatureRule = getSignatureRule();
+		if (signatureRule instanceof SignatureRuleImpl signatureRuleImpl) {
+			return signatureRuleImpl.getTextKeyMatcher(inputName);
+		}
+		Map<String, String> substitutions = signatureRule.getTextSubstitutions(inputName);
+		if (substitutions == null) {
+			return null;
+		}
+		return ByteMatcher.utf8(substitutions.keySet());
+	}
+
 	protected String directPerClassUpdate(String inputName, String initialValue, List<String> cases) {
 		String finalValue = getSignatureRule().replaceTextDirectPerClass(initialValue, inputName);
 		if (finalValue != null) {
@@ -550,6 +723,28 @@ public abstract class ActionImpl implements Action {
 		if (lookupName == null) {
 			return null;
 		}
+		return directPerClassLookup_java(lookupName, initialValue, cases);
+	}
+
+	/**
+	 * Bind the modified direct class lookup to a Java resource. The class
+	 * name of the resource is computed once. See
+	 * {@link #directPerClassUpdate_java(String, String, List)}.
+	 *
+	 * @param inputName The Java resource name. Extension ".java" is expected.
+	 * @return The direct per class update of the resource. Null if there are
+	 *         no direct updates for the class of the resource.
+	 */
+	protected StringReplacement bindDirectPerClassUpdate_java(String inputName) {
+		String lookupName = switchExtensionTo(inputName, ".java", ".class");
+		if ((lookupName == null) || !getSignatureRule().getDirectPerClassUpdates()
+			.containsKey(lookupName)) {
+			return null;
+		}
+		return (boundName, initialValue, cases) -> directPerClassLookup_java(lookupName, initialValue, cases);
+	}
+
+	private String directPerClassLookup_java(String lookupName, String initialValue, List<String> cases) {
 		String finalValue = getSignatureRule().replaceTextDirectPerClass(initialValue, lookupName);
 		if (finalValue != null) {
 			cases.add("direct per class (java)");
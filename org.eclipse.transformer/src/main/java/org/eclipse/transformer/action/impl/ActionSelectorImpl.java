@@ -11,21 +11,51 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionSelector;
+import org.eclipse.transformer.util.BoundedCache;
 
 /**
  * Action selector.
  * <p>
  * A selector is populated with a list of actions.
  * <p>
+ * Actions are selected using a dispatch table, which is compiled from the
+ * actions when the first action is selected, and which is recompiled when
+ * actions are added. Selection answers the same action as asking each action,
+ * in order, to accept the resource.
+ * <p>
+ * The dispatch table is keyed by the longest of the selection suffixes of the
+ * actions which ends the resource name. See
+ * {@link Action#getSelectionSuffixes()}. The suffix determines which of the
+ * actions which select by suffix accept the resource, leaving, for each
+ * suffix, a short list of candidate actions: The first action which selects
+ * the suffix, preceded by the actions which do not select by suffix. For
+ * example, for ".class" resources, the only candidate is usually the class
+ * action.
+ * <p>
+ * Candidates which select by simple name are asked to accept a simple name
+ * once: The first such candidate which accepts the simple name is remembered
+ * in a bounded cache. See {@link Action#selectsBySimpleName()}. Candidates
+ * which select by the entire resource name, or by the resource file, are
+ * asked to accept each resource.
+ * <p>
  * The name <em>CompositeActionImpl</em> is a historical artifact. This type is
  * no longer an action implementation.
  */
 public class ActionSelectorImpl implements ActionSelector {
+	/** Maximum number of simple names which are remembered for each suffix. */
+	public static final int DEFAULT_MEMO_SIZE = 4 * 1024;
 
 	public ActionSelectorImpl() {
 		this.actions = new ArrayList<>();
@@ -39,4 +69,227 @@ public class ActionSelectorImpl implements ActionSelector {
 	public List<Action> getActions() {
 		return actions;
 	}
+
+	//
+
+	private volatile DispatchTable dispatchTable;
+
+	private DispatchTable getDispatchTable() {
+		DispatchTable useTable = dispatchTable;
+		// Actions are only ever added, which changes the action count.
+		if ((useTable == null) || (useTable.actionCount != actions.size())) {
+			dispatchTable = useTable = new DispatchTable(actions);
+		}
+		return useTable;
+	}
+
+	@Override
+	public Action selectAction(String resourceName, File resourceFile) {
+		return getDispatchTable().select(resourceName, resourceFile);
+	}
+
+	/**
+	 * Actions compiled for selection by resource name suffix.
+	 */
+	private static final class DispatchTable {
+		final int							actionCount;
+		/** Suffixes by lower case extension, longest first. */
+		final Map<String, List<Suffix>>		suffixesByExtension;
+		/** Suffixes which have no extension, longest first. */
+		final List<Suffix>					undottedSuffixes;
+		/** All suffixes, longest first. */
+		final List<Suffix>					allSuffixes;
+		/** Candidates of resources which have none of the suffixes. */
+		final Dispatch						noSuffix;
+
+		DispatchTable(List<Action> actions) {
+			List<Action> useActions = List.copyOf(actions);
+			this.actionCount = useActions.size();
+
+			Set<String> suffixNames = new LinkedHashSet<>();
+			for (Action action : useActions) {
+				List<String> actionSuffixes = action.getSelectionSuffixes();
+				if (actionSuffixes != null) {
+					actionSuffixes.forEach(suffix -> suffixNames.add(suffix.toLowerCase(Locale.ROOT)));
+				}
+			}
+
+			List<Suffix> suffixes = new ArrayList<>(suffixNames.size());
+			for (String suffixName : suffixNames) {
+				suffixes.add(new Suffix(suffixName, new Dispatch(useActions, suffixName)));
+			}
+			suffixes.sort(Comparator.comparingInt((Suffix suffix) -> suffix.name().length())
+				.reversed());
+
+			Map<String, List<Suffix>> byExtension = new HashMap<>();
+			List<Suffix> undotted = new ArrayList<>();
+			for (Suffix suffix : suffixes) {
+				int dot = suffix.name().lastIndexOf('.');
+				if (dot == -1) {
+					undotted.add(suffix);
+				} else {
+					byExtension.computeIfAbsent(suffix.name().substring(dot), e -> new ArrayList<>())
+						.add(suffix);
+				}
+			}
+			// A suffix which has no extension can end a resource name which
+			// has any extension.
+			if (!undotted.isEmpty()) {
+				for (List<Suffix> extensionSuffixes : byExtension.values()) {
+					extensionSuffixes.addAll(undotted);
+					extensionSuffixes.sort(Comparator.comparingInt((Suffix suffix) -> suffix.name().length())
+						.reversed());
+				}
+			}
+
+			this.suffixesByExtension = byExtension;
+			this.undottedSuffixes = undotted;
+			this.allSuffixes = suffixes;
+			this.noSuffix = new Dispatch(useActions, null);
+		}
+
+		Action select(String resourceName, File resourceFile) {
+			int slash = resourceName.lastIndexOf('/');
+			int dot = resourceName.lastIndexOf('.');
+
+			List<Suffix> candidateSuffixes;
+			if (dot <= slash) {
+				candidateSuffixes = undottedSuffixes;
+			} else {
+				String extension = resourceName.substring(dot);
+				if (isAscii(extension)) {
+					candidateSuffixes = suffixesByExtension.getOrDefault(extension.toLowerCase(Locale.ROOT),
+						undottedSuffixes);
+				} else {
+					// Non-ASCII characters can match ASCII characters when
+					// case is ignored, for example, 'ſ' matches 's'.
+					candidateSuffixes = allSuffixes;
+				}
+			}
+
+			Dispatch dispatch = noSuffix;
+			int nameLength = resourceName.length();
+			for (Suffix suffix : candidateSuffixes) {
+				int suffixLength = suffix.name().length();
+				if (resourceName.regionMatches(true, nameLength - suffixLength, suffix.name(), 0, suffixLength)) {
+					dispatch = suffix.dispatch();
+					break;
+				}
+			}
+
+			return dispatch.select(resourceName, slash, resourceFile);
+		}
+
+		private static boolean isAscii(String text) {
+			for (int charNo = 0; charNo < text.length(); charNo++) {
+				if (text.charAt(charNo) >= 0x80) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private record Suffix(String name, Dispatch dispatch) {}
+
+	/**
+	 * The candidate actions of resources which end with a particular suffix.
+	 */
+	private static final class Dispatch {
+		final Action[]						candidates;
+		/** Which candidates must be asked to accept each resource. */
+		final boolean[]						live;
+		/**
+		 * The index of the first candidate which selects by simple name and
+		 * which accepts the simple name, or the candidate count if none
+		 * accepts. Null if no candidate needs to be asked.
+		 */
+		final BoundedCache<String, Integer>	simpleNames;
+		/** The index to use when no candidate needs to be asked. */
+		final int							fixedIndex;
+
+		/**
+		 * Compile the candidates of a suffix. The last candidate is the first
+		 * action which selects the suffix. When the suffix is null, no action
+		 * which selects by suffix is a candidate.
+		 */
+		Dispatch(List<Action> actions, String suffixName) {
+			List<Action> useCandidates = new ArrayList<>();
+			boolean selected = false;
+			boolean askSimpleNames = false;
+			for (Action action : actions) {
+				List<String> actionSuffixes = action.getSelectionSuffixes();
+				if (actionSuffixes == null) {
+					useCandidates.add(action);
+					if (action.selectsBySimpleName()) {
+						askSimpleNames = true;
+					}
+				} else if ((suffixName != null) && selectsSuffix(actionSuffixes, suffixName)) {
+					useCandidates.add(action);
+					selected = true;
+					break;
+				}
+			}
+
+			this.candidates = useCandidates.toArray(new Action[0]);
+			this.live = new boolean[candidates.length];
+			for (int candidateNo = 0; candidateNo < candidates.length; candidateNo++) {
+				live[candidateNo] = !candidates[candidateNo].selectsBySimpleName();
+			}
+			this.simpleNames = askSimpleNames
+				? new BoundedCache<>(((suffixName == null) ? "No suffix" : suffixName) + " selections",
+					DEFAULT_MEMO_SIZE)
+				: null;
+			this.fixedIndex = selected ? (candidates.length - 1) : candidates.length;
+		}
+
+		/**
+		 * Tell if a suffix ends with any of the suffixes of an action. Any
+		 * resource name which ends with the suffix ends with that suffix of
+		 * the action.
+		 */
+		private static boolean selectsSuffix(List<String> actionSuffixes, String suffixName) {
+			int suffixLength = suffixName.length();
+			for (String actionSuffix : actionSuffixes) {
+				int actionLength = actionSuffix.length();
+				if ((actionLength <= suffixLength)
+					&& suffixName.regionMatches(true, suffixLength - actionLength, actionSuffix, 0, actionLength)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		Action select(String resourceName, int slash, File resourceFile) {
+			int selectedIndex;
+			if (simpleNames == null) {
+				selectedIndex = fixedIndex;
+			} else {
+				String simpleName = resourceName.substring(slash + 1);
+				Integer cachedIndex = simpleNames.get(simpleName);
+				if (cachedIndex == null) {
+					selectedIndex = selectBySimpleName(resourceName, resourceFile);
+					simpleNames.put(simpleName, selectedIndex);
+				} else {
+					selectedIndex = cachedIndex;
+				}
+			}
+
+			for (int candidateNo = 0; candidateNo < selectedIndex; candidateNo++) {
+				if (live[candidateNo] && candidates[candidateNo].acceptResource(resourceName, resourceFile)) {
+					return candidates[candidateNo];
+				}
+			}
+			return (selectedIndex < candidates.length) ? candidates[selectedIndex] : null;
+		}
+
+		private int selectBySimpleName(String resourceName, File resourceFile) {
+			for (int candidateNo = 0; candidateNo < fixedIndex; candidateNo++) {
+				if (!live[candidateNo] && candidates[candidateNo].acceptResource(resourceName, resourceFile)) {
+					return candidateNo;
+				}
+			}
+			return fixedIndex;
+		}
+	}
 }
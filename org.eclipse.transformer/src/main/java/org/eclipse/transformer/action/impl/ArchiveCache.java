@@ -0,0 +1,342 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.slf4j.Logger;
+
+/**
+ * On-disk cache of transformed archives, which is shared across
+ * transformations.
+ * <p>
+ * An archive is cached using a key which is a digest of the content of the
+ * input archive, of the fingerprint of the transformation rules, of the type
+ * of the archive action, and of the charset of the archive. Each cached
+ * archive is stored as two files: The transformed archive, and the counts of
+ * the changes which were made by the transformation. Files are written to a
+ * temporary file and then moved into place, so that a cache which is shared
+ * by several transformers never exposes a partially written file.
+ * <p>
+ * The cache is bounded by the total size of its files. When an archive is
+ * added which puts the cache over its maximum size, the least recently used
+ * archives are evicted. The last use of an archive is recorded as the last
+ * modified time of its files, so that use is retained across
+ * transformations.
+ */
+public class ArchiveCache {
+	/** Default maximum size of the cache, in bytes. */
+	public static final long	DEFAULT_MAX_SIZE	= 1024L * 1024L * 1024L;
+
+	private static final String	CONTENT_SUFFIX		= ".archive";
+	private static final String	CHANGES_SUFFIX		= ".changes";
+	private static final String	TEMP_DIRECTORY		= "tmp";
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param logger The logger used to report cache problems.
+	 * @param directory The directory which holds the cache.
+	 * @param maxSize The maximum size of the cache, in bytes.
+	 * @param rulesFingerprint The fingerprint of the transformation rules.
+	 * @throws IOException Thrown if the cache directory cannot be created.
+	 */
+	public ArchiveCache(Logger logger, File directory, long maxSize, String rulesFingerprint) throws IOException {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Non-valid archive cache size [ " + maxSize + " ]");
+		}
+		this.logger = logger;
+		this.directory = directory;
+		this.tempDirectory = new File(directory, TEMP_DIRECTORY);
+		this.maxSize = maxSize;
+		this.rulesFingerprint = rulesFingerprint;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		IO.mkdirs(tempDirectory);
+		scan();
+	}
+
+	private final Logger				logger;
+	private final File					directory;
+	private final File					tempDirectory;
+	private final long					maxSize;
+	private final String				rulesFingerprint;
+
+	/** Cached entry sizes, in least recently used order. */
+	private final Map<String, Long>		entries;
+	private long						size;
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Answer the total size of the cached files.
+	 *
+	 * @return The total size of the cached files.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Answer the number of cached archives.
+	 *
+	 * @return The number of cached archives.
+	 */
+	public synchronized int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Find the archives which are already in the cache. Use is ordered by the
+	 * last modified times of the archives.
+	 */
+	private void scan() {
+		File[] contentFiles = directory.listFiles((dir, fileName) -> fileName.endsWith(CONTENT_SUFFIX));
+		if (contentFiles == null) {
+			return;
+		}
+		Arrays.sort(contentFiles, Comparator.comparingLong(File::lastModified));
+		for (File contentFile : contentFiles) {
+			String contentName = contentFile.getName();
+			String key = contentName.substring(0, contentName.length() - CONTENT_SUFFIX.length());
+			File changesFile = changesFile(key);
+			if (changesFile.isFile()) {
+				long entrySize = contentFile.length() + changesFile.length();
+				entries.put(key, entrySize);
+				size += entrySize;
+			}
+		}
+		evict();
+	}
+
+	private File contentFile(String key) {
+		return new File(directory, key + CONTENT_SUFFIX);
+	}
+
+	private File changesFile(String key) {
+		return new File(directory, key + CHANGES_SUFFIX);
+	}
+
+	/**
+	 * Create a temporary file in the cache directory. Temporary files are on
+	 * the same file system as the cached files, which allows them to be moved
+	 * into the cache.
+	 *
+	 * @return A new temporary file.
+	 * @throws IOException Thrown if the file cannot be created.
+	 */
+	public File createTempFile() throws IOException {
+		return Files.createTempFile(tempDirectory.toPath(), "archive", ".tmp")
+			.toFile();
+	}
+
+	/**
+	 * Compute the key of an archive.
+	 *
+	 * @param inputDigest The digest of the content of the input archive.
+	 * @param actionType The type of the action which transforms the archive.
+	 * @param charset The charset of the entry names of the archive.
+	 * @return The key of the archive.
+	 */
+	public String key(String inputDigest, ActionType actionType, Charset charset) {
+		return FileUtils
+			.digest(rulesFingerprint + '\n' + actionType.name() + '\n' + charset.name() + '\n' + inputDigest);
+	}
+
+	/**
+	 * A cached archive.
+	 *
+	 * @param content A stream of the transformed archive. The stream must be
+	 *            closed by the caller.
+	 * @param changes The changes made by the transformation of the archive.
+	 */
+	public record Hit(InputStream content, ContainerChangesImpl changes) {}
+
+	/**
+	 * Obtain a cached archive. Mark the archive as the most recently used.
+	 * <p>
+	 * The content stream is opened before the archive can be evicted, so
+	 * that the content remains readable when the archive is evicted while the
+	 * content is being read.
+	 *
+	 * @param key The key of the archive.
+	 * @return The cached archive. Null if the archive is not cached, or if the
+	 *         cached archive cannot be read.
+	 */
+	public synchronized Hit get(String key) {
+		File contentFile = contentFile(key);
+		File changesFile = changesFile(key);
+
+		if (entries.get(key) == null) {
+			// The archive may have been added by another transformer which
+			// shares the cache directory.
+			if (!contentFile.isFile() || !changesFile.isFile()) {
+				return null;
+			}
+			long entrySize = contentFile.length() + changesFile.length();
+			entries.put(key, entrySize);
+			size += entrySize;
+		}
+
+		ContainerChangesImpl changes;
+		InputStream content;
+		try {
+			Properties properties = new Properties();
+			try (InputStream changesStream = IO.stream(changesFile)) {
+				properties.load(changesStream);
+			}
+			changes = ContainerChangesImpl.load(properties);
+			content = IO.stream(contentFile);
+		} catch (IOException | IllegalArgumentException e) {
+			logger.warn("Archive cache [ {} ]: Cached archive [ {} ] cannot be read", directory.getAbsolutePath(),
+				key, e);
+			remove(key);
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		contentFile.setLastModified(now);
+		changesFile.setLastModified(now);
+
+		return new Hit(content, changes);
+	}
+
+	/**
+	 * Add a transformed archive to the cache. The content is copied into the
+	 * cache.
+	 *
+	 * @param key The key of the archive.
+	 * @param content The transformed archive.
+	 * @param changes The changes made by the transformation of the archive.
+	 */
+	public void put(String key, File content, ContainerChangesImpl changes) {
+		put(key, changes, contentTemp -> Files.copy(content.toPath(), contentTemp.toPath(),
+			StandardCopyOption.REPLACE_EXISTING));
+	}
+
+	/**
+	 * Add a transformed archive to the cache.
+	 *
+	 * @param key The key of the archive.
+	 * @param content The transformed archive.
+	 * @param changes The changes made by the transformation of the archive.
+	 */
+	public void put(String key, ByteData content, ContainerChangesImpl changes) {
+		put(key, changes, contentTemp -> {
+			try (OutputStream contentStream = IO.outputStream(contentTemp)) {
+				content.writeTo(contentStream);
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface ContentWriter {
+		void write(File contentTemp) throws IOException;
+	}
+
+	private void put(String key, ContainerChangesImpl changes, ContentWriter contentWriter) {
+		File contentTemp = null;
+		File changesTemp = null;
+		try {
+			contentTemp = createTempFile();
+			contentWriter.write(contentTemp);
+
+			Properties properties = new Properties();
+			changes.store(properties);
+			changesTemp = createTempFile();
+			try (OutputStream changesStream = IO.outputStream(changesTemp)) {
+				properties.store(changesStream, null);
+			}
+
+			long entrySize = contentTemp.length() + changesTemp.length();
+
+			synchronized (this) {
+				// The changes are moved first: An archive is only found in the
+				// cache if its content is present.
+				Files.move(changesTemp.toPath(), changesFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+				Files.move(contentTemp.toPath(), contentFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+
+				Long priorSize = entries.put(key, entrySize);
+				if (priorSize != null) {
+					size -= priorSize;
+				}
+				size += entrySize;
+				evict();
+			}
+		} catch (IOException e) {
+			logger.warn("Archive cache [ {} ]: Archive [ {} ] cannot be cached", directory.getAbsolutePath(), key,
+				e);
+		} finally {
+			if (contentTemp != null) {
+				IO.delete(contentTemp);
+			}
+			if (changesTemp != null) {
+				IO.delete(changesTemp);
+			}
+		}
+	}
+
+	/**
+	 * Evict the least recently used archives until the cache is within its
+	 * maximum size.
+	 */
+	private void evict() {
+		if (size <= maxSize) {
+			return;
+		}
+		List<String> evicted = new ArrayList<>();
+		long remainingSize = size;
+		for (Iterator<Map.Entry<String, Long>> leastRecent = entries.entrySet()
+			.iterator(); (remainingSize > maxSize) && leastRecent.hasNext();) {
+			Map.Entry<String, Long> entry = leastRecent.next();
+			evicted.add(entry.getKey());
+			remainingSize -= entry.getValue();
+		}
+		evicted.forEach(this::remove);
+	}
+
+	private void remove(String key) {
+		Long entrySize = entries.remove(key);
+		if (entrySize != null) {
+			size -= entrySize;
+		}
+		IO.delete(contentFile(key));
+		IO.delete(changesFile(key));
+		logger.debug("Archive cache [ {} ]: Removed [ {} ]", directory.getAbsolutePath(), key);
+	}
+}
@@ -17,9 +17,11 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import aQute.lib.io.IO;
 import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.util.BufferPool;
 import org.eclipse.transformer.util.FileUtils;
 
 // This implementation is retained as distinct from the interface.
@@ -41,9 +43,30 @@ public class ByteDataImpl implements ByteData {
 	 * @param charset The charset for the byte data.
 	 */
 	public ByteDataImpl(String name, ByteBuffer buffer, Charset charset) {
+		this(name, buffer, charset, null);
+	}
+
+	/**
+	 * Associate a name with byte data the array of which was borrowed from a
+	 * buffer pool. The array is returned to the pool when the byte data is
+	 * released. See {@link #release()}.
+	 * <p>
+	 * Copies of the byte data share the array, but do not return it to the
+	 * pool.
+	 *
+	 * @param name A name associated with the data.
+	 * @param buffer Byte data associated with the name. The buffer must wrap
+	 *            the entire borrowed array.
+	 * @param charset The charset for the byte data.
+	 * @param pool The pool from which the array of the buffer was borrowed.
+	 *            Null if the array was not borrowed.
+	 */
+	public ByteDataImpl(String name, ByteBuffer buffer, Charset charset, BufferPool pool) {
 		this.name = name;
 		this.buffer = buffer;
 		this.charset = charset;
+		this.pool = pool;
+		this.released = (pool == null) ? null : new AtomicBoolean();
 	}
 
 	@Override
@@ -54,6 +77,8 @@ public class ByteDataImpl implements ByteData {
 	private final String		name;
 	private final ByteBuffer	buffer;
 	private final Charset		charset;
+	private final BufferPool	pool;
+	private final AtomicBoolean	released;
 
 	@Override
 	public String name() {
@@ -103,4 +128,13 @@ public class ByteDataImpl implements ByteData {
 	public ByteDataImpl copy(String name) {
 		return new ByteDataImpl(name, buffer(), charset());
 	}
+
+	//
+
+	@Override
+	public void release() {
+		if ((pool != null) && released.compareAndSet(false, true)) {
+			pool.release(buffer.array());
+		}
+	}
 }
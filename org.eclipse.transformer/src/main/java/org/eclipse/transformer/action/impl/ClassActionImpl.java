@@ -12,14 +12,19 @@
 package org.eclipse.transformer.action.impl;
 
 import static org.eclipse.transformer.util.SignatureUtils.classNameToResourceName;
+import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
+import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.atomic.LongAdder;
 
 import aQute.bnd.classfile.AnnotationDefaultAttribute;
 import aQute.bnd.classfile.AnnotationInfo;
@@ -78,14 +83,15 @@ import aQute.bnd.classfile.TypeAnnotationsAttribute;
 import aQute.bnd.classfile.builder.ClassFileBuilder;
 import aQute.bnd.classfile.builder.MutableConstantPool;
 import aQute.lib.io.ByteBufferDataInput;
-import aQute.lib.io.ByteBufferDataOutput;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.util.ByteMatcher;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.PooledOutputStream;
 import org.slf4j.Logger;
 
 /**
@@ -243,6 +249,9 @@ public class ClassActionImpl extends ElementActionImpl {
 		List<StringReplacement> useReplacements = createActiveReplacements(context.signatureRule());
 
 		this.activeReplacements = useReplacements.isEmpty() ? NO_ACTIVE_REPLACEMENTS : useReplacements;
+
+		this.constantMatcher = createConstantMatcher(context.signatureRule());
+		this.skippedClasses = new LongAdder();
 	}
 
 	protected List<StringReplacement> createActiveReplacements(SignatureRule signatureRule) {
@@ -267,6 +276,63 @@ public class ClassActionImpl extends ElementActionImpl {
 
 	private final List<StringReplacement> activeReplacements;
 
+	/**
+	 * Create the matcher which is used to pre-scan the UTF8 constants of
+	 * classes. A class none of whose UTF8 constants contains a package rename
+	 * key or a global direct string key cannot be changed by the class action.
+	 * <p>
+	 * Keys are encoded as modified UTF-8, which is the encoding of UTF8
+	 * constants.
+	 *
+	 * @param signatureRule The rule from which to obtain keys.
+	 * @return The matcher of UTF8 constants which may be changed.
+	 */
+	protected ByteMatcher createConstantMatcher(SignatureRule signatureRule) {
+		List<byte[]> keys = new ArrayList<>();
+		addConstantKeys(keys, signatureRule.getPackageRenames()
+			.keySet());
+		addConstantKeys(keys, signatureRule.getBinaryPackageRenames()
+			.keySet());
+		addConstantKeys(keys, signatureRule.getDirectGlobalUpdates()
+			.keySet());
+		return new ByteMatcher(keys);
+	}
+
+	private void addConstantKeys(List<byte[]> keys, Iterable<String> keyStrings) {
+		ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+		DataOutputStream keyOutput = new DataOutputStream(keyBytes);
+		for (String key : keyStrings) {
+			if (containsWildcard(key)) {
+				key = stripWildcard(key);
+			}
+			keyBytes.reset();
+			try {
+				keyOutput.writeUTF(key);
+			} catch (IOException e) {
+				// A key which is too long to be a constant is never matched.
+				continue;
+			}
+			byte[] encodedKey = keyBytes.toByteArray();
+			byte[] constantKey = new byte[encodedKey.length - 2]; // Skip the length
+			System.arraycopy(encodedKey, 2, constantKey, 0, constantKey.length);
+			keys.add(constantKey);
+		}
+	}
+
+	private final ByteMatcher	constantMatcher;
+	private final LongAdder		skippedClasses;
+
+	/**
+	 * Answer the number of classes which were not parsed because the
+	 * pre-scan of their constant pool found no constant which could be
+	 * changed.
+	 *
+	 * @return The number of classes which were skipped by this action.
+	 */
+	public long getSkippedClasses() {
+		return skippedClasses.sum();
+	}
+
 	@Override
 	protected List<StringReplacement> getActiveReplacements() {
 		return activeReplacements;
@@ -358,6 +424,21 @@ public class ClassActionImpl extends ElementActionImpl {
 			useLogger.debug("Class input: [ {} ]", inputData);
 			traceDump(inputData);
 
+			String unchangedClassName = scanConstants(inputData);
+			if (unchangedClassName != null) {
+				useLogger.debug("Class [ {} ] as [ {} ]: Skipped by constant pool scan", inputData.name(),
+					unchangedClassName);
+				setClassNames(unchangedClassName, unchangedClassName);
+				setResourceNames(inputData.name(), inputData.name());
+				addSkippedClass();
+				return inputData;
+			}
+
+			ByteData patchedData = patchConstants(inputData);
+			if (patchedData != null) {
+				return patchedData;
+			}
+
 			ClassFile inputClass;
 			try {
 				DataInput inputClassData = ByteBufferDataInput.wrap(inputData.buffer());
@@ -483,14 +564,15 @@ public class ClassActionImpl extends ElementActionImpl {
 			ClassFile outputClass = classBuilder.build();
 
 			Charset charset = inputData.charset();
-			ByteBufferDataOutput outputClassData = new ByteBufferDataOutput(inputData.length() + FileUtils.PAGE_SIZE);
+			PooledOutputStream outputClassData = new PooledOutputStream(inputData.length() + FileUtils.PAGE_SIZE);
 			try {
-				outputClass.write(outputClassData);
+				outputClass.write(new DataOutputStream(outputClassData));
 			} catch (IOException e) {
+				outputClassData.release();
 				throw new TransformException("Failed to write transformed class bytes", e);
 			}
 
-			ByteData outputData = new ByteDataImpl(outputName, outputClassData.toByteBuffer(), charset);
+			ByteData outputData = outputClassData.toByteData(outputName, charset);
 			useLogger.debug("  Class output: [ {} ]", outputData);
 			return outputData;
 		} finally {
@@ -498,6 +580,218 @@ public class ClassActionImpl extends ElementActionImpl {
 		}
 	}
 
+	/**
+	 * Transform a class by patching its constant pool, without rebuilding the
+	 * class. See {@link ClassConstantPatcher}.
+	 *
+	 * @param inputData The class bytes.
+	 * @return The transformed class bytes. Null if the class cannot be
+	 *         patched, in which case the full class transformation must be
+	 *         performed.
+	 * @throws TransformException Thrown if the patched class cannot be
+	 *             written.
+	 */
+	protected ByteData patchConstants(ByteData inputData) throws TransformException {
+		Logger useLogger = getLogger();
+
+		ClassConstantPatcher patcher = new ClassConstantPatcher(this, constantMatcher, inputData);
+		if (!patcher.patch()) {
+			useLogger.debug("Class [ {} ]: Constants cannot be patched", inputData.name());
+			return null;
+		}
+
+		String inputClassName = patcher.getInputClassName();
+		String outputClassName = patcher.getOutputClassName();
+		String outputName;
+		if (outputClassName != null) {
+			outputName = relocateClass(inputData.name(), inputClassName, outputClassName);
+			useLogger.debug("Class name [ {} ] -> [ {} ]", inputData.name(), outputName);
+		} else {
+			outputClassName = inputClassName;
+			outputName = inputData.name();
+		}
+		setClassNames(inputClassName, outputClassName);
+		setResourceNames(inputData.name(), outputName);
+
+		String inputSuperName = patcher.getInputSuperName();
+		if (inputSuperName != null) {
+			setSuperClassNames(inputSuperName, patcher.getOutputSuperName());
+		}
+		for (int interfaceNo = patcher.getModifiedInterfaces(); interfaceNo > 0; interfaceNo--) {
+			addModifiedInterface();
+		}
+		for (int fieldNo = patcher.getModifiedFields(); fieldNo > 0; fieldNo--) {
+			addModifiedField();
+		}
+		for (int methodNo = patcher.getModifiedMethods(); methodNo > 0; methodNo--) {
+			addModifiedMethod();
+		}
+		for (int attributeNo = patcher.getModifiedAttributes(); attributeNo > 0; attributeNo--) {
+			addModifiedAttribute();
+		}
+		int modifiedConstants = patcher.getModifiedConstants();
+		if (modifiedConstants > 0) {
+			setModifiedConstants(modifiedConstants);
+		}
+
+		if (!isChanged()) {
+			return inputData;
+		}
+
+		if (!isContentChanged()) {
+			ByteData outputData = inputData.copy(outputName);
+			useLogger.debug("  Class bytes: [ {} ]", outputData);
+			return outputData;
+		}
+
+		ByteBuffer outputBuffer;
+		try {
+			outputBuffer = patcher.write();
+		} catch (IOException e) {
+			throw new TransformException("Failed to write patched class bytes [ " + inputData.name() + " ]", e);
+		}
+
+		ByteData outputData = new ByteDataImpl(outputName, outputBuffer, inputData.charset());
+		useLogger.debug("  Class output (patched): [ {} ]", outputData);
+		return outputData;
+	}
+
+	protected void addSkippedClass() {
+		getActiveChanges().addSkippedClass();
+		skippedClasses.increment();
+	}
+
+	// Constant pool tags: See JVMS 4.4.
+
+	private static final byte	CONSTANT_UTF8	= 1;
+	private static final byte	CONSTANT_CLASS	= 7;
+
+	/**
+	 * Pre-scan the constant pool of a class, without parsing the class.
+	 * <p>
+	 * All strings which are transformed by the class action, including class
+	 * names, descriptors, signatures, and string constants, are stored in
+	 * UTF8 constants. If no UTF8 constant contains a key of the constant
+	 * matcher, the class action cannot change the class.
+	 * <p>
+	 * Package information classes are always fully processed, since their
+	 * package version annotations may be updated. Classes which have per-class
+	 * direct string updates are always fully processed. Classes which cannot be
+	 * scanned are fully processed, which will report any errors.
+	 *
+	 * @param inputData The class bytes.
+	 * @return The name of the class, if the class cannot be changed. Null if
+	 *         the class must be fully processed.
+	 */
+	protected String scanConstants(ByteData inputData) {
+		String inputName = inputData.name();
+		if (inputName.endsWith("/package-info.class")) {
+			return null;
+		}
+		if (getSignatureRule().getDirectPerClassUpdates()
+			.containsKey(inputName)) {
+			return null;
+		}
+
+		ByteBuffer buffer = inputData.buffer();
+		int offset = buffer.position();
+		int limit = buffer.limit();
+
+		// magic u4, minor_version u2, major_version u2, constant_pool_count u2
+
+		if (((limit - offset) < 10) || (buffer.getInt(offset) != 0xCAFEBABE)) {
+			return null;
+		}
+		int constantCount = buffer.getShort(offset + 8) & 0xFFFF;
+		offset += 10;
+
+		byte[] tags = new byte[constantCount];
+		int[] values = new int[constantCount];
+
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			if (offset >= limit) {
+				return null;
+			}
+			byte tag = buffer.get(offset++);
+			tags[constantNo] = tag;
+			switch (tag) {
+				case CONSTANT_UTF8 : {
+					if ((offset + 2) > limit) {
+						return null;
+					}
+					int utf8Start = offset + 2;
+					int utf8End = utf8Start + (buffer.getShort(offset) & 0xFFFF);
+					if (utf8End > limit) {
+						return null;
+					}
+					if (constantMatcher.matches(buffer, utf8Start, utf8End)) {
+						return null;
+					}
+					values[constantNo] = offset;
+					offset = utf8End;
+					break;
+				}
+				case CONSTANT_CLASS : {
+					if ((offset + 2) > limit) {
+						return null;
+					}
+					values[constantNo] = buffer.getShort(offset) & 0xFFFF;
+					offset += 2;
+					break;
+				}
+				case 8 : // String
+				case 16 : // MethodType
+				case 19 : // Module
+				case 20 : // Package
+					offset += 2;
+					break;
+				case 15 : // MethodHandle
+					offset += 3;
+					break;
+				case 3 : // Integer
+				case 4 : // Float
+				case 9 : // Fieldref
+				case 10 : // Methodref
+				case 11 : // InterfaceMethodref
+				case 12 : // NameAndType
+				case 17 : // Dynamic
+				case 18 : // InvokeDynamic
+					offset += 4;
+					break;
+				case 5 : // Long
+				case 6 : // Double
+					offset += 8;
+					constantNo++; // Eight byte constants take two entries.
+					break;
+				default :
+					return null;
+			}
+		}
+
+		// access_flags u2, this_class u2
+
+		if ((offset + 4) > limit) {
+			return null;
+		}
+		int classIndex = buffer.getShort(offset + 2) & 0xFFFF;
+		if ((classIndex >= constantCount) || (tags[classIndex] != CONSTANT_CLASS)) {
+			return null;
+		}
+		int nameIndex = values[classIndex];
+		if ((nameIndex >= constantCount) || (tags[nameIndex] != CONSTANT_UTF8)) {
+			return null;
+		}
+
+		ByteBuffer nameBuffer = inputData.buffer();
+		nameBuffer.position(values[nameIndex]);
+		try {
+			return ByteBufferDataInput.wrap(nameBuffer)
+				.readUTF();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
 	private void displayClass(String inputName, ClassFile inputClass) {
 		Logger useLogger = getLogger();
 
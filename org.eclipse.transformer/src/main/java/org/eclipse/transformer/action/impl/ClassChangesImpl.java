@@ -146,6 +146,25 @@ public class ClassChangesImpl extends ElementChangesImpl {
 
 	//
 
+	private int skippedClasses;
+
+	/**
+	 * Answer the number of classes which were not parsed because the pre-scan
+	 * of their constant pool found no constant which could be changed. A
+	 * skipped class is not a replacement.
+	 *
+	 * @return The number of skipped classes.
+	 */
+	public int getSkippedClasses() {
+		return skippedClasses;
+	}
+
+	public void addSkippedClass() {
+		skippedClasses++;
+	}
+
+	//
+
 	@Override
 	public void logChanges(Logger logger) {
 		super.logChanges(logger);
@@ -161,5 +180,6 @@ public class ClassChangesImpl extends ElementChangesImpl {
 		logger.debug(consoleMarker, "Modified fields     [ {} ]", getModifiedFields());
 		logger.debug(consoleMarker, "Modified methods    [ {} ]", getModifiedMethods());
 		logger.debug(consoleMarker, "Modified constants  [ {} ]", getModifiedConstants());
+		logger.debug(consoleMarker, "Skipped classes     [ {} ]", getSkippedClasses());
 	}
 }
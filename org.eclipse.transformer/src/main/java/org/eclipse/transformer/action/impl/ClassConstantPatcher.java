@@ -0,0 +1,1117 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import aQute.lib.io.ByteBufferDataInput;
+import aQute.lib.io.ByteBufferDataOutput;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.util.ByteMatcher;
+import org.eclipse.transformer.util.FileUtils;
+
+/**
+ * Byte level transformation of a class which changes only constants.
+ * <p>
+ * The full class transformation parses a class, transforms the class model,
+ * and writes a new class. Each string in the class model is transformed
+ * according to where it is used: As a class name, a descriptor, a signature,
+ * a package name, or as a string constant. Other strings, for example member
+ * names, are not changed. The constant pool entries are also transformed: UTF8
+ * constants are transformed as string constants.
+ * <p>
+ * Usually, every use of a UTF8 constant receives the same value as is
+ * obtained by transforming the UTF8 constant as a string constant. The
+ * patcher writes a copy of the class in which the changed UTF8 constants are
+ * replaced. When a reference requires a different value, for example, a
+ * signature which is not changed as a string constant, new constants are
+ * added after the initial constants, and only that reference is changed. All
+ * other bytes are copied unchanged. Code and other attributes which are not
+ * parsed by the full class transformation see the initial constant indexes,
+ * the same as in the fully transformed class.
+ * <p>
+ * When the class has a structure which is not recognized, or when the
+ * constant pool overflows, the patcher cannot be used, and the full class
+ * transformation must be performed. Package information classes are always
+ * fully transformed, since their version annotations may be updated.
+ * <p>
+ * Change counts are computed the same as the full class transformation.
+ */
+final class ClassConstantPatcher {
+	/**
+	 * Thrown when the class cannot be patched. This is an expected
+	 * condition, and is not reported, so no stack is recorded.
+	 */
+	@SuppressWarnings("serial")
+	private static final class NotPatchable extends RuntimeException {
+		NotPatchable() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final NotPatchable NOT_PATCHABLE = new NotPatchable();
+
+	// Constant pool tags: See JVMS 4.4.
+
+	private static final byte	CONSTANT_UTF8					= 1;
+	private static final byte	CONSTANT_INTEGER				= 3;
+	private static final byte	CONSTANT_FLOAT					= 4;
+	private static final byte	CONSTANT_LONG					= 5;
+	private static final byte	CONSTANT_DOUBLE					= 6;
+	private static final byte	CONSTANT_CLASS					= 7;
+	private static final byte	CONSTANT_STRING					= 8;
+	private static final byte	CONSTANT_FIELDREF				= 9;
+	private static final byte	CONSTANT_METHODREF				= 10;
+	private static final byte	CONSTANT_INTERFACEMETHODREF		= 11;
+	private static final byte	CONSTANT_NAMEANDTYPE			= 12;
+	private static final byte	CONSTANT_METHODHANDLE			= 15;
+	private static final byte	CONSTANT_METHODTYPE				= 16;
+	private static final byte	CONSTANT_DYNAMIC				= 17;
+	private static final byte	CONSTANT_INVOKEDYNAMIC			= 18;
+	private static final byte	CONSTANT_MODULE					= 19;
+	private static final byte	CONSTANT_PACKAGE				= 20;
+
+	// How a string is transformed, according to where the string is used.
+
+	private static final int	USE_NAME						= 0;
+	private static final int	USE_BINARY_TYPE					= 1;
+	private static final int	USE_DESCRIPTOR					= 2;
+	private static final int	USE_CLASS_SIGNATURE				= 3;
+	private static final int	USE_FIELD_SIGNATURE				= 4;
+	private static final int	USE_METHOD_SIGNATURE			= 5;
+	private static final int	USE_BINARY_PACKAGE				= 6;
+	private static final int	USE_STRING						= 7;
+
+	ClassConstantPatcher(ClassActionImpl action, ByteMatcher constantMatcher, ByteData inputData) {
+		this.action = action;
+		this.constantMatcher = constantMatcher;
+		this.inputName = inputData.name();
+		this.buffer = inputData.buffer();
+		this.start = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	private final ClassActionImpl	action;
+	private final ByteMatcher		constantMatcher;
+	private final String			inputName;
+	private final ByteBuffer		buffer;
+	private final int				start;
+	private final int				limit;
+
+	private int						constantCount;
+	private byte[]					tags;
+	private int[]					offsets;
+	private boolean[]				candidates;
+	private String[]				initialValues;
+	private String[]				finalValues;
+	private int						poolEnd;
+
+	private String					inputClassName;
+	private String					outputClassName;
+	private String					inputSuperName;
+	private String					outputSuperName;
+
+	private int						modifiedInterfaces;
+	private int						modifiedFields;
+	private int						modifiedMethods;
+	private int						modifiedAttributes;
+	private int						modifiedConstants;
+
+	/**
+	 * Examine the class and compute the transformed UTF8 constants.
+	 *
+	 * @return True or false telling if the class can be patched. If false,
+	 *         the full class transformation must be performed.
+	 */
+	boolean patch() {
+		if (inputName.endsWith("/package-info.class")) {
+			return false;
+		}
+		try {
+			readConstants(action.getSignatureRule()
+				.getDirectPerClassUpdates()
+				.containsKey(inputName));
+			transformConstants();
+			readClass();
+			return true;
+		} catch (NotPatchable e) {
+			return false;
+		}
+	}
+
+	String getInputClassName() {
+		return inputClassName;
+	}
+
+	/**
+	 * Answer the transformed class name.
+	 *
+	 * @return The transformed class name. Null if the class name is not
+	 *         changed.
+	 */
+	String getOutputClassName() {
+		return outputClassName;
+	}
+
+	String getInputSuperName() {
+		return inputSuperName;
+	}
+
+	String getOutputSuperName() {
+		return outputSuperName;
+	}
+
+	int getModifiedInterfaces() {
+		return modifiedInterfaces;
+	}
+
+	int getModifiedFields() {
+		return modifiedFields;
+	}
+
+	int getModifiedMethods() {
+		return modifiedMethods;
+	}
+
+	int getModifiedAttributes() {
+		return modifiedAttributes;
+	}
+
+	int getModifiedConstants() {
+		return modifiedConstants;
+	}
+
+	/**
+	 * Write the patched class: Changed UTF8 constants are replaced, new
+	 * constants are added after the initial constants, and changed references
+	 * are replaced. All other bytes are copied.
+	 *
+	 * @return The bytes of the patched class.
+	 * @throws IOException Thrown if a changed UTF8 constant is too long.
+	 */
+	ByteBuffer write() throws IOException {
+		byte[] appended = (appendedConstants == null) ? new byte[0] : appendedConstants.toByteArray();
+		ByteBufferDataOutput output = new ByteBufferDataOutput((limit - start) + appended.length + FileUtils.PAGE_SIZE);
+
+		output.write(slice(start, start + 8)); // magic, minor_version, major_version
+		output.writeShort(constantCount + appendedCount);
+
+		int copyStart = start + 10;
+		int repointNo = 0;
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			String finalValue = finalValues[constantNo];
+			if (finalValue == null) {
+				continue;
+			}
+			int constantStart = offsets[constantNo];
+			repointNo = copy(output, copyStart, constantStart, repointNo);
+			output.writeByte(CONSTANT_UTF8);
+			output.writeUTF(finalValue);
+			copyStart = constantStart + 3 + u2(constantStart + 1);
+		}
+		repointNo = copy(output, copyStart, poolEnd, repointNo);
+		output.write(appended);
+		copy(output, poolEnd, limit, repointNo);
+
+		return output.toByteBuffer();
+	}
+
+	/**
+	 * Copy a range of the class, replacing the changed references which are
+	 * in the range.
+	 *
+	 * @return The number of the next changed reference.
+	 */
+	private int copy(ByteBufferDataOutput output, int copyStart, int copyEnd, int repointNo) {
+		while ((repointNo < repointCount) && (repointOffsets[repointNo] < copyEnd)) {
+			int refOffset = repointOffsets[repointNo];
+			output.write(slice(copyStart, refOffset));
+			output.writeShort(repointIndexes[repointNo]);
+			copyStart = refOffset + 2;
+			repointNo++;
+		}
+		output.write(slice(copyStart, copyEnd));
+		return repointNo;
+	}
+
+	private ByteBuffer slice(int sliceStart, int sliceEnd) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(sliceEnd);
+		slice.position(sliceStart);
+		return slice;
+	}
+
+	//
+
+	private int u1(int offset) {
+		if (offset >= limit) {
+			throw NOT_PATCHABLE;
+		}
+		return buffer.get(offset) & 0xFF;
+	}
+
+	private int u2(int offset) {
+		if ((offset + 2) > limit) {
+			throw NOT_PATCHABLE;
+		}
+		return buffer.getShort(offset) & 0xFFFF;
+	}
+
+	private int u4(int offset) {
+		if ((offset + 4) > limit) {
+			throw NOT_PATCHABLE;
+		}
+		return buffer.getInt(offset);
+	}
+
+	//
+
+	private void readConstants(boolean allCandidates) {
+		if (u4(start) != 0xCAFEBABE) {
+			throw NOT_PATCHABLE;
+		}
+		constantCount = u2(start + 8);
+		tags = new byte[constantCount];
+		offsets = new int[constantCount];
+		candidates = new boolean[constantCount];
+		initialValues = new String[constantCount];
+		finalValues = new String[constantCount];
+
+		int offset = start + 10;
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			byte tag = (byte) u1(offset);
+			tags[constantNo] = tag;
+			offsets[constantNo] = offset;
+			switch (tag) {
+				case CONSTANT_UTF8 : {
+					int utf8Start = offset + 3;
+					int utf8End = utf8Start + u2(offset + 1);
+					if (utf8End > limit) {
+						throw NOT_PATCHABLE;
+					}
+					candidates[constantNo] = allCandidates || constantMatcher.matches(buffer, utf8Start, utf8End);
+					offset = utf8End;
+					break;
+				}
+				case CONSTANT_CLASS :
+				case CONSTANT_STRING :
+				case CONSTANT_METHODTYPE :
+				case CONSTANT_MODULE :
+				case CONSTANT_PACKAGE :
+					offset += 3;
+					break;
+				case CONSTANT_METHODHANDLE :
+					offset += 4;
+					break;
+				case CONSTANT_INTEGER :
+				case CONSTANT_FLOAT :
+				case CONSTANT_FIELDREF :
+				case CONSTANT_METHODREF :
+				case CONSTANT_INTERFACEMETHODREF :
+				case CONSTANT_NAMEANDTYPE :
+				case CONSTANT_DYNAMIC :
+				case CONSTANT_INVOKEDYNAMIC :
+					offset += 5;
+					break;
+				case CONSTANT_LONG :
+				case CONSTANT_DOUBLE :
+					offset += 9;
+					constantNo++; // Eight byte constants take two entries.
+					break;
+				default :
+					throw NOT_PATCHABLE;
+			}
+		}
+		if (offset > limit) {
+			throw NOT_PATCHABLE;
+		}
+		poolEnd = offset;
+	}
+
+	private String initialValue(int utf8Index) {
+		String initialValue = initialValues[utf8Index];
+		if (initialValue == null) {
+			ByteBuffer utf8Buffer = buffer.duplicate();
+			utf8Buffer.position(offsets[utf8Index] + 1);
+			try {
+				// The full class transformation sees interned values, so
+				// that a replacement by an equal interned value is not a
+				// change.
+				initialValue = ByteBufferDataInput.wrap(utf8Buffer)
+					.readUTF()
+					.intern();
+			} catch (IOException e) {
+				throw NOT_PATCHABLE;
+			}
+			initialValues[utf8Index] = initialValue;
+		}
+		return initialValue;
+	}
+
+	private String transform(int use, String initialValue) {
+		return switch (use) {
+			case USE_NAME -> null;
+			case USE_BINARY_TYPE -> action.transformBinaryType(initialValue);
+			case USE_DESCRIPTOR -> action.transformDescriptor(initialValue);
+			case USE_CLASS_SIGNATURE -> action.transformSignature(initialValue, SignatureType.CLASS);
+			case USE_FIELD_SIGNATURE -> action.transformSignature(initialValue, SignatureType.FIELD);
+			case USE_METHOD_SIGNATURE -> action.transformSignature(initialValue, SignatureType.METHOD);
+			case USE_BINARY_PACKAGE -> action.replaceBinaryPackage(initialValue);
+			case USE_STRING -> action.updateString(inputName, "UTF8Constant", initialValue);
+			default -> throw new IllegalArgumentException("Unknown use [ " + use + " ]");
+		};
+	}
+
+	/**
+	 * Transform the constant pool, the same as is done by the full class
+	 * transformation, and count the modified constants the same. UTF8
+	 * constants are transformed as string constants. The other constants
+	 * which reference UTF8 constants must agree with the transformed UTF8
+	 * constants.
+	 */
+	private void transformConstants() {
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			if ((tags[constantNo] == CONSTANT_UTF8) && candidates[constantNo]) {
+				String finalValue = transform(USE_STRING, initialValue(constantNo));
+				if (finalValue != null) {
+					finalValues[constantNo] = finalValue;
+					modifiedConstants++;
+				}
+			}
+		}
+
+		for (int constantNo = 1; constantNo < constantCount; constantNo++) {
+			int offset = offsets[constantNo];
+			int use;
+			int utf8Offset;
+			switch (tags[constantNo]) {
+				case CONSTANT_CLASS :
+					use = USE_BINARY_TYPE;
+					utf8Offset = offset + 1;
+					break;
+				case CONSTANT_STRING :
+					use = USE_STRING;
+					utf8Offset = offset + 1;
+					break;
+				case CONSTANT_NAMEANDTYPE :
+					use = USE_DESCRIPTOR;
+					utf8Offset = offset + 3;
+					break;
+				case CONSTANT_METHODTYPE :
+					use = USE_DESCRIPTOR;
+					utf8Offset = offset + 1;
+					break;
+				default :
+					continue;
+			}
+			if (constantReference(constantNo, utf8Offset, use)) {
+				modifiedConstants++;
+			}
+		}
+	}
+
+	/**
+	 * Check a reference to a UTF8 constant by another constant.
+	 * <p>
+	 * The full class transformation transforms constants in order. A constant
+	 * which references an earlier UTF8 constant sees the transformed UTF8
+	 * constant. When not changed according to its use, a constant continues
+	 * to reference the transformed UTF8 constant. When changed to a value
+	 * other than the transformed UTF8 constant, the constant is changed to
+	 * reference a new UTF8 constant.
+	 *
+	 * @param constantIndex The index of the referencing constant.
+	 * @param refOffset The offset of the reference to the UTF8 constant.
+	 * @param use How the referenced value is transformed.
+	 * @return True or false telling if the referenced value was changed
+	 *         according to its use.
+	 */
+	private boolean constantReference(int constantIndex, int refOffset, int use) {
+		int utf8Index = u2(refOffset);
+		checkTag(utf8Index, CONSTANT_UTF8);
+		if (!candidates[utf8Index]) {
+			return false;
+		}
+		String seenValue = (utf8Index < constantIndex) ? finalValue(utf8Index) : initialValue(utf8Index);
+		String finalValue = transform(use, seenValue);
+		if (finalValue == null) {
+			return false;
+		}
+		if (!finalValue.equals(finalValue(utf8Index))) {
+			repoint(refOffset, appendUtf8(finalValue));
+		}
+		return true;
+	}
+
+	private void checkTag(int index, byte tag) {
+		if ((index <= 0) || (index >= constantCount) || (tags[index] != tag)) {
+			throw NOT_PATCHABLE;
+		}
+	}
+
+	private String finalValue(int utf8Index) {
+		String finalValue = finalValues[utf8Index];
+		return (finalValue == null) ? initialValues[utf8Index] : finalValue;
+	}
+
+	/**
+	 * Compute the value which the class structure requires of a UTF8
+	 * constant: The initial value, transformed according to its use.
+	 *
+	 * @return The required value. Null if the UTF8 constant cannot change.
+	 */
+	private String requiredValue(int utf8Index, int use) {
+		checkTag(utf8Index, CONSTANT_UTF8);
+		if (!candidates[utf8Index]) {
+			return null;
+		}
+		String initialValue = initialValue(utf8Index);
+		String finalValue = transform(use, initialValue);
+		return (finalValue == null) ? initialValue : finalValue;
+	}
+
+	/**
+	 * Tell if the transformed UTF8 constant does not have the value which is
+	 * required by the class structure.
+	 */
+	private boolean conflicts(int utf8Index, String requiredValue) {
+		return (requiredValue != null) && !requiredValue.equals(finalValue(utf8Index));
+	}
+
+	/**
+	 * Tell if the required value was changed according to its use. A
+	 * transformation which makes no change answers the initial value.
+	 */
+	private boolean isChanged(int utf8Index, String requiredValue) {
+		return (requiredValue != null) && (requiredValue != initialValues[utf8Index]);
+	}
+
+	/**
+	 * Check a reference to a UTF8 constant from the class structure. The class
+	 * structure sees the initial value, transformed according to its use.
+	 * When that is not the value of the transformed UTF8 constant, the
+	 * reference is changed to a new UTF8 constant.
+	 *
+	 * @param refOffset The offset of the reference.
+	 * @param use How the referenced value is transformed.
+	 * @return True or false telling if the referenced value was changed
+	 *         according to its use.
+	 */
+	private boolean reference(int refOffset, int use) {
+		int utf8Index = u2(refOffset);
+		String requiredValue = requiredValue(utf8Index, use);
+		if (conflicts(utf8Index, requiredValue)) {
+			repoint(refOffset, appendUtf8(requiredValue));
+		}
+		return isChanged(utf8Index, requiredValue);
+	}
+
+	private boolean optionalReference(int refOffset, int use) {
+		return (u2(refOffset) != 0) && reference(refOffset, use);
+	}
+
+	/**
+	 * Check a reference from the class structure to a constant which
+	 * references a UTF8 constant: A class, module, package, or string
+	 * constant. When the required value is not the value of the transformed
+	 * UTF8 constant, the reference is changed to a new constant which
+	 * references a new UTF8 constant.
+	 */
+	private boolean entryReference(int refOffset, byte tag, int use) {
+		int entryIndex = u2(refOffset);
+		checkTag(entryIndex, tag);
+		int utf8Index = u2(offsets[entryIndex] + 1);
+		String requiredValue = requiredValue(utf8Index, use);
+		if (conflicts(utf8Index, requiredValue)) {
+			repoint(refOffset, appendEntry(tag, appendUtf8(requiredValue), 0));
+		}
+		return isChanged(utf8Index, requiredValue);
+	}
+
+	private boolean classReference(int refOffset, int use) {
+		return entryReference(refOffset, CONSTANT_CLASS, use);
+	}
+
+	private boolean optionalClassReference(int refOffset, int use) {
+		return (u2(refOffset) != 0) && classReference(refOffset, use);
+	}
+
+	private boolean moduleReference(int refOffset) {
+		return entryReference(refOffset, CONSTANT_MODULE, USE_NAME);
+	}
+
+	private boolean packageReference(int refOffset, int use) {
+		return entryReference(refOffset, CONSTANT_PACKAGE, use);
+	}
+
+	private boolean nameAndTypeReference(int refOffset, int use) {
+		int nameAndTypeIndex = u2(refOffset);
+		checkTag(nameAndTypeIndex, CONSTANT_NAMEANDTYPE);
+		int offset = offsets[nameAndTypeIndex];
+		int nameIndex = u2(offset + 1);
+		int descriptorIndex = u2(offset + 3);
+		String requiredName = requiredValue(nameIndex, USE_NAME);
+		String requiredDescriptor = requiredValue(descriptorIndex, use);
+		boolean nameConflicts = conflicts(nameIndex, requiredName);
+		boolean descriptorConflicts = conflicts(descriptorIndex, requiredDescriptor);
+		if (nameConflicts || descriptorConflicts) {
+			repoint(refOffset,
+				appendEntry(CONSTANT_NAMEANDTYPE, nameConflicts ? appendUtf8(requiredName) : nameIndex,
+					descriptorConflicts ? appendUtf8(requiredDescriptor) : descriptorIndex));
+		}
+		return isChanged(descriptorIndex, requiredDescriptor);
+	}
+
+	private boolean constantValueReference(int refOffset, int use) {
+		int valueIndex = u2(refOffset);
+		if ((valueIndex <= 0) || (valueIndex >= constantCount)) {
+			throw NOT_PATCHABLE;
+		}
+		switch (tags[valueIndex]) {
+			case CONSTANT_STRING :
+				return entryReference(refOffset, CONSTANT_STRING, use);
+			case CONSTANT_INTEGER :
+			case CONSTANT_FLOAT :
+			case CONSTANT_LONG :
+			case CONSTANT_DOUBLE :
+				return false;
+			default :
+				throw NOT_PATCHABLE;
+		}
+	}
+
+	//
+
+	/** Constants which are added after the initial constants. */
+	private ByteBufferDataOutput		appendedConstants;
+	private int						appendedCount;
+	private Map<String, Integer>	appendedUtf8;
+	private Map<Long, Integer>		appendedEntries;
+
+	/** Offsets of references which are changed, in increasing order. */
+	private int[]					repointOffsets	= new int[16];
+	/** The new constant indexes of the changed references. */
+	private int[]					repointIndexes	= new int[16];
+	private int						repointCount;
+
+	private int appendIndex() {
+		if (appendedConstants == null) {
+			appendedConstants = new ByteBufferDataOutput(FileUtils.PAGE_SIZE);
+			appendedUtf8 = new HashMap<>();
+			appendedEntries = new HashMap<>();
+		}
+		int index = constantCount + appendedCount;
+		if (index > 0xFFFF - 1) {
+			throw NOT_PATCHABLE; // The constant pool is full.
+		}
+		appendedCount++;
+		return index;
+	}
+
+	private int appendUtf8(String value) {
+		Integer appendedIndex = (appendedUtf8 == null) ? null : appendedUtf8.get(value);
+		if (appendedIndex != null) {
+			return appendedIndex;
+		}
+		int index = appendIndex();
+		try {
+			appendedConstants.writeByte(CONSTANT_UTF8);
+			appendedConstants.writeUTF(value);
+		} catch (IOException e) {
+			throw NOT_PATCHABLE; // The value is too long.
+		}
+		appendedUtf8.put(value, index);
+		return index;
+	}
+
+	private int appendEntry(byte tag, int firstIndex, int secondIndex) {
+		Long key = Long.valueOf(((long) tag << 32) | (firstIndex << 16) | secondIndex);
+		Integer appendedIndex = (appendedEntries == null) ? null : appendedEntries.get(key);
+		if (appendedIndex != null) {
+			return appendedIndex;
+		}
+		int index = appendIndex();
+		appendedConstants.writeByte(tag);
+		appendedConstants.writeShort(firstIndex);
+		if (tag == CONSTANT_NAMEANDTYPE) {
+			appendedConstants.writeShort(secondIndex);
+		}
+		appendedEntries.put(key, index);
+		return index;
+	}
+
+	private void repoint(int refOffset, int index) {
+		if (repointCount == repointOffsets.length) {
+			repointOffsets = Arrays.copyOf(repointOffsets, repointCount * 2);
+			repointIndexes = Arrays.copyOf(repointIndexes, repointCount * 2);
+		}
+		repointOffsets[repointCount] = refOffset;
+		repointIndexes[repointCount] = index;
+		repointCount++;
+	}
+
+	private String className(int classIndex) {
+		checkTag(classIndex, CONSTANT_CLASS);
+		int utf8Index = u2(offsets[classIndex] + 1);
+		checkTag(utf8Index, CONSTANT_UTF8);
+		return initialValue(utf8Index);
+	}
+
+	//
+
+	/** The offset of the next byte of the class structure which is to be read. */
+	private int position;
+
+	private int nextU1() {
+		int value = u1(position);
+		position += 1;
+		return value;
+	}
+
+	private int nextU2() {
+		int value = u2(position);
+		position += 2;
+		return value;
+	}
+
+	/**
+	 * Read the next constant reference of the class structure.
+	 *
+	 * @return The offset of the reference.
+	 */
+	private int nextRef() {
+		int offset = position;
+		skip(2);
+		return offset;
+	}
+
+	private int nextU4() {
+		int value = u4(position);
+		position += 4;
+		return value;
+	}
+
+	private void skip(int count) {
+		position += count;
+		if (position > limit) {
+			throw NOT_PATCHABLE;
+		}
+	}
+
+	/**
+	 * Check the references of the class structure which follows the constant
+	 * pool. Changes are counted the same as the full class transformation.
+	 */
+	private void readClass() {
+		position = poolEnd;
+
+		nextU2(); // access_flags
+
+		int thisClass = nextRef();
+		inputClassName = className(u2(thisClass));
+		if (classReference(thisClass, USE_BINARY_TYPE)) {
+			outputClassName = transform(USE_BINARY_TYPE, inputClassName);
+		}
+
+		int superClass = nextRef();
+		if (u2(superClass) != 0) {
+			inputSuperName = className(u2(superClass));
+			outputSuperName = classReference(superClass, USE_BINARY_TYPE)
+				? transform(USE_BINARY_TYPE, inputSuperName)
+				: inputSuperName;
+		}
+
+		for (int interfaceCount = nextU2(); interfaceCount > 0; interfaceCount--) {
+			if (classReference(nextRef(), USE_BINARY_TYPE)) {
+				modifiedInterfaces++;
+			}
+		}
+
+		for (int fieldCount = nextU2(); fieldCount > 0; fieldCount--) {
+			if (member(USE_FIELD_SIGNATURE)) {
+				modifiedFields++;
+			}
+		}
+
+		for (int methodCount = nextU2(); methodCount > 0; methodCount--) {
+			if (member(USE_METHOD_SIGNATURE)) {
+				modifiedMethods++;
+			}
+		}
+
+		modifiedAttributes = attributes(USE_CLASS_SIGNATURE, true);
+
+		if (position != limit) {
+			throw NOT_PATCHABLE;
+		}
+	}
+
+	private boolean member(int signatureUse) {
+		nextU2(); // access_flags
+		reference(nextRef(), USE_NAME);
+		boolean changed = reference(nextRef(), USE_DESCRIPTOR);
+		return (attributes(signatureUse, true) > 0) || changed;
+	}
+
+	/**
+	 * Check the references of attributes.
+	 *
+	 * @param signatureUse How signatures of the attributes are transformed.
+	 * @param transformed Whether the full transformation transforms the
+	 *            attributes. When false, all strings of the attributes must be
+	 *            unchanged.
+	 * @return The number of changed attributes.
+	 */
+	private int attributes(int signatureUse, boolean transformed) {
+		int changedAttributes = 0;
+		for (int attributeCount = nextU2(); attributeCount > 0; attributeCount--) {
+			int nameRef = nextRef();
+			reference(nameRef, USE_NAME);
+			String attributeName = initialValue(u2(nameRef));
+			int attributeLength = nextU4();
+			if (attributeLength < 0) {
+				throw NOT_PATCHABLE;
+			}
+			int attributeEnd = position + attributeLength;
+			if (attributeEnd > limit) {
+				throw NOT_PATCHABLE;
+			}
+			if (attribute(attributeName, attributeEnd, signatureUse, transformed)) {
+				changedAttributes++;
+			}
+			if (position != attributeEnd) {
+				throw NOT_PATCHABLE;
+			}
+		}
+		return changedAttributes;
+	}
+
+	private boolean attribute(String attributeName, int attributeEnd, int signatureUse, boolean transformed) {
+		int binaryTypeUse = transformed ? USE_BINARY_TYPE : USE_NAME;
+		int descriptorUse = transformed ? USE_DESCRIPTOR : USE_NAME;
+
+		boolean changed = false;
+		switch (attributeName) {
+			case "Signature" :
+				return reference(nextRef(), transformed ? signatureUse : USE_NAME);
+
+			case "Exceptions" :
+			case "NestMembers" :
+				for (int classCount = nextU2(); classCount > 0; classCount--) {
+					changed |= classReference(nextRef(), binaryTypeUse);
+				}
+				return changed;
+
+			case "PermittedSubclasses" :
+				for (int classCount = nextU2(); classCount > 0; classCount--) {
+					classReference(nextRef(), USE_NAME);
+				}
+				return false;
+
+			case "NestHost" :
+			case "ModuleMainClass" :
+				return classReference(nextRef(), binaryTypeUse);
+
+			case "Code" : {
+				skip(4); // max_stack, max_locals
+				skip(nextU4()); // code
+				for (int handlerCount = nextU2(); handlerCount > 0; handlerCount--) {
+					skip(6); // start_pc, end_pc, handler_pc
+					changed |= optionalClassReference(nextRef(), binaryTypeUse);
+				}
+				changed |= (attributes(USE_METHOD_SIGNATURE, transformed) > 0);
+				return changed;
+			}
+
+			case "EnclosingMethod" : {
+				changed = classReference(nextRef(), binaryTypeUse);
+				int methodRef = nextRef();
+				if (u2(methodRef) != 0) {
+					changed |= nameAndTypeReference(methodRef, descriptorUse);
+				}
+				return changed;
+			}
+
+			case "StackMapTable" :
+				for (int frameCount = nextU2(); frameCount > 0; frameCount--) {
+					changed |= stackMapFrame(binaryTypeUse);
+				}
+				return changed;
+
+			case "InnerClasses" :
+				for (int classCount = nextU2(); classCount > 0; classCount--) {
+					changed |= optionalClassReference(nextRef(), binaryTypeUse);
+					changed |= optionalClassReference(nextRef(), binaryTypeUse);
+					optionalReference(nextRef(), USE_NAME);
+					nextU2(); // inner_class_access_flags
+				}
+				return changed;
+
+			case "LocalVariableTable" :
+			case "LocalVariableTypeTable" : {
+				int variableUse;
+				if (!transformed) {
+					variableUse = USE_NAME;
+				} else if (attributeName.equals("LocalVariableTable")) {
+					variableUse = USE_DESCRIPTOR;
+				} else {
+					variableUse = USE_FIELD_SIGNATURE;
+				}
+				for (int variableCount = nextU2(); variableCount > 0; variableCount--) {
+					skip(4); // start_pc, length
+					reference(nextRef(), USE_NAME);
+					changed |= reference(nextRef(), variableUse);
+					nextU2(); // index
+				}
+				return changed;
+			}
+
+			case "RuntimeVisibleAnnotations" :
+			case "RuntimeInvisibleAnnotations" :
+				for (int annotationCount = nextU2(); annotationCount > 0; annotationCount--) {
+					changed |= annotation(transformed);
+				}
+				return changed;
+
+			case "RuntimeVisibleParameterAnnotations" :
+			case "RuntimeInvisibleParameterAnnotations" :
+				for (int parameterCount = nextU1(); parameterCount > 0; parameterCount--) {
+					for (int annotationCount = nextU2(); annotationCount > 0; annotationCount--) {
+						changed |= annotation(transformed);
+					}
+				}
+				return changed;
+
+			case "RuntimeVisibleTypeAnnotations" :
+			case "RuntimeInvisibleTypeAnnotations" :
+				for (int annotationCount = nextU2(); annotationCount > 0; annotationCount--) {
+					typeAnnotationTarget();
+					changed |= annotation(transformed);
+				}
+				return changed;
+
+			case "AnnotationDefault" :
+				return elementValue(transformed);
+
+			case "Module" : {
+				int packageUse = transformed ? USE_BINARY_PACKAGE : USE_NAME;
+				moduleReference(nextRef());
+				nextU2(); // module_flags
+				optionalReference(nextRef(), USE_NAME);
+				for (int requiresCount = nextU2(); requiresCount > 0; requiresCount--) {
+					moduleReference(nextRef());
+					nextU2(); // requires_flags
+					optionalReference(nextRef(), USE_NAME);
+				}
+				for (int exportsAndOpens = 0; exportsAndOpens < 2; exportsAndOpens++) {
+					for (int packageCount = nextU2(); packageCount > 0; packageCount--) {
+						changed |= packageReference(nextRef(), packageUse);
+						nextU2(); // exports_flags or opens_flags
+						for (int moduleCount = nextU2(); moduleCount > 0; moduleCount--) {
+							moduleReference(nextRef());
+						}
+					}
+				}
+				for (int usesCount = nextU2(); usesCount > 0; usesCount--) {
+					changed |= classReference(nextRef(), binaryTypeUse);
+				}
+				for (int providesCount = nextU2(); providesCount > 0; providesCount--) {
+					changed |= classReference(nextRef(), binaryTypeUse);
+					for (int withCount = nextU2(); withCount > 0; withCount--) {
+						changed |= classReference(nextRef(), binaryTypeUse);
+					}
+				}
+				return changed;
+			}
+
+			case "ModulePackages" : {
+				int packageUse = transformed ? USE_BINARY_PACKAGE : USE_NAME;
+				for (int packageCount = nextU2(); packageCount > 0; packageCount--) {
+					changed |= packageReference(nextRef(), packageUse);
+				}
+				return changed;
+			}
+
+			case "ConstantValue" :
+				return constantValueReference(nextRef(), transformed ? USE_STRING : USE_NAME);
+
+			case "SourceFile" :
+				reference(nextRef(), USE_NAME);
+				return false;
+
+			case "MethodParameters" :
+				for (int parameterCount = nextU1(); parameterCount > 0; parameterCount--) {
+					optionalReference(nextRef(), USE_NAME);
+					nextU2(); // access_flags
+				}
+				return false;
+
+			case "Record" :
+				// The full transformation does not transform record components.
+				for (int componentCount = nextU2(); componentCount > 0; componentCount--) {
+					reference(nextRef(), USE_NAME);
+					reference(nextRef(), USE_NAME);
+					attributes(USE_FIELD_SIGNATURE, false);
+				}
+				return false;
+
+			default :
+				// Other attributes either have no constant references, or
+				// are copied as bytes, which see the transformed constants.
+				position = attributeEnd;
+				return false;
+		}
+	}
+
+	private boolean stackMapFrame(int binaryTypeUse) {
+		int frameType = nextU1();
+		if (frameType < 64) { // SAME
+			return false;
+		} else if (frameType < 128) { // SAME_LOCALS_1_STACK_ITEM
+			return verificationType(binaryTypeUse);
+		} else if (frameType < 247) { // Reserved
+			throw NOT_PATCHABLE;
+		} else if (frameType == 247) { // SAME_LOCALS_1_STACK_ITEM_EXTENDED
+			nextU2(); // offset_delta
+			return verificationType(binaryTypeUse);
+		} else if (frameType < 252) { // CHOP, SAME_FRAME_EXTENDED
+			nextU2(); // offset_delta
+			return false;
+		} else if (frameType < 255) { // APPEND
+			nextU2(); // offset_delta
+			boolean changed = false;
+			for (int localCount = frameType - 251; localCount > 0; localCount--) {
+				changed |= verificationType(binaryTypeUse);
+			}
+			return changed;
+		} else { // FULL_FRAME
+			nextU2(); // offset_delta
+			boolean changed = false;
+			for (int localCount = nextU2(); localCount > 0; localCount--) {
+				changed |= verificationType(binaryTypeUse);
+			}
+			for (int stackCount = nextU2(); stackCount > 0; stackCount--) {
+				changed |= verificationType(binaryTypeUse);
+			}
+			return changed;
+		}
+	}
+
+	private boolean verificationType(int binaryTypeUse) {
+		int tag = nextU1();
+		if (tag == 7) { // Object_variable_info
+			return classReference(nextRef(), binaryTypeUse);
+		} else if (tag == 8) { // Uninitialized_variable_info
+			nextU2(); // offset
+			return false;
+		} else if (tag < 7) {
+			return false;
+		} else {
+			throw NOT_PATCHABLE;
+		}
+	}
+
+	private boolean annotation(boolean transformed) {
+		boolean changed = reference(nextRef(), transformed ? USE_DESCRIPTOR : USE_NAME);
+		for (int pairCount = nextU2(); pairCount > 0; pairCount--) {
+			reference(nextRef(), USE_NAME);
+			changed |= elementValue(transformed);
+		}
+		return changed;
+	}
+
+	private boolean elementValue(boolean transformed) {
+		int tag = nextU1();
+		switch (tag) {
+			case 'B' :
+			case 'C' :
+			case 'D' :
+			case 'F' :
+			case 'I' :
+			case 'J' :
+			case 'S' :
+			case 'Z' :
+				nextU2(); // const_value_index
+				return false;
+			case 's' :
+				return reference(nextRef(), transformed ? USE_STRING : USE_NAME);
+			case 'e' : {
+				boolean changed = reference(nextRef(), transformed ? USE_DESCRIPTOR : USE_NAME);
+				reference(nextRef(), USE_NAME);
+				return changed;
+			}
+			case 'c' :
+				return reference(nextRef(), transformed ? USE_DESCRIPTOR : USE_NAME);
+			case '@' :
+				return annotation(transformed);
+			case '[' : {
+				boolean changed = false;
+				for (int valueCount = nextU2(); valueCount > 0; valueCount--) {
+					changed |= elementValue(transformed);
+				}
+				return changed;
+			}
+			default :
+				throw NOT_PATCHABLE;
+		}
+	}
+
+	/**
+	 * Skip the target of a type annotation. See JVMS 4.7.20.
+	 */
+	private void typeAnnotationTarget() {
+		int targetType = nextU1();
+		switch (targetType) {
+			case 0x00 : // type_parameter_target
+			case 0x01 :
+			case 0x16 : // formal_parameter_target
+				skip(1);
+				break;
+			case 0x10 : // supertype_target
+			case 0x17 : // throws_target
+			case 0x42 : // catch_target
+			case 0x43 : // offset_target
+			case 0x44 :
+			case 0x45 :
+			case 0x46 :
+				skip(2);
+				break;
+			case 0x11 : // type_parameter_bound_target
+			case 0x12 :
+				skip(2);
+				break;
+			case 0x13 : // empty_target
+			case 0x14 :
+			case 0x15 :
+				break;
+			case 0x40 : // localvar_target
+			case 0x41 :
+				skip(nextU2() * 6);
+				break;
+			case 0x47 : // type_argument_target
+			case 0x48 :
+			case 0x49 :
+			case 0x4A :
+			case 0x4B :
+				skip(3);
+				break;
+			default :
+				throw NOT_PATCHABLE;
+		}
+		skip(nextU1() * 2); // type_path
+	}
+}
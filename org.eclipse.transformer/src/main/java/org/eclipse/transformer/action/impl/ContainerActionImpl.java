@@ -17,7 +17,9 @@ import java.util.function.Function;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionSelector;
+import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ContainerAction;
+import org.eclipse.transformer.action.ContainerChanges;
 
 /**
  * Action type used to transform a collection of resources.
@@ -95,10 +97,24 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 	}
 
 	protected void recordAction(Action action, String resourceName) {
+		recordAction(action, resourceName, action.getLastActiveChanges());
+	}
+
+	/**
+	 * Record the application of an action using changes which were captured
+	 * when the action was applied. This is used when the action was applied on
+	 * a different thread than the thread which is recording the changes.
+	 *
+	 * @param action The action which was applied.
+	 * @param resourceName The name of the resource to which the action was
+	 *            applied.
+	 * @param lastChanges The changes made by the action.
+	 */
+	protected void recordAction(Action action, String resourceName, Changes lastChanges) {
 		getLogger().debug("Resource [ {} ]: Action [ {} ]", action.getName(), resourceName);
-		getActiveChanges().recordAction(action);
+		getActiveChanges().recordAction(action, lastChanges);
 		if (action.isContainerAction()) {
-			getActiveChanges().add(((ContainerAction) action).getLastActiveChanges());
+			getActiveChanges().add((ContainerChanges) lastChanges);
 		}
 	}
 
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.eclipse.transformer.action.Action;
@@ -52,11 +53,13 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 		this.allFailed = 0;
 		this.allDuplicated = 0;
+
+		this.allAltered = 0;
 	}
 
 	@Override
 	public boolean isContentChanged() {
-		return (getAllChanged() != 0);
+		return (getAllChanged() != 0) || (getAllAltered() != 0);
 	}
 
 	@Override
@@ -88,6 +91,14 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 	private int							allRenamed;
 	private int							allContentChanged;
 
+	/**
+	 * Entries which were not written as they were read, but which were not
+	 * changed by an action: Stripped signature files, entries the names of
+	 * which were normalized, and entries which were dropped because their
+	 * names are not valid.
+	 */
+	private int							allAltered;
+
 	//
 
 	@Override
@@ -138,10 +149,11 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		addChangeMap(this.duplicatedByAction, otherChanges.getDuplicatedByAction());
 
 		addChangeMap(this.renamedByAction, otherChanges.getRenamedByAction());
-		addChangeMap(this.contentChangedByAction, otherChanges.getChangedByAction());
+		addChangeMap(this.contentChangedByAction, otherChanges.getContentChangedByAction());
 
 		this.allResources += otherChanges.getAllResources();
 		this.allUnselected += otherChanges.getAllUnselected();
+		this.allSelected += otherChanges.getAllSelected();
 		this.allUnaccepted += otherChanges.getAllUnaccepted();
 		this.allAccepted += otherChanges.getAllAccepted();
 		this.allUnchanged += otherChanges.getAllUnchanged();
@@ -150,8 +162,119 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allFailed += otherChanges.getAllFailed();
 		this.allDuplicated += otherChanges.getAllDuplicated();
 
-		this.allContentChanged += otherChanges.getAllChanged();
+		this.allContentChanged += otherChanges.getAllContentChanged();
 		this.allRenamed += otherChanges.getAllRenamed();
+
+		if (otherChanges instanceof ContainerChangesImpl otherChangesImpl) {
+			this.allAltered += otherChangesImpl.getAllAltered();
+		}
+	}
+
+	//
+
+	// Counts are stored as properties, for caching the changes of a
+	// transformation. Resource names and timings are not stored.
+
+	private static final String	UNCHANGED_PREFIX		= "unchanged.";
+	private static final String	CHANGED_PREFIX			= "changed.";
+	private static final String	RENAMED_PREFIX			= "renamed.";
+	private static final String	CONTENT_CHANGED_PREFIX	= "contentChanged.";
+	private static final String	FAILED_PREFIX			= "failed.";
+	private static final String	DUPLICATED_PREFIX		= "duplicated.";
+
+	/**
+	 * Store the counts of these changes.
+	 *
+	 * @param properties Properties into which to store the counts.
+	 */
+	void store(Properties properties) {
+		properties.setProperty("allResources", Integer.toString(allResources));
+		properties.setProperty("allUnselected", Integer.toString(allUnselected));
+		properties.setProperty("allSelected", Integer.toString(allSelected));
+		properties.setProperty("allUnaccepted", Integer.toString(allUnaccepted));
+		properties.setProperty("allAccepted", Integer.toString(allAccepted));
+		properties.setProperty("allUnchanged", Integer.toString(allUnchanged));
+		properties.setProperty("allChanged", Integer.toString(allChanged));
+		properties.setProperty("allFailed", Integer.toString(allFailed));
+		properties.setProperty("allDuplicated", Integer.toString(allDuplicated));
+		properties.setProperty("allRenamed", Integer.toString(allRenamed));
+		properties.setProperty("allContentChanged", Integer.toString(allContentChanged));
+		properties.setProperty("allAltered", Integer.toString(allAltered));
+
+		storeChangeMap(properties, UNCHANGED_PREFIX, unchangedByAction);
+		storeChangeMap(properties, CHANGED_PREFIX, changedByAction);
+		storeChangeMap(properties, RENAMED_PREFIX, renamedByAction);
+		storeChangeMap(properties, CONTENT_CHANGED_PREFIX, contentChangedByAction);
+		storeChangeMap(properties, FAILED_PREFIX, failedByAction);
+		storeChangeMap(properties, DUPLICATED_PREFIX, duplicatedByAction);
+	}
+
+	private static void storeChangeMap(Properties properties, String prefix, Map<String, int[]> changeMap) {
+		changeMap.forEach((name, count) -> properties.setProperty(prefix + name, Integer.toString(count[0])));
+	}
+
+	/**
+	 * Load changes from stored counts.
+	 *
+	 * @param properties Properties from which to load the counts.
+	 * @return Changes having the loaded counts.
+	 * @throws IllegalArgumentException Thrown if a count is missing or is not
+	 *             valid.
+	 */
+	static ContainerChangesImpl load(Properties properties) {
+		ContainerChangesImpl changes = new ContainerChangesImpl();
+
+		changes.allResources = loadCount(properties, "allResources");
+		changes.allUnselected = loadCount(properties, "allUnselected");
+		changes.allSelected = loadCount(properties, "allSelected");
+		changes.allUnaccepted = loadCount(properties, "allUnaccepted");
+		changes.allAccepted = loadCount(properties, "allAccepted");
+		changes.allUnchanged = loadCount(properties, "allUnchanged");
+		changes.allChanged = loadCount(properties, "allChanged");
+		changes.allFailed = loadCount(properties, "allFailed");
+		changes.allDuplicated = loadCount(properties, "allDuplicated");
+		changes.allRenamed = loadCount(properties, "allRenamed");
+		changes.allContentChanged = loadCount(properties, "allContentChanged");
+		changes.allAltered = loadCount(properties, "allAltered");
+
+		for (String key : properties.stringPropertyNames()) {
+			Map<String, int[]> changeMap;
+			String prefix;
+			if (key.startsWith(UNCHANGED_PREFIX)) {
+				changeMap = changes.unchangedByAction;
+				prefix = UNCHANGED_PREFIX;
+			} else if (key.startsWith(CHANGED_PREFIX)) {
+				changeMap = changes.changedByAction;
+				prefix = CHANGED_PREFIX;
+			} else if (key.startsWith(RENAMED_PREFIX)) {
+				changeMap = changes.renamedByAction;
+				prefix = RENAMED_PREFIX;
+			} else if (key.startsWith(CONTENT_CHANGED_PREFIX)) {
+				changeMap = changes.contentChangedByAction;
+				prefix = CONTENT_CHANGED_PREFIX;
+			} else if (key.startsWith(FAILED_PREFIX)) {
+				changeMap = changes.failedByAction;
+				prefix = FAILED_PREFIX;
+			} else if (key.startsWith(DUPLICATED_PREFIX)) {
+				changeMap = changes.duplicatedByAction;
+				prefix = DUPLICATED_PREFIX;
+			} else {
+				continue;
+			}
+			changeMap.put(key.substring(prefix.length()), new int[] {
+				loadCount(properties, key)
+			});
+		}
+
+		return changes;
+	}
+
+	private static int loadCount(Properties properties, String key) {
+		String countText = properties.getProperty(key);
+		if (countText == null) {
+			throw new IllegalArgumentException("Missing count [ " + key + " ]");
+		}
+		return Integer.parseInt(countText);
 	}
 
 	//
@@ -243,6 +366,10 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		return allDuplicated;
 	}
 
+	public int getAllAltered() {
+		return allAltered;
+	}
+
 	//
 
 	@Override
@@ -342,13 +469,17 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 
 	@Override
 	public void recordAction(Action action) {
+		recordAction(action, action.getLastActiveChanges());
+	}
+
+	@Override
+	public void recordAction(Action action, Changes lastChanges) {
 		recordAccepted();
 
 		String name = action.getName();
 
 		boolean anyChanges = false;
 
-		Changes lastChanges = action.getLastActiveChanges();
 		if (lastChanges.isRenamed()) {
 			anyChanges = true;
 			allRenamed++;
@@ -404,6 +535,15 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		increment(duplicatedByAction, name);
 	}
 
+	/**
+	 * Record an entry which was not written as it was read, but which was not
+	 * changed by an action. An altered entry is not counted as a resource, but
+	 * does cause the content of the container to be changed.
+	 */
+	public void recordAltered() {
+		allAltered++;
+	}
+
 	//
 
 	private static final String	DASH_LINE		= "================================================================================";
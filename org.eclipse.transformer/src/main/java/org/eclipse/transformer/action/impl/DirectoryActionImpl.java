@@ -12,6 +12,12 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
@@ -20,6 +26,7 @@ import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.action.ElementAction;
 import org.eclipse.transformer.action.RenameAction;
+import org.eclipse.transformer.action.SelectionRule;
 import org.eclipse.transformer.util.FileUtils;
 
 /**
@@ -29,11 +36,69 @@ import org.eclipse.transformer.util.FileUtils;
  * <p>
  * Note that the directory action embeds steps to recursively walk the target
  * directory. The directory action does not recursively invoke itself.
+ * <p>
+ * When a file executor is provided, the files of the directory are transformed
+ * as tasks of that executor. Each task records the changes to its file, and
+ * these changes are added to the changes of the directory once all files have
+ * been transformed.
+ * <p>
+ * When a rules fingerprint is provided, the directory is transformed
+ * incrementally: A state file in the output root records the files which were
+ * transformed. Files which are unchanged since they were transformed, using
+ * the same rules, are not transformed again, and output files of deleted input
+ * files are removed. See {@link DirectoryState}.
  */
 public class DirectoryActionImpl extends ContainerActionImpl {
 
 	public DirectoryActionImpl(ActionContext context) {
+		this(context, null);
+	}
+
+	/**
+	 * Create a directory action which transforms files using an executor.
+	 * <p>
+	 * The file executor should not be the executor used by archive actions:
+	 * A file task which transforms an archive waits on the tasks which
+	 * transform the entries of that archive.
+	 *
+	 * @param context The context of the action.
+	 * @param fileExecutor The executor used to transform files. Null if files
+	 *            are to be transformed on the calling thread.
+	 */
+	public DirectoryActionImpl(ActionContext context, Executor fileExecutor) {
+		this(context, fileExecutor, null);
+	}
+
+	/**
+	 * Create a directory action which transforms files using an executor, and
+	 * which optionally transforms directories incrementally.
+	 *
+	 * @param context The context of the action.
+	 * @param fileExecutor The executor used to transform files. Null if files
+	 *            are to be transformed on the calling thread.
+	 * @param rulesFingerprint A fingerprint of the rules used by the
+	 *            transformation. Null if directories are not to be transformed
+	 *            incrementally.
+	 */
+	public DirectoryActionImpl(ActionContext context, Executor fileExecutor, String rulesFingerprint) {
 		super(context);
+		this.fileExecutor = fileExecutor;
+		this.rulesFingerprint = rulesFingerprint;
+	}
+
+	private final Executor	fileExecutor;
+	private final String	rulesFingerprint;
+
+	public Executor getFileExecutor() {
+		return fileExecutor;
+	}
+
+	public String getRulesFingerprint() {
+		return rulesFingerprint;
+	}
+
+	public boolean isIncremental() {
+		return (rulesFingerprint != null);
 	}
 
 	//
@@ -75,7 +140,21 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 			setResourceNames(rootInputPath, rootOutputPath);
 
 			if (rootInputFile.isDirectory()) {
-				transformDirectory("", rootInputFile, rootOutputFile);
+				DirectoryState state = isIncremental()
+					? DirectoryState.load(getLogger(), rootOutputFile, getRulesFingerprint())
+					: null;
+
+				Executor useExecutor = getFileExecutor();
+				if (useExecutor == null) {
+					transformDirectory("", rootInputFile, rootOutputFile, state);
+				} else {
+					transformDirectory("", rootInputFile, rootOutputFile, useExecutor, state);
+				}
+
+				if (state != null) {
+					state.removeDeleted();
+					state.save();
+				}
 			} else {
 				transformFile("", rootInputFile, rootOutputFile);
 			}
@@ -100,14 +179,13 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 	 * @param rootOutputFile The root output file.
 	 */
 	protected void transformDirectory(String pathFromRoot, File inputDirectory, File rootOutputFile) {
-		for (File child : inputDirectory.listFiles()) {
+		transformDirectory(pathFromRoot, inputDirectory, rootOutputFile, (DirectoryState) null);
+	}
 
-			String childPathFromRoot;
-			if (pathFromRoot.isEmpty()) {
-				childPathFromRoot = child.getName();
-			} else {
-				childPathFromRoot = pathFromRoot + '/' + child.getName();
-			}
+	private void transformDirectory(String pathFromRoot, File inputDirectory, File rootOutputFile,
+		DirectoryState state) {
+		for (File child : inputDirectory.listFiles()) {
+			String childPathFromRoot = childPath(pathFromRoot, child);
 
 			// Directories are specifically not transformed.
 			//
@@ -118,13 +196,141 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 			// For simplicity, we have chosen to not transform them.
 
 			if (child.isDirectory()) {
-				transformDirectory(childPathFromRoot, child, rootOutputFile);
+				transformDirectory(childPathFromRoot, child, rootOutputFile, state);
 			} else {
-				transformFile(childPathFromRoot, child, rootOutputFile);
+				transformFile(childPathFromRoot, child, rootOutputFile, state);
 			}
 		}
 	}
 
+	private static String childPath(String pathFromRoot, File child) {
+		if (pathFromRoot.isEmpty()) {
+			return child.getName();
+		} else {
+			return pathFromRoot + '/' + child.getName();
+		}
+	}
+
+	/**
+	 * A file which was submitted for transformation, and the task which
+	 * transforms the file and answers the changes to the file.
+	 */
+	private record PendingFile(String pathFromRoot, CompletableFuture<ContainerChangesImpl> changes) {}
+
+	/**
+	 * Transform a directory using an executor. The directory is walked on the
+	 * calling thread, and each file is transformed by a task of the executor.
+	 * <p>
+	 * Each task records the changes to its file into its own changes, which is
+	 * possible because change recording is held per thread. Once all files
+	 * have been submitted, the changes of the tasks are added to the changes
+	 * of the directory, in the order in which the files were walked.
+	 * <p>
+	 * Tasks may create the same output directory concurrently. This is safe:
+	 * Output directories are created using
+	 * {@link java.nio.file.Files#createDirectories}, which does not fail when
+	 * a directory is created by another task.
+	 *
+	 * @param pathFromRoot The path to the directory from the input root.
+	 * @param inputDirectory The directory which is to be transformed.
+	 * @param rootOutputFile The root output file.
+	 * @param executor The executor used to transform the files.
+	 */
+	protected void transformDirectory(String pathFromRoot, File inputDirectory, File rootOutputFile,
+		Executor executor) {
+		transformDirectory(pathFromRoot, inputDirectory, rootOutputFile, executor, null);
+	}
+
+	private void transformDirectory(String pathFromRoot, File inputDirectory, File rootOutputFile,
+		Executor executor, DirectoryState state) {
+		List<PendingFile> pendingFiles = new ArrayList<>();
+		submitDirectory(pathFromRoot, inputDirectory, rootOutputFile, executor, state, pendingFiles);
+
+		ContainerChangesImpl activeChanges = getActiveChanges();
+		for (PendingFile pendingFile : pendingFiles) {
+			ContainerChangesImpl fileChanges;
+			try {
+				fileChanges = pendingFile.changes()
+					.join();
+			} catch (CompletionException e) {
+				// Failures to transform the file are recorded by the task:
+				// Only failures of the task itself reach here.
+				recordError(null, pendingFile.pathFromRoot(), e.getCause());
+				continue;
+			}
+			activeChanges.add(fileChanges);
+		}
+	}
+
+	private void submitDirectory(String pathFromRoot, File inputDirectory, File rootOutputFile, Executor executor,
+		DirectoryState state, List<PendingFile> pendingFiles) {
+		for (File child : inputDirectory.listFiles()) {
+			String childPathFromRoot = childPath(pathFromRoot, child);
+
+			// As with the serial walk, directories are not transformed.
+
+			if (child.isDirectory()) {
+				submitDirectory(childPathFromRoot, child, rootOutputFile, executor, state, pendingFiles);
+			} else {
+				pendingFiles.add(new PendingFile(childPathFromRoot, CompletableFuture
+					.supplyAsync(() -> transformFileTask(childPathFromRoot, child, rootOutputFile, state), executor)));
+			}
+		}
+	}
+
+	/**
+	 * Transform a single file as a task of the file executor. The file is
+	 * transformed with recording started on the task thread, so that the
+	 * changes to the file are recorded into changes which are private to the
+	 * task.
+	 *
+	 * @return The changes to the file.
+	 */
+	private ContainerChangesImpl transformFileTask(String pathFromRoot, File inputFile, File rootOutputFile,
+		DirectoryState state) {
+		startRecording(pathFromRoot);
+		try {
+			transformFile(pathFromRoot, inputFile, rootOutputFile, state);
+		} finally {
+			stopRecording(pathFromRoot);
+		}
+		return getLastActiveChanges();
+	}
+
+	/**
+	 * Transform a single file, skipping the file if the directory is being
+	 * transformed incrementally and the file is unchanged since it was last
+	 * transformed.
+	 * <p>
+	 * A skipped file is recorded as unchanged. A file is added to the state
+	 * only when the file is transformed without errors, so that a file which
+	 * failed to transform is transformed again by the next transformation.
+	 */
+	private void transformFile(String pathFromRoot, File inputFile, File rootOutputFile, DirectoryState state) {
+		if (state == null) {
+			transformFile(pathFromRoot, inputFile, rootOutputFile);
+		} else if (state.isUnchanged(pathFromRoot, inputFile)) {
+			recordSkipped(pathFromRoot, inputFile);
+		} else {
+			String outputPathFromRoot = transformFileInto(pathFromRoot, inputFile, rootOutputFile);
+			if (outputPathFromRoot != null) {
+				state.recordTransformed(pathFromRoot, inputFile, outputPathFromRoot);
+			}
+		}
+	}
+
+	private void recordSkipped(String pathFromRoot, File inputFile) {
+		Action action = selectAction(pathFromRoot, inputFile);
+		if (action == null) {
+			recordUnaccepted(pathFromRoot);
+		} else if (!selectResource(pathFromRoot)) {
+			recordUnselected(pathFromRoot);
+		} else {
+			getLogger().debug("Resource [ {} ]: Unchanged since the last transformation", pathFromRoot);
+			recordUnchanged(action, pathFromRoot);
+		}
+	}
+
 	// TODO: Add duplicate checking when --overwrite is not enabled.
 	//
 	// See issue #306.
@@ -143,17 +349,33 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 	 * @param rootOutputFile The root output file.
 	 */
 	protected void transformFile(String pathFromRoot, File inputFile, File rootOutputFile) {
+		transformFileInto(pathFromRoot, inputFile, rootOutputFile);
+	}
+
+	/**
+	 * Transform a single file which is known to not be a directory. See
+	 * {@link #transformFile(String, File, File)}.
+	 *
+	 * @return The path from the root of the output file. Null if the file
+	 *         failed to transform, or if the file is an archive and one or
+	 *         more entries of the archive failed to transform.
+	 */
+	private String transformFileInto(String pathFromRoot, File inputFile, File rootOutputFile) {
 		Action action = selectAction(pathFromRoot, inputFile);
+		SelectionRule.Selection selection = (action != null) ? resourceSelection(pathFromRoot) : null;
 		try {
 			if (action == null) {
 				copyInto(pathFromRoot, inputFile, rootOutputFile);
 				recordUnaccepted(pathFromRoot);
-			} else if (!selectResource(pathFromRoot)) {
+				return pathFromRoot;
+
+			} else if (!selection.selected()) {
 				// Unselected resources are *not* renamed.
 				// The expectation is that files which are deliberately
 				// omitted should not be transformed in any way.
 				copyInto(pathFromRoot, inputFile, rootOutputFile);
 				recordUnselected(pathFromRoot);
+				return pathFromRoot;
 
 			} else if (action.isRenameAction()) {
 				RenameAction renameAction = (RenameAction) action;
@@ -161,6 +383,7 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 				outputPathFromRoot = FileUtils.sanitize(outputPathFromRoot);
 				copyInto(pathFromRoot, inputFile, rootOutputFile, outputPathFromRoot);
 				recordAction(action, pathFromRoot);
+				return outputPathFromRoot;
 
 			} else if (action.isArchiveAction()) {
 				ZipActionImpl zipAction = (ZipActionImpl) action;
@@ -171,6 +394,8 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 
 				zipAction.apply(pathFromRoot, inputFile, outputPathFromRoot, outputFile);
 				recordAction(zipAction, pathFromRoot);
+				return (zipAction.getLastActiveChanges()
+					.getAllFailed() == 0) ? outputPathFromRoot : null;
 
 			} else if (!action.isElementAction()) {
 				getLogger().warn("Strange: Unknown action type [ {} ] for [ {} ]", action.getClass()
@@ -178,21 +403,25 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 
 				copyInto(pathFromRoot, inputFile, rootOutputFile);
 				recordUnaccepted(pathFromRoot);
+				return pathFromRoot;
 
 			} else {
 				ElementAction elementAction = (ElementAction) action;
-				transformFile(elementAction, pathFromRoot, inputFile, rootOutputFile);
+				String outputPathFromRoot = transformFile(elementAction, pathFromRoot, inputFile, rootOutputFile,
+					selection.charset());
 				recordAction(elementAction, pathFromRoot);
+				return outputPathFromRoot;
 			}
 
 		} catch (Throwable th) {
 			recordError(action, pathFromRoot, th);
+			return null;
 		}
 	}
 
-	private void transformFile(ElementAction elementAction, String inputName, File inputFile, File outputRoot)
-		throws TransformException {
-		ByteData inputData = collect(inputName, inputFile);
+	private String transformFile(ElementAction elementAction, String inputName, File inputFile, File outputRoot,
+		Charset charset) throws TransformException {
+		ByteData inputData = collect(inputName, inputFile, charset);
 
 		ByteData outputData;
 		TransformException transformError;
@@ -205,10 +434,16 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 		}
 
 		File outputFile = new File(outputRoot, outputData.name());
-		write(outputData, outputFile);
+		try {
+			write(outputData, outputFile);
+		} finally {
+			outputData.release();
+			inputData.release();
+		}
 
 		if (transformError != null) {
 			throw transformError;
 		}
+		return outputData.name();
 	}
 }
@@ -0,0 +1,341 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.util.FileUtils;
+import org.slf4j.Logger;
+
+/**
+ * State of an incremental directory transformation.
+ * <p>
+ * The state is stored in a properties file in the output root. For each input
+ * file which was transformed, the state records the path of the input file
+ * from the input root, the size, last modified time, and content digest of the
+ * input file, and the path of the output file from the output root. The state
+ * also records a fingerprint of the rules used by the transformation.
+ * <p>
+ * An input file is unchanged when the state has the input file, the rules
+ * fingerprint is unchanged, the output file exists, and the input file has the
+ * same size and either the same last modified time or the same content digest.
+ * The content digest is computed only when the last modified time differs.
+ * <p>
+ * Input files are checked and recorded by file tasks, which may run
+ * concurrently. The state is loaded before the directory is walked, and is
+ * saved after all files have been transformed.
+ */
+final class DirectoryState {
+	/** Name of the state file, which is written in the output root. */
+	static final String			STATE_FILE_NAME	= ".transformer-state.properties";
+
+	// Input paths are relative, and never start with a slash.
+
+	private static final String	VERSION_KEY		= "/version";
+	private static final String	VERSION			= "1";
+	private static final String	RULES_KEY		= "/rules";
+
+	/**
+	 * The state of a single input file.
+	 *
+	 * @param size The size of the input file.
+	 * @param lastModified The last modified time of the input file.
+	 * @param digest The digest of the content of the input file.
+	 * @param outputPath The path of the output file from the output root.
+	 */
+	record FileState(long size, long lastModified, String digest, String outputPath) {
+		static FileState parse(String text) {
+			String[] parts = text.split(",", 4);
+			if (parts.length != 4) {
+				return null;
+			}
+			try {
+				return new FileState(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2], parts[3]);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		String format() {
+			return size + "," + lastModified + "," + digest + "," + outputPath;
+		}
+	}
+
+	/**
+	 * Load the state of a directory transformation. A missing state file, or a
+	 * state file which cannot be read, is loaded as an empty state.
+	 *
+	 * @param logger The logger used to report state problems.
+	 * @param rootOutputFile The output root, which holds the state file.
+	 * @param rulesFingerprint The fingerprint of the rules used by the
+	 *            transformation.
+	 * @return The loaded state.
+	 */
+	static DirectoryState load(Logger logger, File rootOutputFile, String rulesFingerprint) {
+		File stateFile = new File(rootOutputFile, STATE_FILE_NAME);
+		Map<String, FileState> priorFiles = new HashMap<>();
+		boolean sameRules = false;
+
+		if (stateFile.isFile()) {
+			Properties properties = new Properties();
+			try (InputStream inputStream = IO.stream(stateFile)) {
+				properties.load(inputStream);
+			} catch (IOException e) {
+				logger.warn("Incremental state [ {} ] cannot be read: All files will be transformed",
+					stateFile.getAbsolutePath(), e);
+				properties.clear();
+			}
+
+			if (VERSION.equals(properties.getProperty(VERSION_KEY))) {
+				sameRules = rulesFingerprint.equals(properties.getProperty(RULES_KEY));
+				for (String inputPath : properties.stringPropertyNames()) {
+					if (inputPath.startsWith("/")) {
+						continue;
+					}
+					FileState fileState = FileState.parse(properties.getProperty(inputPath));
+					if (fileState == null) {
+						continue;
+					}
+					if (!isOutputPath(rootOutputFile, fileState.outputPath())) {
+						logger.warn("Incremental state [ {} ]: Output [ {} ] of [ {} ] is not under the output root",
+							stateFile.getAbsolutePath(), fileState.outputPath(), inputPath);
+						continue;
+					}
+					priorFiles.put(inputPath, fileState);
+				}
+				if (!sameRules) {
+					logger.info("Incremental state [ {} ]: Rules changed: All files will be transformed",
+						stateFile.getAbsolutePath());
+				}
+			} else if (!properties.isEmpty()) {
+				logger.warn("Incremental state [ {} ] has an unknown format: All files will be transformed",
+					stateFile.getAbsolutePath());
+			}
+		}
+
+		return new DirectoryState(logger, rootOutputFile, stateFile, rulesFingerprint, priorFiles, sameRules);
+	}
+
+	/**
+	 * Tell if an output path is a path under the output root. An output path
+	 * which is absolute, or which leads out of the output root, or which is
+	 * the output root, is not.
+	 *
+	 * @param rootOutputFile The output root.
+	 * @param outputPath The path of an output file from the output root.
+	 * @return True or false telling if the output path is under the output
+	 *         root.
+	 */
+	static boolean isOutputPath(File rootOutputFile, String outputPath) {
+		Path rootPath = rootOutputFile.toPath()
+			.toAbsolutePath()
+			.normalize();
+		Path outputFilePath;
+		try {
+			outputFilePath = rootPath.resolve(outputPath)
+				.normalize();
+		} catch (InvalidPathException e) {
+			return false;
+		}
+		return outputFilePath.startsWith(rootPath) && !outputFilePath.equals(rootPath);
+	}
+
+	private DirectoryState(Logger logger, File rootOutputFile, File stateFile, String rulesFingerprint,
+		Map<String, FileState> priorFiles, boolean sameRules) {
+		this.logger = logger;
+		this.rootOutputFile = rootOutputFile;
+		this.stateFile = stateFile;
+		this.rulesFingerprint = rulesFingerprint;
+		this.priorFiles = priorFiles;
+		this.sameRules = sameRules;
+		this.currentFiles = new ConcurrentHashMap<>();
+		this.seenFiles = ConcurrentHashMap.newKeySet();
+	}
+
+	private final Logger					logger;
+	private final File						rootOutputFile;
+	private final File						stateFile;
+	private final String					rulesFingerprint;
+
+	/** The files recorded by the prior transformation. */
+	private final Map<String, FileState>	priorFiles;
+	/** Tell if the prior transformation used the same rules. */
+	private final boolean					sameRules;
+
+	/** The files recorded by this transformation. */
+	private final Map<String, FileState>	currentFiles;
+	/** The input files which were walked by this transformation. */
+	private final Set<String>				seenFiles;
+
+	/**
+	 * Tell if an input file is unchanged since it was last transformed. An
+	 * unchanged file is carried forward into the current state.
+	 *
+	 * @param inputPath The path of the input file from the input root.
+	 * @param inputFile The input file.
+	 * @return True or false telling if the input file is unchanged.
+	 */
+	boolean isUnchanged(String inputPath, File inputFile) {
+		seenFiles.add(inputPath);
+
+		FileState priorState = priorFiles.get(inputPath);
+		if ((priorState == null) || !sameRules) {
+			return false;
+		}
+		if (!new File(rootOutputFile, priorState.outputPath()).isFile()) {
+			return false;
+		}
+
+		long size = inputFile.length();
+		if (size != priorState.size()) {
+			return false;
+		}
+
+		long lastModified = inputFile.lastModified();
+		if (lastModified == priorState.lastModified()) {
+			currentFiles.put(inputPath, priorState);
+			return true;
+		}
+
+		String digest;
+		try {
+			digest = FileUtils.digest(inputFile);
+		} catch (IOException e) {
+			return false;
+		}
+		if (!digest.equals(priorState.digest())) {
+			return false;
+		}
+		currentFiles.put(inputPath, new FileState(size, lastModified, digest, priorState.outputPath()));
+		return true;
+	}
+
+	/**
+	 * Record an input file which was transformed. The file is not recorded if
+	 * its digest cannot be computed, in which case the file will be
+	 * transformed again by the next transformation.
+	 *
+	 * @param inputPath The path of the input file from the input root.
+	 * @param inputFile The input file.
+	 * @param outputPath The path of the output file from the output root.
+	 */
+	void recordTransformed(String inputPath, File inputFile, String outputPath) {
+		seenFiles.add(inputPath);
+
+		long size = inputFile.length();
+		long lastModified = inputFile.lastModified();
+		String digest;
+		try {
+			digest = FileUtils.digest(inputFile);
+		} catch (IOException e) {
+			logger.warn("Incremental state: Input [ {} ] cannot be digested", inputFile.getAbsolutePath(), e);
+			return;
+		}
+		currentFiles.put(inputPath, new FileState(size, lastModified, digest, outputPath));
+	}
+
+	/**
+	 * Remove the output files of input files which were deleted since the
+	 * prior transformation. An output file is not removed if it is written for
+	 * a current input file. Output directories which are emptied are also
+	 * removed.
+	 *
+	 * @return The number of removed output files.
+	 */
+	int removeDeleted() {
+		Set<String> currentOutputs = new HashSet<>();
+		for (FileState fileState : currentFiles.values()) {
+			currentOutputs.add(fileState.outputPath());
+		}
+
+		int removed = 0;
+		for (Map.Entry<String, FileState> priorEntry : priorFiles.entrySet()) {
+			if (seenFiles.contains(priorEntry.getKey())) {
+				continue;
+			}
+			String outputPath = priorEntry.getValue()
+				.outputPath();
+			if (currentOutputs.contains(outputPath)) {
+				continue;
+			}
+			if (!isOutputPath(rootOutputFile, outputPath)) {
+				logger.warn("Output [ {} ] of deleted input [ {} ] is not under the output root: Not removing",
+					outputPath, priorEntry.getKey());
+				continue;
+			}
+
+			File outputFile = new File(rootOutputFile, outputPath);
+			if (!outputFile.isFile()) {
+				continue;
+			}
+			logger.debug("Input [ {} ] was deleted: Removing output [ {} ]", priorEntry.getKey(), outputPath);
+			try {
+				Files.delete(outputFile.toPath());
+			} catch (IOException e) {
+				logger.warn("Output [ {} ] of deleted input [ {} ] cannot be removed", outputFile.getAbsolutePath(),
+					priorEntry.getKey(), e);
+				continue;
+			}
+			removed++;
+
+			for (File parent = outputFile.getParentFile(); !parent.equals(rootOutputFile)
+				&& parent.delete(); parent = parent.getParentFile()) {
+				// Remove emptied output directories.
+			}
+		}
+
+		if (removed > 0) {
+			logger.info("Incremental state: Removed [ {} ] outputs of deleted inputs", removed);
+		}
+		return removed;
+	}
+
+	/**
+	 * Save the current state. The state is written to a temporary file which
+	 * then replaces the state file, so that an interrupted save does not leave
+	 * a partial state file. A failure to save the state is logged: The next
+	 * transformation will transform all files.
+	 */
+	void save() {
+		Properties properties = new Properties();
+		properties.setProperty(VERSION_KEY, VERSION);
+		properties.setProperty(RULES_KEY, rulesFingerprint);
+		currentFiles.forEach((inputPath, fileState) -> properties.setProperty(inputPath, fileState.format()));
+
+		File tempFile = new File(rootOutputFile, STATE_FILE_NAME + ".tmp");
+		try {
+			IO.mkdirs(rootOutputFile);
+			try (OutputStream outputStream = IO.outputStream(tempFile)) {
+				properties.store(outputStream, "Eclipse Transformer incremental state");
+			}
+			Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.error("Incremental state [ {} ] cannot be written", stateFile.getAbsolutePath(), e);
+			IO.delete(tempFile);
+		}
+	}
+}
@@ -11,12 +11,21 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.function.UnaryOperator;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.action.ElementAction;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.LineCursor;
+import org.eclipse.transformer.util.PooledOutputStream;
 
 public abstract class ElementActionImpl extends ActionImpl implements ElementAction {
 
@@ -61,6 +70,11 @@ public abstract class ElementActionImpl extends ActionImpl implements ElementAct
 		return matchResourceName(resourceName);
 	}
 
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return getActionType().getExtensions();
+	}
+
 	// Entry from the transformer, and from the directory action.
 
 	@Override
@@ -77,7 +91,12 @@ public abstract class ElementActionImpl extends ActionImpl implements ElementAct
 			transformError = t;
 		}
 
-		write(outputData, outputFile);
+		try {
+			write(outputData, outputFile);
+		} finally {
+			outputData.release();
+			inputData.release();
+		}
 
 		if (transformError != null) {
 			throw transformError;
@@ -110,13 +129,74 @@ public abstract class ElementActionImpl extends ActionImpl implements ElementAct
 		}
 
 		File outputFile = new File(outputRoot, outputData.name());
-		write(outputData, outputFile);
+		try {
+			write(outputData, outputFile);
+		} finally {
+			outputData.release();
+			inputData.release();
+		}
 
 		if (transformError != null) {
 			throw transformError;
 		}
 	}
 
+	/**
+	 * Transform the lines of a resource which is held in memory. The resource
+	 * is decoded once, and lines are scanned in the decoded characters. A
+	 * string is created only for the text of each line. Unchanged lines and
+	 * line separators are copied from the decoded characters.
+	 *
+	 * @param inputName The name of the resource.
+	 * @param inputData The resource data.
+	 * @param lineUpdate Update of the text of one line. Answers null if the
+	 *            line is not changed.
+	 * @return The transformed data. Null if no line was changed.
+	 * @throws TransformException Thrown if the transformed data could not be
+	 *             written.
+	 */
+	static PooledOutputStream transformLines(String inputName, ByteData inputData, UnaryOperator<String> lineUpdate)
+		throws TransformException {
+		Charset charset = inputData.charset();
+		// Decoding answers a buffer which has an array.
+		CharBuffer chars = charset.decode(inputData.buffer());
+		char[] array = chars.array();
+		int offset = chars.arrayOffset();
+
+		PooledOutputStream outputStream = null;
+		BufferedWriter writer = null;
+		int copyStart = chars.position(); // The first character which is not yet written.
+
+		try {
+			LineCursor lines = LineCursor.of(chars);
+			while (lines.next()) {
+				int lineStart = lines.start();
+				int lineEnd = lines.end();
+				String outputLine = lineUpdate.apply(new String(array, offset + lineStart, lineEnd - lineStart));
+				if (outputLine != null) {
+					if (writer == null) {
+						outputStream = new PooledOutputStream(inputData.length());
+						writer = FileUtils.writer(outputStream, charset);
+					}
+					writer.write(array, offset + copyStart, lineStart - copyStart);
+					writer.write(outputLine);
+					copyStart = lineEnd;
+				}
+			}
+
+			if (writer != null) {
+				writer.write(array, offset + copyStart, chars.limit() - copyStart);
+				writer.close();
+			}
+		} catch (IOException e) {
+			if (outputStream != null) {
+				outputStream.release();
+			}
+			throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+		}
+		return outputStream;
+	}
+
 	// Main implementation point: Each element action is expected to implement.
 	@Override
 	public abstract ByteData apply(ByteData inputData) throws TransformException;
@@ -0,0 +1,172 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ByteData;
+
+/**
+ * Byte data which is stored in a file instead of in memory.
+ * <p>
+ * Streaming the data, and writing the data, read the file. The data is only
+ * read into a buffer when {@link #buffer()} is called, in which case the file
+ * is mapped into memory, which does not use heap space.
+ * <p>
+ * A temporary file is shared by the byte data and by all of its copies. The
+ * file is deleted when the byte data is released, or when neither the byte
+ * data nor any of its copies is reachable.
+ */
+public class FileByteDataImpl implements ByteData {
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	/**
+	 * Associate a name with byte data which is stored in a file.
+	 *
+	 * @param name A name associated with the data.
+	 * @param file The file which stores the data.
+	 * @param length The length of the file.
+	 * @param charset The charset for the byte data.
+	 * @param temporary Tell if the file is a temporary file, which is to be
+	 *            deleted when the data is released or is no longer reachable.
+	 */
+	public FileByteDataImpl(String name, Path file, int length, Charset charset, boolean temporary) {
+		this.name = name;
+		this.storage = new Storage(file, length);
+		this.charset = charset;
+		this.cleanable = temporary ? CLEANER.register(storage, () -> IO.delete(file)) : null;
+	}
+
+	private FileByteDataImpl(String name, Storage storage, Charset charset) {
+		this.name = name;
+		this.storage = storage;
+		this.charset = charset;
+		this.cleanable = null;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "(name=\"" + name + "\", file=" + storage.file + ", length=" + storage.length
+			+ ", charset=" + charset + ")";
+	}
+
+	private final String			name;
+	private final Storage			storage;
+	private final Charset			charset;
+	/** Deletes a temporary file. Null for copies, and for other files. */
+	private final Cleaner.Cleanable	cleanable;
+
+	/**
+	 * The file of byte data, which is shared by copies of the data.
+	 */
+	private static final class Storage {
+		Storage(Path file, int length) {
+			this.file = file;
+			this.length = length;
+		}
+
+		final Path			file;
+		final int			length;
+		private ByteBuffer	mapped;
+
+		synchronized ByteBuffer map() {
+			if (mapped == null) {
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, length);
+				} catch (IOException e) {
+					throw new TransformException("Failed to map [ " + file + " ]", e);
+				}
+			}
+			return mapped;
+		}
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	public Path file() {
+		return storage.file;
+	}
+
+	@Override
+	public ByteBuffer buffer() {
+		return storage.map()
+			.duplicate();
+	}
+
+	@Override
+	public int length() {
+		return storage.length;
+	}
+
+	//
+
+	@Override
+	public InputStream stream() {
+		try {
+			return IO.stream(storage.file);
+		} catch (IOException e) {
+			throw new TransformException("Failed to read [ " + storage.file + " ]", e);
+		}
+	}
+
+	@Override
+	public Reader reader() {
+		return IO.reader(stream(), charset());
+	}
+
+	@Override
+	public Charset charset() {
+		return charset;
+	}
+
+	@Override
+	public OutputStream writeTo(OutputStream outputStream) throws IOException {
+		Files.copy(storage.file, outputStream);
+		return outputStream;
+	}
+
+	//
+
+	@Override
+	public FileByteDataImpl copy() {
+		return copy(name);
+	}
+
+	@Override
+	public FileByteDataImpl copy(String name) {
+		return new FileByteDataImpl(name, storage, charset());
+	}
+
+	//
+
+	@Override
+	public void release() {
+		if (cleanable != null) {
+			cleanable.clean();
+		}
+	}
+}
@@ -50,6 +50,17 @@ public class JSPActionImpl extends TextActionImpl {
 		return replacements;
 	}
 
+	@Override
+	protected void addReplacementKeys(SignatureRule signatureRule, List<String> keys) {
+		super.addReplacementKeys(signatureRule, keys);
+		if ( !signatureRule.getPackageRenames().isEmpty() ) {
+			addPackageRenameKeys(signatureRule, keys);
+		}
+		if ( !signatureRule.getDirectGlobalUpdates().isEmpty() ) {
+			keys.addAll(signatureRule.getDirectGlobalUpdates().keySet());
+		}
+	}
+
 	//
 
 	@Override
@@ -63,4 +74,9 @@ public class JSPActionImpl extends TextActionImpl {
 	public boolean acceptResource(String resourceName, File resourceFile) {
 		return matchResourceName(resourceName);
 	}
+
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return getActionType().getExtensions();
+	}
 }
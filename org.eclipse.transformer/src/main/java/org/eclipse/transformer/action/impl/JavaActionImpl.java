@@ -45,7 +45,7 @@ public class JavaActionImpl extends TextActionImpl {
 		}
 
 		if ( !signatureRule.getDirectPerClassUpdates().isEmpty() ) {
-			replacements.add(this::directPerClassUpdate_java);
+			replacements.add((ResourceReplacement) this::bindDirectPerClassUpdate_java);
 		}
 		if ( !signatureRule.getDirectGlobalUpdates().isEmpty() ) {
 			replacements.add(this::directGlobalUpdate);
@@ -54,6 +54,20 @@ public class JavaActionImpl extends TextActionImpl {
 		return replacements;
 	}
 
+	@Override
+	protected void addReplacementKeys(SignatureRule signatureRule, List<String> keys) {
+		super.addReplacementKeys(signatureRule, keys);
+		if ( !signatureRule.getPackageRenames().isEmpty() ) {
+			addPackageRenameKeys(signatureRule, keys);
+		}
+		signatureRule.getDirectPerClassUpdates()
+			.values()
+			.forEach(updates -> keys.addAll(updates.keySet()));
+		if ( !signatureRule.getDirectGlobalUpdates().isEmpty() ) {
+			keys.addAll(signatureRule.getDirectGlobalUpdates().keySet());
+		}
+	}
+
 	//
 
 	@Override
@@ -67,4 +81,9 @@ public class JavaActionImpl extends TextActionImpl {
 	public boolean acceptResource(String resourceName, File resourceFile) {
 		return matchResourceName(resourceName);
 	}
+
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return getActionType().getExtensions();
+	}
 }
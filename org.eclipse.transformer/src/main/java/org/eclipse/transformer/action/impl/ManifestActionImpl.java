@@ -11,10 +11,6 @@
 
 package org.eclipse.transformer.action.impl;
 
-import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
-import static org.eclipse.transformer.util.SignatureUtils.packageMatch;
-import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
-
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
@@ -28,13 +24,13 @@ import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
 import aQute.bnd.header.Parameters;
 import aQute.bnd.unmodifiable.Sets;
-import aQute.lib.io.ByteBufferOutputStream;
 import aQute.lib.manifest.ManifestUtil;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.util.PooledOutputStream;
 
 /**
  * Action for manifest, including feature manifest.
@@ -99,14 +95,15 @@ public class ManifestActionImpl extends ElementActionImpl {
 			}
 
 			Charset charset = inputData.charset();
-			ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputData.length());
+			PooledOutputStream outputStream = new PooledOutputStream(inputData.length());
 			try {
 				write(finalManifest, outputStream);
 			} catch (IOException e) {
+				outputStream.release();
 				throw new TransformException("Failed to write manifest [ " + inputData.name() + " ]", e);
 			}
 
-			ByteData outputData = new ByteDataImpl(inputData.name(), outputStream.toByteBuffer(), charset);
+			ByteData outputData = outputStream.toByteData(inputData.name(), charset);
 			getLogger().debug("[ {}.{} ]: Final [ {} ]", className, methodName, outputData);
 			return outputData;
 		} finally {
@@ -277,56 +274,13 @@ public class ManifestActionImpl extends ElementActionImpl {
 	 *         replacements were performed.
 	 */
 	protected String replacePackages(String attributeName, String text) {
-		String initialText = text;
-
-		for ( Map.Entry<String, String> renameEntry : getPackageRenames().entrySet() ) {
-			String key = renameEntry.getKey(); // Package name match data.
-
-			boolean matchPackageStem = containsWildcard(key);
-			if (matchPackageStem) {
-				key = stripWildcard(key);
-			}
-
-			final int keyLen = key.length();
-			int textLimit = text.length() - keyLen;
-
-			for (int matchEnd = 0; matchEnd <= textLimit;) {
-				final int matchStart = text.indexOf(key, matchEnd);
-				if ( matchStart == -1 ) {
-					break;
-				}
-
-				matchEnd = matchStart + keyLen;
-				int packageEnd = packageMatch(text, matchStart, matchEnd, matchPackageStem);
-				if (packageEnd == -1) {
-					continue;
-				}
-
-				String value = renameEntry.getValue();
-				if (matchEnd < packageEnd) {
-					value = value.concat(text.substring(matchEnd, packageEnd));
-				}
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(packageEnd);
-
-				String newVersion = replacePackageVersion(attributeName, value, tail);
-				if (newVersion != null) {
-					tail = replacePackageVersion(tail, newVersion);
-				}
-
-				text = head + value + tail;
-
-				matchEnd = matchStart + value.length();
-				textLimit = text.length() - keyLen;
+		return replacePackages(text, (packageName, tail) -> {
+			String newVersion = replacePackageVersion(attributeName, packageName, tail);
+			if (newVersion == null) {
+				return null;
 			}
-		}
-
-		if (initialText == text) {
-			return null;
-		} else {
-			return text;
-		}
+			return replacePackageVersion(tail, newVersion);
+		});
 	}
 
 	// DynamicImport-Package: com.ibm.websphere.monitor.meters;version="1.0.0
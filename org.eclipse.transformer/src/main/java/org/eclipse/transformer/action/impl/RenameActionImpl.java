@@ -44,6 +44,11 @@ public class RenameActionImpl extends ElementActionImpl implements RenameAction
 		return true;
 	}
 
+	@Override
+	public boolean selectsBySimpleName() {
+		return true;
+	}
+
 	//
 
 	@Override
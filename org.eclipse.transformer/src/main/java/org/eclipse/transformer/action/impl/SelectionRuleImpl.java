@@ -19,6 +19,7 @@ import java.util.Map;
 
 import aQute.bnd.unmodifiable.Maps;
 import org.eclipse.transformer.action.SelectionRule;
+import org.eclipse.transformer.util.NameMatcher;
 import org.slf4j.Logger;
 
 public class SelectionRuleImpl implements SelectionRule {
@@ -93,7 +94,7 @@ public class SelectionRuleImpl implements SelectionRule {
 
 	@Override
 	public boolean select(String resourceName) {
-		return selectIncluded(resourceName) && !rejectExcluded(resourceName);
+		return selection(resourceName).selected();
 	}
 
 	@Override
@@ -139,40 +140,65 @@ public class SelectionRuleImpl implements SelectionRule {
 		return DEFAULT_CHARSET;
 	}
 
+	@Override
+	public Selection selection(String resourceName) {
+		Map.Entry<String, Charset> includeMatch = (included == null) ? null : included.match(resourceName);
+		Map.Entry<String, Charset> excludeMatch = (excluded == null) ? null : excluded.match(resourceName);
+
+		boolean isIncluded = (included == null) || (includeMatch != null);
+		boolean isExcluded = (excludeMatch != null);
+		Charset charset = (includeMatch != null) ? includeMatch.getValue() : DEFAULT_CHARSET;
+
+		Logger useLogger = getLogger();
+		if (useLogger.isDebugEnabled()) {
+			if (!isIncluded) {
+				useLogger.debug("Do not include [ {} ]", resourceName);
+			} else if (isExcluded) {
+				useLogger.debug("Exclude [ {} ]: {}", resourceName, excludeMatch.getKey());
+			} else {
+				useLogger.debug("Select [ {} ]: {}", resourceName,
+					(includeMatch != null) ? includeMatch : "*=UTF-8 (No includes)");
+			}
+		}
+
+		return new Selection(isIncluded, isExcluded, charset);
+	}
+
+	/**
+	 * Compiled selections. Exact selections are held in a map. Selections
+	 * which match the end, the start, or the middle of resource names are
+	 * compiled into a reversed suffix trie, a prefix trie, and an
+	 * Aho-Corasick automaton. See {@link NameMatcher}.
+	 */
 	static class MatchSet {
 		MatchSet(Map<String, Charset> exact, Map<String, Charset> head, Map<String, Charset> tail, Map<String, Charset> middle, Charset all) {
 			this.exact = Maps.copyOf(exact);
-			this.head = Maps.copyOf(head);
-			this.tail = Maps.copyOf(tail);
-			this.middle = Maps.copyOf(middle);
+			this.head = head.isEmpty() ? null : NameMatcher.suffixes(head);
+			this.tail = tail.isEmpty() ? null : NameMatcher.prefixes(tail);
+			this.middle = middle.isEmpty() ? null : NameMatcher.infixes(middle);
 			this.all = all;
 		}
 
-		private final Map<String, Charset> exact;
-		private final Map<String, Charset> head;
-		private final Map<String, Charset> tail;
-		private final Map<String, Charset> middle;
-		private final Charset all;
+		private final Map<String, Charset>	exact;
+		private final NameMatcher<Charset>	head;
+		private final NameMatcher<Charset>	tail;
+		private final NameMatcher<Charset>	middle;
+		private final Charset				all;
 
 		Map.Entry<String, Charset> match(String resourceName) {
 			Charset charset = exact.get(resourceName);
 			if (charset != null) {
 				return Maps.entry(resourceName, charset);
 			}
-			for (Map.Entry<String, Charset> entry : head.entrySet()) {
-				if (resourceName.endsWith(entry.getKey())) {
-					return entry;
-				}
+			Map.Entry<String, Charset> match;
+			if ((head != null) && ((match = head.match(resourceName)) != null)) {
+				return match;
 			}
-			for (Map.Entry<String, Charset> entry : tail.entrySet()) {
-				if (resourceName.startsWith(entry.getKey())) {
-					return entry;
-				}
+			if ((tail != null) && ((match = tail.match(resourceName)) != null)) {
+				return match;
 			}
-			for (Map.Entry<String, Charset> entry : middle.entrySet()) {
-				if (resourceName.contains(entry.getKey())) {
-					return entry;
-				}
+			if ((middle != null) && ((match = middle.match(resourceName)) != null)) {
+				return match;
 			}
 			if (all != null) {
 				return Maps.entry("*", all);
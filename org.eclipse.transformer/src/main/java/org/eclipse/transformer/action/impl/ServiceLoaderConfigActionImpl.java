@@ -15,14 +15,15 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.List;
 
-import aQute.lib.io.ByteBufferOutputStream;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.LineSeparatorBufferedReader;
+import org.eclipse.transformer.util.PooledOutputStream;
 
 /**
  * Transform service configuration bytes. Per:
@@ -84,6 +85,11 @@ public class ServiceLoaderConfigActionImpl extends ElementActionImpl {
 		return resourceName.contains(META_INF_SERVICES) && !resourceName.endsWith(META_INF_SERVICES);
 	}
 
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return null;
+	}
+
 	//
 
 	@Override
@@ -99,21 +105,27 @@ public class ServiceLoaderConfigActionImpl extends ElementActionImpl {
 			}
 			setResourceNames(inputName, outputName);
 
-			ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputData.length());
-
 			Charset charset = inputData.charset();
-			try (LineSeparatorBufferedReader reader = new LineSeparatorBufferedReader(inputData.reader()); BufferedWriter writer = FileUtils.writer(outputStream, charset)) {
-				transform(reader, writer);
-			} catch (IOException e) {
-				throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+			PooledOutputStream outputStream;
+			if (inputData.length() <= getContext().spillThreshold()) {
+				outputStream = transformLines(inputName, inputData, this::transformLine);
+			} else {
+				outputStream = new PooledOutputStream(inputData.length());
+				try (LineSeparatorBufferedReader reader = new LineSeparatorBufferedReader(inputData.reader()); BufferedWriter writer = FileUtils.writer(outputStream, charset)) {
+					transform(reader, writer);
+				} catch (IOException e) {
+					outputStream.release();
+					throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+				}
 			}
 
-			if (!isChanged()) {
-				return inputData;
-			} else if (!isContentChanged()) {
-				return inputData.copy(outputName);
+			if (!isContentChanged()) {
+				if (outputStream != null) {
+					outputStream.release();
+				}
+				return isChanged() ? inputData.copy(outputName) : inputData;
 			} else {
-				return new ByteDataImpl(outputName, outputStream.toByteBuffer(), charset);
+				return outputStream.toByteData(outputName, charset);
 			}
 
 		} finally {
@@ -123,85 +135,96 @@ public class ServiceLoaderConfigActionImpl extends ElementActionImpl {
 
 	protected void transform(LineSeparatorBufferedReader reader, BufferedWriter writer) throws IOException {
 		for (String inputLine; (inputLine = reader.readLine()) != null; writer.write(reader.lineSeparator())) {
-			// Goal is to find the input package name. Find it by
-			// successively taking text off of the input line.
+			String outputLine = transformLine(inputLine);
+			writer.write((outputLine != null) ? outputLine : inputLine);
+		}
+	}
 
-			String inputPackageName;
+	/**
+	 * Transform one line of a configuration.
+	 *
+	 * @param inputLine The line which is to be transformed.
+	 * @return The transformed line. Null if the line was not changed.
+	 */
+	protected String transformLine(String inputLine) {
+		// Goal is to find the input package name. Find it by
+		// successively taking text off of the input line.
+
+		String inputPackageName;
+
+		// The first '#' and all following characters are ignored.
+
+		int poundLocation = inputLine.indexOf('#');
+		if (poundLocation != -1) {
+			inputPackageName = inputLine.substring(0, poundLocation);
+		} else {
+			inputPackageName = inputLine;
+		}
 
-			// The first '#' and all following characters are ignored.
+		// Leading and trailing whitespace which surrounds the fully
+		// qualified name is ignored. This step must be done after
+		// trimming off a comment, since the trim must be of immediately
+		// surrounding whitespace.
 
-			int poundLocation = inputLine.indexOf('#');
-			if (poundLocation != -1) {
-				inputPackageName = inputLine.substring(0, poundLocation);
-			} else {
-				inputPackageName = inputLine;
-			}
-
-			// Leading and trailing whitespace which surrounds the fully
-			// qualified name is ignored. This step must be done after
-			// trimming off a comment, since the trim must be of immediately
-			// surrounding whitespace.
+		inputPackageName = inputPackageName.trim();
 
-			inputPackageName = inputPackageName.trim();
+		// Renames are performed on package names. Per the documentation,
+		// the values are fully qualified class names.
 
-			// Renames are performed on package names. Per the documentation,
-			// the values are fully qualified class names.
+		int dotLocation;
+		String outputPackageName;
 
-			int dotLocation;
-			String outputPackageName;
+		if (inputPackageName.isEmpty()) {
+			// The line was either entirely blank space, or was just
+			// comment. There is no package to rename.
+			dotLocation = -1;
+			outputPackageName = null;
 
-			if (inputPackageName.isEmpty()) {
-				// The line was either entirely blank space, or was just
-				// comment. There is no package to rename.
-				dotLocation = -1;
+		} else {
+			dotLocation = inputPackageName.lastIndexOf('.');
+			if (dotLocation == -1) {
+				// A class which uses the default package: There is no
+				// package to rename.
+				outputPackageName = null;
+			} else if (dotLocation == 0) {
+				// Strange leading ".": Ignore it.
 				outputPackageName = null;
-
 			} else {
-				dotLocation = inputPackageName.lastIndexOf('.');
-				if (dotLocation == -1) {
-					// A class which uses the default package: There is no
-					// package to rename.
-					outputPackageName = null;
-				} else if (dotLocation == 0) {
-					// Strange leading ".": Ignore it.
-					outputPackageName = null;
-				} else {
-					// Nab just the fully qualified package name.
-					inputPackageName = inputPackageName.substring(0, dotLocation);
-					// And perform any renames which apply.
-					outputPackageName = replacePackage(inputPackageName);
-				}
+				// Nab just the fully qualified package name.
+				inputPackageName = inputPackageName.substring(0, dotLocation);
+				// And perform any renames which apply.
+				outputPackageName = replacePackage(inputPackageName);
 			}
+		}
 
-			String outputLine;
+		String outputLine;
 
-			if (outputPackageName == null) {
-				// For one of the reasons, above, no rename was performed on the
-				// line.
-				outputLine = inputLine;
-				addUnchangedProvider();
+		if (outputPackageName == null) {
+			// For one of the reasons, above, no rename was performed on the
+			// line.
+			outputLine = null;
+			addUnchangedProvider();
 
-			} else {
-				// Not most efficient, but good enough:
-				// Service configuration files are expected to have only a few
-				// values, and these are expected to use little or no white
-				// space.
+		} else {
+			// Not most efficient, but good enough:
+			// Service configuration files are expected to have only a few
+			// values, and these are expected to use little or no white
+			// space.
 
-				// Figure where the input fully qualified package name began and
-				// ended.
+			// Figure where the input fully qualified package name began and
+			// ended.
 
-				int inputPackageStart = inputLine.indexOf(inputPackageName);
-				int inputPackageEnd = inputPackageStart + dotLocation;
+			int inputPackageStart = inputLine.indexOf(inputPackageName);
+			int inputPackageEnd = inputPackageStart + dotLocation;
 
-				// Recover as much of the original file as possible.
+			// Recover as much of the original file as possible.
 
-				outputLine = inputLine.substring(0, inputPackageStart) + outputPackageName
-					+ inputLine.substring(inputPackageEnd);
+			outputLine = inputLine.substring(0, inputPackageStart) + outputPackageName
+				+ inputLine.substring(inputPackageEnd);
 
-				addChangedProvider();
-			}
-
-			writer.write(outputLine);
+			addChangedProvider();
 		}
+
+		return outputLine;
 	}
 }
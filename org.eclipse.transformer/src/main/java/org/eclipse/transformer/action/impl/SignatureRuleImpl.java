@@ -13,16 +13,16 @@ package org.eclipse.transformer.action.impl;
 
 import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
 import static org.eclipse.transformer.util.SignatureUtils.keyStream;
-import static org.eclipse.transformer.util.SignatureUtils.packageMatch;
 import static org.eclipse.transformer.util.SignatureUtils.putSlashes;
-import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,11 +44,20 @@ import aQute.bnd.stream.MapStream;
 import aQute.libg.glob.Glob;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.util.BoundedCache;
+import org.eclipse.transformer.util.ByteMatcher;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.PackageRenameMatcher;
 import org.eclipse.transformer.util.SignatureUtils.RenameKeyComparator;
+import org.eclipse.transformer.util.SubstitutionMatcher;
 import org.slf4j.Logger;
 
 public class SignatureRuleImpl implements SignatureRule {
+	/**
+	 * Default maximum number of entries of each of the caches of transformed
+	 * binary types, descriptors, and signatures.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 64 * 1024;
 
 	public SignatureRuleImpl(Logger logger,
 		Map<String, String> packageRenames,
@@ -57,6 +66,25 @@ public class SignatureRuleImpl implements SignatureRule {
 		Map<String, Map<String, String>> masterTextUpdates, Map<String, String> directStrings,
 		Map<String, Map<String, String>> perClassDirectStrings) {
 
+		this(logger, packageRenames, packageVersions, specificPackageVersions, bundleUpdates, masterTextUpdates,
+			directStrings, perClassDirectStrings, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a signature rule with bounded caches.
+	 *
+	 * @param cacheSize The maximum number of entries of each of the caches of
+	 *            transformed binary types, descriptors, and signatures. Zero
+	 *            disables the caches.
+	 */
+	public SignatureRuleImpl(Logger logger,
+		Map<String, String> packageRenames,
+		Map<String, String> packageVersions, Map<String, Map<String, String>> specificPackageVersions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, Map<String, String>> masterTextUpdates, Map<String, String> directStrings,
+		Map<String, Map<String, String>> perClassDirectStrings,
+		int cacheSize) {
+
 		this.logger = logger;
 
 		// Cat 1: Package renames.
@@ -85,6 +113,9 @@ public class SignatureRuleImpl implements SignatureRule {
 		this.dottedPackageRenames = useDottedRenames;
 		this.slashedPackageRenames = useSlashedRenames;
 
+		this.dottedPackageMatcher = new PackageRenameMatcher(useDottedRenames);
+		this.slashedPackageMatcher = new PackageRenameMatcher(useSlashedRenames);
+
 		// Cat 2: Package version updates.
 
 		Map<String, String> useVersions;
@@ -149,6 +180,18 @@ public class SignatureRuleImpl implements SignatureRule {
 			this.wildCardTextUpdates = Collections.emptyMap();
 		}
 
+		Map<Map<String, String>, SubstitutionMatcher> useTextMatchers = new IdentityHashMap<>();
+		specificTextUpdates.values()
+			.forEach(substitutions -> useTextMatchers.put(substitutions, new SubstitutionMatcher(substitutions)));
+		wildCardTextUpdates.values()
+			.forEach(substitutions -> useTextMatchers.put(substitutions, new SubstitutionMatcher(substitutions)));
+		this.textMatchers = useTextMatchers;
+
+		Map<Map<String, String>, ByteMatcher> useTextKeyMatchers = new IdentityHashMap<>();
+		useTextMatchers.keySet()
+			.forEach(substitutions -> useTextKeyMatchers.put(substitutions, ByteMatcher.utf8(substitutions.keySet())));
+		this.textKeyMatchers = useTextKeyMatchers;
+
 		// Cat 5: Direct string updates.
 
 		Map<String, String> useDirectStrings;
@@ -158,6 +201,7 @@ public class SignatureRuleImpl implements SignatureRule {
 			useDirectStrings = new HashMap<>(directStrings);
 		}
 		this.directStrings = useDirectStrings;
+		this.directMatcher = new SubstitutionMatcher(useDirectStrings);
 
 		Map<String, Map<String, String>> usePerClassDirectStrings;
 		if ((perClassDirectStrings == null) || perClassDirectStrings.isEmpty()) {
@@ -173,16 +217,16 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 		this.perClassDirectStrings = usePerClassDirectStrings;
 
-		//
-
-		this.unchangedBinaryTypes = new HashSet<>();
-		this.changedBinaryTypes = new HashMap<>();
+		Map<String, SubstitutionMatcher> usePerClassDirectMatchers = new HashMap<>(usePerClassDirectStrings.size());
+		usePerClassDirectStrings.forEach(
+			(className, substitutions) -> usePerClassDirectMatchers.put(className, new SubstitutionMatcher(substitutions)));
+		this.perClassDirectMatchers = usePerClassDirectMatchers;
 
-		this.unchangedDescriptors = new HashSet<>();
-		this.changedDescriptors = new HashMap<>();
+		//
 
-		this.unchangedSignatures = new HashSet<>();
-		this.changedSignatures = new HashMap<>();
+		this.binaryTypes = new BoundedCache<>("binaryTypes", cacheSize);
+		this.descriptors = new BoundedCache<>("descriptors", cacheSize);
+		this.signatures = new BoundedCache<>("signatures", cacheSize);
 	}
 
 	//
@@ -202,6 +246,11 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected final Map<String, String>	dottedPackageRenames;
 	protected final Map<String, String>	slashedPackageRenames;
 
+	// Package renames compiled for replacing packages embedded in text.
+
+	private final PackageRenameMatcher	dottedPackageMatcher;
+	private final PackageRenameMatcher	slashedPackageMatcher;
+
 	@Override
 	public Map<String, String> getPackageRenames() {
 		return dottedPackageRenames;
@@ -239,66 +288,24 @@ public class SignatureRuleImpl implements SignatureRule {
 		return finalName;
 	}
 
-	@Override
-	public String replacePackages(String text) {
-		return replacePackages(text, dottedPackageRenames);
-	}
-
-	@Override
-	public String replaceBinaryPackages(String text) {
-		return replacePackages(text, slashedPackageRenames);
-	}
-
 	// TODO: Unify the implementations of 'replacePackages'
 	// and 'replacePackage'.
 	//
 	// See issue #307.
 
-	private String replacePackages(String text, Map<String, String> renames) {
-		String initialText = text;
-
-		for (Map.Entry<String, String> renameEntry : renames.entrySet()) {
-			String key = renameEntry.getKey();
-
-			boolean matchPackageStem = containsWildcard(key);
-			if (matchPackageStem) {
-				key = stripWildcard(key);
-			}
-
-			int keyLen = key.length();
-			int textLimit = text.length() - keyLen;
-
-			for (int matchEnd = 0; matchEnd <= textLimit;) {
-				int matchStart = text.indexOf(key, matchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				matchEnd = matchStart + keyLen;
-				int packageEnd = packageMatch(text, matchStart, matchEnd, matchPackageStem);
-				if (packageEnd == -1) {
-					continue;
-				}
-
-				String value = renameEntry.getValue();
-				if (matchEnd < packageEnd) {
-					value = value.concat(text.substring(matchEnd, packageEnd));
-				}
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(packageEnd);
-				text = head + value + tail;
+	@Override
+	public String replacePackages(String text) {
+		return dottedPackageMatcher.replace(text);
+	}
 
-				matchEnd = matchStart + value.length();
-				textLimit = text.length() - keyLen;
-			}
-		}
+	@Override
+	public String replacePackages(String text, BinaryOperator<String> tailUpdate) {
+		return dottedPackageMatcher.replace(text, tailUpdate);
+	}
 
-		if (initialText == text) {
-			return null;
-		} else {
-			return text;
-		}
+	@Override
+	public String replaceBinaryPackages(String text) {
+		return slashedPackageMatcher.replace(text);
 	}
 
 	// Cat 2: Package Version Updates
@@ -368,6 +375,13 @@ public class SignatureRuleImpl implements SignatureRule {
 	private final Map<String, Map<String, String>>	specificTextUpdates;
 	private final Map<Pattern, Map<String, String>>	wildCardTextUpdates;
 
+	/**
+	 * Compiled text substitutions, keyed by the identity of the substitutions
+	 * tables of {@link #specificTextUpdates} and {@link #wildCardTextUpdates}.
+	 */
+	private final Map<Map<String, String>, SubstitutionMatcher>	textMatchers;
+	private final Map<Map<String, String>, ByteMatcher>			textKeyMatchers;
+
 	@Override
 	public Map<String, Map<String, String>> getSpecificTextUpdates() {
 		return specificTextUpdates;
@@ -404,46 +418,58 @@ public class SignatureRuleImpl implements SignatureRule {
 	}
 
 	@Override
-	public String replaceText(String inputName, String text) {
+	public UnaryOperator<String> getTextUpdate(String inputName) {
+		SubstitutionMatcher matcher = getTextMatcher(inputName);
+		if (matcher == null) {
+			return null;
+		}
+		return matcher::replace;
+	}
+
+	private SubstitutionMatcher getTextMatcher(String inputName) {
 		Map<String, String> substitutions = getTextSubstitutions(inputName);
 		if (substitutions == null) {
-			// This is now allowed, because of of the new
-			// substitution cases (direct, package-rename).
 			return null;
 		}
 
-		String initialText = text;
-
-		for (Map.Entry<String, String> entry : substitutions.entrySet()) {
-			String key = entry.getKey();
-			int keyLen = key.length();
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while (lastMatchEnd <= textLimit) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if (matchStart == -1) {
-					break;
-				}
-
-				String value = entry.getValue();
-				int valueLen = value.length();
+		SubstitutionMatcher matcher = textMatchers.get(substitutions);
+		if (matcher == null) {
+			matcher = new SubstitutionMatcher(substitutions);
+		}
+		return matcher;
+	}
 
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-				text = head + value + tail;
+	/**
+	 * Answer a matcher of the UTF-8 encoded keys of the text substitutions of
+	 * a resource. Text which does not contain any of the keys is not changed
+	 * by the text substitutions. See {@link #getTextUpdate(String)}.
+	 *
+	 * @param inputName The name of the resource.
+	 * @return The matcher of the text substitution keys. Null if there are no
+	 *         text substitutions for the resource.
+	 */
+	public ByteMatcher getTextKeyMatcher(String inputName) {
+		Map<String, String> substitutions = getTextSubstitutions(inputName);
+		if (substitutions == null) {
+			return null;
+		}
 
-				lastMatchEnd = matchStart + valueLen;
-				textLimit += (valueLen - keyLen);
-			}
+		ByteMatcher matcher = textKeyMatchers.get(substitutions);
+		if (matcher == null) {
+			matcher = ByteMatcher.utf8(substitutions.keySet());
 		}
+		return matcher;
+	}
 
-		if (initialText == text) {
+	@Override
+	public String replaceText(String inputName, String text) {
+		SubstitutionMatcher matcher = getTextMatcher(inputName);
+		if (matcher == null) {
+			// This is now allowed, because of of the new
+			// substitution cases (direct, package-rename).
 			return null;
-		} else {
-			return text;
 		}
+		return matcher.replace(text);
 	}
 
 	// Cat 5: Direct string updates
@@ -452,6 +478,11 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	private final Map<String, Map<String, String>>	perClassDirectStrings;
 
+	// Compiled direct string updates.
+
+	private final SubstitutionMatcher				directMatcher;
+	private final Map<String, SubstitutionMatcher>	perClassDirectMatchers;
+
 	@Override
 	public boolean hasTextUpdates() {
 		return (!getSpecificTextUpdates().isEmpty() || !getWildCardTextUpdates().isEmpty());
@@ -478,7 +509,7 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replaceTextDirectGlobal(String initialValue, String inputName) {
-		return replaceTextDirect(initialValue, inputName, directStrings, "Global");
+		return replaceTextDirect(initialValue, inputName, directStrings, directMatcher, "Global");
 	}
 
 	/**
@@ -499,10 +530,12 @@ public class SignatureRuleImpl implements SignatureRule {
 		if (directStringsForClass == null) {
 			return null; // Nothing specific to do.
 		}
-		return replaceTextDirect(initialValue, inputName, directStringsForClass, "Per-Class");
+		return replaceTextDirect(initialValue, inputName, directStringsForClass, perClassDirectMatchers.get(inputName),
+			"Per-Class");
 	}
 
-	private String replaceTextDirect(String initialValue, String inputName, Map<String, String> updates, String updateCase) {
+	private String replaceTextDirect(String initialValue, String inputName, Map<String, String> updates,
+		SubstitutionMatcher matcher, String updateCase) {
 		Logger useLogger = getLogger();
 
 		// If the table has a simple, full substitution, use it.
@@ -515,29 +548,11 @@ public class SignatureRuleImpl implements SignatureRule {
 			return fullFinalValue;
 		}
 
-		// Perform all possible substitutions, in order.
-		//
-		// Match using a simple 'contains' test. Later,
-		// a regular expression might be used.
-
-		String finalValue = initialValue;
-
-		for (Map.Entry<String, String> directEntry : updates.entrySet()) {
-			String initialSubValue = directEntry.getKey();
-			String finalSubValue = directEntry.getValue();
-			if (finalValue.contains(initialSubValue)) {
-				finalValue = finalValue.replace(initialSubValue, finalSubValue);
-				useLogger.debug("{} token direct replacement: [ {} ]: [ {} => {} ]", updateCase, inputName,
-					initialSubValue,
-					finalSubValue);
-			}
-		}
+		// Perform all possible substitutions, in order, in a single pass.
 
-		if (finalValue != initialValue) {
-			return finalValue;
-		} else {
-			return null;
-		}
+		return matcher.replace(initialValue,
+			(initialSubValue, finalSubValue) -> useLogger.debug("{} token direct replacement: [ {} ]: [ {} => {} ]",
+				updateCase, inputName, initialSubValue, finalSubValue));
 	}
 
 	/**
@@ -605,7 +620,9 @@ public class SignatureRuleImpl implements SignatureRule {
 	 * For efficiency, a caches are maintained of complex values which have been
 	 * transformed. That enables quick lookup of the previously transformed
 	 * values, skipping the complex unpacking and repacking of the repeated
-	 * values.
+	 * values. The caches are concurrent, since a signature rule is shared by
+	 * actions which may be applied on several threads, and are bounded, since a
+	 * signature rule may be used across many archives.
 	 *
 	 * @param inputConstant An initial binary type value.
 	 * @return The transformed binary type. Null if no change was made.
@@ -620,8 +637,27 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 	}
 
-	private final Map<String, String>	changedBinaryTypes;
-	private final Set<String>			unchangedBinaryTypes;
+	/**
+	 * Cached value of inputs which are not changed by the transformation.
+	 * Compared by identity.
+	 */
+	private static final String			UNCHANGED	= new String("");
+
+	private static String cached(String outputValue) {
+		return (outputValue == null) ? UNCHANGED : outputValue;
+	}
+
+	private final BoundedCache<String, String>	binaryTypes;
+
+	/**
+	 * Answer the statistics of the caches of transformed binary types,
+	 * descriptors, and signatures.
+	 *
+	 * @return The statistics of the caches.
+	 */
+	public List<BoundedCache.Statistics> getCacheStatistics() {
+		return List.of(binaryTypes.getStatistics(), descriptors.getStatistics(), signatures.getStatistics());
+	}
 
 	/**
 	 * Modify a fully qualified type name according to the package rename table.
@@ -632,13 +668,9 @@ public class SignatureRuleImpl implements SignatureRule {
 	 * @return The transformed type name, or null if no changed was made.
 	 */
 	private String basicTransformBinaryType(String inputName) {
-		if (unchangedBinaryTypes.contains(inputName)) {
-			return null;
-		}
-
-		String outputName = changedBinaryTypes.get(inputName);
+		String outputName = binaryTypes.get(inputName);
 		if (outputName != null) {
-			return outputName;
+			return (outputName == UNCHANGED) ? null : outputName;
 		}
 
 		char c = inputName.charAt(0);
@@ -667,11 +699,7 @@ public class SignatureRuleImpl implements SignatureRule {
 			}
 		}
 
-		if (outputName == null) {
-			unchangedBinaryTypes.add(inputName);
-		} else {
-			changedBinaryTypes.put(inputName, outputName);
-		}
+		binaryTypes.put(inputName, cached(outputName));
 
 		return outputName;
 	}
@@ -716,17 +744,12 @@ public class SignatureRuleImpl implements SignatureRule {
 		return inputPath;
 	}
 
-	private final Set<String>			unchangedDescriptors;
-	private final Map<String, String>	changedDescriptors;
+	private final BoundedCache<String, String>	descriptors;
 
 	private String basicTransformDescriptor(String inputDescriptor) {
-		if (unchangedDescriptors.contains(inputDescriptor)) {
-			return null;
-		}
-
-		String outputDescriptor = changedDescriptors.get(inputDescriptor);
+		String outputDescriptor = descriptors.get(inputDescriptor);
 		if (outputDescriptor != null) {
-			return outputDescriptor;
+			return (outputDescriptor == UNCHANGED) ? null : outputDescriptor;
 		}
 
 		char c = inputDescriptor.charAt(0);
@@ -752,11 +775,7 @@ public class SignatureRuleImpl implements SignatureRule {
 			// leave outputDescriptor null
 		}
 
-		if (outputDescriptor == null) {
-			unchangedDescriptors.add(inputDescriptor);
-		} else {
-			changedDescriptors.put(inputDescriptor, outputDescriptor);
-		}
+		descriptors.put(inputDescriptor, cached(outputDescriptor));
 		return outputDescriptor;
 	}
 
@@ -767,8 +786,7 @@ public class SignatureRuleImpl implements SignatureRule {
 	 * across signature types.
 	 */
 
-	private final Set<String>			unchangedSignatures;
-	private final Map<String, String>	changedSignatures;
+	private final BoundedCache<String, String>	signatures;
 
 	/**
 	 * Transform a class, field, or method signature. Answer a wrapped null if
@@ -781,16 +799,12 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String transformSignature(String initialSignature, SignatureType signatureType) {
-		if (unchangedSignatures.contains(initialSignature)) {
-			return null;
-		}
-
 		// The signature print strings have distinct formats. They may be safely
-		// stored in a single hash map.
+		// stored in a single cache.
 
-		String finalSignature = changedSignatures.get(initialSignature);
+		String finalSignature = signatures.get(initialSignature);
 		if (finalSignature != null) {
-			return finalSignature;
+			return (finalSignature == UNCHANGED) ? null : finalSignature;
 		}
 
 		if (signatureType == SignatureType.CLASS) {
@@ -825,11 +839,7 @@ public class SignatureRuleImpl implements SignatureRule {
 				"Signature [ " + initialSignature + " ] uses unknown type [ " + signatureType + " ]");
 		}
 
-		if (finalSignature == null) {
-			unchangedSignatures.add(initialSignature);
-		} else {
-			changedSignatures.put(initialSignature, finalSignature);
-		}
+		signatures.put(initialSignature, cached(finalSignature));
 
 		return finalSignature;
 	}
@@ -0,0 +1,137 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import aQute.lib.io.IO;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.util.PooledOutputStream;
+
+/**
+ * An output stream which collects data in memory until a threshold is
+ * reached, after which the data is written to a temporary file. The collected
+ * data is answered as byte data which is either held in memory or stored in
+ * the temporary file.
+ */
+final class SpillOutputStream extends OutputStream {
+	/**
+	 * Create a spill output stream.
+	 *
+	 * @param context The context which supplies the number of bytes above
+	 *            which data is written to a temporary file, and the directory
+	 *            of the temporary file.
+	 * @param initialCapacity The initial capacity of the memory buffer. Limited
+	 *            by the threshold.
+	 */
+	SpillOutputStream(ActionContext context, int initialCapacity) {
+		this.context = context;
+		this.threshold = context.spillThreshold();
+		this.memory = new PooledOutputStream((int) Math.min(Math.max(initialCapacity, 0), threshold));
+	}
+
+	private final ActionContext		context;
+	private final long				threshold;
+	private PooledOutputStream		memory;
+	private Path					file;
+	private OutputStream			fileStream;
+	private long					count;
+
+	@Override
+	public void write(int b) throws IOException {
+		reserve(1);
+		if (fileStream != null) {
+			fileStream.write(b);
+		} else {
+			memory.write(b);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		reserve(len);
+		if (fileStream != null) {
+			fileStream.write(b, off, len);
+		} else {
+			memory.write(b, off, len);
+		}
+	}
+
+	private void reserve(int len) throws IOException {
+		count += len;
+		if ((fileStream == null) && (count > threshold)) {
+			file = context.createSpillFile("transformer", ".data");
+			fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+			IO.copy(memory.toByteBuffer(), fileStream);
+			memory.release();
+			memory = null;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (fileStream != null) {
+			fileStream.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (fileStream != null) {
+			fileStream.close();
+		}
+	}
+
+	/**
+	 * Answer the collected data. The stream is closed.
+	 *
+	 * @param name The name of the data.
+	 * @param charset The charset of the data.
+	 * @return The collected data.
+	 * @throws IOException Thrown if the temporary file cannot be closed, or if
+	 *             the collected data is too large to be byte data.
+	 */
+	ByteData toByteData(String name, Charset charset) throws IOException {
+		close();
+		if (file == null) {
+			return memory.toByteData(name, charset);
+		}
+		if (count > Integer.MAX_VALUE) {
+			discard();
+			throw new IOException("Data [ " + name + " ] of [ " + count + " ] bytes is too large");
+		}
+		return new FileByteDataImpl(name, file, (int) count, charset, true);
+	}
+
+	/**
+	 * Discard the collected data. The stream is closed, and the temporary
+	 * file, if one was created, is deleted.
+	 */
+	void discard() {
+		try {
+			close();
+		} catch (IOException e) {
+			// Ignore: The file is being deleted.
+		}
+		if (file != null) {
+			IO.delete(file);
+		} else {
+			memory.release();
+		}
+	}
+}
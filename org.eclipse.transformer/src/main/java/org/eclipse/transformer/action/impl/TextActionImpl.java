@@ -11,21 +11,30 @@
 
 package org.eclipse.transformer.action.impl;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
+import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
+
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import aQute.lib.io.ByteBufferOutputStream;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ByteData;
 import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.util.ByteMatcher;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.LineCursor;
 import org.eclipse.transformer.util.LineSeparatorBufferedReader;
+import org.eclipse.transformer.util.PooledOutputStream;
 
 /**
  * Action for general text updates. This action performs text updates, either
@@ -45,6 +54,10 @@ public class TextActionImpl extends ElementActionImpl {
 
 		List<StringReplacement> replacements = createActiveReplacements(getSignatureRule());
 		this.activeReplacements = replacements.isEmpty() ? NO_ACTIVE_REPLACEMENTS : replacements;
+
+		List<String> keys = new ArrayList<>();
+		addReplacementKeys(getSignatureRule(), keys);
+		this.keyMatcher = ByteMatcher.utf8(keys);
 	}
 
 	private final List<StringReplacement> activeReplacements;
@@ -57,11 +70,50 @@ public class TextActionImpl extends ElementActionImpl {
 	protected List<StringReplacement> createActiveReplacements(SignatureRule signatureRule) {
 		List<StringReplacement> replacements = new ArrayList<>();
 		if ( signatureRule.hasTextUpdates() ) {
-			replacements.add(this::textUpdate);
+			replacements.add((ResourceReplacement) this::bindTextUpdate);
 		}
 		return replacements;
 	}
 
+	/**
+	 * Matcher of the keys of the active replacements, except for the text
+	 * substitutions, the keys of which depend on the resource. Lines which
+	 * contain none of the keys cannot be changed by the active replacements.
+	 */
+	private final ByteMatcher keyMatcher;
+
+	/**
+	 * Add the keys of the active replacements. A value which contains none of
+	 * the keys must not be changed by the active replacements. Subclasses
+	 * which add replacements must add their keys. Keys of the text
+	 * substitutions are obtained for each resource, and are not added.
+	 *
+	 * @param signatureRule The rule from which to obtain keys.
+	 * @param keys The keys of the active replacements.
+	 */
+	protected void addReplacementKeys(SignatureRule signatureRule, List<String> keys) {
+		// Text substitution keys are obtained for each resource.
+	}
+
+	/**
+	 * Add the package rename keys, in dotted and binary form, with their
+	 * wildcards removed. These are the keys of {@link #packagesUpdate} and
+	 * {@link #binaryPackagesUpdate}.
+	 *
+	 * @param signatureRule The rule from which to obtain keys.
+	 * @param keys The keys of the active replacements.
+	 */
+	protected void addPackageRenameKeys(SignatureRule signatureRule, List<String> keys) {
+		for (String key : signatureRule.getPackageRenames()
+			.keySet()) {
+			keys.add(containsWildcard(key) ? stripWildcard(key) : key);
+		}
+		for (String key : signatureRule.getBinaryPackageRenames()
+			.keySet()) {
+			keys.add(containsWildcard(key) ? stripWildcard(key) : key);
+		}
+	}
+
 	@Override
 	public ActionType getActionType() {
 		return ActionType.TEXT;
@@ -72,6 +124,18 @@ public class TextActionImpl extends ElementActionImpl {
 		return (getTextSubstitutions(resourceName) != null);
 	}
 
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return null;
+	}
+
+	// Text substitutions are keyed by simple file name.
+
+	@Override
+	public boolean selectsBySimpleName() {
+		return true;
+	}
+
 	@Override
 	public ByteData apply(ByteData inputData) throws TransformException {
 		String inputName = inputData.name();
@@ -80,21 +144,47 @@ public class TextActionImpl extends ElementActionImpl {
 			String outputName = relocateResource(inputName);
 			setResourceNames(inputName, outputName);
 
-			ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputData.length());
+			// The replacements of the resource are located once, before any
+			// line is transformed.
+
+			List<StringReplacement> replacements = bindReplacements(inputName);
+			if (replacements.isEmpty()) {
+				return isChanged() ? inputData.copy(outputName) : inputData;
+			}
 
 			Charset charset = inputData.charset();
-			try (LineSeparatorBufferedReader reader = new LineSeparatorBufferedReader(inputData.reader()); BufferedWriter writer = FileUtils.writer(outputStream, charset)) {
-				transform(inputName, reader, writer);
-			} catch (IOException e) {
-				throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+			ByteMatcher textKeyMatcher = getSignatureRule().hasTextUpdates()
+				? getTextKeyMatcher(inputName)
+				: null;
+
+			PooledOutputStream outputStream;
+			if (isByteTransformable(charset, textKeyMatcher)) {
+				outputStream = transformBytes(inputName, replacements, textKeyMatcher, inputData);
+			} else if (inputData.length() <= getContext().spillThreshold()) {
+				outputStream = transformLines(inputName, inputData, inputLine -> {
+					String outputLine = transformString(inputName, "text line", inputLine, replacements);
+					if (outputLine != null) {
+						addReplacement(); // Count lines, not individual replacements.
+					}
+					return outputLine;
+				});
+			} else {
+				outputStream = new PooledOutputStream(inputData.length());
+				try (LineSeparatorBufferedReader reader = new LineSeparatorBufferedReader(inputData.reader()); BufferedWriter writer = FileUtils.writer(outputStream, charset)) {
+					transform(inputName, replacements, reader, writer);
+				} catch (IOException e) {
+					outputStream.release();
+					throw new TransformException("Failed to transform [ " + inputName + " ]", e);
+				}
 			}
 
-			if (!isChanged()) {
-				return inputData;
-			} else if (!isContentChanged()) {
-				return inputData.copy(outputName);
+			if (!isContentChanged()) {
+				if (outputStream != null) {
+					outputStream.release();
+				}
+				return isChanged() ? inputData.copy(outputName) : inputData;
 			} else {
-				return new ByteDataImpl(outputName, outputStream.toByteBuffer(), charset);
+				return outputStream.toByteData(outputName, charset);
 			}
 
 		} finally {
@@ -104,9 +194,10 @@ public class TextActionImpl extends ElementActionImpl {
 
 	//
 
-	protected void transform(String inputName, LineSeparatorBufferedReader reader, BufferedWriter writer) throws IOException {
+	protected void transform(String inputName, List<StringReplacement> replacements, LineSeparatorBufferedReader reader,
+		BufferedWriter writer) throws IOException {
 		for (String inputLine; (inputLine = reader.readLine()) != null; writer.write(reader.lineSeparator())) {
-			String outputLine = transformString(inputName, "text line", inputLine);
+			String outputLine = transformString(inputName, "text line", inputLine, replacements);
 			if (outputLine != null) {
 				addReplacement(); // Count lines, not individual replacements.
 			} else {
@@ -117,7 +208,95 @@ public class TextActionImpl extends ElementActionImpl {
 		}
 	}
 
-	protected String transformString(String inputName, String inputCase, String initialValue) {
-		return updateString(inputName, inputCase, initialValue);
+	/**
+	 * Tell if a resource can be transformed as bytes: The charset must encode
+	 * the keys of the replacements as their UTF-8 encoding, and must encode
+	 * line separators as single bytes which are not part of the encodings of
+	 * other characters. That is the case for UTF-8, and, when all keys are
+	 * ASCII, for US-ASCII and ISO-8859-1.
+	 */
+	private boolean isByteTransformable(Charset charset, ByteMatcher textKeyMatcher) {
+		if (UTF_8.equals(charset)) {
+			return true;
+		}
+		boolean asciiKeys = keyMatcher.isAscii() && ((textKeyMatcher == null) || textKeyMatcher.isAscii());
+		return asciiKeys && (US_ASCII.equals(charset) || ISO_8859_1.equals(charset));
+	}
+
+	/**
+	 * Transform the lines of a resource without decoding the resource. Only
+	 * lines which contain a key of the replacements are decoded and
+	 * transformed. Unchanged lines are copied as bytes, which keeps their
+	 * original encoding.
+	 *
+	 * @param inputName The name of the resource.
+	 * @param replacements The replacements of the resource.
+	 * @param textKeyMatcher The matcher of the text substitution keys of the
+	 *            resource. Null if the resource has no text substitutions.
+	 * @param inputData The resource data.
+	 * @return The transformed data. Null if no line was changed.
+	 */
+	private PooledOutputStream transformBytes(String inputName, List<StringReplacement> replacements,
+		ByteMatcher textKeyMatcher, ByteData inputData) {
+		Charset charset = inputData.charset();
+		ByteBuffer buffer = inputData.buffer();
+		int limit = buffer.limit();
+
+		PooledOutputStream outputStream = null;
+		int copyStart = buffer.position(); // The first byte which is not yet written.
+
+		LineCursor lines = LineCursor.of(buffer);
+		while (lines.next()) {
+			int lineStart = lines.start();
+			int lineEnd = lines.end();
+			if (keyMatcher.matches(buffer, lineStart, lineEnd)
+				|| ((textKeyMatcher != null) && textKeyMatcher.matches(buffer, lineStart, lineEnd))) {
+				String inputLine = decode(buffer, lineStart, lineEnd, charset);
+				String outputLine = transformString(inputName, "text line", inputLine, replacements);
+				if (outputLine != null) {
+					addReplacement(); // Count lines, not individual replacements.
+					if (outputStream == null) {
+						outputStream = new PooledOutputStream(inputData.length());
+					}
+					write(outputStream, buffer, copyStart, lineStart);
+					byte[] outputBytes = outputLine.getBytes(charset);
+					outputStream.write(outputBytes, 0, outputBytes.length);
+					copyStart = lineEnd;
+				}
+			}
+		}
+
+		if (outputStream != null) {
+			write(outputStream, buffer, copyStart, limit);
+		}
+		return outputStream;
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int end, Charset charset) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, end - start, charset);
+		}
+		byte[] bytes = new byte[end - start];
+		buffer.get(start, bytes);
+		return new String(bytes, charset);
+	}
+
+	private static void write(PooledOutputStream outputStream, ByteBuffer buffer, int start, int end) {
+		if (buffer.hasArray()) {
+			outputStream.write(buffer.array(), buffer.arrayOffset() + start, end - start);
+			return;
+		}
+		byte[] bytes = new byte[Math.min(end - start, FileUtils.BUFFER_ADJUSTMENT)];
+		for (int offset = start; offset < end;) {
+			int count = Math.min(end - offset, bytes.length);
+			buffer.get(offset, bytes, 0, count);
+			outputStream.write(bytes, 0, count);
+			offset += count;
+		}
+	}
+
+	protected String transformString(String inputName, String inputCase, String initialValue,
+		List<StringReplacement> replacements) {
+		return updateString(inputName, inputCase, initialValue, replacements);
 	}
 }
@@ -44,6 +44,17 @@ public class XmlActionImpl extends TextActionImpl {
 		return replacements;
 	}
 
+	@Override
+	protected void addReplacementKeys(SignatureRule signatureRule, List<String> keys) {
+		super.addReplacementKeys(signatureRule, keys);
+		if ( !signatureRule.getPackageRenames().isEmpty() ) {
+			addPackageRenameKeys(signatureRule, keys);
+		}
+		if ( !signatureRule.getDirectGlobalUpdates().isEmpty() ) {
+			keys.addAll(signatureRule.getDirectGlobalUpdates().keySet());
+		}
+	}
+
 	@Override
 	public ActionType getActionType() {
 		return ActionType.XML;
@@ -53,4 +64,9 @@ public class XmlActionImpl extends TextActionImpl {
 	public boolean acceptResource(String resourceName, File resourceFile) {
 		return matchResourceName(resourceName);
 	}
+
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return getActionType().getExtensions();
+	}
 }
@@ -11,16 +11,34 @@
 
 package org.eclipse.transformer.action.impl;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -32,9 +50,13 @@ import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.ElementAction;
 import org.eclipse.transformer.action.RenameAction;
+import org.eclipse.transformer.action.SelectionRule;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RawZipFile;
+import org.eclipse.transformer.util.RawZipOutputStream;
 import org.slf4j.Logger;
 
 /**
@@ -53,13 +75,95 @@ import org.slf4j.Logger;
 public class ZipActionImpl extends ContainerActionImpl implements ElementAction {
 
 	public ZipActionImpl(ActionContext context, ActionType actionType, boolean stripSignatures) {
+		this(context, actionType, stripSignatures, Options.DEFAULT);
+	}
+
+	/**
+	 * Create a ZIP action which uses the specified executors and archive
+	 * cache.
+	 *
+	 * @param context The context of the action.
+	 * @param actionType The type of the action.
+	 * @param stripSignatures Control parameter: Tell if signature files are to
+	 *            be removed.
+	 * @param options The executors and the archive cache of the action.
+	 */
+	public ZipActionImpl(ActionContext context, ActionType actionType, boolean stripSignatures, Options options) {
 		super(context);
 		this.actionType = actionType;
 		this.stripSignatures = stripSignatures;
+		this.options = requireNonNull(options);
+	}
+
+	/**
+	 * The executors and the archive cache of a ZIP action. Each is null by
+	 * default, and is set using the corresponding "with" method, for example:
+	 *
+	 * <pre>
+	 * ZipActionImpl.Options.DEFAULT.withEntryExecutor(entryExecutor)
+	 * 	.withArchiveCache(archiveCache)
+	 * </pre>
+	 * <p>
+	 * When an entry executor is specified, entries are read and written on the
+	 * calling thread, while the element actions which transform the entries
+	 * are run using the executor. Entries are always written in their original
+	 * order, and duplicate detection and change recording are performed as the
+	 * entries are written.
+	 * <p>
+	 * When an archive executor is specified, the nested archives of an archive
+	 * file are transformed by separate tasks, each of which reads the nested
+	 * archive from the archive file and writes the transformed nested archive
+	 * to memory or to a temporary file. Each task records its changes
+	 * separately. The transformed nested archives are written, and their
+	 * changes are added to the changes of the archive, in their original
+	 * order. Nested archive tasks wait on the transformation of their entries,
+	 * which means that the archive executor must not be the entry executor.
+	 * <p>
+	 * When an archive cache is specified, the key of each archive, including
+	 * nested archives, is computed from the content of the archive. When the
+	 * archive is cached, the cached archive is written and the cached changes
+	 * are recorded instead of transforming the archive. Otherwise, the archive
+	 * is transformed and, if no entries failed, is added to the cache.
+	 *
+	 * @param entryExecutor The executor used to transform archive entries. Null
+	 *            if entries are to be transformed on the calling thread.
+	 * @param archiveExecutor The executor used to transform nested archives.
+	 *            Null if nested archives are to be transformed on the calling
+	 *            thread.
+	 * @param archiveCache The cache of transformed archives. Null if archives
+	 *            are not to be cached.
+	 */
+	public record Options(Executor entryExecutor, Executor archiveExecutor, ArchiveCache archiveCache) {
+		public static final Options DEFAULT = new Options(null, null, null);
+
+		public Options withEntryExecutor(Executor executor) {
+			return new Options(executor, archiveExecutor, archiveCache);
+		}
+
+		public Options withArchiveExecutor(Executor executor) {
+			return new Options(entryExecutor, executor, archiveCache);
+		}
+
+		public Options withArchiveCache(ArchiveCache cache) {
+			return new Options(entryExecutor, archiveExecutor, cache);
+		}
 	}
 
 	private final ActionType	actionType;
 	private final boolean stripSignatures;
+	private final Options		options;
+
+	public Executor getEntryExecutor() {
+		return options.entryExecutor();
+	}
+
+	public Executor getArchiveExecutor() {
+		return options.archiveExecutor();
+	}
+
+	public ArchiveCache getArchiveCache() {
+		return options.archiveCache();
+	}
 
 	@Override
 	public ActionType getActionType() {
@@ -76,6 +180,11 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		return matchResourceName(resourceName);
 	}
 
+	@Override
+	public List<String> getSelectionSuffixes() {
+		return getActionType().getExtensions();
+	}
+
 	// Entry from the transformer, or, from the directory action.
 
 	@Override
@@ -87,7 +196,12 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		startRecording(inputPath);
 		try {
 			setResourceNames(inputPath, outputPath);
-			applyFile(inputPath, inputFile, outputPath, outputFile);
+			ArchiveCache useCache = getArchiveCache();
+			if (useCache == null) {
+				applyFile(inputPath, inputFile, outputPath, outputFile, getArchiveExecutor());
+			} else {
+				applyFileCached(useCache, inputPath, inputFile, outputPath, outputFile);
+			}
 
 			// print the timings for the current archive and a tip for user if archive hasn't been updated
 			printZipActionDuration(inputPath);
@@ -107,16 +221,50 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		try {
 			String outputPath = relocateResource(inputPath);
 			setResourceNames(inputPath, outputPath);
-			InputStream inputStream = inputData.stream();
-			ByteBufferOutputStream outputStream = new ByteBufferOutputStream(inputData.length());
-			applyStream(inputPath, inputStream, outputPath, outputStream);
+
+			// The transformed archive is written to a temporary file when it
+			// is larger than the spill threshold.
+			SpillOutputStream outputStream = new SpillOutputStream(getContext(), inputData.length());
+			ByteData transformedData;
+			try {
+				ArchiveCache useCache = getArchiveCache();
+				String cacheKey = null;
+				boolean restored = false;
+				if (useCache != null) {
+					cacheKey = cacheKey(useCache, inputPath, FileUtils.digest(inputData.buffer()));
+					restored = restoreCached(useCache, cacheKey, inputPath, outputStream);
+				}
+				if (!restored) {
+					try (InputStream inputStream = inputData.stream()) {
+						applyStream(inputPath, inputStream, outputPath, outputStream);
+					}
+				}
+				transformedData = outputStream.toByteData(outputPath, inputData.charset());
+				if (!restored && (cacheKey != null)) {
+					ContainerChangesImpl changes = getActiveChanges();
+					if (changes.getAllFailed() == 0) {
+						useCache.put(cacheKey, transformedData, changes);
+					}
+				}
+			} catch (IOException e) {
+				outputStream.discard();
+				throw new TransformException("Failed to write [ " + outputPath + " ]", e);
+			} catch (RuntimeException e) {
+				outputStream.discard();
+				throw e;
+			}
+
 			if (!isChanged()) {
+				transformedData.release();
 				return inputData;
 			}
-			ByteBuffer outputBuffer = isContentChanged()
-				? outputStream.toByteBuffer()
-				: inputData.buffer();
-			ByteData outputData = new ByteDataImpl(outputPath, outputBuffer, inputData.charset());
+			ByteData outputData;
+			if (isContentChanged()) {
+				outputData = transformedData;
+			} else {
+				transformedData.release();
+				outputData = inputData.copy(outputPath);
+			}
 
 
 			// print the timings for the current archive and a tip for user if archive hasn't been updated
@@ -141,7 +289,12 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		startRecording(inputPath);
 		try {
 			setResourceNames(inputPath, outputPath);
-			applyStream(inputPath, inputStream, outputPath, outputStream);
+			ArchiveCache useCache = getArchiveCache();
+			if (useCache == null) {
+				applyStream(inputPath, inputStream, outputPath, outputStream);
+			} else {
+				applyStreamCached(useCache, inputPath, inputStream, outputPath, outputStream);
+			}
 
 			// print the timings for the current archive and a tip for user if archive hasn't been updated
 			printZipActionDuration(inputPath);
@@ -155,8 +308,8 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 	// Apply implementations, with recording already handled. These are split
 	// from the entry methods to simplify the recording steps.
 
-	private void applyFile(String inputPath, File inputFile, String outputPath, File outputFile)
-		throws TransformException {
+	private void applyFile(String inputPath, File inputFile, String outputPath, File outputFile,
+		Executor archiveExecutor) throws TransformException {
 		File outputParent = outputFile.getParentFile();
 		try {
 			IO.mkdirs(outputParent);
@@ -164,15 +317,206 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 			throw new TransformException("Failed to create directory [ " + outputParent.getAbsolutePath() + " ]", e);
 		}
 
-		try (InputStream inputStream = IO.stream(inputFile)) {
-			try (OutputStream outputStream = IO.outputStream(outputFile)) {
-				applyStream(inputPath, inputStream, outputPath, outputStream);
+		// Prefer reading the archive through its central directory: That
+		// allows entries which are not changed to be copied without being
+		// decompressed and recompressed. Fall back to streaming the archive
+		// if the central directory cannot be read.
+
+		RawZipFile rawZipFile = openZipFile(inputPath, inputFile);
+		if (rawZipFile != null) {
+			try (RawZipFile inputZipFile = rawZipFile; OutputStream outputStream = IO.outputStream(outputFile)) {
+				applyZipFile(inputPath, inputZipFile, outputPath, outputStream, archiveExecutor);
+			} catch (IOException e) {
+				throw new TransformException("Failed to write [ " + outputFile.getAbsolutePath() + " ]", e);
+			}
+		} else {
+			try (InputStream inputStream = IO.stream(inputFile)) {
+				try (OutputStream outputStream = IO.outputStream(outputFile)) {
+					applyStream(inputPath, inputStream, outputPath, outputStream);
+				} catch (IOException e) {
+					throw new TransformException("Failed to write [ " + outputFile.getAbsolutePath() + " ]", e);
+				}
+			} catch (IOException e) {
+				throw new TransformException("Failed to read [ " + inputFile.getAbsolutePath() + " ]", e);
+			}
+		}
+
+		// The transformed archive is only a speculative copy: An archive the
+		// content of which was not changed is replaced by the original
+		// archive, which is byte identical to the input, and which avoids
+		// differences caused by recompressing the entries.
+
+		if (!isContentChanged()) {
+			try {
+				Files.copy(inputFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 			} catch (IOException e) {
 				throw new TransformException("Failed to write [ " + outputFile.getAbsolutePath() + " ]", e);
 			}
+		}
+	}
+
+	// Cached apply implementations, with recording already handled.
+
+	private String cacheKey(ArchiveCache cache, String inputPath, String inputDigest) {
+		return cache.key(inputDigest, getActionType(), resourceCharset(inputPath));
+	}
+
+	/**
+	 * Record the changes of a cached archive.
+	 */
+	private void recordCached(String inputPath, ArchiveCache.Hit hit) {
+		getLogger().debug("Archive [ {} ]: Restored from the archive cache", inputPath);
+		getActiveChanges().add(hit.changes());
+	}
+
+	/**
+	 * Add a transformed archive to the cache. Archives which have failed
+	 * entries are not cached, so that the failures are reported by the next
+	 * transformation.
+	 */
+	private void cacheTransformed(ArchiveCache cache, String cacheKey, File outputFile) {
+		ContainerChangesImpl changes = getActiveChanges();
+		if (changes.getAllFailed() == 0) {
+			cache.put(cacheKey, outputFile, changes);
+		}
+	}
+
+	private boolean restoreCached(ArchiveCache cache, String cacheKey, String inputPath, OutputStream outputStream)
+		throws IOException {
+		ArchiveCache.Hit hit = cache.get(cacheKey);
+		if (hit == null) {
+			return false;
+		}
+		try (InputStream content = hit.content()) {
+			content.transferTo(outputStream);
+		}
+		recordCached(inputPath, hit);
+		return true;
+	}
+
+	private void applyFileCached(ArchiveCache cache, String inputPath, File inputFile, String outputPath,
+		File outputFile) throws TransformException {
+		String cacheKey;
+		try {
+			cacheKey = cacheKey(cache, inputPath, FileUtils.digest(inputFile));
 		} catch (IOException e) {
 			throw new TransformException("Failed to read [ " + inputFile.getAbsolutePath() + " ]", e);
 		}
+
+		ArchiveCache.Hit hit = cache.get(cacheKey);
+		if (hit != null) {
+			File outputParent = outputFile.getParentFile();
+			try (InputStream content = hit.content()) {
+				IO.mkdirs(outputParent);
+				Files.copy(content, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				throw new TransformException("Failed to write [ " + outputFile.getAbsolutePath() + " ]", e);
+			}
+			recordCached(inputPath, hit);
+			return;
+		}
+
+		applyFile(inputPath, inputFile, outputPath, outputFile, getArchiveExecutor());
+		cacheTransformed(cache, cacheKey, outputFile);
+	}
+
+	/**
+	 * Apply to a nested archive using the archive cache. The key of the
+	 * archive can only be computed after the archive is read completely: The
+	 * archive is spooled to a temporary file, which, if the archive is not
+	 * cached, is transformed through its central directory.
+	 * <p>
+	 * This may run on a thread of the archive executor, as a task which
+	 * transforms a nested archive of an enclosing archive. The nested archives
+	 * of the spooled archive are therefore transformed on the calling thread:
+	 * Waiting on tasks submitted to the archive executor, which may be queued
+	 * behind this task, can deadlock once every thread of the executor is
+	 * waiting.
+	 */
+	private void applyStreamCached(ArchiveCache cache, String inputPath, InputStream inputStream,
+		String outputPath, OutputStream outputStream) throws TransformException {
+		File inputFile = null;
+		File outputFile = null;
+		try {
+			try {
+				inputFile = cache.createTempFile();
+				// Files.copy does not close the input stream, which is the
+				// stream of the enclosing archive.
+				Files.copy(inputStream, inputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				throw new TransformException("Failed to read [ " + inputPath + " ]", e);
+			}
+
+			String cacheKey;
+			try {
+				cacheKey = cacheKey(cache, inputPath, FileUtils.digest(inputFile));
+			} catch (IOException e) {
+				throw new TransformException("Failed to read [ " + inputPath + " ]", e);
+			}
+
+			ArchiveCache.Hit hit = cache.get(cacheKey);
+			if (hit != null) {
+				try (InputStream content = hit.content()) {
+					content.transferTo(outputStream);
+				} catch (IOException e) {
+					throw new TransformException("Failed to write [ " + outputPath + " ]", e);
+				}
+				recordCached(inputPath, hit);
+				return;
+			}
+
+			try {
+				outputFile = cache.createTempFile();
+			} catch (IOException e) {
+				throw new TransformException("Failed to write [ " + outputPath + " ]", e);
+			}
+			applyFile(inputPath, inputFile, outputPath, outputFile, null);
+			try {
+				Files.copy(outputFile.toPath(), outputStream);
+			} catch (IOException e) {
+				throw new TransformException("Failed to write [ " + outputPath + " ]", e);
+			}
+			cacheTransformed(cache, cacheKey, outputFile);
+
+		} finally {
+			if (inputFile != null) {
+				IO.delete(inputFile);
+			}
+			if (outputFile != null) {
+				IO.delete(outputFile);
+			}
+		}
+	}
+
+	private RawZipFile openZipFile(String inputPath, File inputFile) {
+		try {
+			return new RawZipFile(inputFile, resourceCharset(inputPath));
+		} catch (IOException e) {
+			getLogger().debug("Streaming [ {} ]: The central directory cannot be read: {}", inputPath, e.toString());
+			return null;
+		}
+	}
+
+	private void applyZipFile(String inputPath, RawZipFile inputZipFile, String outputPath, OutputStream outputStream,
+		Executor archiveExecutor) throws TransformException {
+
+		Charset charset = resourceCharset(inputPath);
+		getLogger().debug("Zip Charset [ {} ]: {}", inputPath, charset);
+
+		// Don't use try-with-resources on the zip stream: When closed, it
+		// closes the base stream, which is closed by the caller.
+
+		try {
+			RawZipOutputStream zipOutputStream = new RawZipOutputStream(outputStream, charset);
+			try {
+				applyZipFileEntries(inputPath, inputZipFile, outputPath, zipOutputStream, archiveExecutor);
+			} finally {
+				zipOutputStream.finish();
+			}
+
+		} catch (IOException e) {
+			throw new TransformException("Failed to complete output [ " + inputPath + " ]", e);
+		}
 	}
 
 	private void applyStream(String inputPath, InputStream inputStream, String outputPath, OutputStream outputStream)
@@ -224,6 +568,595 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		}
 	}
 
+	/**
+	 * Limits on the entries which have been read but not yet written when
+	 * entries are transformed in parallel. Reading blocks on the writing of
+	 * the oldest pending entry when either limit is reached.
+	 */
+	private static final int	MAX_PENDING_ENTRIES	= 1024;
+	private static final long	MAX_PENDING_BYTES	= 64L * 1024L * 1024L;
+
+	/**
+	 * An entry which has been read and which is waiting to be written. The
+	 * writer is completed when the transformation of the entry completes.
+	 * <p>
+	 * The data of the entry is written unchanged when the entry cannot be
+	 * written by its writer. The data is null for directories. Element
+	 * writers release the data when they are run, while the data of copied
+	 * entries is released after the entry is written.
+	 */
+	private record PendingEntry(ZipEntry inputEntry, String inputName, Action action, ByteData inputData,
+		boolean writerReleases, CompletableFuture<TransformerRunnable> writer) {
+
+		int inputLength() {
+			return (inputData == null) ? 0 : inputData.length();
+		}
+	}
+
+	/**
+	 * The output of an archive which is being transformed. The names which
+	 * have been written are used to detect duplicate entries.
+	 */
+	private record ArchiveOutput(String inputPath, String outputPath, ZipOutputStream zipOutputStream,
+		Set<String> seen, byte[] copyBuffer) {
+
+		ArchiveOutput(String inputPath, String outputPath, ZipOutputStream zipOutputStream) {
+			// Shared transfer buffer.
+			this(inputPath, outputPath, zipOutputStream, new HashSet<>(), new byte[FileUtils.BUFFER_ADJUSTMENT]);
+		}
+	}
+
+	/**
+	 * How an entry is to be handled, as determined by the action which is
+	 * selected for the entry.
+	 */
+	private enum EntryKind {
+		/** No action accepts the entry. The entry is copied. */
+		UNACCEPTED,
+		/** The entry is not selected. The entry is copied. */
+		UNSELECTED,
+		/** The entry is renamed, and is otherwise copied. */
+		RENAMED,
+		/** The entry is a nested archive. */
+		ARCHIVE,
+		/** The entry is transformed by an element action. */
+		ELEMENT,
+		/** The selected action is of an unknown type. The entry is copied. */
+		UNKNOWN;
+
+		/** Tell if entries of this kind are copied. */
+		boolean isCopy() {
+			return (this != ARCHIVE) && (this != ELEMENT);
+		}
+
+		static EntryKind of(Action action, boolean selected) {
+			if (action == null) {
+				return UNACCEPTED;
+			} else if (!selected) {
+				return UNSELECTED;
+			} else if (action.isRenameAction()) {
+				return RENAMED;
+			} else if (action.isArchiveAction()) {
+				return ARCHIVE;
+			} else if (action.isElementAction()) {
+				return ELEMENT;
+			} else {
+				return UNKNOWN;
+			}
+		}
+	}
+
+	/**
+	 * An entry of an archive file, as classified before any entry is
+	 * processed.
+	 */
+	private record PlannedEntry(RawZipFile.Entry entry, String inputName, Action action, EntryKind kind,
+		Charset charset) {}
+
+	/**
+	 * Classify the entries of an archive file. Entries which are removed
+	 * signature files, and entries which have invalid names, are not planned.
+	 *
+	 * @param inputPath A name associated with the input archive.
+	 * @param inputZipFile The input archive.
+	 * @return The classified entries, in their original order.
+	 */
+	private List<PlannedEntry> planEntries(String inputPath, RawZipFile inputZipFile) {
+		Logger useLogger = getLogger();
+
+		List<RawZipFile.Entry> entries = inputZipFile.entries();
+		List<PlannedEntry> plan = new ArrayList<>(entries.size());
+		int[] kindCounts = new int[EntryKind.values().length];
+
+		for (RawZipFile.Entry entry : entries) {
+			String inputName;
+			try {
+				inputName = FileUtils.sanitize(entry.getName()); // Avoid ZipSlip
+			} catch (Throwable t) {
+				useLogger.error("Transform failure [ {} ] of [ {} ]", entry.getName(), inputPath, t);
+				recordAltered(entry.getName());
+				continue;
+			}
+			if (stripSignatures && ElementAction.SIGNATURE_FILE_PATTERN.matcher(inputName).matches()) {
+				recordAltered(inputName);
+				continue;
+			}
+			if (!inputName.equals(entry.getName())) {
+				recordAltered(entry.getName());
+			}
+
+			useLogger.debug("[ {}.{} ] Entry [ {} ] Size [ {} ]", getClass().getSimpleName(), "plan", inputName,
+				entry.getSize());
+
+			Action action = selectAction(inputName);
+			SelectionRule.Selection selection = (action != null) ? resourceSelection(inputName) : null;
+			EntryKind kind = EntryKind.of(action, (selection != null) && selection.selected());
+
+			plan.add(new PlannedEntry(entry, inputName, action, kind,
+				(selection != null) ? selection.charset() : null));
+			kindCounts[kind.ordinal()]++;
+		}
+
+		if (useLogger.isDebugEnabled()) {
+			useLogger.debug("Planned [ {} ] entries of [ {} ]: Elements [ {} ] Archives [ {} ] Renamed [ {} ] Copied [ {} ]",
+				plan.size(), inputPath, kindCounts[EntryKind.ELEMENT.ordinal()],
+				kindCounts[EntryKind.ARCHIVE.ordinal()], kindCounts[EntryKind.RENAMED.ordinal()],
+				kindCounts[EntryKind.UNACCEPTED.ordinal()] + kindCounts[EntryKind.UNSELECTED.ordinal()]
+					+ kindCounts[EntryKind.UNKNOWN.ordinal()]);
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Transform the entries of an archive file. Write transformed entries to
+	 * a zip-type archive.
+	 * <p>
+	 * The entries are classified before any entry is processed. Since the
+	 * entries of the file can be read in any order, when an entry executor is
+	 * available, element entries are read and transformed by the executor,
+	 * ahead of the writing of the output archive and within the pending
+	 * limits, while the calling thread writes entries in their original order.
+	 * Likewise, when an archive executor is supplied, nested archives are
+	 * transformed by the archive executor. Otherwise, nested archives are
+	 * processed by the calling thread as they are written. Copies are always
+	 * processed by the calling thread.
+	 * <p>
+	 * An archive executor must not be supplied when the calling thread is a
+	 * thread of the archive executor.
+	 * <p>
+	 * Entries which are copied, and entries the content of which is not
+	 * changed, are written using their raw (compressed) data.
+	 *
+	 * @param inputPath A name associated with the input archive.
+	 * @param inputZipFile The input archive.
+	 * @param outputPath A name associated with the output stream.
+	 * @param zipOutputStream An output stream for the output archive.
+	 * @param useArchiveExecutor The executor used to transform nested
+	 *            archives. Null if nested archives are to be transformed on
+	 *            the calling thread.
+	 */
+	private void applyZipFileEntries(
+		String inputPath, RawZipFile inputZipFile,
+		String outputPath, RawZipOutputStream zipOutputStream, Executor useArchiveExecutor) {
+
+		getLogger().debug("[ {}.{} ] [ {} ]", getClass().getSimpleName(), "apply", inputPath);
+
+		List<PlannedEntry> plan = planEntries(inputPath, inputZipFile);
+		ArchiveOutput output = new ArchiveOutput(inputPath, outputPath, zipOutputStream);
+
+		Executor useExecutor = getEntryExecutor();
+		List<CompletableFuture<TransformerRunnable>> transformers = null;
+		if ((useExecutor != null) || (useArchiveExecutor != null)) {
+			transformers = new ArrayList<>(Collections.nCopies(plan.size(), null));
+		}
+
+		int planSize = plan.size();
+		int nextStart = 0;
+		long startedBytes = 0L;
+
+		for (int entryNo = 0; entryNo < planSize; entryNo++) {
+			if (transformers != null) {
+				// Start transforming element entries and nested archives which
+				// are ahead of the entry which is to be written next.
+				while ((nextStart < planSize) && (nextStart - entryNo < MAX_PENDING_ENTRIES)
+					&& ((nextStart == entryNo) || (startedBytes < MAX_PENDING_BYTES))) {
+					PlannedEntry startEntry = plan.get(nextStart);
+					if ((startEntry.kind() == EntryKind.ELEMENT) && (useExecutor != null)) {
+						transformers.set(nextStart, CompletableFuture
+							.supplyAsync(() -> readAndTransform(output, inputZipFile, startEntry), useExecutor));
+						startedBytes += startedBytes(startEntry);
+					} else if ((startEntry.kind() == EntryKind.ARCHIVE) && (useArchiveExecutor != null)) {
+						transformers.set(nextStart, CompletableFuture.supplyAsync(
+							() -> transformArchive(output, inputZipFile, startEntry), useArchiveExecutor));
+						startedBytes += startedBytes(startEntry);
+					}
+					nextStart++;
+				}
+			}
+
+			PlannedEntry plannedEntry = plan.get(entryNo);
+			try {
+				CompletableFuture<TransformerRunnable> transformer = (transformers == null) ? null
+					: transformers.set(entryNo, null);
+				TransformerRunnable writer;
+				if (transformer != null) {
+					startedBytes -= startedBytes(plannedEntry);
+					writer = transformer.join();
+				} else {
+					writer = entryWriter(output, inputZipFile, plannedEntry);
+				}
+				writer.run();
+			} catch (Throwable t) {
+				writeFailed(output, inputZipFile, plannedEntry, t);
+			}
+		}
+	}
+
+	/**
+	 * Handle a planned entry which could not be read, transformed, or written:
+	 * Copy the entry unchanged, unless an entry of the same name was already
+	 * written, and record the failure. An archive which has failed entries is
+	 * not cached.
+	 */
+	private void writeFailed(ArchiveOutput output, RawZipFile inputZipFile, PlannedEntry plannedEntry, Throwable t) {
+		String inputName = plannedEntry.inputName();
+		try {
+			if (output.seen()
+				.add(inputName)) {
+				copyFileEntry(output, inputZipFile, plannedEntry.entry(), inputName);
+			}
+		} catch (Throwable th) {
+			getLogger().error("Write failure of [ {} ] of [ {} ]", inputName, output.inputPath(), th);
+		}
+		recordError(plannedEntry.action(), inputName, t);
+	}
+
+	/**
+	 * Answer the step which writes a planned entry of an archive file.
+	 */
+	private TransformerRunnable entryWriter(ArchiveOutput output, RawZipFile inputZipFile, PlannedEntry plannedEntry)
+		throws TransformException {
+
+		RawZipFile.Entry entry = plannedEntry.entry();
+		String inputName = plannedEntry.inputName();
+		Action action = plannedEntry.action();
+
+		switch (plannedEntry.kind()) {
+			case UNACCEPTED :
+				return copyWriter(output, action, inputName, inputName,
+					() -> copyFileEntry(output, inputZipFile, entry, inputName), () -> recordUnaccepted(inputName));
+
+			case UNSELECTED :
+				// Unselected resources are *not* renamed.
+				return copyWriter(output, action, inputName, inputName,
+					() -> copyFileEntry(output, inputZipFile, entry, inputName), () -> recordUnselected(inputName));
+
+			case RENAMED : {
+				String outputName = FileUtils.sanitize(((RenameAction) action).apply(inputName));
+				return copyWriter(output, action, inputName, outputName,
+					() -> copyFileEntry(output, inputZipFile, entry, outputName),
+					() -> recordAction(action, inputName));
+			}
+
+			case ARCHIVE :
+				// Nested archives are transformed to memory or to a temporary
+				// file, so that a nested archive which is not changed can be
+				// copied instead of being written as transformed.
+				return transformArchive(output, inputZipFile, plannedEntry);
+
+			case ELEMENT :
+				return readAndTransform(output, inputZipFile, plannedEntry);
+
+			default :
+				getLogger().warn("Strange: Unknown action type [ {} ] for [ {} ] in {} ]", action.getClass()
+					.getName(), inputName, output.inputPath());
+				return copyWriter(output, action, inputName, inputName,
+					() -> copyFileEntry(output, inputZipFile, entry, inputName), () -> recordUnaccepted(inputName));
+		}
+	}
+
+	/**
+	 * Read an entry of an archive file and transform it using its element
+	 * action. Read failures are answered as a step which fails when it is
+	 * run, which causes the entry to be copied and the failure to be
+	 * recorded.
+	 */
+	private TransformerRunnable readAndTransform(ArchiveOutput output, RawZipFile inputZipFile,
+		PlannedEntry plannedEntry) {
+
+		RawZipFile.Entry entry = plannedEntry.entry();
+		String inputName = plannedEntry.inputName();
+
+		ByteData inputData;
+		try (InputStream inputStream = inputZipFile.getInputStream(entry)) {
+			inputData = collect(inputName, inputStream, inputLength(entry), plannedEntry.charset());
+		} catch (IOException | TransformException e) {
+			return () -> {
+				throw e;
+			};
+		}
+
+		return transform((ElementAction) plannedEntry.action(), inputZipFile.toZipEntry(entry), inputData, inputName,
+			output, inputZipFile, entry.isCopyable() ? entry : null);
+	}
+
+	/**
+	 * Answer the count of bytes which are held in memory while an entry is
+	 * transformed ahead of being written. Nested archives which are larger than
+	 * the spill threshold are transformed to temporary files, and are not
+	 * counted.
+	 */
+	private long startedBytes(PlannedEntry plannedEntry) {
+		long size = plannedEntry.entry()
+			.getSize();
+		if ((plannedEntry.kind() == EntryKind.ARCHIVE) && (size > getContext().spillThreshold())) {
+			return 0L;
+		}
+		return size;
+	}
+
+	/**
+	 * Transform a nested archive of an archive file to memory or to a
+	 * temporary file. Answer the step which writes the transformed nested
+	 * archive and which records the changes.
+	 * <p>
+	 * The nested archive is transformed by a task of the archive executor, or
+	 * on the calling thread when there is no archive executor. The changes of
+	 * the nested archive are captured by the task, and are added to the
+	 * changes of this archive when the nested archive is written.
+	 * <p>
+	 * A nested archive the content of which is not changed is written by
+	 * copying the raw entry of the original nested archive: The transformed
+	 * nested archive is discarded.
+	 * <p>
+	 * When the transformation fails, the step writes the nested archive
+	 * unchanged and records the failure.
+	 *
+	 * @return The step which writes the transformed nested archive.
+	 */
+	private TransformerRunnable transformArchive(ArchiveOutput output, RawZipFile inputZipFile,
+		PlannedEntry plannedEntry) {
+
+		RawZipFile.Entry entry = plannedEntry.entry();
+		String inputName = plannedEntry.inputName();
+		ZipActionImpl zipAction = (ZipActionImpl) plannedEntry.action();
+		ZipOutputStream zipOutputStream = output.zipOutputStream();
+
+		String outputName;
+		try {
+			outputName = FileUtils.sanitize(zipAction.relocateResource(inputName));
+		} catch (TransformException e) {
+			return () -> {
+				throw e;
+			};
+		}
+
+		ArchiveData outputData = null;
+		Changes lastChanges;
+		try (InputStream inputStream = inputZipFile.getInputStream(entry)) {
+			outputData = new ArchiveData(getContext(), entry.getSize() > getContext().spillThreshold());
+			// Note the use of 'apply' and not the internal 'applyStream'.
+			// Recording must be performed.
+			zipAction.apply(inputName, inputStream, outputName, outputData.outputStream());
+			outputData.close();
+			lastChanges = zipAction.getLastActiveChanges();
+		} catch (Throwable t) {
+			if (outputData != null) {
+				outputData.delete();
+			}
+			return () -> {
+				if ( isDuplicate(inputName, output.inputPath(), inputName, output.outputPath(), output.seen()) ) {
+					recordDuplicate(zipAction, inputName);
+				} else {
+					copyFileEntry(output, inputZipFile, entry, inputName);
+					recordError(zipAction, inputName, t);
+				}
+			};
+		}
+
+		ZipEntry inputEntry = inputZipFile.toZipEntry(entry);
+		ArchiveData transformedData = outputData;
+		return () -> {
+			try {
+				if ( isDuplicate(inputName, output.inputPath(), outputName, output.outputPath(), output.seen()) ) {
+					recordDuplicate(zipAction, inputName);
+					return;
+				}
+				try {
+					if (lastChanges.isContentChanged()) {
+						ZipEntry outputEntry = createEntry(inputEntry, outputName);
+						if (outputEntry.getMethod() == ZipEntry.STORED) {
+							outputEntry.setSize(transformedData.length());
+							outputEntry.setCompressedSize(transformedData.length());
+							outputEntry.setCrc(transformedData.crc());
+						}
+						putEntry(zipOutputStream, outputEntry, () -> transformedData.writeTo(zipOutputStream));
+					} else {
+						// The transformed nested archive is discarded: The
+						// original nested archive is copied instead.
+						copyFileEntry(output, inputZipFile, entry, outputName);
+					}
+					recordAction(zipAction, inputName, lastChanges);
+				} catch (Throwable th) {
+					recordError(zipAction, inputName, th);
+				}
+			} finally {
+				transformedData.delete();
+			}
+		};
+	}
+
+	/**
+	 * A transformed nested archive, held in memory or in a temporary file. The
+	 * CRC of the data is computed as the data is written, as is needed to put
+	 * a stored entry.
+	 */
+	private static final class ArchiveData {
+		ArchiveData(ActionContext context, boolean useFile) throws IOException {
+			if (useFile) {
+				this.file = context.createSpillFile("transformer", ".zip");
+				this.buffer = null;
+				this.checkedStream = new CheckedOutputStream(Files.newOutputStream(file), new CRC32());
+			} else {
+				this.file = null;
+				this.buffer = new ByteBufferOutputStream();
+				this.checkedStream = new CheckedOutputStream(buffer, new CRC32());
+			}
+		}
+
+		private final Path					file;
+		private ByteBufferOutputStream		buffer;
+		private CheckedOutputStream			checkedStream;
+
+		OutputStream outputStream() {
+			return checkedStream;
+		}
+
+		void close() throws IOException {
+			checkedStream.close();
+		}
+
+		long length() throws IOException {
+			return (file != null) ? Files.size(file) : buffer.toByteBuffer()
+				.remaining();
+		}
+
+		long crc() {
+			return checkedStream.getChecksum()
+				.getValue();
+		}
+
+		void writeTo(OutputStream outputStream) throws IOException {
+			if (file != null) {
+				// Don't close the channel: That would close the output stream.
+				WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+				try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+					long size = fileChannel.size();
+					for (long position = 0L; position < size;) {
+						position += fileChannel.transferTo(position, size - position, outputChannel);
+					}
+				}
+			} else {
+				IO.copy(buffer.toByteBuffer(), outputStream);
+			}
+		}
+
+		/**
+		 * Discard the data. The data may be discarded more than once.
+		 */
+		void delete() {
+			if (file != null) {
+				try {
+					checkedStream.close();
+				} catch (IOException e) {
+					// Ignore: The file is being deleted.
+				}
+				IO.delete(file);
+			} else {
+				// Drop the buffer, so that its memory can be reclaimed while
+				// other data is written.
+				buffer = null;
+				checkedStream = null;
+			}
+		}
+	}
+
+	/**
+	 * An input stream which copies the bytes which are read to an output
+	 * stream. Closing the stream closes neither the input stream nor the
+	 * output stream.
+	 */
+	private static final class CopyingInputStream extends FilterInputStream {
+		CopyingInputStream(InputStream inputStream, OutputStream copyStream) {
+			super(inputStream);
+			this.copyStream = copyStream;
+		}
+
+		private final OutputStream copyStream;
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				copyStream.write(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count > 0) {
+				copyStream.write(b, off, count);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// Skipped bytes must be copied.
+			byte[] skipBuffer = new byte[(int) Math.min(n, FileUtils.BUFFER_ADJUSTMENT)];
+			int count = read(skipBuffer, 0, skipBuffer.length);
+			return Math.max(count, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+			// Leave the input stream open: It is read by the enclosing archive.
+		}
+	}
+
+	/**
+	 * Answer the length of an entry of an archive file. Answer -1, which is
+	 * the length of an entry of unknown length, when the length is too large
+	 * to be answered as an integer. Nested archives of that length are
+	 * streamed.
+	 */
+	private static int inputLength(RawZipFile.Entry entry) {
+		long size = entry.getSize();
+		return (size > Integer.MAX_VALUE) ? -1 : (int) size;
+	}
+
+	/**
+	 * Copy an entry of an archive file. The raw data of the entry is copied
+	 * when possible.
+	 */
+	private void copyFileEntry(ArchiveOutput output, RawZipFile inputZipFile, RawZipFile.Entry entry,
+		String outputName) throws IOException {
+
+		if (entry.isCopyable()) {
+			copyRaw(inputZipFile, entry, outputName, output.zipOutputStream());
+		} else {
+			try (InputStream inputStream = inputZipFile.getInputStream(entry)) {
+				copy(inputZipFile.toZipEntry(entry), inputStream, outputName, output.zipOutputStream(),
+					output.copyBuffer());
+			}
+		}
+	}
+
+	/**
+	 * Answer the step which writes a copied entry. The step checks for
+	 * duplicates, copies the entry, and records the copy.
+	 */
+	private TransformerRunnable copyWriter(ArchiveOutput output, Action action, String inputName, String outputName,
+		TransformerRunnable copier, Runnable recorder) {
+
+		return () -> {
+			if ( isDuplicate(inputName, output.inputPath(), outputName, output.outputPath(), output.seen()) ) {
+				recordDuplicate(action, inputName);
+			} else {
+				copier.run();
+				recorder.run();
+			}
+		};
+	}
+
 	/**
 	 * Transform the entries of a zip-type archive. Write transformed entries to
 	 * a zip-type archive.
@@ -246,15 +1179,21 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 
 		useLogger.debug("[ {}.{} ] [ {} ]", className, methodName, inputPath);
 
-		byte[] copyBuffer = new byte[FileUtils.BUFFER_ADJUSTMENT]; // Shared transfer buffer.
-
 		// TODO: The replication of the 'isDuplicate' checks, below,
 		//       indicates that the apply/record pattern is clumsy
 		//       and should be replaced.
 		//
 		// See issue #304.
 
-		Set<String> seen = new HashSet<>();
+		ArchiveOutput output = new ArchiveOutput(inputPath, outputPath, zipOutputStream);
+
+		// When transforming in parallel, entries which were read but not yet
+		// written. Writing is always done in the original entry order, which
+		// keeps the duplicate checks and the change recording deterministic.
+
+		Executor useExecutor = getEntryExecutor();
+		Deque<PendingEntry> pending = (useExecutor == null) ? null : new ArrayDeque<>();
+		long[] pendingBytes = new long[1];
 
 		String prevName = null;
 		String inputName = null;
@@ -267,13 +1206,19 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 				try {
 					inputName = FileUtils.sanitize(inputEntry.getName()); // Avoid ZipSlip
 					if (stripSignatures && ElementAction.SIGNATURE_FILE_PATTERN.matcher(inputName).matches()) {
+						recordAltered(inputName);
 						continue;
 					}
+					if (!inputName.equals(inputEntry.getName())) {
+						recordAltered(inputEntry.getName());
+					}
 					int inputLength = Math.toIntExact(inputEntry.getSize());
 
 					useLogger.debug("[ {}.{} ] Entry [ {} ] Size [ {} ]", className, methodName, inputName, inputLength);
 
 					Action action = selectAction(inputName);
+					SelectionRule.Selection selection = (action != null) ? resourceSelection(inputName) : null;
+					EntryKind kind = EntryKind.of(action, (selection != null) && selection.selected());
 
 					// Duplicate checks must be done for each case
 					// and must be done on the output name.
@@ -301,125 +1246,111 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 					// * Other entries are read entirely, transformed, then the entry is
 					//   put and written.
 
-					if (action == null) {
-						if ( isDuplicate(inputName, inputPath, inputName, outputPath, seen) ) {
-							recordDuplicate(action, inputName);
-						} else {
-							copy(inputEntry, zipInputStream, inputName, zipOutputStream, copyBuffer);
-							recordUnaccepted(inputName);
+					// Copied entries are streamed unless writes are pending. Pending
+					// writes force the entry to be read now and copied later.
+
+					boolean deferWrite = (pending != null) && !pending.isEmpty();
+
+					String copyName = inputName;
+					ZipEntry copyEntry = inputEntry;
+					ByteData copyData = (deferWrite && kind.isCopy())
+						? copyData(inputEntry, inputName, zipInputStream, inputLength)
+						: null;
+					InputStream copyStream = (copyData == null) ? zipInputStream : copyData.stream();
+
+					TransformerRunnable writer;
+
+					switch (kind) {
+						case UNACCEPTED : {
+							writer = copyWriter(output, action, copyName, copyName,
+								() -> copy(copyEntry, copyStream, copyName, zipOutputStream, output.copyBuffer()),
+								() -> recordUnaccepted(copyName));
+							break;
 						}
-					} else if (!selectResource(inputName)) {
-						// Unselected resources are *not* renamed.
-						// The expectation is that files which are deliberately
-						// omitted should not be transformed in any way.
-						if ( isDuplicate(inputName, inputPath, inputName, outputPath, seen) ) {
-							recordDuplicate(action, inputName);
-						} else {
-							copy(inputEntry, zipInputStream, inputName, zipOutputStream, copyBuffer);
-							recordUnselected(inputName);
+
+						case UNSELECTED : {
+							// Unselected resources are *not* renamed.
+							// The expectation is that files which are deliberately
+							// omitted should not be transformed in any way.
+							writer = copyWriter(output, action, copyName, copyName,
+								() -> copy(copyEntry, copyStream, copyName, zipOutputStream, output.copyBuffer()),
+								() -> recordUnselected(copyName));
+							break;
 						}
 
-					} else if (action.isRenameAction()) {
-						RenameAction renameAction = (RenameAction) action;
-						String outputName = renameAction.apply(inputName);
-						outputName = FileUtils.sanitize(outputName);
+						case RENAMED : {
+							RenameAction renameAction = (RenameAction) action;
+							String outputName = renameAction.apply(inputName);
+							outputName = FileUtils.sanitize(outputName);
 
-						if ( isDuplicate(inputName, inputPath, outputName, outputPath, seen) ) {
-							recordDuplicate(action, inputName);
-						} else {
-							copy(inputEntry, zipInputStream, outputName, zipOutputStream, copyBuffer);
-							recordAction(action, inputName);
+							String copyOutputName = outputName;
+							writer = copyWriter(output, action, copyName, copyOutputName,
+								() -> copy(copyEntry, copyStream, copyOutputName, zipOutputStream, output.copyBuffer()),
+								() -> recordAction(action, copyName));
+							break;
 						}
 
-					} else if (action.isArchiveAction()) {
-						ZipActionImpl zipAction = (ZipActionImpl) action;
-						String outputName = zipAction.relocateResource(inputName);
-						outputName = FileUtils.sanitize(outputName);
-
-						if ( isDuplicate(inputName, inputPath, outputName, outputPath, seen) ) {
-							recordDuplicate(zipAction, inputName);
-						} else {
-							try {
-								if (inputEntry.getMethod() == ZipEntry.STORED) {
-									// For STORED, we must know the size of the result
-									// before creating the ZipEntry. So we cannot stream.
-									ByteData inputData = collect(inputName, zipInputStream, inputLength);
-									ByteData outputData = zipAction.apply(inputData);
-									ZipEntry outputEntry = createEntry(inputEntry, outputName, outputData);
-									putEntry(zipOutputStream, outputEntry, () -> outputData.writeTo(zipOutputStream));
-								} else {
-									// For COMPRESSED, we use streaming.
-									// Loading entire archives into memory is to be avoided.
-									// However, that means the new entry name must be known
-									// before invoking 'apply' on the selected action.
-									ZipEntry outputEntry = createEntry(inputEntry, outputName);
-									String putInputName = inputName; // Need these to be effectively final
-									String putOutputName = outputName;
-									putEntry(zipOutputStream, outputEntry, () -> {
-										// Note the use of 'apply' and not the internal 'applyStream'.
-										// Recording must be performed.  And, the streams must be put through
-										// conversion to zip streams as a part of handling nested archives.
-										zipAction.apply(putInputName, zipInputStream, putOutputName, zipOutputStream);
-									});
-								}
-
-								recordAction(zipAction, inputName);
-							} catch (Throwable th) {
-								recordError(zipAction, inputName, th);
+						case ARCHIVE : {
+							// Nested archives are processed on this thread, after
+							// all pending entries have been written.
+							if (pending != null) {
+								writePending(output, pending, pendingBytes, 0);
 							}
+							applyArchive(output, (ZipActionImpl) action, inputEntry, inputName, zipInputStream,
+								inputLength);
+							continue;
 						}
 
-					} else if ( !action.isElementAction() ) {
-						useLogger.warn("Strange: Unknown action type [ {} ] for [ {} ] in {} ]",
-							action.getClass().getName(), inputName, inputPath);
+						case ELEMENT : {
+							ElementAction elementAction = (ElementAction) action;
 
-						if ( isDuplicate(inputName, inputPath, inputName, outputPath, seen) ) {
-							recordDuplicate(action, inputName);
-						} else {
-							copy(inputEntry, zipInputStream, inputName, zipOutputStream, copyBuffer);
-							recordUnaccepted(inputName);
-						}
+							// Collect up front, then allow the action to run, which includes
+							// both renaming and content transformation, then put and write the
+							// entry.
 
-					} else {
-						ElementAction elementAction = (ElementAction) action;
-
-						// Collect up front, then allow the action to run, which includes
-						// both renaming and content transformation, then put and write the
-						// entry.
-
-						ByteData inputData = collect(inputName, zipInputStream, inputLength);
-						boolean beganWrite = false;
-						try {
-							ByteData outputData = elementAction.apply(inputData);
-							String outputName = outputData.name();
-							outputName = FileUtils.sanitize(outputName); // Avoid ZipSlip
-
-							if ( isDuplicate(inputName, inputPath, outputName, outputPath, seen) ) {
-								recordDuplicate(elementAction, inputName);
-							} else {
-								beganWrite = true;
-								if ( elementAction.getLastActiveChanges().isContentChanged() ) {
-									writeModified(inputEntry, inputData, outputData, outputName, zipOutputStream);
-								} else {
-									writeUnmodified(inputEntry, inputData, outputName, zipOutputStream);
-								}
-								recordAction(elementAction, inputName);
-							}
+							ByteData inputData = collect(inputName, zipInputStream, inputLength, selection.charset());
 
-						} catch (Throwable t) {
-							if ( !beganWrite ) {
-								writeUnmodified(inputEntry, inputData, inputName, zipOutputStream);
-							} else {
-								useLogger.error("Write failure of [ {} ] of [ {} ]", inputName, inputPath);
+							if (pending != null) {
+								CompletableFuture<TransformerRunnable> transformer = CompletableFuture.supplyAsync(
+									() -> transform(elementAction, copyEntry, inputData, copyName, output, null, null),
+									useExecutor);
+								addPending(output, pending, pendingBytes,
+									new PendingEntry(copyEntry, copyName, elementAction, inputData, true, transformer));
+								continue;
 							}
-							recordError(action, inputName, t);
+
+							writer = transform(elementAction, inputEntry, inputData, inputName, output, null, null);
+							break;
+						}
+
+						default : {
+							useLogger.warn("Strange: Unknown action type [ {} ] for [ {} ] in {} ]",
+								action.getClass().getName(), inputName, inputPath);
+
+							writer = copyWriter(output, action, copyName, copyName,
+								() -> copy(copyEntry, copyStream, copyName, zipOutputStream, output.copyBuffer()),
+								() -> recordUnaccepted(copyName));
+							break;
 						}
 					}
+
+					if (deferWrite) {
+						addPending(output, pending, pendingBytes, new PendingEntry(copyEntry, copyName, action, copyData,
+							false, CompletableFuture.completedFuture(writer)));
+					} else {
+						writer.run();
+					}
+
 				} catch (Throwable t) {
 					useLogger.error("Transform failure [ {} ] of [ {} ]", inputName, inputPath, t);
+					recordAltered(inputEntry.getName());
 				}
 			}
 
+			if (pending != null) {
+				writePending(output, pending, pendingBytes, 0);
+			}
+
 		} catch (IOException e) {
 			String message;
 			if (inputName != null) {
@@ -436,6 +1367,257 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		}
 	}
 
+	/**
+	 * Transform a nested archive and write the transformed archive. Failures
+	 * are recorded against the nested archive.
+	 */
+	private void applyArchive(ArchiveOutput output, ZipActionImpl zipAction, ZipEntry inputEntry, String inputName,
+		InputStream inputStream, int inputLength) throws TransformException {
+
+		ZipOutputStream zipOutputStream = output.zipOutputStream();
+
+		String outputName = zipAction.relocateResource(inputName);
+		outputName = FileUtils.sanitize(outputName);
+
+		if ( isDuplicate(inputName, output.inputPath(), outputName, output.outputPath(), output.seen()) ) {
+			recordDuplicate(zipAction, inputName);
+			return;
+		}
+
+		try {
+			if (inputEntry.getMethod() == ZipEntry.STORED) {
+				// For STORED, we must know the size and CRC of the result
+				// before creating the ZipEntry. The nested archive is
+				// transformed to memory or to a temporary file, which computes
+				// the size and CRC. The original nested archive is copied as
+				// it is read, and is written if the nested archive is not
+				// changed.
+				//
+				// The stream cannot be read again, which means that the copy
+				// and the transformed archive are both held until the
+				// transformation completes. Both are held in memory only when
+				// together they are no larger than the spill threshold, and
+				// the one which is not written is discarded before the other
+				// is written.
+				boolean useFile = (inputLength < 0) || (inputLength > getContext().spillThreshold() / 2);
+				ArchiveData inputCopy = new ArchiveData(getContext(), useFile);
+				ArchiveData transformedData = null;
+				try {
+					transformedData = new ArchiveData(getContext(), useFile);
+					CopyingInputStream copyingStream = new CopyingInputStream(inputStream, inputCopy.outputStream());
+					// Note the use of 'apply' and not the internal 'applyStream'.
+					// Recording must be performed.
+					zipAction.apply(inputName, copyingStream, outputName, transformedData.outputStream());
+					// The transformation does not read the central directory
+					// of the nested archive, which must be copied.
+					copyingStream.transferTo(OutputStream.nullOutputStream());
+					inputCopy.close();
+					transformedData.close();
+
+					ArchiveData outputData;
+					if (zipAction.getLastActiveChanges()
+						.isContentChanged()) {
+						inputCopy.delete();
+						outputData = transformedData;
+					} else {
+						transformedData.delete();
+						outputData = inputCopy;
+					}
+					ZipEntry outputEntry = createEntry(inputEntry, outputName);
+					outputEntry.setSize(outputData.length());
+					outputEntry.setCompressedSize(outputData.length());
+					outputEntry.setCrc(outputData.crc());
+					putEntry(zipOutputStream, outputEntry, () -> outputData.writeTo(zipOutputStream));
+				} finally {
+					inputCopy.delete();
+					if (transformedData != null) {
+						transformedData.delete();
+					}
+				}
+			} else {
+				// For COMPRESSED, we use streaming.
+				// Loading entire archives into memory is to be avoided.
+				// However, that means the new entry name must be known
+				// before invoking 'apply' on the selected action.
+				ZipEntry outputEntry = createEntry(inputEntry, outputName);
+				String putOutputName = outputName; // Need this to be effectively final
+				putEntry(zipOutputStream, outputEntry, () -> {
+					// Note the use of 'apply' and not the internal 'applyStream'.
+					// Recording must be performed.  And, the streams must be put through
+					// conversion to zip streams as a part of handling nested archives.
+					zipAction.apply(inputName, inputStream, putOutputName, zipOutputStream);
+				});
+			}
+
+			recordAction(zipAction, inputName);
+		} catch (Throwable th) {
+			recordError(zipAction, inputName, th);
+		}
+	}
+
+	/**
+	 * Transform an entry using an element action. Answer the step which writes
+	 * the transformed entry and which records the changes.
+	 * <p>
+	 * When transforming in parallel, the transformation is performed by a
+	 * worker thread and the returned step is run later, in entry order, by the
+	 * thread which is writing the archive. The changes made by the action are
+	 * captured on the transforming thread for that reason.
+	 * <p>
+	 * When a raw entry is available, an entry the content of which is not
+	 * changed is written by copying the raw entry.
+	 *
+	 * @return The step which writes the transformed entry.
+	 */
+	private TransformerRunnable transform(
+		ElementAction elementAction, ZipEntry inputEntry, ByteData inputData, String inputName,
+		ArchiveOutput output, RawZipFile rawZipFile, RawZipFile.Entry rawEntry) {
+
+		ZipOutputStream zipOutputStream = output.zipOutputStream();
+
+		ByteData outputData;
+		Changes lastChanges;
+		try {
+			outputData = elementAction.apply(inputData);
+			lastChanges = elementAction.getLastActiveChanges();
+		} catch (Throwable t) {
+			return () -> {
+				try {
+					writeUnmodified(inputEntry, rawZipFile, rawEntry, inputData, inputName, zipOutputStream);
+				} finally {
+					inputData.release();
+				}
+				recordError(elementAction, inputName, t);
+			};
+		}
+
+		// The data of the entry is released once the entry is written, which
+		// returns pooled buffers to the pool.
+		return () -> {
+			boolean beganWrite = false;
+			try {
+				String outputName = outputData.name();
+				outputName = FileUtils.sanitize(outputName); // Avoid ZipSlip
+
+				if ( isDuplicate(inputName, output.inputPath(), outputName, output.outputPath(), output.seen()) ) {
+					recordDuplicate(elementAction, inputName);
+				} else {
+					beganWrite = true;
+					if ( lastChanges.isContentChanged() ) {
+						writeModified(inputEntry, inputData, outputData, outputName, zipOutputStream);
+					} else {
+						writeUnmodified(inputEntry, rawZipFile, rawEntry, inputData, outputName, zipOutputStream);
+					}
+					recordAction(elementAction, inputName, lastChanges);
+				}
+
+			} catch (Throwable t) {
+				if ( !beganWrite ) {
+					writeUnmodified(inputEntry, rawZipFile, rawEntry, inputData, inputName, zipOutputStream);
+				} else {
+					getLogger().error("Write failure of [ {} ] of [ {} ]", inputName, output.inputPath());
+				}
+				recordError(elementAction, inputName, t);
+			} finally {
+				outputData.release();
+				inputData.release();
+			}
+		};
+	}
+
+	/**
+	 * Collect the data of an entry which is copied after entries which are
+	 * pending are written. Directories have no data.
+	 */
+	private ByteData copyData(ZipEntry inputEntry, String inputName, ZipInputStream zipInputStream, int inputLength)
+		throws TransformException {
+		if (inputEntry.isDirectory()) {
+			return null;
+		}
+		return collect(inputName, zipInputStream, inputLength);
+	}
+
+	private void addPending(ArchiveOutput output, Deque<PendingEntry> pending, long[] pendingBytes,
+		PendingEntry pendingEntry) {
+		pending.addLast(pendingEntry);
+		pendingBytes[0] += pendingEntry.inputLength();
+
+		// Write whatever is complete, then, wait for the oldest entries
+		// until the pending limits are met.
+
+		while (!pending.isEmpty() && pending.peekFirst()
+			.writer()
+			.isDone()) {
+			writeNext(output, pending, pendingBytes);
+		}
+		while ((pending.size() > MAX_PENDING_ENTRIES) || (pendingBytes[0] > MAX_PENDING_BYTES)) {
+			writeNext(output, pending, pendingBytes);
+		}
+	}
+
+	private void writePending(ArchiveOutput output, Deque<PendingEntry> pending, long[] pendingBytes, int limit) {
+		while (pending.size() > limit) {
+			writeNext(output, pending, pendingBytes);
+		}
+	}
+
+	private void writeNext(ArchiveOutput output, Deque<PendingEntry> pending, long[] pendingBytes) {
+		PendingEntry pendingEntry = pending.pollFirst();
+		pendingBytes[0] -= pendingEntry.inputLength();
+
+		TransformerRunnable writer;
+		try {
+			writer = pendingEntry.writer()
+				.join();
+		} catch (Throwable t) {
+			// The entry was not transformed: Its data was not released.
+			writeFailed(output, pendingEntry, true, t);
+			return;
+		}
+
+		try {
+			writer.run();
+		} catch (Throwable t) {
+			writeFailed(output, pendingEntry, !pendingEntry.writerReleases(), t);
+			return;
+		}
+		if (!pendingEntry.writerReleases()) {
+			release(pendingEntry.inputData());
+		}
+	}
+
+	/**
+	 * Handle a pending entry which could not be written: Write the data of the
+	 * entry unchanged, unless an entry of the same name was already written,
+	 * and record the failure.
+	 *
+	 * @param output The output of the archive.
+	 * @param pendingEntry The entry which could not be written.
+	 * @param hasData Tell if the data of the entry is still held.
+	 * @param t The failure.
+	 */
+	private void writeFailed(ArchiveOutput output, PendingEntry pendingEntry, boolean hasData, Throwable t) {
+		String inputName = pendingEntry.inputName();
+		ByteData inputData = hasData ? pendingEntry.inputData() : null;
+		try {
+			if ((inputData != null) && output.seen()
+				.add(inputName)) {
+				writeUnmodified(pendingEntry.inputEntry(), inputData, inputName, output.zipOutputStream());
+			}
+		} catch (Throwable th) {
+			getLogger().error("Write failure of [ {} ] of [ {} ]", inputName, output.inputPath(), th);
+		} finally {
+			release(inputData);
+		}
+		recordError(pendingEntry.action(), inputName, t);
+	}
+
+	private static void release(ByteData data) {
+		if (data != null) {
+			data.release();
+		}
+	}
+
 	private void printZipActionDuration(final String inputName) {
 		if (getLogger().isInfoEnabled()) {
 			getLogger().info("Stop processing [ {} ] using [ {} ] took [ {}ms ]: {}",
@@ -444,6 +1626,25 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		}
 	}
 
+	/**
+	 * Record a duplicate entry. Duplicate entries are not written, which means
+	 * that the archive is not written as it was read.
+	 */
+	@Override
+	protected void recordDuplicate(Action action, String resourceName) {
+		super.recordDuplicate(action, resourceName);
+		recordAltered(resourceName);
+	}
+
+	/**
+	 * Record an entry which is not written as it was read, but which is not
+	 * changed by an action. See {@link ContainerChangesImpl#recordAltered()}.
+	 */
+	private void recordAltered(String entryName) {
+		getLogger().debug("Entry [ {} ]: Altered", entryName);
+		getActiveChanges().recordAltered();
+	}
+
 	private void printAdviseOnUnchanged(final String inputName) {
 		if (getLogger().isInfoEnabled() && !getActiveChanges().isChanged()) {
 			// we could at least test all ZipActionImpl, but if we do it
@@ -456,7 +1657,7 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 	}
 
 	private void copy(
-		ZipEntry inputEntry, ZipInputStream zipInputStream,
+		ZipEntry inputEntry, InputStream inputStream,
         String outputName, ZipOutputStream zipOutputStream,
         byte[] buffer) throws IOException {
 
@@ -465,7 +1666,7 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		ZipEntry outputEntry = copyEntry(inputEntry, outputName);
 		putEntry(zipOutputStream, outputEntry, () -> {
 			if ( !inputEntry.isDirectory() ) {
-				long bytesWritten = FileUtils.transfer(zipInputStream, zipOutputStream, buffer);
+				long bytesWritten = FileUtils.transfer(inputStream, zipOutputStream, buffer);
 				getLogger().trace("Copied [ {} ] bytes to [ {} ]", bytesWritten, outputName);
 			}
 		});
@@ -482,6 +1683,28 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 		putEntry(zipOutputStream, outputEntry, () -> outputData.writeTo(zipOutputStream));
 	}
 
+	private void writeUnmodified(
+		ZipEntry inputEntry, RawZipFile rawZipFile, RawZipFile.Entry rawEntry,
+		ByteData outputData, String outputName, ZipOutputStream zipOutputStream)
+		throws IOException {
+
+		if (rawEntry != null) {
+			getLogger().trace("Write unmodified entry [ {} ] raw bytes [ {} ]", outputName,
+				rawEntry.getCompressedSize());
+			copyRaw(rawZipFile, rawEntry, outputName, zipOutputStream);
+		} else {
+			writeUnmodified(inputEntry, outputData, outputName, zipOutputStream);
+		}
+	}
+
+	private void copyRaw(
+		RawZipFile rawZipFile, RawZipFile.Entry rawEntry,
+		String outputName, ZipOutputStream zipOutputStream) throws IOException {
+
+		((RawZipOutputStream) zipOutputStream).copyRawEntry(rawZipFile, rawEntry, outputName);
+		getLogger().trace("Copied [ {} ] raw bytes to [ {} ]", rawEntry.getCompressedSize(), outputName);
+	}
+
 	public void writeModified(
 		ZipEntry inputEntry, ByteData inputData,
 		ByteData outputData, String outputName, ZipOutputStream zipOutputStream)
@@ -494,9 +1717,6 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 	}
 
 	private ZipEntry createEntry(ZipEntry inputEntry, String outputName) {
-		// Unless already set, putNextEntry sets the last modified time.
-		// of the entry.
-
 		ZipEntry outputEntry = new ZipEntry(outputName);
 
 		int method = inputEntry.getMethod();
@@ -513,6 +1733,12 @@ public class ZipActionImpl extends ContainerActionImpl implements ElementAction
 			outputEntry.setExtra(inputExtra);
 		}
 
+		// Set the time the same as ZipOutputStream.putNextEntry does for an
+		// entry the time of which was not set. That replaces a last modified
+		// time which was read from the extra data, which the raw ZIP output
+		// stream would otherwise write.
+		outputEntry.setTime(System.currentTimeMillis());
+
 		return outputEntry;
 	}
 
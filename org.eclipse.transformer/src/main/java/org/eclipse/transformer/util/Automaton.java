@@ -0,0 +1,311 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton, which is shared by the compiled matchers.
+ * <p>
+ * Patterns are added to a {@link Builder} as sequences of symbols, and each
+ * node which ends a pattern is given integer payloads. The matchers supply
+ * the symbols, which are characters or unsigned bytes, and interpret the
+ * payloads.
+ * <p>
+ * Nodes are numbered breadth first, with node 0 the root. Fail and output
+ * transitions therefore always lead to nodes which are earlier in that order,
+ * which lets matchers propagate their payloads along the fail chain in a
+ * single pass over the nodes. Transitions are held in sorted arrays. When the
+ * alphabet is small, transitions from the root are also held in a complete
+ * table, since most symbols of most text do not start a pattern.
+ */
+final class Automaton {
+	/** Size of alphabets which use a complete table of root transitions. */
+	static final int	BYTE_ALPHABET	= 256;
+	/** Size of the alphabet of characters. */
+	static final int	CHAR_ALPHABET	= Character.MAX_VALUE + 1;
+
+	/**
+	 * Builder of the trie of the patterns.
+	 */
+	static final class Builder {
+		private final int			alphabetSize;
+		private final List<Node>	nodes	= new ArrayList<>();
+
+		/**
+		 * Create a builder.
+		 *
+		 * @param alphabetSize The number of distinct symbols.
+		 */
+		Builder(int alphabetSize) {
+			this.alphabetSize = alphabetSize;
+			nodes.add(new Node());
+		}
+
+		/**
+		 * Answer the root of the trie, at which every pattern starts.
+		 *
+		 * @return The root of the trie.
+		 */
+		int root() {
+			return 0;
+		}
+
+		/**
+		 * Answer the node which follows a node on a symbol, adding the node if
+		 * it does not exist.
+		 *
+		 * @param node The node which is to be extended.
+		 * @param symbol The symbol which extends the node.
+		 * @return The node which follows the node on the symbol.
+		 */
+		int next(int node, char symbol) {
+			if (symbol >= alphabetSize) {
+				throw new IllegalArgumentException("Symbol [ " + (int) symbol + " ] is outside of the alphabet");
+			}
+			TreeMap<Character, Integer> nodeChildren = nodes.get(node).children;
+			Integer next = nodeChildren.get(symbol);
+			if (next == null) {
+				next = nodes.size();
+				nodes.add(new Node());
+				nodeChildren.put(symbol, next);
+			}
+			return next;
+		}
+
+		/**
+		 * Record that a node ends a pattern.
+		 *
+		 * @param node The node which ends the pattern.
+		 * @param payload The payload of the pattern.
+		 */
+		void accept(int node, int payload) {
+			nodes.get(node).payloads.add(payload);
+		}
+
+		/**
+		 * Number the nodes and compute the fail and output transitions.
+		 *
+		 * @return The automaton.
+		 */
+		Automaton build() {
+			return new Automaton(alphabetSize, nodes);
+		}
+	}
+
+	private static final class Node {
+		int									index;
+		int									depth;
+		final TreeMap<Character, Integer>	children	= new TreeMap<>();
+		final List<Integer>					payloads	= new ArrayList<>(1);
+	}
+
+	private Automaton(int alphabetSize, List<Node> builderNodes) {
+		List<Node> nodes = new ArrayList<>(builderNodes.size());
+		Deque<Node> queue = new ArrayDeque<>();
+		queue.add(builderNodes.get(0));
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			node.index = nodes.size();
+			nodes.add(node);
+			for (int child : node.children.values()) {
+				Node childNode = builderNodes.get(child);
+				childNode.depth = node.depth + 1;
+				queue.add(childNode);
+			}
+		}
+
+		int nodeCount = nodes.size();
+		this.labels = new char[nodeCount][];
+		this.children = new int[nodeCount][];
+		this.payloads = new int[nodeCount][];
+		this.depth = new int[nodeCount];
+		this.fail = new int[nodeCount];
+		this.output = new int[nodeCount];
+
+		for (Node node : nodes) {
+			int nodeIndex = node.index;
+			char[] nodeLabels = new char[node.children.size()];
+			int[] nodeChildren = new int[nodeLabels.length];
+			int childNo = 0;
+			for (Map.Entry<Character, Integer> childEntry : node.children.entrySet()) {
+				nodeLabels[childNo] = childEntry.getKey();
+				nodeChildren[childNo] = builderNodes.get(childEntry.getValue()).index;
+				childNo++;
+			}
+			labels[nodeIndex] = nodeLabels;
+			children[nodeIndex] = nodeChildren;
+			payloads[nodeIndex] = node.payloads.stream()
+				.mapToInt(Integer::intValue)
+				.toArray();
+			depth[nodeIndex] = node.depth;
+		}
+
+		if (alphabetSize <= BYTE_ALPHABET) {
+			this.rootNext = new int[alphabetSize];
+			char[] rootLabels = labels[0];
+			for (int childNo = 0; childNo < rootLabels.length; childNo++) {
+				rootNext[rootLabels[childNo]] = children[0][childNo];
+			}
+		} else {
+			this.rootNext = null;
+		}
+
+		// Fail transitions go to the node of the longest proper suffix which
+		// is also a pattern prefix. Output transitions go to the nearest node
+		// on the fail chain which ends a pattern.
+
+		output[0] = -1;
+		for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++) {
+			char[] nodeLabels = labels[nodeIndex];
+			int[] nodeChildren = children[nodeIndex];
+			for (int childNo = 0; childNo < nodeLabels.length; childNo++) {
+				int child = nodeChildren[childNo];
+				int childFail = (nodeIndex == 0) ? 0 : step(fail[nodeIndex], nodeLabels[childNo]);
+				fail[child] = childFail;
+				output[child] = (payloads[childFail].length != 0) ? childFail : output[childFail];
+			}
+		}
+	}
+
+	// Per-node data. Node 0 is the root. Node labels are sorted.
+
+	private final int[]		rootNext;
+	private final char[][]	labels;
+	private final int[][]	children;
+	private final int[][]	payloads;
+	private final int[]		depth;
+	private final int[]		fail;
+	private final int[]		output;
+
+	/**
+	 * Answer the number of nodes.
+	 *
+	 * @return The number of nodes.
+	 */
+	int size() {
+		return labels.length;
+	}
+
+	/**
+	 * Answer the child of a node on a symbol.
+	 *
+	 * @param node The node.
+	 * @param symbol The symbol.
+	 * @return The child of the node on the symbol. Answer -1 if the node has
+	 *         no such child. A complete root table answers 0 instead.
+	 */
+	int child(int node, char symbol) {
+		if ((node == 0) && (rootNext != null)) {
+			return rootNext[symbol];
+		}
+		char[] nodeLabels = labels[node];
+		int low = 0;
+		int high = nodeLabels.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = nodeLabels[middle];
+			if (label < symbol) {
+				low = middle + 1;
+			} else if (label > symbol) {
+				high = middle - 1;
+			} else {
+				return children[node][middle];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Answer the node which is reached from a node on a symbol, following
+	 * fail transitions as needed.
+	 *
+	 * @param node The node.
+	 * @param symbol The symbol.
+	 * @return The next node. The root if no pattern prefix is matched.
+	 */
+	int step(int node, char symbol) {
+		while (true) {
+			int next = child(node, symbol);
+			if (next > 0) {
+				return next;
+			}
+			if (node == 0) {
+				return 0;
+			}
+			node = fail[node];
+		}
+	}
+
+	/**
+	 * Answer the children of a node.
+	 *
+	 * @param node The node.
+	 * @return The children of the node. The array must not be modified.
+	 */
+	int[] children(int node) {
+		return children[node];
+	}
+
+	/**
+	 * Answer the payloads of the patterns which end at a node, in the order
+	 * in which they were accepted.
+	 *
+	 * @param node The node.
+	 * @return The payloads of the node. The array must not be modified.
+	 */
+	int[] payloads(int node) {
+		return payloads[node];
+	}
+
+	/**
+	 * Answer the length of the pattern prefix of a node.
+	 *
+	 * @param node The node.
+	 * @return The length of the pattern prefix of the node.
+	 */
+	int depth(int node) {
+		return depth[node];
+	}
+
+	/**
+	 * Answer the fail transition of a node.
+	 *
+	 * @param node The node.
+	 * @return The node of the longest proper suffix of the node which is a
+	 *         pattern prefix. The root answers itself.
+	 */
+	int fail(int node) {
+		return fail[node];
+	}
+
+	/**
+	 * Answer the output transition of a node.
+	 *
+	 * @param node The node.
+	 * @return The nearest node on the fail chain of the node which ends a
+	 *         pattern. Answer -1 if there is no such node.
+	 */
+	int output(int node) {
+		return output[node];
+	}
+
+	@Override
+	public String toString() {
+		return "Automaton [ " + labels.length + " nodes ]";
+	}
+}
@@ -0,0 +1,173 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe cache with a bounded number of entries.
+ * <p>
+ * Reads are lock-free. When an entry is added which puts the cache over its
+ * maximum size, the oldest entries are evicted. Eviction is in insertion
+ * order, which is cheap and which is adequate for the memoization of pure
+ * functions, for which an evicted entry can be recomputed.
+ * <p>
+ * Hits, misses, and evictions are counted. Counting uses striped counters,
+ * which do not contend across threads.
+ *
+ * @param <K> The type of the keys of the cache.
+ * @param <V> The type of the values of the cache.
+ */
+public class BoundedCache<K, V> {
+	/** Maximum size of a cache which is not bounded. */
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param name The name of the cache, which is used when displaying the
+	 *            cache statistics.
+	 * @param maxSize The maximum number of entries of the cache. A value of
+	 *            zero disables the cache.
+	 */
+	public BoundedCache(String name, int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Non-valid cache size [ " + maxSize + " ] for [ " + name + " ]");
+		}
+		this.name = name;
+		this.maxSize = maxSize;
+		this.entries = new ConcurrentHashMap<>();
+		this.insertionOrder = new ConcurrentLinkedQueue<>();
+		this.size = new AtomicInteger();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	private final String				name;
+	private final int					maxSize;
+	private final Map<K, V>				entries;
+	private final Queue<K>				insertionOrder;
+	private final AtomicInteger			size;
+	private final LongAdder				hits;
+	private final LongAdder				misses;
+	private final LongAdder				evictions;
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Answer the value which is cached for a key.
+	 *
+	 * @param key The key which is to be retrieved.
+	 * @return The value cached for the key. Null if no value is cached.
+	 */
+	public V get(K key) {
+		V value = entries.get(key);
+		if (value == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Cache a value. Entries are evicted, oldest first, while the cache is
+	 * larger than its maximum size. A value which is already cached for the
+	 * key is not replaced.
+	 *
+	 * @param key The key of the value.
+	 * @param value The value which is to be cached.
+	 */
+	public void put(K key, V value) {
+		if (maxSize == 0) {
+			return;
+		}
+		if (entries.putIfAbsent(key, value) != null) {
+			return; // Computed concurrently by another thread.
+		}
+		insertionOrder.add(key);
+		if (size.incrementAndGet() > maxSize) {
+			evict();
+		}
+	}
+
+	private void evict() {
+		K evictKey;
+		while ((size.get() > maxSize) && ((evictKey = insertionOrder.poll()) != null)) {
+			if (entries.remove(evictKey) != null) {
+				size.decrementAndGet();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries. The statistics are not reset.
+	 */
+	public void clear() {
+		K clearKey;
+		while ((clearKey = insertionOrder.poll()) != null) {
+			if (entries.remove(clearKey) != null) {
+				size.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Statistics of a cache.
+	 *
+	 * @param name The name of the cache.
+	 * @param size The number of entries of the cache.
+	 * @param maxSize The maximum number of entries of the cache.
+	 * @param hits The number of retrievals which answered a value.
+	 * @param misses The number of retrievals which did not answer a value.
+	 * @param evictions The number of entries which were evicted.
+	 */
+	public record Statistics(String name, int size, int maxSize, long hits, long misses, long evictions) {
+		@Override
+		public String toString() {
+			return "Cache [ " + name + " ] Size [ " + size + " ] Max [ " + maxSize + " ] Hits [ " + hits
+				+ " ] Misses [ " + misses + " ] Evictions [ " + evictions + " ]";
+		}
+	}
+
+	/**
+	 * Answer a snapshot of the statistics of the cache. The values are not
+	 * captured atomically.
+	 *
+	 * @return The statistics of the cache.
+	 */
+	public Statistics getStatistics() {
+		return new Statistics(name, size.get(), maxSize, hits.sum(), misses.sum(), evictions.sum());
+	}
+
+	@Override
+	public String toString() {
+		return getStatistics().toString();
+	}
+}
@@ -0,0 +1,140 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte arrays, which are reused for the data of transformed
+ * resources.
+ * <p>
+ * Arrays are allocated in size classes, each of which is a power of two. A
+ * borrowed array has the size of the smallest class which holds the requested
+ * number of bytes. Arrays which are larger than the largest class are not
+ * pooled.
+ * <p>
+ * Each size class retains a bounded number of returned arrays. Arrays which
+ * are returned to a full size class are left to the garbage collector.
+ * <p>
+ * The content of a borrowed array is not cleared: Borrowers must only read
+ * bytes which they have written.
+ */
+public final class BufferPool {
+	/** The size of the smallest size class: 1 KB. */
+	public static final int			MIN_CLASS_SHIFT		= 10;
+	/** The size of the largest size class: 4 MB. */
+	public static final int			MAX_CLASS_SHIFT		= 22;
+	/** The number of bytes which each size class retains. */
+	public static final int			RETAINED_PER_CLASS	= 1 << 22;
+
+	private static final BufferPool	DEFAULT				= new BufferPool();
+
+	/**
+	 * Answer the pool which is shared by the actions.
+	 *
+	 * @return The shared pool.
+	 */
+	public static BufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	@SuppressWarnings("unchecked")
+	public BufferPool() {
+		int classCount = MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1;
+		this.free = new Queue[classCount];
+		this.freeCounts = new AtomicInteger[classCount];
+		this.maxFreeCounts = new int[classCount];
+		for (int classNo = 0; classNo < classCount; classNo++) {
+			free[classNo] = new ConcurrentLinkedQueue<>();
+			freeCounts[classNo] = new AtomicInteger();
+			maxFreeCounts[classNo] = Math.max(1, RETAINED_PER_CLASS >> (MIN_CLASS_SHIFT + classNo));
+		}
+	}
+
+	private final Queue<byte[]>[]	free;
+	private final AtomicInteger[]	freeCounts;
+	private final int[]				maxFreeCounts;
+
+	/**
+	 * Answer the size class of a number of bytes.
+	 *
+	 * @param size A number of bytes.
+	 * @return The index of the smallest size class which holds the bytes. -1
+	 *         if the bytes are larger than the largest size class.
+	 */
+	private static int sizeClass(int size) {
+		if (size <= (1 << MIN_CLASS_SHIFT)) {
+			return 0;
+		}
+		int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+		return (shift > MAX_CLASS_SHIFT) ? -1 : shift - MIN_CLASS_SHIFT;
+	}
+
+	/**
+	 * Borrow an array. The array should be returned using
+	 * {@link #release(byte[])} once its content is no longer used.
+	 *
+	 * @param minCapacity The minimum size of the array.
+	 * @return An array which is at least as large as the minimum size.
+	 */
+	public byte[] borrow(int minCapacity) {
+		int classNo = sizeClass(minCapacity);
+		if (classNo < 0) {
+			return new byte[minCapacity];
+		}
+		byte[] array = free[classNo].poll();
+		if (array == null) {
+			return new byte[1 << (MIN_CLASS_SHIFT + classNo)];
+		}
+		freeCounts[classNo].decrementAndGet();
+		return array;
+	}
+
+	/**
+	 * Return an array to the pool. Arrays which do not have the size of a size
+	 * class were not borrowed from the pool and are ignored.
+	 * <p>
+	 * The array must not be used after it is returned.
+	 *
+	 * @param array The array which is returned.
+	 */
+	public void release(byte[] array) {
+		int size = array.length;
+		if ((size < (1 << MIN_CLASS_SHIFT)) || (Integer.bitCount(size) != 1)) {
+			return;
+		}
+		int classNo = sizeClass(size);
+		if (classNo < 0) {
+			return;
+		}
+		if (freeCounts[classNo].incrementAndGet() > maxFreeCounts[classNo]) {
+			freeCounts[classNo].decrementAndGet();
+			return;
+		}
+		free[classNo].offer(array);
+	}
+
+	/**
+	 * Answer the number of arrays which are retained by the pool.
+	 *
+	 * @return The number of retained arrays.
+	 */
+	public int getRetainedCount() {
+		int retained = 0;
+		for (AtomicInteger freeCount : freeCounts) {
+			retained += freeCount.get();
+		}
+		return retained;
+	}
+}
@@ -0,0 +1,175 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiled matcher which tells if a byte sequence contains any of a set of
+ * byte patterns.
+ * <p>
+ * The patterns are compiled into an Aho-Corasick automaton, which examines
+ * each byte of a sequence once. Bytes are supplied to {@code Automaton} as
+ * unsigned symbols, so that transitions from the root are held in a complete
+ * table, since most bytes of most sequences do not start a pattern.
+ */
+public class ByteMatcher {
+	/**
+	 * Compile text patterns, which are matched using their UTF-8 encodings.
+	 * <p>
+	 * A pattern which has no UTF-8 encoding, or which contains the
+	 * replacement character, can match text which was decoded from bytes
+	 * which do not contain the encoding of the pattern. Such a pattern is
+	 * compiled as an empty pattern, which matches every sequence.
+	 *
+	 * @param patterns The patterns which are to be matched.
+	 * @return The compiled matcher.
+	 */
+	public static ByteMatcher utf8(Collection<String> patterns) {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPORT)
+			.onUnmappableCharacter(CodingErrorAction.REPORT);
+		List<byte[]> bytes = new ArrayList<>(patterns.size());
+		for (String pattern : patterns) {
+			if (pattern.indexOf('\uFFFD') != -1) {
+				bytes.add(new byte[0]);
+				continue;
+			}
+			try {
+				ByteBuffer encoded = encoder.encode(CharBuffer.wrap(pattern));
+				byte[] encodedBytes = new byte[encoded.remaining()];
+				encoded.get(encodedBytes);
+				bytes.add(encodedBytes);
+			} catch (CharacterCodingException e) {
+				bytes.add(new byte[0]);
+			}
+		}
+		return new ByteMatcher(bytes);
+	}
+
+	/**
+	 * Compile byte patterns.
+	 *
+	 * @param patterns The patterns which are to be matched. An empty pattern
+	 *            matches every sequence.
+	 */
+	public ByteMatcher(Collection<byte[]> patterns) {
+		Automaton.Builder builder = new Automaton.Builder(Automaton.BYTE_ALPHABET);
+		boolean useMatchesAll = false;
+		boolean useAscii = true;
+		for (byte[] pattern : patterns) {
+			if (pattern.length == 0) {
+				useMatchesAll = true;
+				continue;
+			}
+			int node = builder.root();
+			for (byte b : pattern) {
+				if (b < 0) {
+					useAscii = false;
+				}
+				node = builder.next(node, (char) (b & 0xFF));
+			}
+			builder.accept(node, 0);
+		}
+		this.automaton = builder.build();
+		this.matchesAll = useMatchesAll;
+		this.ascii = useAscii;
+		this.empty = (automaton.size() == 1) && !useMatchesAll;
+
+		// A node is terminal if it or any node on its fail chain ends a
+		// pattern.
+
+		int nodeCount = automaton.size();
+		this.terminal = new boolean[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			terminal[node] = (automaton.payloads(node).length != 0) || (automaton.output(node) != -1);
+		}
+	}
+
+	private final boolean	matchesAll;
+	private final boolean	empty;
+	private final boolean	ascii;
+
+	private final Automaton	automaton;
+	private final boolean[]	terminal;
+
+	/**
+	 * Tell if the matcher has no patterns, in which case no sequence is
+	 * matched.
+	 *
+	 * @return True or false telling if the matcher has no patterns.
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * Tell if every pattern consists of ASCII bytes. ASCII patterns match the
+	 * same text in every charset which encodes ASCII characters as single
+	 * ASCII bytes.
+	 *
+	 * @return True or false telling if every pattern is ASCII.
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * Tell if a range of a buffer contains any of the patterns. The buffer
+	 * position and limit are not used and are not changed.
+	 *
+	 * @param buffer The buffer which is to be examined.
+	 * @param start The offset of the first byte which is to be examined.
+	 * @param end The offset after the last byte which is to be examined.
+	 * @return True or false telling if the range contains any of the
+	 *         patterns.
+	 */
+	public boolean matches(ByteBuffer buffer, int start, int end) {
+		if (matchesAll) {
+			return true;
+		}
+		if (empty) {
+			return false;
+		}
+		int node = 0;
+		for (int offset = start; offset < end; offset++) {
+			node = automaton.step(node, (char) (buffer.get(offset) & 0xFF));
+			if (terminal[node]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tell if a byte array contains any of the patterns.
+	 *
+	 * @param bytes The bytes which are to be examined.
+	 * @return True or false telling if the bytes contain any of the patterns.
+	 */
+	public boolean matches(byte[] bytes) {
+		return matches(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	@Override
+	public String toString() {
+		return "ByteMatcher [ " + automaton.size() + " nodes ]" + (matchesAll ? " (all)" : "");
+	}
+}
@@ -12,6 +12,7 @@
 package org.eclipse.transformer.util;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,6 +24,9 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.regex.Pattern;
 
 import aQute.lib.io.ByteBufferInputStream;
@@ -104,6 +108,10 @@ public class FileUtils {
 	/**
 	 * Read data from an input stream. Use an possibly update the input buffer.
 	 * See {@link #read(String, InputStream, ByteBuffer)}.
+	 * <p>
+	 * The data is read into an array which is borrowed from the default
+	 * buffer pool. The array is returned to the pool when the byte data is
+	 * released. See {@link ByteData#release()}.
 	 *
 	 * @param logger A logger for debugging output.
 	 * @param inputName The name of the input stream.
@@ -119,15 +127,32 @@ public class FileUtils {
 
 		logger.debug("Reading [ {} ] bytes [ {} ]", inputName, requested);
 
-		ByteBuffer initialBuffer = ByteBuffer.allocate((requested < 0) ? BUFFER_ADJUSTMENT : requested);
-
-		ByteBuffer finalBuffer = read(inputName, inputStream, initialBuffer, requested);
+		if ( requested == 0 ) {
+			return new ByteDataImpl(inputName, ByteBuffer.allocate(0), charset);
+		}
 
 		if ( requested < 0 ) {
-			logger.debug("Read [ {} ] bytes [ {} ]", inputName, finalBuffer.limit());
+			PooledOutputStream outputStream = new PooledOutputStream(BUFFER_ADJUSTMENT);
+			try {
+				transfer(inputStream, outputStream);
+			} catch (IOException | RuntimeException e) {
+				outputStream.release();
+				throw e;
+			}
+			logger.debug("Read [ {} ] bytes [ {} ]", inputName, outputStream.size());
+			return outputStream.toByteData(inputName, charset);
 		}
 
-		return new ByteDataImpl(inputName, finalBuffer, charset);
+		verifyArraySize(requested);
+		BufferPool pool = BufferPool.getDefault();
+		byte[] array = pool.borrow(requested);
+		try {
+			read(inputName, inputStream, ByteBuffer.wrap(array), requested);
+		} catch (IOException | RuntimeException e) {
+			pool.release(array);
+			throw e;
+		}
+		return new ByteDataImpl(inputName, ByteBuffer.wrap(array, 0, requested), charset, pool);
 	}
 
 	/**
@@ -316,6 +341,64 @@ public class FileUtils {
 
 	//
 
+	/** Algorithm used to compute content digests. */
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException("Digest algorithm not available [ " + DIGEST_ALGORITHM + " ]", e);
+		}
+	}
+
+	/**
+	 * Compute the digest of the content of a file.
+	 *
+	 * @param file The file which is to be digested.
+	 * @return The digest of the file content, as a hexadecimal string.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public static String digest(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[BUFFER_ADJUSTMENT];
+		try (InputStream inputStream = IO.stream(file)) {
+			for (int bytesRead; (bytesRead = inputStream.read(buffer, 0, buffer.length)) != -1;) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		return HexFormat.of()
+			.formatHex(digest.digest());
+	}
+
+	/**
+	 * Compute the digest of the content of a buffer. The position of the
+	 * buffer is not changed.
+	 *
+	 * @param buffer The buffer which is to be digested.
+	 * @return The digest of the buffer content, as a hexadecimal string.
+	 */
+	public static String digest(ByteBuffer buffer) {
+		MessageDigest digest = newDigest();
+		digest.update(buffer.duplicate());
+		return HexFormat.of()
+			.formatHex(digest.digest());
+	}
+
+	/**
+	 * Compute the digest of text. The text is digested as UTF-8.
+	 *
+	 * @param text The text which is to be digested.
+	 * @return The digest of the text, as a hexadecimal string.
+	 */
+	public static String digest(String text) {
+		return HexFormat.of()
+			.formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	//
+
 	private final static Pattern PATH_SPLITTER = Pattern.compile("[/\\\\]");
 
 	/**
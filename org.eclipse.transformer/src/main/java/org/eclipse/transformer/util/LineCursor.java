@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Cursor over the lines of a buffer. Lines are answered as offsets into the
+ * buffer, which allows lines to be examined and copied without allocating
+ * strings.
+ * <p>
+ * Lines are separated the same as by {@link LineSeparatorBufferedReader}:
+ * "\n", "\r\n", and "\r" are line separators. The last line need not have a
+ * separator. An empty buffer has no lines, and a buffer which ends with a
+ * separator has no empty last line.
+ * <p>
+ * A byte buffer must hold text in a charset which encodes "\n" and "\r" as
+ * single bytes which are not part of the encoding of other characters, for
+ * example, UTF-8, US-ASCII, or ISO-8859-1.
+ * <p>
+ * The position and limit of the buffer are read when the cursor is created,
+ * and are not changed.
+ */
+public final class LineCursor {
+	/**
+	 * Create a cursor over the lines of encoded text.
+	 *
+	 * @param buffer The buffer which is to be scanned, from its position to
+	 *            its limit.
+	 * @return A cursor which is before the first line.
+	 */
+	public static LineCursor of(ByteBuffer buffer) {
+		return new LineCursor(buffer, null, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Create a cursor over the lines of text.
+	 *
+	 * @param buffer The buffer which is to be scanned, from its position to
+	 *            its limit.
+	 * @return A cursor which is before the first line.
+	 */
+	public static LineCursor of(CharBuffer buffer) {
+		return new LineCursor(null, buffer, buffer.position(), buffer.limit());
+	}
+
+	private LineCursor(ByteBuffer bytes, CharBuffer chars, int start, int limit) {
+		this.bytes = bytes;
+		this.chars = chars;
+		this.limit = limit;
+		this.lineStart = start;
+		this.lineEnd = start;
+		this.nextStart = start;
+	}
+
+	private final ByteBuffer	bytes;
+	private final CharBuffer	chars;
+	private final int			limit;
+
+	private int					lineStart;
+	private int					lineEnd;
+	private int					nextStart;
+
+	private int at(int offset) {
+		return (bytes != null) ? bytes.get(offset) : chars.get(offset);
+	}
+
+	/**
+	 * Advance to the next line.
+	 *
+	 * @return True or false telling if there is a next line.
+	 */
+	public boolean next() {
+		int offset = nextStart;
+		if (offset >= limit) {
+			lineStart = lineEnd = limit;
+			return false;
+		}
+		lineStart = offset;
+
+		int c = 0;
+		while ((offset < limit) && ((c = at(offset)) != '\n') && (c != '\r')) {
+			offset++;
+		}
+		lineEnd = offset;
+
+		if (offset < limit) {
+			offset++;
+			if ((c == '\r') && (offset < limit) && (at(offset) == '\n')) {
+				offset++;
+			}
+		}
+		nextStart = offset;
+		return true;
+	}
+
+	/**
+	 * Answer the offset of the first character of the current line.
+	 *
+	 * @return The offset of the first character of the current line.
+	 */
+	public int start() {
+		return lineStart;
+	}
+
+	/**
+	 * Answer the offset which follows the last character of the current line.
+	 * The line separator of the line is not included.
+	 *
+	 * @return The offset which follows the current line.
+	 */
+	public int end() {
+		return lineEnd;
+	}
+
+	/**
+	 * Answer the offset which follows the line separator of the current line.
+	 * This is the start of the next line, or the limit of the buffer.
+	 *
+	 * @return The offset which follows the line separator of the current
+	 *         line.
+	 */
+	public int separatorEnd() {
+		return nextStart;
+	}
+
+	@Override
+	public String toString() {
+		return "LineCursor [ " + lineStart + ", " + lineEnd + ", " + nextStart + " / " + limit + " ]";
+	}
+}
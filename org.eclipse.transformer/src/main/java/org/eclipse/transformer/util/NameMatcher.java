@@ -0,0 +1,179 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled matcher which answers which of a set of patterns begins, ends, or
+ * is contained in a name.
+ * <p>
+ * Prefix patterns are compiled into a trie, which is walked from the start of
+ * the name. Suffix patterns are compiled into a trie of the reversed
+ * patterns, which is walked from the end of the name. Infix patterns are
+ * compiled into an Aho-Corasick automaton, which examines each character of
+ * the name once. The tries and the automaton are built by {@code Automaton}.
+ * <p>
+ * When several patterns match a name, the longest matching prefix or suffix
+ * is answered. For infix patterns, the pattern which ends first in the name
+ * is answered, preferring the longest pattern which ends there.
+ *
+ * @param <V> The type of the values of the patterns.
+ */
+public class NameMatcher<V> {
+	/**
+	 * Compile patterns which are matched against the start of names.
+	 *
+	 * @param <V> The type of the values of the patterns.
+	 * @param patterns The patterns and their values.
+	 * @return The compiled matcher.
+	 */
+	public static <V> NameMatcher<V> prefixes(Map<String, ? extends V> patterns) {
+		return new NameMatcher<>(Kind.PREFIX, patterns);
+	}
+
+	/**
+	 * Compile patterns which are matched against the end of names.
+	 *
+	 * @param <V> The type of the values of the patterns.
+	 * @param patterns The patterns and their values.
+	 * @return The compiled matcher.
+	 */
+	public static <V> NameMatcher<V> suffixes(Map<String, ? extends V> patterns) {
+		return new NameMatcher<>(Kind.SUFFIX, patterns);
+	}
+
+	/**
+	 * Compile patterns which are matched anywhere in names. An empty pattern
+	 * matches every name.
+	 *
+	 * @param <V> The type of the values of the patterns.
+	 * @param patterns The patterns and their values.
+	 * @return The compiled matcher.
+	 */
+	public static <V> NameMatcher<V> infixes(Map<String, ? extends V> patterns) {
+		return new NameMatcher<>(Kind.INFIX, patterns);
+	}
+
+	private enum Kind {
+		PREFIX,
+		SUFFIX,
+		INFIX
+	}
+
+	private NameMatcher(Kind kind, Map<String, ? extends V> patterns) {
+		this.kind = kind;
+
+		List<Map.Entry<String, V>> entries = new ArrayList<>(patterns.size());
+		Automaton.Builder builder = new Automaton.Builder(Automaton.CHAR_ALPHABET);
+		for (Map.Entry<String, ? extends V> patternEntry : patterns.entrySet()) {
+			String pattern = patternEntry.getKey();
+			int patternLength = pattern.length();
+			int node = builder.root();
+			for (int charNo = 0; charNo < patternLength; charNo++) {
+				node = builder.next(node, pattern.charAt((kind == Kind.SUFFIX) ? (patternLength - 1 - charNo) : charNo));
+			}
+			builder.accept(node, entries.size());
+			entries.add(Map.entry(pattern, patternEntry.getValue()));
+		}
+		this.automaton = builder.build();
+
+		// Pattern keys are unique, so each node ends at most one pattern. For
+		// infix patterns, a node which does not end a pattern answers the
+		// longest pattern which ends on its fail chain.
+
+		int nodeCount = automaton.size();
+		@SuppressWarnings("unchecked")
+		Map.Entry<String, V>[] useMatches = new Map.Entry[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			int[] payloads = automaton.payloads(node);
+			if (payloads.length != 0) {
+				useMatches[node] = entries.get(payloads[0]);
+			} else if ((kind == Kind.INFIX) && (automaton.output(node) != -1)) {
+				useMatches[node] = useMatches[automaton.output(node)];
+			}
+		}
+		this.matches = useMatches;
+	}
+
+	private final Kind						kind;
+	private final Automaton					automaton;
+	/** The pattern and value answered by each node. Null if none. */
+	private final Map.Entry<String, V>[]	matches;
+
+	/**
+	 * Tell if the matcher has no patterns, in which case no name is matched.
+	 *
+	 * @return True or false telling if the matcher has no patterns.
+	 */
+	public boolean isEmpty() {
+		return (automaton.size() == 1) && (matches[0] == null);
+	}
+
+	/**
+	 * Match a name against the patterns.
+	 *
+	 * @param name The name which is to be matched.
+	 * @return The matching pattern and its value. Null if no pattern matches
+	 *         the name.
+	 */
+	public Map.Entry<String, V> match(String name) {
+		Map.Entry<String, V> match = matches[0];
+		if ((match != null) && (kind == Kind.INFIX)) {
+			return match;
+		}
+
+		int nameLength = name.length();
+		int node = 0;
+		switch (kind) {
+			case PREFIX :
+				for (int charNo = 0; charNo < nameLength; charNo++) {
+					node = automaton.child(node, name.charAt(charNo));
+					if (node <= 0) {
+						break;
+					}
+					if (matches[node] != null) {
+						match = matches[node];
+					}
+				}
+				return match;
+
+			case SUFFIX :
+				for (int charNo = nameLength - 1; charNo >= 0; charNo--) {
+					node = automaton.child(node, name.charAt(charNo));
+					if (node <= 0) {
+						break;
+					}
+					if (matches[node] != null) {
+						match = matches[node];
+					}
+				}
+				return match;
+
+			default :
+				for (int charNo = 0; charNo < nameLength; charNo++) {
+					node = automaton.step(node, name.charAt(charNo));
+					if (matches[node] != null) {
+						return matches[node];
+					}
+				}
+				return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "NameMatcher [ " + kind + " " + automaton.size() + " nodes ]";
+	}
+}
@@ -0,0 +1,266 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
+import static org.eclipse.transformer.util.SignatureUtils.packageMatch;
+import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * Compiled matcher of package renames.
+ * <p>
+ * The rename keys are compiled into a character trie. Text is scanned once,
+ * from left to right. A package name can only start at a position which is
+ * not preceded by a package character (a '.', a '/', or a java identifier
+ * character), which is the leading condition of
+ * {@link SignatureUtils#packageMatch(String, int, int, boolean)}. From each
+ * such position, the trie is walked to find all of the keys which match at
+ * that position. Since a walk cannot extend past the package name text which
+ * starts at its position, and since package name texts do not overlap, each
+ * character of the text is examined a bounded number of times. Unlike a
+ * general multi-pattern automaton, no failure transitions are needed: Matches
+ * which do not start at a package boundary are never package matches.
+ * <p>
+ * When several keys match at the same position, the key which is earliest in
+ * the rename order is used, subject to the package match checks. That is the
+ * same result as applying the renames one at a time in their rename order,
+ * except that replacement text is never rescanned for other renames.
+ * <p>
+ * The result is written in a single pass.
+ */
+public class PackageRenameMatcher {
+	/**
+	 * Compile package renames. Rename keys may have a wildcard suffix, either
+	 * ".*" or "/*", in which case sub-packages are matched.
+	 *
+	 * @param renames Package renames, in the order in which they are to be
+	 *            tried.
+	 */
+	public PackageRenameMatcher(Map<String, String> renames) {
+		List<String> useKeys = new ArrayList<>(renames.size());
+		List<String> useValues = new ArrayList<>(renames.size());
+		List<Boolean> useStems = new ArrayList<>(renames.size());
+
+		Node root = new Node();
+		int nodeCount = 1;
+
+		for (Map.Entry<String, String> renameEntry : renames.entrySet()) {
+			String key = renameEntry.getKey();
+			boolean matchPackageStem = containsWildcard(key);
+			if (matchPackageStem) {
+				key = stripWildcard(key);
+			}
+			if (key.isEmpty()) {
+				continue;
+			}
+
+			int rule = useKeys.size();
+			useKeys.add(key);
+			useValues.add(renameEntry.getValue());
+			useStems.add(matchPackageStem);
+
+			Node node = root;
+			for (int offset = 0, keyLen = key.length(); offset < keyLen; offset++) {
+				Node child = node.children.get(key.charAt(offset));
+				if (child == null) {
+					child = new Node();
+					node.children.put(key.charAt(offset), child);
+					nodeCount++;
+				}
+				node = child;
+			}
+			node.rules.add(rule);
+		}
+
+		int ruleCount = useKeys.size();
+		this.keyLengths = new int[ruleCount];
+		this.values = new String[ruleCount];
+		this.stems = new boolean[ruleCount];
+		for (int rule = 0; rule < ruleCount; rule++) {
+			keyLengths[rule] = useKeys.get(rule)
+				.length();
+			values[rule] = useValues.get(rule);
+			stems[rule] = useStems.get(rule);
+		}
+
+		this.labels = new char[nodeCount][];
+		this.children = new int[nodeCount][];
+		this.rules = new int[nodeCount][];
+		compile(root, 0, 1);
+	}
+
+	private static final class Node {
+		final TreeMap<Character, Node>	children	= new TreeMap<>();
+		final List<Integer>				rules		= new ArrayList<>(1);
+	}
+
+	/**
+	 * Flatten a trie node and its descendants into the node arrays.
+	 *
+	 * @param node The node which is to be flattened.
+	 * @param nodeIndex The index assigned to the node.
+	 * @param nextIndex The next unassigned node index.
+	 * @return The next unassigned node index after flattening the node.
+	 */
+	private int compile(Node node, int nodeIndex, int nextIndex) {
+		int childCount = node.children.size();
+		char[] nodeLabels = new char[childCount];
+		int[] nodeChildren = new int[childCount];
+		labels[nodeIndex] = nodeLabels;
+		children[nodeIndex] = nodeChildren;
+		rules[nodeIndex] = node.rules.stream()
+			.mapToInt(Integer::intValue)
+			.toArray();
+
+		int childNo = 0;
+		for (Map.Entry<Character, Node> childEntry : node.children.entrySet()) {
+			nodeLabels[childNo] = childEntry.getKey();
+			nodeChildren[childNo] = nextIndex;
+			nextIndex = compile(childEntry.getValue(), nextIndex, nextIndex + 1);
+			childNo++;
+		}
+		return nextIndex;
+	}
+
+	// Per-rule data, in rename order.
+
+	private final int[]		keyLengths;
+	private final String[]	values;
+	private final boolean[]	stems;
+
+	// Per-node data. Node 0 is the root. Node labels are sorted.
+
+	private final char[][]	labels;
+	private final int[][]	children;
+	private final int[][]	rules;
+
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	private int child(int node, char c) {
+		int childNo = Arrays.binarySearch(labels[node], c);
+		return (childNo < 0) ? -1 : children[node][childNo];
+	}
+
+	private static boolean isPackageStart(char charBefore) {
+		return (charBefore != '.') && (charBefore != '/') && !Character.isJavaIdentifierPart(charBefore);
+	}
+
+	/**
+	 * Replace all package names in text.
+	 *
+	 * @param text Text embedding zero, one, or more package names.
+	 * @return The text with all embedded package names replaced. Null if no
+	 *         replacements were performed.
+	 */
+	public String replace(String text) {
+		return replace(text, null);
+	}
+
+	/**
+	 * Replace all package names in text, updating the text which follows each
+	 * replaced package name.
+	 *
+	 * @param text Text embedding zero, one, or more package names.
+	 * @param tailUpdate Update of the text which follows each replaced package
+	 *            name, for example, of the version of a package in a manifest
+	 *            package attribute. Applied to the replacement package name
+	 *            and to the text which follows it, and answers the updated
+	 *            text, or null if the text is not updated. May be null.
+	 * @return The text with all embedded package names replaced. Null if no
+	 *         replacements were performed.
+	 */
+	public String replace(String text, BinaryOperator<String> tailUpdate) {
+		if (isEmpty()) {
+			return null;
+		}
+
+		StringBuilder builder = null;
+		int copied = 0;
+		int textLength = text.length();
+		boolean packageStart = true;
+
+		for (int matchStart = 0; matchStart < textLength;) {
+			if (packageStart) {
+				int matchRule = -1;
+				int packageEnd = -1;
+
+				for (int node = 0, offset = matchStart; (node = child(node, text.charAt(offset++))) != -1;) {
+					for (int rule : rules[node]) {
+						if ((matchRule != -1) && (rule > matchRule)) {
+							break;
+						}
+						int end = packageMatch(text, matchStart, offset, stems[rule]);
+						if (end != -1) {
+							matchRule = rule;
+							packageEnd = end;
+							break;
+						}
+					}
+					if (offset == textLength) {
+						break;
+					}
+				}
+
+				if (matchRule != -1) {
+					if (builder == null) {
+						builder = new StringBuilder(textLength + 16);
+					}
+					String value = values[matchRule];
+					int matchEnd = matchStart + keyLengths[matchRule];
+
+					builder.append(text, copied, matchStart)
+						.append(value)
+						.append(text, matchEnd, packageEnd);
+
+					String newTail = null;
+					if (tailUpdate != null) {
+						if (matchEnd < packageEnd) {
+							value = value.concat(text.substring(matchEnd, packageEnd));
+						}
+						newTail = tailUpdate.apply(value, text.substring(packageEnd));
+					}
+
+					int builderLength = builder.length();
+					packageStart = (builderLength == 0) || isPackageStart(builder.charAt(builderLength - 1));
+
+					if (newTail != null) {
+						text = newTail;
+						textLength = text.length();
+						copied = 0;
+						matchStart = 0;
+					} else {
+						copied = packageEnd;
+						matchStart = packageEnd;
+					}
+					continue;
+				}
+			}
+
+			packageStart = isPackageStart(text.charAt(matchStart++));
+		}
+
+		if (builder == null) {
+			return null;
+		}
+		return builder.append(text, copied, textLength)
+			.toString();
+	}
+}
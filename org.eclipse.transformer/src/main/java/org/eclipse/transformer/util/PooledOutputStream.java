@@ -0,0 +1,136 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.impl.ByteDataImpl;
+
+/**
+ * An output stream which writes into an array which is borrowed from a buffer
+ * pool. The array is replaced by a larger array from the pool when it is
+ * full.
+ * <p>
+ * The written bytes are answered as byte data which owns the array, see
+ * {@link #toByteData(String, Charset)}, or are discarded, see
+ * {@link #release()}. Either returns the array to the pool, the first when
+ * the byte data is released. The stream must not be written after either.
+ */
+public final class PooledOutputStream extends OutputStream {
+	/**
+	 * Create a stream which writes into an array borrowed from the default
+	 * pool.
+	 *
+	 * @param initialCapacity The initial capacity of the stream.
+	 */
+	public PooledOutputStream(int initialCapacity) {
+		this(BufferPool.getDefault(), initialCapacity);
+	}
+
+	/**
+	 * Create a stream which writes into an array borrowed from a pool.
+	 *
+	 * @param pool The pool from which arrays are borrowed.
+	 * @param initialCapacity The initial capacity of the stream.
+	 */
+	public PooledOutputStream(BufferPool pool, int initialCapacity) {
+		this.pool = pool;
+		this.array = pool.borrow(Math.max(initialCapacity, 0));
+	}
+
+	private final BufferPool	pool;
+	private byte[]				array;
+	private int					count;
+
+	/**
+	 * Answer the number of bytes which were written.
+	 *
+	 * @return The number of bytes which were written.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Answer the written bytes. The buffer shares the array of the stream,
+	 * and is valid until the stream is released or is converted to byte
+	 * data.
+	 *
+	 * @return A buffer over the written bytes.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(array, 0, count);
+	}
+
+	@Override
+	public void write(int b) {
+		reserve(1);
+		array[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		Objects.checkFromIndexSize(off, len, b.length);
+		reserve(len);
+		System.arraycopy(b, off, array, count, len);
+		count += len;
+	}
+
+	private void reserve(int len) {
+		int required = count + len;
+		if (required < 0) {
+			throw new OutOfMemoryError("Write of [ " + len + " ] bytes overflows [ " + count + " ] bytes");
+		}
+		if (required <= array.length) {
+			return;
+		}
+		int grown = array.length << 1;
+		if ((grown < required) || (grown > FileUtils.MAX_ARRAY_LENGTH)) {
+			grown = Math.max(required, Math.min(grown, FileUtils.MAX_ARRAY_LENGTH));
+		}
+		byte[] oldArray = array;
+		array = pool.borrow(grown);
+		System.arraycopy(oldArray, 0, array, 0, count);
+		pool.release(oldArray);
+	}
+
+	/**
+	 * Answer the written bytes as byte data. The byte data owns the array of
+	 * the stream, which is returned to the pool when the byte data is
+	 * released. See {@link ByteData#release()}.
+	 *
+	 * @param name The name of the byte data.
+	 * @param charset The charset of the byte data.
+	 * @return Byte data of the written bytes.
+	 */
+	public ByteData toByteData(String name, Charset charset) {
+		ByteData byteData = new ByteDataImpl(name, toByteBuffer(), charset, pool);
+		array = null;
+		return byteData;
+	}
+
+	/**
+	 * Discard the written bytes, and return the array of the stream to the
+	 * pool. Releasing a stream a second time, or after it was converted to
+	 * byte data, has no effect.
+	 */
+	public void release() {
+		if (array != null) {
+			pool.release(array);
+			array = null;
+		}
+	}
+}
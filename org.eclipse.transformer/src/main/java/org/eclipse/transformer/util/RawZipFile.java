@@ -0,0 +1,686 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read access to a ZIP file through its central directory.
+ * <p>
+ * Unlike {@link java.util.zip.ZipFile}, the raw (compressed) data of the
+ * entries is available. That allows entries which are not changed to be copied
+ * to a {@link RawZipOutputStream} without being decompressed and recompressed.
+ * <p>
+ * Entries are answered in the order of their local headers, which is the
+ * order in which a {@link java.util.zip.ZipInputStream} would answer them.
+ * Entry data is read using positional reads, which may be performed
+ * concurrently.
+ */
+public class RawZipFile implements Closeable {
+	static final int	LOCSIG		= 0x04034b50;
+	static final int	EXTSIG		= 0x08074b50;
+	static final int	CENSIG		= 0x02014b50;
+	static final int	ENDSIG		= 0x06054b50;
+	static final int	ZIP64_ENDSIG	= 0x06064b50;
+	static final int	ZIP64_LOCSIG	= 0x07064b50;
+
+	static final int	LOCHDR		= 30;
+	static final int	CENHDR		= 46;
+	static final int	ENDHDR		= 22;
+	static final int	ZIP64_ENDHDR	= 56;
+	static final int	ZIP64_LOCHDR	= 20;
+
+	static final int	ZIP64_EXTID	= 0x0001;
+	static final long	ZIP64_MAGICVAL	= 0xFFFFFFFFL;
+	static final int	ZIP64_MAGICCOUNT	= 0xFFFF;
+
+	static final int	FLAG_ENCRYPTED	= 0x0001;
+	static final int	FLAG_DESCRIPTOR	= 0x0008;
+	static final int	FLAG_UTF8		= 0x0800;
+
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	/**
+	 * Open a ZIP file and read its central directory.
+	 *
+	 * @param file The ZIP file.
+	 * @param charset The charset used to decode entry names and comments which
+	 *            are not flagged as using UTF-8.
+	 * @throws IOException Thrown if the file cannot be read, or if the central
+	 *             directory is not valid.
+	 */
+	public RawZipFile(File file, Charset charset) throws IOException {
+		this.name = file.getPath();
+		this.charset = charset;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			this.entries = readEntries();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private final String		name;
+	private final Charset		charset;
+	private final FileChannel	channel;
+	private final List<Entry>	entries;
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Answer the entries of the ZIP file, in the order of their local headers.
+	 *
+	 * @return The entries of the ZIP file.
+	 */
+	public List<Entry> entries() {
+		return entries;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A ZIP file entry, as described by the central directory, plus the extra
+	 * field data of the local header.
+	 */
+	public static final class Entry {
+		Entry(String name, int versionMadeBy, int versionNeeded, int flags, int method, long dosTime, long crc,
+			long compressedSize, long size, int internalAttributes, long externalAttributes, byte[] centralExtra,
+			String comment, byte[] commentBytes, long localHeaderOffset) {
+			this.name = name;
+			this.versionMadeBy = versionMadeBy;
+			this.versionNeeded = versionNeeded;
+			this.flags = flags;
+			this.method = method;
+			this.dosTime = dosTime;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.internalAttributes = internalAttributes;
+			this.externalAttributes = externalAttributes;
+			this.centralExtra = centralExtra;
+			this.comment = comment;
+			this.commentBytes = commentBytes;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		private final String	name;
+		private final int		versionMadeBy;
+		private final int		versionNeeded;
+		private final int		flags;
+		private final int		method;
+		private final long		dosTime;
+		private final long		crc;
+		private final long		compressedSize;
+		private final long		size;
+		private final int		internalAttributes;
+		private final long		externalAttributes;
+		private final byte[]	centralExtra;
+		private final String	comment;
+		private final byte[]	commentBytes;
+		private final long		localHeaderOffset;
+
+		private byte[]			localExtra;
+		private long			dataOffset;
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		public int getVersionMadeBy() {
+			return versionMadeBy;
+		}
+
+		public int getVersionNeeded() {
+			return versionNeeded;
+		}
+
+		public int getFlags() {
+			return flags;
+		}
+
+		public int getMethod() {
+			return method;
+		}
+
+		public long getDosTime() {
+			return dosTime;
+		}
+
+		public long getCrc() {
+			return crc;
+		}
+
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public int getInternalAttributes() {
+			return internalAttributes;
+		}
+
+		public long getExternalAttributes() {
+			return externalAttributes;
+		}
+
+		public byte[] getCentralExtra() {
+			return centralExtra;
+		}
+
+		public byte[] getLocalExtra() {
+			return localExtra;
+		}
+
+		public String getComment() {
+			return comment;
+		}
+
+		public byte[] getCommentBytes() {
+			return commentBytes;
+		}
+
+		public long getLocalHeaderOffset() {
+			return localHeaderOffset;
+		}
+
+		public long getDataOffset() {
+			return dataOffset;
+		}
+
+		/**
+		 * Tell if the raw data of the entry can be copied to another ZIP file.
+		 * This is the case for stored and deflated entries which are not
+		 * encrypted.
+		 *
+		 * @return True or false telling if the raw data of the entry can be
+		 *         copied.
+		 */
+		public boolean isCopyable() {
+			return ((method == ZipEntry.STORED) || (method == ZipEntry.DEFLATED)) && ((flags & FLAG_ENCRYPTED) == 0);
+		}
+
+		@Override
+		public String toString() {
+			return "Entry [ " + name + " ] Method [ " + method + " ] Size [ " + size + " ] Compressed [ "
+				+ compressedSize + " ]";
+		}
+	}
+
+	/**
+	 * Create a ZIP entry for an entry of this ZIP file. The ZIP entry is set
+	 * the same as would be set by a {@link java.util.zip.ZipInputStream},
+	 * except that the sizes and CRC are always set.
+	 *
+	 * @param entry An entry of this ZIP file.
+	 * @return A ZIP entry for the entry.
+	 */
+	public ZipEntry toZipEntry(Entry entry) {
+		ZipEntry zipEntry = new ZipEntry(entry.getName());
+		int method = entry.getMethod();
+		if ((method == ZipEntry.STORED) || (method == ZipEntry.DEFLATED)) {
+			zipEntry.setMethod(method);
+		}
+		zipEntry.setTime(dosToJavaTime(entry.getDosTime()));
+		zipEntry.setCrc(entry.getCrc());
+		zipEntry.setSize(entry.getSize());
+		zipEntry.setCompressedSize(entry.getCompressedSize());
+		byte[] localExtra = entry.getLocalExtra();
+		if (localExtra.length != 0) {
+			zipEntry.setExtra(localExtra);
+		}
+		String comment = entry.getComment();
+		if (comment != null) {
+			zipEntry.setComment(comment);
+		}
+		return zipEntry;
+	}
+
+	/**
+	 * Answer a stream over the raw (compressed) data of an entry.
+	 *
+	 * @param entry An entry of this ZIP file.
+	 * @return A stream over the raw data of the entry.
+	 */
+	public InputStream getRawInputStream(Entry entry) {
+		return new ChannelInputStream(channel, entry.getDataOffset(), entry.getCompressedSize());
+	}
+
+	/**
+	 * Answer a stream over the uncompressed data of an entry.
+	 *
+	 * @param entry An entry of this ZIP file.
+	 * @return A stream over the uncompressed data of the entry.
+	 * @throws ZipException Thrown if the entry uses an unsupported compression
+	 *             method or is encrypted.
+	 */
+	public InputStream getInputStream(Entry entry) throws ZipException {
+		if ((entry.getFlags() & FLAG_ENCRYPTED) != 0) {
+			throw new ZipException("Encrypted entry [ " + entry.getName() + " ] of [ " + name + " ]");
+		}
+		InputStream rawStream = getRawInputStream(entry);
+		switch (entry.getMethod()) {
+			case ZipEntry.STORED :
+				return rawStream;
+			case ZipEntry.DEFLATED :
+				int bufferSize = (int) Math.max(64L, Math.min(entry.getCompressedSize() + 1L, 8192L));
+				return new EntryInflaterInputStream(rawStream, bufferSize);
+			default :
+				throw new ZipException("Unsupported compression method [ " + entry.getMethod() + " ] of entry [ "
+					+ entry.getName() + " ] of [ " + name + " ]");
+		}
+	}
+
+	//
+
+	private List<Entry> readEntries() throws IOException {
+		long fileSize = channel.size();
+		if (fileSize < ENDHDR) {
+			throw new ZipException("Too small to be a ZIP file [ " + name + " ]");
+		}
+
+		// Locate the end of central directory record. The record is followed
+		// by a variable length comment, which requires a backwards scan.
+
+		int tailLength = (int) Math.min(fileSize, ENDHDR + MAX_COMMENT_LENGTH);
+		long tailOffset = fileSize - tailLength;
+		ByteBuffer tail = read(tailOffset, tailLength);
+
+		int endPos = -1;
+		for (int pos = tailLength - ENDHDR; pos >= 0; pos--) {
+			if ((tail.getInt(pos) == ENDSIG) && (pos + ENDHDR + tail.getShort(pos + 20) == tailLength)) {
+				endPos = pos;
+				break;
+			}
+		}
+		if (endPos == -1) {
+			throw new ZipException("No end of central directory record [ " + name + " ]");
+		}
+		long endOffset = tailOffset + endPos;
+
+		long entryCount = tail.getShort(endPos + 10) & 0xFFFF;
+		long centralSize = tail.getInt(endPos + 12) & 0xFFFFFFFFL;
+		long centralOffset = tail.getInt(endPos + 16) & 0xFFFFFFFFL;
+
+		if ((entryCount == ZIP64_MAGICCOUNT) || (centralSize == ZIP64_MAGICVAL) || (centralOffset == ZIP64_MAGICVAL)) {
+			long locatorOffset = endOffset - ZIP64_LOCHDR;
+			if (locatorOffset >= 0) {
+				ByteBuffer locator = read(locatorOffset, ZIP64_LOCHDR);
+				if (locator.getInt(0) == ZIP64_LOCSIG) {
+					long zip64EndOffset = locator.getLong(8);
+					ByteBuffer zip64End = read(zip64EndOffset, ZIP64_ENDHDR);
+					if (zip64End.getInt(0) != ZIP64_ENDSIG) {
+						throw new ZipException("Invalid zip64 end of central directory record [ " + name + " ]");
+					}
+					entryCount = zip64End.getLong(32);
+					centralSize = zip64End.getLong(40);
+					centralOffset = zip64End.getLong(48);
+				}
+			}
+		}
+
+		if ((centralOffset + centralSize > endOffset) || (centralSize > Integer.MAX_VALUE)) {
+			throw new ZipException("Invalid central directory [ " + name + " ]");
+		}
+
+		ByteBuffer central = read(centralOffset, (int) centralSize);
+		List<Entry> useEntries = new ArrayList<>((int) Math.min(entryCount, ZIP64_MAGICCOUNT));
+
+		int pos = 0;
+		for (long entryNo = 0; entryNo < entryCount; entryNo++) {
+			if ((pos + CENHDR > central.limit()) || (central.getInt(pos) != CENSIG)) {
+				throw new ZipException("Invalid central directory header [ " + entryNo + " ] [ " + name + " ]");
+			}
+			int versionMadeBy = central.getShort(pos + 4) & 0xFFFF;
+			int versionNeeded = central.getShort(pos + 6) & 0xFFFF;
+			int flags = central.getShort(pos + 8) & 0xFFFF;
+			int method = central.getShort(pos + 10) & 0xFFFF;
+			long dosTime = central.getInt(pos + 12) & 0xFFFFFFFFL;
+			long crc = central.getInt(pos + 16) & 0xFFFFFFFFL;
+			long compressedSize = central.getInt(pos + 20) & 0xFFFFFFFFL;
+			long size = central.getInt(pos + 24) & 0xFFFFFFFFL;
+			int nameLength = central.getShort(pos + 28) & 0xFFFF;
+			int extraLength = central.getShort(pos + 30) & 0xFFFF;
+			int commentLength = central.getShort(pos + 32) & 0xFFFF;
+			int internalAttributes = central.getShort(pos + 36) & 0xFFFF;
+			long externalAttributes = central.getInt(pos + 38) & 0xFFFFFFFFL;
+			long localHeaderOffset = central.getInt(pos + 42) & 0xFFFFFFFFL;
+
+			int namePos = pos + CENHDR;
+			int extraPos = namePos + nameLength;
+			int commentPos = extraPos + extraLength;
+			int nextPos = commentPos + commentLength;
+			if (nextPos > central.limit()) {
+				throw new ZipException("Invalid central directory header [ " + entryNo + " ] [ " + name + " ]");
+			}
+
+			Charset useCharset = ((flags & FLAG_UTF8) != 0) ? UTF_8 : charset;
+			String entryName = new String(bytes(central, namePos, nameLength), useCharset);
+			byte[] centralExtra = bytes(central, extraPos, extraLength);
+			byte[] commentBytes = bytes(central, commentPos, commentLength);
+			String comment = (commentLength == 0) ? null : new String(commentBytes, useCharset);
+
+			// Values which do not fit in the central header are in the zip64
+			// extra field, in a fixed order, and only when they do not fit.
+
+			if ((size == ZIP64_MAGICVAL) || (compressedSize == ZIP64_MAGICVAL)
+				|| (localHeaderOffset == ZIP64_MAGICVAL)) {
+				ByteBuffer zip64 = findExtra(centralExtra, ZIP64_EXTID);
+				if (zip64 == null) {
+					throw new ZipException("Missing zip64 extra field [ " + entryName + " ] [ " + name + " ]");
+				}
+				if (size == ZIP64_MAGICVAL) {
+					size = zip64.getLong();
+				}
+				if (compressedSize == ZIP64_MAGICVAL) {
+					compressedSize = zip64.getLong();
+				}
+				if (localHeaderOffset == ZIP64_MAGICVAL) {
+					localHeaderOffset = zip64.getLong();
+				}
+			}
+
+			useEntries.add(new Entry(entryName, versionMadeBy, versionNeeded, flags, method, dosTime, crc,
+				compressedSize, size, internalAttributes, externalAttributes, centralExtra, comment, commentBytes,
+				localHeaderOffset));
+
+			pos = nextPos;
+		}
+
+		useEntries.sort(Comparator.comparingLong(Entry::getLocalHeaderOffset));
+
+		for (Entry entry : useEntries) {
+			readLocalHeader(entry, centralOffset);
+		}
+
+		return List.copyOf(useEntries);
+	}
+
+	private void readLocalHeader(Entry entry, long limit) throws IOException {
+		long offset = entry.getLocalHeaderOffset();
+		if (offset + LOCHDR > limit) {
+			throw new ZipException("Invalid local header offset [ " + entry.getName() + " ] [ " + name + " ]");
+		}
+		ByteBuffer header = read(offset, LOCHDR);
+		if (header.getInt(0) != LOCSIG) {
+			throw new ZipException("Invalid local header signature [ " + entry.getName() + " ] [ " + name + " ]");
+		}
+		int nameLength = header.getShort(26) & 0xFFFF;
+		int extraLength = header.getShort(28) & 0xFFFF;
+
+		long extraOffset = offset + LOCHDR + nameLength;
+		long dataOffset = extraOffset + extraLength;
+		if (dataOffset + entry.getCompressedSize() > limit) {
+			throw new ZipException("Invalid entry data [ " + entry.getName() + " ] [ " + name + " ]");
+		}
+
+		entry.localExtra = (extraLength == 0) ? new byte[0] : bytes(read(extraOffset, extraLength), 0, extraLength);
+		entry.dataOffset = dataOffset;
+	}
+
+	private ByteBuffer read(long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, offset + buffer.position());
+			if (count == -1) {
+				throw new EOFException("Unexpected end of [ " + name + " ] at [ " + (offset + buffer.position()) + " ]");
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static byte[] bytes(ByteBuffer buffer, int offset, int length) {
+		byte[] bytes = new byte[length];
+		buffer.get(offset, bytes);
+		return bytes;
+	}
+
+	/**
+	 * Locate a field of extra data.
+	 *
+	 * @param extra Extra data.
+	 * @param id The ID of the field which is to be located.
+	 * @return A little endian buffer positioned at the data of the field.
+	 *         Null if the extra data does not have the field.
+	 */
+	static ByteBuffer findExtra(byte[] extra, int id) {
+		ByteBuffer buffer = ByteBuffer.wrap(extra)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.remaining() >= 4) {
+			int fieldId = buffer.getShort() & 0xFFFF;
+			int fieldLength = buffer.getShort() & 0xFFFF;
+			if (fieldLength > buffer.remaining()) {
+				break;
+			}
+			if (fieldId == id) {
+				return buffer.slice(buffer.position(), fieldLength)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			buffer.position(buffer.position() + fieldLength);
+		}
+		return null;
+	}
+
+	/**
+	 * Remove a field from extra data.
+	 *
+	 * @param extra Extra data.
+	 * @param id The ID of the field which is to be removed.
+	 * @return The extra data without the field. The initial extra data if the
+	 *         extra data does not have the field.
+	 */
+	static byte[] removeExtra(byte[] extra, int id) {
+		if ((extra == null) || (extra.length == 0)) {
+			return new byte[0];
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(extra)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		byte[] result = null;
+		int resultLength = 0;
+		while (buffer.remaining() >= 4) {
+			int fieldStart = buffer.position();
+			int fieldId = buffer.getShort() & 0xFFFF;
+			int fieldLength = buffer.getShort() & 0xFFFF;
+			int fieldEnd = Math.min(buffer.position() + fieldLength, extra.length);
+			if (fieldId == id) {
+				if (result == null) {
+					result = Arrays.copyOf(extra, fieldStart);
+					resultLength = fieldStart;
+				}
+			} else if (result != null) {
+				result = Arrays.copyOf(result, resultLength + (fieldEnd - fieldStart));
+				System.arraycopy(extra, fieldStart, result, resultLength, fieldEnd - fieldStart);
+				resultLength += fieldEnd - fieldStart;
+			}
+			buffer.position(fieldEnd);
+		}
+		if (result == null) {
+			return extra;
+		}
+		if (buffer.hasRemaining()) {
+			int trailing = buffer.remaining();
+			result = Arrays.copyOf(result, resultLength + trailing);
+			buffer.get(result, resultLength, trailing);
+		}
+		return result;
+	}
+
+	/**
+	 * Convert an MS-DOS date and time value to a Java time value.
+	 *
+	 * @param dosTime An MS-DOS date and time value.
+	 * @return The corresponding Java time value.
+	 */
+	@SuppressWarnings("deprecation")
+	static long dosToJavaTime(long dosTime) {
+		int year = (int) (((dosTime >> 25) & 0x7f) + 1980);
+		int month = (int) ((dosTime >> 21) & 0x0f);
+		int day = (int) ((dosTime >> 16) & 0x1f);
+		int hour = (int) ((dosTime >> 11) & 0x1f);
+		int minute = (int) ((dosTime >> 5) & 0x3f);
+		int second = (int) ((dosTime << 1) & 0x3e);
+		try {
+			return LocalDateTime.of(year, month, day, hour, minute, second)
+				.atZone(ZoneId.systemDefault())
+				.toInstant()
+				.toEpochMilli();
+		} catch (DateTimeException e) {
+			// Out of range values are allowed, and overflow into the next
+			// larger field.
+			return new Date(year - 1900, month - 1, day, hour, minute, second).getTime();
+		}
+	}
+
+	/**
+	 * Convert a Java time value to an MS-DOS date and time value. Times before
+	 * 1980 are answered as the start of 1980.
+	 *
+	 * @param time A Java time value.
+	 * @return The corresponding MS-DOS date and time value.
+	 */
+	static long javaToDosTime(long time) {
+		LocalDateTime dateTime = LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(time), ZoneId.systemDefault());
+		int year = dateTime.getYear() - 1980;
+		if (year < 0) {
+			return (1 << 21) | (1 << 16);
+		} else if (year > 0x7f) {
+			year = 0x7f;
+		}
+		return ((long) year << 25) | (dateTime.getMonthValue() << 21) | (dateTime.getDayOfMonth() << 16)
+			| (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+	}
+
+	/**
+	 * Stream over a range of a file channel. Positional reads are used, which
+	 * allows concurrent streams over the same channel.
+	 */
+	private static final class ChannelInputStream extends InputStream {
+		ChannelInputStream(FileChannel channel, long position, long remaining) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = remaining;
+		}
+
+		private final FileChannel	channel;
+		private long				position;
+		private long				remaining;
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (remaining <= 0) {
+				return -1;
+			}
+			int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+			if (count == -1) {
+				throw new EOFException("Unexpected end of entry data at [ " + position + " ]");
+			}
+			position += count;
+			remaining -= count;
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0L, Math.min(n, remaining));
+			position += skipped;
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(remaining, Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Inflater stream for raw deflated entry data. A dummy byte is supplied
+	 * after the end of the data, as is required by an inflater which does not
+	 * expect a ZLIB header. The inflater is released when the stream is closed.
+	 */
+	private static final class EntryInflaterInputStream extends InflaterInputStream {
+		EntryInflaterInputStream(InputStream rawStream, int bufferSize) {
+			super(rawStream, new Inflater(true), bufferSize);
+		}
+
+		private boolean	eof;
+		private boolean	closed;
+
+		@Override
+		protected void fill() throws IOException {
+			if (eof) {
+				throw new EOFException("Unexpected end of ZLIB input stream");
+			}
+			len = in.read(buf, 0, buf.length);
+			if (len == -1) {
+				buf[0] = 0;
+				len = 1;
+				eof = true;
+			}
+			inf.setInput(buf, 0, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				inf.end();
+				super.close();
+			}
+		}
+	}
+}
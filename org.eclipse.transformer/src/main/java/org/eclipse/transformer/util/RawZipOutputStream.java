@@ -0,0 +1,642 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.transformer.util.RawZipFile.FLAG_DESCRIPTOR;
+import static org.eclipse.transformer.util.RawZipFile.FLAG_UTF8;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_ENDHDR;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_ENDSIG;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_EXTID;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_LOCHDR;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_LOCSIG;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_MAGICCOUNT;
+import static org.eclipse.transformer.util.RawZipFile.ZIP64_MAGICVAL;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP output stream which, in addition to writing entries in the usual way,
+ * can copy the raw (compressed) data of an entry of a {@link RawZipFile}.
+ * <p>
+ * A raw copy writes the data of the entry exactly as it was read: The entry is
+ * neither decompressed nor recompressed, and the CRC and sizes of the entry are
+ * reused. Only the name of the entry may be changed by the copy.
+ * <p>
+ * Entries which are put are written the same as by {@link ZipOutputStream},
+ * with the exception that the extra data of the entries, other than the ZIP64
+ * and extended timestamp fields, is written as is. As by
+ * {@link ZipOutputStream}, the extended timestamp field is written from the
+ * times which are set on the entry.
+ */
+public class RawZipOutputStream extends ZipOutputStream {
+	private static final int	VERSION_STORED		= 10;
+	private static final int	VERSION_DEFLATED	= 20;
+	private static final int	VERSION_ZIP64		= 45;
+
+	private static final int	EXTT_EXTID			= 0x5455;
+	private static final int	EXTT_FLAG_LMT		= 0x1;
+	private static final int	EXTT_FLAG_LAT		= 0x2;
+	private static final int	EXTT_FLAG_CT		= 0x4;
+	private static final long	UPPER_UNIXTIME_BOUND	= 0x7FFFFFFFL;
+
+	private static final int	NTFS_EXTID			= 0x000A;
+	private static final long	WINDOWS_EPOCH_IN_MICROSECONDS	= -11644473600000000L;
+	private static final long	WINDOWS_TIME_NOT_AVAILABLE		= Long.MIN_VALUE;
+
+	/**
+	 * Create a ZIP output stream.
+	 *
+	 * @param out The stream which receives the ZIP data.
+	 * @param charset The charset used to encode entry names and comments.
+	 */
+	public RawZipOutputStream(OutputStream out, Charset charset) {
+		this(new CountingOutputStream(out), charset);
+	}
+
+	private RawZipOutputStream(CountingOutputStream counter, Charset charset) {
+		super(counter, charset);
+		this.counter = counter;
+		this.charset = charset;
+		this.utf8 = UTF_8.equals(charset);
+	}
+
+	private final CountingOutputStream	counter;
+	private final Charset				charset;
+	private final boolean				utf8;
+
+	private final List<CentralEntry>	centralEntries	= new ArrayList<>();
+	private final Set<String>			names			= new HashSet<>();
+
+	private int							defaultMethod	= DEFLATED;
+	private byte[]						comment;
+	private boolean						finished;
+
+	private CentralEntry				current;
+	private final CRC32					currentCrc		= new CRC32();
+	private long						currentSize;
+	private long						currentDataOffset;
+
+	/**
+	 * Answer the count of bytes which have been written.
+	 *
+	 * @return The count of bytes which have been written.
+	 */
+	public long getWritten() {
+		return counter.count;
+	}
+
+	@Override
+	public void setComment(String comment) {
+		if (comment == null) {
+			this.comment = null;
+		} else {
+			byte[] commentBytes = comment.getBytes(charset);
+			if (commentBytes.length > 0xFFFF) {
+				throw new IllegalArgumentException("ZIP file comment too long.");
+			}
+			this.comment = commentBytes;
+		}
+	}
+
+	@Override
+	public void setMethod(int method) {
+		if ((method != DEFLATED) && (method != STORED)) {
+			throw new IllegalArgumentException("invalid compression method");
+		}
+		this.defaultMethod = method;
+	}
+
+	@Override
+	public void putNextEntry(ZipEntry entry) throws IOException {
+		ensureOpen();
+		if (current != null) {
+			closeEntry();
+		}
+
+		String name = entry.getName();
+		int method = entry.getMethod();
+		if (method == -1) {
+			method = defaultMethod;
+		}
+
+		int flags = utf8 ? FLAG_UTF8 : 0;
+		long crc = 0L;
+		long size = 0L;
+		switch (method) {
+			case STORED : {
+				size = entry.getSize();
+				long compressedSize = entry.getCompressedSize();
+				if (size == -1L) {
+					size = compressedSize;
+				} else if (compressedSize == -1L) {
+					compressedSize = size;
+				}
+				if ((size == -1L) || (entry.getCrc() == -1L)) {
+					throw new ZipException("STORED entry missing size, compressed size, or crc-32");
+				}
+				if (size != compressedSize) {
+					throw new ZipException("STORED entry where compressed != uncompressed size");
+				}
+				crc = entry.getCrc();
+				break;
+			}
+			case DEFLATED :
+				// The sizes and CRC are written in a data descriptor.
+				flags |= FLAG_DESCRIPTOR;
+				break;
+			default :
+				throw new ZipException("unsupported compression method");
+		}
+
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+
+		long time = entry.getTime();
+		if (time == -1L) {
+			time = System.currentTimeMillis();
+		}
+
+		String entryComment = entry.getComment();
+
+		CentralEntry centralEntry = new CentralEntry();
+		centralEntry.name = name.getBytes(charset);
+		centralEntry.flags = flags;
+		centralEntry.method = method;
+		centralEntry.dosTime = RawZipFile.javaToDosTime(time);
+		centralEntry.crc = crc;
+		centralEntry.size = size;
+		centralEntry.compressedSize = size;
+		centralEntry.versionNeeded = (method == STORED) ? VERSION_STORED : VERSION_DEFLATED;
+		centralEntry.versionMadeBy = centralEntry.versionNeeded;
+		byte[] extra = RawZipFile.removeExtra(RawZipFile.removeExtra(entry.getExtra(), ZIP64_EXTID), EXTT_EXTID);
+		centralEntry.localExtra = concat(extra, timeExtra(entry, true));
+		centralEntry.centralExtra = concat(extra, timeExtra(entry, false));
+		centralEntry.comment = (entryComment == null) ? new byte[0] : entryComment.getBytes(charset);
+		centralEntry.offset = counter.count;
+
+		writeLocalHeader(centralEntry);
+
+		current = centralEntry;
+		currentCrc.reset();
+		currentSize = 0L;
+		currentDataOffset = counter.count;
+	}
+
+	/**
+	 * Copy an entry of a ZIP file without decompressing and recompressing the
+	 * entry data. Any current entry is closed.
+	 *
+	 * @param source The ZIP file which contains the entry.
+	 * @param entry The entry which is to be copied.
+	 * @param name The name of the copied entry.
+	 * @throws IOException Thrown if the entry cannot be copied, or if the copy
+	 *             fails.
+	 */
+	public void copyRawEntry(RawZipFile source, RawZipFile.Entry entry, String name) throws IOException {
+		ensureOpen();
+		if (current != null) {
+			closeEntry();
+		}
+
+		if (!entry.isCopyable()) {
+			throw new ZipException("Entry [ " + entry.getName() + " ] of [ " + source.getName() + " ] cannot be copied");
+		}
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+
+		// The sizes and CRC are known, and are written in the local header.
+		int flags = (entry.getFlags() & ~(FLAG_DESCRIPTOR | FLAG_UTF8)) | (utf8 ? FLAG_UTF8 : 0);
+		String entryComment = entry.getComment();
+
+		CentralEntry centralEntry = new CentralEntry();
+		centralEntry.name = name.getBytes(charset);
+		centralEntry.flags = flags;
+		centralEntry.method = entry.getMethod();
+		centralEntry.dosTime = entry.getDosTime();
+		centralEntry.crc = entry.getCrc();
+		centralEntry.size = entry.getSize();
+		centralEntry.compressedSize = entry.getCompressedSize();
+		centralEntry.versionNeeded = entry.getVersionNeeded();
+		centralEntry.versionMadeBy = entry.getVersionMadeBy();
+		centralEntry.internalAttributes = entry.getInternalAttributes();
+		centralEntry.externalAttributes = entry.getExternalAttributes();
+		centralEntry.localExtra = RawZipFile.removeExtra(entry.getLocalExtra(), ZIP64_EXTID);
+		centralEntry.centralExtra = RawZipFile.removeExtra(entry.getCentralExtra(), ZIP64_EXTID);
+		centralEntry.comment = (entryComment == null) ? new byte[0] : entryComment.getBytes(charset);
+		centralEntry.offset = counter.count;
+
+		writeLocalHeader(centralEntry);
+
+		long copied;
+		try (InputStream rawStream = source.getRawInputStream(entry)) {
+			copied = rawStream.transferTo(out);
+		}
+		if (copied != entry.getCompressedSize()) {
+			throw new ZipException("Copied [ " + copied + " ] bytes of [ " + entry.getName() + " ] of [ "
+				+ source.getName() + " ] but expected [ " + entry.getCompressedSize() + " ]");
+		}
+
+		centralEntries.add(centralEntry);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		byte[] single = new byte[] {
+			(byte) b
+		};
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		Objects.checkFromIndexSize(off, len, b.length);
+		if (len == 0) {
+			return;
+		}
+		if (current == null) {
+			throw new ZipException("no current ZIP entry");
+		}
+		if (current.method == DEFLATED) {
+			def.setInput(b, off, len);
+			while (!def.needsInput()) {
+				deflate();
+			}
+		} else {
+			if (currentSize + len > current.size) {
+				throw new ZipException("attempt to write past end of STORED entry");
+			}
+			out.write(b, off, len);
+		}
+		currentCrc.update(b, off, len);
+		currentSize += len;
+	}
+
+	@Override
+	public void closeEntry() throws IOException {
+		ensureOpen();
+		CentralEntry entry = current;
+		if (entry == null) {
+			return;
+		}
+		current = null;
+
+		if (entry.method == DEFLATED) {
+			def.finish();
+			while (!def.finished()) {
+				deflate();
+			}
+			def.reset();
+
+			entry.size = currentSize;
+			entry.compressedSize = counter.count - currentDataOffset;
+			entry.crc = currentCrc.getValue();
+
+			boolean zip64 = (entry.size >= ZIP64_MAGICVAL) || (entry.compressedSize >= ZIP64_MAGICVAL);
+			ByteBuffer descriptor = buffer(zip64 ? 24 : 16);
+			descriptor.putInt(RawZipFile.EXTSIG)
+				.putInt((int) entry.crc);
+			if (zip64) {
+				descriptor.putLong(entry.compressedSize)
+					.putLong(entry.size);
+			} else {
+				descriptor.putInt((int) entry.compressedSize)
+					.putInt((int) entry.size);
+			}
+			write(descriptor);
+		} else {
+			if (currentSize != entry.size) {
+				throw new ZipException("invalid entry size (expected " + entry.size + " but got " + currentSize
+					+ " bytes)");
+			}
+			if (currentCrc.getValue() != entry.crc) {
+				throw new ZipException("invalid entry crc-32 (expected 0x" + Long.toHexString(entry.crc)
+					+ " but got 0x" + Long.toHexString(currentCrc.getValue()) + ")");
+			}
+		}
+
+		centralEntries.add(entry);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		// Closing the stream finishes the stream, which may already have been
+		// finished.
+		if (finished) {
+			return;
+		}
+		if (current != null) {
+			closeEntry();
+		}
+
+		long centralOffset = counter.count;
+		for (CentralEntry entry : centralEntries) {
+			writeCentralHeader(entry);
+		}
+		long centralSize = counter.count - centralOffset;
+		long entryCount = centralEntries.size();
+
+		if ((entryCount >= ZIP64_MAGICCOUNT) || (centralOffset >= ZIP64_MAGICVAL)
+			|| (centralSize >= ZIP64_MAGICVAL)) {
+			long zip64EndOffset = counter.count;
+			ByteBuffer zip64End = buffer(ZIP64_ENDHDR);
+			zip64End.putInt(ZIP64_ENDSIG)
+				.putLong(ZIP64_ENDHDR - 12)
+				.putShort((short) VERSION_ZIP64)
+				.putShort((short) VERSION_ZIP64)
+				.putInt(0)
+				.putInt(0)
+				.putLong(entryCount)
+				.putLong(entryCount)
+				.putLong(centralSize)
+				.putLong(centralOffset);
+			write(zip64End);
+
+			ByteBuffer locator = buffer(ZIP64_LOCHDR);
+			locator.putInt(ZIP64_LOCSIG)
+				.putInt(0)
+				.putLong(zip64EndOffset)
+				.putInt(1);
+			write(locator);
+		}
+
+		byte[] useComment = (comment == null) ? new byte[0] : comment;
+		ByteBuffer end = buffer(ENDHDR + useComment.length);
+		end.putInt(RawZipFile.ENDSIG)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) Math.min(entryCount, ZIP64_MAGICCOUNT))
+			.putShort((short) Math.min(entryCount, ZIP64_MAGICCOUNT))
+			.putInt((int) Math.min(centralSize, ZIP64_MAGICVAL))
+			.putInt((int) Math.min(centralOffset, ZIP64_MAGICVAL))
+			.putShort((short) useComment.length)
+			.put(useComment);
+		write(end);
+
+		out.flush();
+		finished = true;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (finished) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	//
+
+	private static final class CentralEntry {
+		byte[]	name;
+		int		versionMadeBy;
+		int		versionNeeded;
+		int		flags;
+		int		method;
+		long	dosTime;
+		long	crc;
+		long	compressedSize;
+		long	size;
+		int		internalAttributes;
+		long	externalAttributes;
+		byte[]	localExtra;
+		byte[]	centralExtra;
+		byte[]	comment;
+		long	offset;
+	}
+
+	private void writeLocalHeader(CentralEntry entry) throws IOException {
+		// Sizes which are written in a data descriptor are written as zero.
+		boolean descriptor = (entry.flags & FLAG_DESCRIPTOR) != 0;
+		boolean zip64 = !descriptor && ((entry.size >= ZIP64_MAGICVAL) || (entry.compressedSize >= ZIP64_MAGICVAL));
+
+		byte[] extra = entry.localExtra;
+		if (zip64) {
+			ByteBuffer zip64Extra = buffer(20);
+			zip64Extra.putShort((short) ZIP64_EXTID)
+				.putShort((short) 16)
+				.putLong(entry.size)
+				.putLong(entry.compressedSize);
+			extra = concat(zip64Extra.array(), extra);
+		}
+		if (extra.length > 0xFFFF) {
+			throw new ZipException("invalid extra data length [ " + extra.length + " ]");
+		}
+
+		ByteBuffer header = buffer(LOCHDR + entry.name.length + extra.length);
+		header.putInt(RawZipFile.LOCSIG)
+			.putShort((short) (zip64 ? Math.max(entry.versionNeeded, VERSION_ZIP64) : entry.versionNeeded))
+			.putShort((short) entry.flags)
+			.putShort((short) entry.method)
+			.putInt((int) entry.dosTime);
+		if (descriptor) {
+			header.putInt(0)
+				.putInt(0)
+				.putInt(0);
+		} else if (zip64) {
+			header.putInt((int) entry.crc)
+				.putInt((int) ZIP64_MAGICVAL)
+				.putInt((int) ZIP64_MAGICVAL);
+		} else {
+			header.putInt((int) entry.crc)
+				.putInt((int) entry.compressedSize)
+				.putInt((int) entry.size);
+		}
+		header.putShort((short) entry.name.length)
+			.putShort((short) extra.length)
+			.put(entry.name)
+			.put(extra);
+		write(header);
+	}
+
+	private void writeCentralHeader(CentralEntry entry) throws IOException {
+		boolean largeSize = entry.size >= ZIP64_MAGICVAL;
+		boolean largeCompressedSize = entry.compressedSize >= ZIP64_MAGICVAL;
+		boolean largeOffset = entry.offset >= ZIP64_MAGICVAL;
+		boolean zip64 = largeSize || largeCompressedSize || largeOffset;
+
+		byte[] extra = entry.centralExtra;
+		if (zip64) {
+			int zip64Length = (largeSize ? 8 : 0) + (largeCompressedSize ? 8 : 0) + (largeOffset ? 8 : 0);
+			ByteBuffer zip64Extra = buffer(4 + zip64Length);
+			zip64Extra.putShort((short) ZIP64_EXTID)
+				.putShort((short) zip64Length);
+			if (largeSize) {
+				zip64Extra.putLong(entry.size);
+			}
+			if (largeCompressedSize) {
+				zip64Extra.putLong(entry.compressedSize);
+			}
+			if (largeOffset) {
+				zip64Extra.putLong(entry.offset);
+			}
+			extra = concat(zip64Extra.array(), extra);
+		}
+		if (extra.length > 0xFFFF) {
+			throw new ZipException("invalid extra data length [ " + extra.length + " ]");
+		}
+		if (entry.comment.length > 0xFFFF) {
+			throw new ZipException("invalid entry comment length [ " + entry.comment.length + " ]");
+		}
+
+		ByteBuffer header = buffer(CENHDR + entry.name.length + extra.length + entry.comment.length);
+		header.putInt(RawZipFile.CENSIG)
+			.putShort((short) entry.versionMadeBy)
+			.putShort((short) (zip64 ? Math.max(entry.versionNeeded, VERSION_ZIP64) : entry.versionNeeded))
+			.putShort((short) entry.flags)
+			.putShort((short) entry.method)
+			.putInt((int) entry.dosTime)
+			.putInt((int) entry.crc)
+			.putInt((int) (largeCompressedSize ? ZIP64_MAGICVAL : entry.compressedSize))
+			.putInt((int) (largeSize ? ZIP64_MAGICVAL : entry.size))
+			.putShort((short) entry.name.length)
+			.putShort((short) extra.length)
+			.putShort((short) entry.comment.length)
+			.putShort((short) 0)
+			.putShort((short) entry.internalAttributes)
+			.putInt((int) entry.externalAttributes)
+			.putInt((int) (largeOffset ? ZIP64_MAGICVAL : entry.offset))
+			.put(entry.name)
+			.put(extra)
+			.put(entry.comment);
+		write(header);
+	}
+
+	/**
+	 * Answer the time extra field of an entry, as written by
+	 * {@link ZipOutputStream}: An extended timestamp field is written when the
+	 * last modified, last access, or creation time of the entry was set. The
+	 * field of the central header holds only the last modified time. Times
+	 * which are beyond the range of the extended timestamp field are written
+	 * in an NTFS field.
+	 *
+	 * @param entry The entry which is being put.
+	 * @param local True for the local header. False for the central header.
+	 * @return The time extra field. Empty if no times were set.
+	 */
+	private static byte[] timeExtra(ZipEntry entry, boolean local) {
+		// A last modified time which was not set is derived from the MS-DOS
+		// time of the entry, and is answered as a new time by each call.
+		FileTime mtime = entry.getLastModifiedTime();
+		if (mtime != entry.getLastModifiedTime()) {
+			mtime = null;
+		}
+		FileTime atime = entry.getLastAccessTime();
+		FileTime ctime = entry.getCreationTime();
+		if ((mtime == null) && (atime == null) && (ctime == null)) {
+			return new byte[0];
+		}
+
+		long umtime = unixTime(mtime);
+		long uatime = unixTime(atime);
+		long uctime = unixTime(ctime);
+		if ((umtime > UPPER_UNIXTIME_BOUND) || (uatime > UPPER_UNIXTIME_BOUND) || (uctime > UPPER_UNIXTIME_BOUND)) {
+			ByteBuffer ntfs = buffer(36);
+			ntfs.putShort((short) NTFS_EXTID)
+				.putShort((short) 32)
+				.putInt(0)
+				.putShort((short) 0x0001) // Attribute tag
+				.putShort((short) 24)
+				.putLong(windowsTime(mtime))
+				.putLong(windowsTime(atime))
+				.putLong(windowsTime(ctime));
+			return ntfs.array();
+		}
+
+		int flags = ((mtime != null) ? EXTT_FLAG_LMT : 0) | ((atime != null) ? EXTT_FLAG_LAT : 0)
+			| ((ctime != null) ? EXTT_FLAG_CT : 0);
+		int dataLength = local ? (4 * Integer.bitCount(flags)) : ((mtime != null) ? 4 : 0);
+		ByteBuffer extt = buffer(5 + dataLength);
+		extt.putShort((short) EXTT_EXTID)
+			.putShort((short) (1 + dataLength))
+			.put((byte) flags);
+		if (mtime != null) {
+			extt.putInt((int) umtime);
+		}
+		if (local) {
+			if (atime != null) {
+				extt.putInt((int) uatime);
+			}
+			if (ctime != null) {
+				extt.putInt((int) uctime);
+			}
+		}
+		return extt.array();
+	}
+
+	private static long unixTime(FileTime time) {
+		return (time == null) ? -1L : time.to(TimeUnit.SECONDS);
+	}
+
+	private static long windowsTime(FileTime time) {
+		return (time == null) ? WINDOWS_TIME_NOT_AVAILABLE
+			: (time.to(TimeUnit.MICROSECONDS) - WINDOWS_EPOCH_IN_MICROSECONDS) * 10L;
+	}
+
+	private static ByteBuffer buffer(int length) {
+		return ByteBuffer.allocate(length)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		out.write(buffer.array(), 0, buffer.position());
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	/**
+	 * Stream which counts the bytes written to it. The count is used for
+	 * entry offsets and compressed sizes.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		long count;
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,370 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Compiled matcher of ordered text substitutions.
+ * <p>
+ * Substitutions are specified as an ordered table of keys and values. The
+ * reference semantics are to apply the substitutions one at a time, in their
+ * table order, with each substitution replacing all non-overlapping
+ * occurrences of its key, from left to right, in the text produced by the
+ * preceding substitutions. That is the same as applying
+ * {@link String#replace(CharSequence, CharSequence)} for each substitution.
+ * <p>
+ * The keys are compiled into an Aho-Corasick {@code Automaton}, which finds
+ * all occurrences of all keys in a single pass over the text. Text which
+ * contains no keys, which is by far the most frequent case, is answered from
+ * that pass without allocating.
+ * <p>
+ * When the text contains keys, the occurrences are selected in substitution
+ * order: Each substitution takes its non-overlapping occurrences from left to
+ * right, skipping occurrences which overlap text selected by earlier
+ * substitutions. The selected occurrences are then replaced in a single pass.
+ * That result equals the reference result unless a replacement value can
+ * create a new occurrence of the key of a later substitution, either within
+ * the value or across the edges of the value. Substitutions for which this
+ * is possible are detected when the matcher is compiled. Text which contains
+ * the keys of such substitutions is processed using the reference semantics.
+ */
+public class SubstitutionMatcher {
+	/**
+	 * Compile ordered text substitutions.
+	 *
+	 * @param substitutions Text substitutions, in the order in which they are
+	 *            to be applied.
+	 */
+	public SubstitutionMatcher(Map<String, String> substitutions) {
+		int ruleCount = substitutions.size();
+		this.keys = new String[ruleCount];
+		this.values = new String[ruleCount];
+
+		boolean useSequential = false;
+		Automaton.Builder builder = new Automaton.Builder(Automaton.CHAR_ALPHABET);
+		int rule = 0;
+		for (Map.Entry<String, String> substitution : substitutions.entrySet()) {
+			String key = substitution.getKey();
+			keys[rule] = key;
+			values[rule] = substitution.getValue();
+			if (key.isEmpty()) {
+				useSequential = true;
+			} else {
+				int node = builder.root();
+				for (int offset = 0, keyLen = key.length(); offset < keyLen; offset++) {
+					node = builder.next(node, key.charAt(offset));
+				}
+				builder.accept(node, rule);
+			}
+			rule++;
+		}
+		this.automaton = builder.build();
+
+		this.sequentialOnly = useSequential;
+		this.mayChain = computeMayChain();
+	}
+
+	// Per-rule data, in substitution order.
+
+	private final String[]	keys;
+	private final String[]	values;
+
+	/**
+	 * Tell, per substitution, if its value can create an occurrence of the
+	 * key of a later substitution.
+	 */
+	private final boolean[]	mayChain;
+
+	/**
+	 * Set when the substitutions have an empty key, in which case the
+	 * reference semantics are always used.
+	 */
+	private final boolean	sequentialOnly;
+
+	/**
+	 * Automaton of the non-empty keys. The payloads of each node are the
+	 * substitution indexes of the keys which end at the node.
+	 */
+	private final Automaton	automaton;
+
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	private boolean[] computeMayChain() {
+		int ruleCount = keys.length;
+		int nodeCount = automaton.size();
+		boolean[] useMayChain = new boolean[ruleCount];
+
+		// The largest substitution index of any key which ends at or below
+		// each node, and which ends at or on the output chain of each node.
+
+		int[] subtreeMax = new int[nodeCount];
+		int[] outputMax = new int[nodeCount];
+		for (int nodeIndex = nodeCount - 1; nodeIndex >= 0; nodeIndex--) {
+			int max = -1;
+			for (int nodeRule : automaton.payloads(nodeIndex)) {
+				max = Math.max(max, nodeRule);
+			}
+			for (int child : automaton.children(nodeIndex)) {
+				max = Math.max(max, subtreeMax[child]);
+			}
+			subtreeMax[nodeIndex] = max;
+		}
+		for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++) {
+			int max = -1;
+			for (int nodeRule : automaton.payloads(nodeIndex)) {
+				max = Math.max(max, nodeRule);
+			}
+			int nodeOutput = automaton.output(nodeIndex);
+			outputMax[nodeIndex] = (nodeOutput == -1) ? max : Math.max(max, outputMax[nodeOutput]);
+		}
+
+		// The largest substitution index of any key which has at least two
+		// characters. Those keys can be created when text is removed.
+
+		int[] laterJoinable = new int[ruleCount + 1];
+		laterJoinable[ruleCount] = -1;
+		for (int rule = ruleCount - 1; rule >= 0; rule--) {
+			laterJoinable[rule] = (keys[rule].length() >= 2) ? rule : laterJoinable[rule + 1];
+		}
+
+		// A value can create a later key within the value, or across the
+		// end of the value.
+
+		for (int rule = 0; rule < ruleCount; rule++) {
+			String value = values[rule];
+			if (value.isEmpty()) {
+				useMayChain[rule] = laterJoinable[rule + 1] != -1;
+				continue;
+			}
+			int node = 0;
+			for (int offset = 0, valueLen = value.length(); offset < valueLen; offset++) {
+				node = automaton.step(node, value.charAt(offset));
+				if (outputMax[node] > rule) {
+					useMayChain[rule] = true;
+					break;
+				}
+			}
+			for (; !useMayChain[rule] && (node != 0); node = automaton.fail(node)) {
+				if (subtreeMax[node] > rule) {
+					useMayChain[rule] = true;
+				}
+			}
+		}
+
+		// A value can create a later key across the start of the value, or
+		// within a later key which contains the value. Walk each proper suffix
+		// of each key through a trie of the values.
+
+		ValueNode valueRoot = new ValueNode();
+		for (int rule = 0; rule < ruleCount; rule++) {
+			String value = values[rule];
+			if (!value.isEmpty()) {
+				ValueNode node = valueRoot;
+				for (int offset = 0, valueLen = value.length(); offset < valueLen; offset++) {
+					node = node.children.computeIfAbsent(value.charAt(offset), c -> new ValueNode());
+				}
+				node.rules.add(rule);
+			}
+		}
+
+		for (int rule = 0; rule < ruleCount; rule++) {
+			String key = keys[rule];
+			for (int start = 1, keyLen = key.length(); start < keyLen; start++) {
+				ValueNode node = valueRoot;
+				for (int offset = start; offset < keyLen; offset++) {
+					node = node.children.get(key.charAt(offset));
+					if (node == null) {
+						break;
+					}
+					if (offset < keyLen - 1) {
+						node.containingMax = Math.max(node.containingMax, rule);
+					} else {
+						node.prefixMax = Math.max(node.prefixMax, rule);
+					}
+				}
+			}
+		}
+
+		Deque<ValueNode> nodeQueue = new ArrayDeque<>();
+		Deque<Integer> maxQueue = new ArrayDeque<>();
+		nodeQueue.add(valueRoot);
+		maxQueue.add(-1);
+		while (!nodeQueue.isEmpty()) {
+			ValueNode node = nodeQueue.poll();
+			int prefixMax = Math.max(maxQueue.poll(), node.prefixMax);
+			int endMax = Math.max(prefixMax, node.containingMax);
+			for (int rule : node.rules) {
+				if (endMax > rule) {
+					useMayChain[rule] = true;
+				}
+			}
+			for (ValueNode child : node.children.values()) {
+				nodeQueue.add(child);
+				maxQueue.add(prefixMax);
+			}
+		}
+
+		return useMayChain;
+	}
+
+	/**
+	 * Node of the trie of values which is used to detect keys which overlap
+	 * the start of values.
+	 */
+	private static final class ValueNode {
+		final TreeMap<Character, ValueNode>	children		= new TreeMap<>();
+		final List<Integer>					rules			= new ArrayList<>(1);
+
+		/**
+		 * The largest substitution index of a key which has a proper suffix
+		 * which is a prefix of the values at or below this node.
+		 */
+		int									prefixMax		= -1;
+
+		/**
+		 * The largest substitution index of a key which contains, after its
+		 * first character and before its last character, the values which end
+		 * at this node.
+		 */
+		int									containingMax	= -1;
+	}
+
+	/**
+	 * Apply the substitutions to text.
+	 *
+	 * @param text Text which is to be updated.
+	 * @return The updated text. Null if no substitutions were applied.
+	 */
+	public String replace(String text) {
+		return replace(text, null);
+	}
+
+	/**
+	 * Apply the substitutions to text.
+	 *
+	 * @param text Text which is to be updated.
+	 * @param applied Callback which receives the key and value of each
+	 *            substitution which was applied, in substitution order. May be
+	 *            null.
+	 * @return The updated text. Null if no substitutions were applied.
+	 */
+	public String replace(String text, BiConsumer<String, String> applied) {
+		if (isEmpty()) {
+			return null;
+		}
+		if (sequentialOnly) {
+			return replaceSequentially(text, applied);
+		}
+
+		// Find all key occurrences. Each occurrence is packed as the
+		// substitution index in the high word and the start in the low word.
+
+		long[] occurrences = null;
+		int occurrenceCount = 0;
+
+		for (int offset = 0, textLength = text.length(), node = 0; offset < textLength; offset++) {
+			node = automaton.step(node, text.charAt(offset));
+			int outputNode = (automaton.payloads(node).length != 0) ? node : automaton.output(node);
+			for (; outputNode != -1; outputNode = automaton.output(outputNode)) {
+				int start = offset + 1 - automaton.depth(outputNode);
+				for (int rule : automaton.payloads(outputNode)) {
+					if (mayChain[rule]) {
+						return replaceSequentially(text, applied);
+					}
+					if (occurrences == null) {
+						occurrences = new long[8];
+					} else if (occurrenceCount == occurrences.length) {
+						occurrences = Arrays.copyOf(occurrences, occurrenceCount * 2);
+					}
+					occurrences[occurrenceCount++] = ((long) rule << 32) | start;
+				}
+			}
+		}
+
+		if (occurrenceCount == 0) {
+			return null;
+		}
+
+		// Select occurrences in substitution order, then from left to right.
+
+		Arrays.sort(occurrences, 0, occurrenceCount);
+
+		BitSet selectedText = new BitSet(text.length());
+		long[] selected = new long[occurrenceCount];
+		int selectedCount = 0;
+		int lastRule = -1;
+
+		for (int occurrenceNo = 0; occurrenceNo < occurrenceCount; occurrenceNo++) {
+			long occurrence = occurrences[occurrenceNo];
+			int rule = (int) (occurrence >>> 32);
+			int start = (int) occurrence;
+			int end = start + keys[rule].length();
+
+			int nextSelected = selectedText.nextSetBit(start);
+			if ((nextSelected != -1) && (nextSelected < end)) {
+				continue;
+			}
+			selectedText.set(start, end);
+			selected[selectedCount++] = ((long) start << 32) | rule;
+
+			if ((applied != null) && (rule != lastRule)) {
+				applied.accept(keys[rule], values[rule]);
+			}
+			lastRule = rule;
+		}
+
+		// Replace the selected occurrences from left to right.
+
+		Arrays.sort(selected, 0, selectedCount);
+
+		StringBuilder builder = new StringBuilder(text.length() + 16);
+		int copied = 0;
+		for (int selectedNo = 0; selectedNo < selectedCount; selectedNo++) {
+			long occurrence = selected[selectedNo];
+			int start = (int) (occurrence >>> 32);
+			int rule = (int) occurrence;
+			builder.append(text, copied, start)
+				.append(values[rule]);
+			copied = start + keys[rule].length();
+		}
+		return builder.append(text, copied, text.length())
+			.toString();
+	}
+
+	/**
+	 * Apply the substitutions one at a time, in order.
+	 */
+	private String replaceSequentially(String text, BiConsumer<String, String> applied) {
+		String initialText = text;
+		for (int rule = 0; rule < keys.length; rule++) {
+			String key = keys[rule];
+			if (text.contains(key)) {
+				text = text.replace(key, values[rule]);
+				if (applied != null) {
+					applied.accept(key, values[rule]);
+				}
+			}
+		}
+		return (initialText == text) ? null : text;
+	}
+}
@@ -0,0 +1,129 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import aQute.bnd.unmodifiable.Maps;
+import org.eclipse.transformer.action.Action;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ActionSelector;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.impl.ActionSelectorImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.JSPActionImpl;
+import org.eclipse.transformer.action.impl.JavaActionImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.PropertiesActionImpl;
+import org.eclipse.transformer.action.impl.RenameActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.TextActionImpl;
+import org.eclipse.transformer.action.impl.XmlActionImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class ActionSelectorTest {
+	Logger			logger;
+	String			testName;
+	ActionContext	context;
+
+	@BeforeEach
+	public void setUp(TestInfo testInfo) {
+		testName = testInfo.getTestClass()
+			.map(Class::getName)
+			.get() + "."
+			+ testInfo.getTestMethod()
+				.map(Method::getName)
+				.get();
+		logger = LoggerFactory.getLogger(testName);
+		context = new ActionContext(logger,
+			new SelectionRuleImpl(logger, Collections.emptyMap(), Collections.emptyMap()),
+			new SignatureRuleImpl(logger, Maps.of("javax.servlet", "jakarta.servlet"), null, null, null,
+				Maps.of("special.txt", Maps.of("javax", "jakarta"), "*.xml", Maps.of("javax", "jakarta")), null,
+				Collections.emptyMap()));
+	}
+
+	// The actions of an archive, in the order used by the transformer.
+	private ActionSelector createSelector() {
+		ActionSelector selector = new ActionSelectorImpl();
+		selector.addUsing(ClassActionImpl::new, context);
+		selector.addUsing(JavaActionImpl::new, context);
+		selector.addUsing(JSPActionImpl::new, context);
+		selector.addUsing(ServiceLoaderConfigActionImpl::new, context);
+		selector.addUsing(c -> new ManifestActionImpl(c, ActionType.MANIFEST), context);
+		selector.addUsing(c -> new ManifestActionImpl(c, ActionType.FEATURE), context);
+		selector.addUsing(TextActionImpl::new, context);
+		selector.addUsing(PropertiesActionImpl::new, context);
+		selector.addUsing(XmlActionImpl::new, context);
+		selector.addUsing(c -> new ZipActionImpl(c, ActionType.JAR, false), context);
+		selector.addUsing(RenameActionImpl::new, context);
+		return selector;
+	}
+
+	private static Action selectInOrder(ActionSelector selector, String resourceName) {
+		for (Action action : selector.getActions()) {
+			if (action.acceptResource(resourceName, null)) {
+				return action;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	void selects_same_as_ordered_actions() {
+		ActionSelector selector = createSelector();
+		List<String> resourceNames = List.of("a/b/Foo.class", "Foo.CLASS", "a/b/Foo.claſſ", "a/b/Foo.java",
+			"index.jsp", "META-INF/services/a.b.Service", "META-INF/services/", "META-INF/MANIFEST.MF",
+			"OSGI-INF/feature.mf", "xmanifest.mf", "a/special.txt", "b/special.txt", "other.txt", "a/b.properties",
+			"WEB-INF/web.xml", "META-INF/services/web.xml", "lib/x.jar", "README", "a.b/README", "a/", "");
+
+		// Twice, so that remembered selections are used.
+		for (int pass = 0; pass < 2; pass++) {
+			for (String resourceName : resourceNames) {
+				assertThat(selector.selectAction(resourceName, null)).as("Selection of [ %s ]", resourceName)
+					.isSameAs(selectInOrder(selector, resourceName));
+			}
+		}
+
+		assertThat(selector.selectAction("a/b/Foo.class", null)).isInstanceOf(ClassActionImpl.class);
+		assertThat(selector.selectAction("META-INF/MANIFEST.MF", null)
+			.getActionType()).isEqualTo(ActionType.MANIFEST);
+		assertThat(selector.selectAction("OSGI-INF/feature.mf", null)
+			.getActionType()).isEqualTo(ActionType.FEATURE);
+		assertThat(selector.selectAction("a/special.txt", null)).isExactlyInstanceOf(TextActionImpl.class);
+		assertThat(selector.selectAction("WEB-INF/web.xml", null)).isExactlyInstanceOf(TextActionImpl.class);
+		assertThat(selector.selectAction("META-INF/services/web.xml", null))
+			.isInstanceOf(ServiceLoaderConfigActionImpl.class);
+		assertThat(selector.selectAction("other.txt", null)).isInstanceOf(RenameActionImpl.class);
+	}
+
+	@Test
+	void recompiles_when_actions_are_added() {
+		ActionSelector selector = new ActionSelectorImpl();
+		selector.addUsing(TextActionImpl::new, context);
+		assertThat(selector.selectAction("a/b/Foo.class", null)).isNull();
+		assertThat(selector.selectAction("a/special.txt", null)).isExactlyInstanceOf(TextActionImpl.class);
+
+		selector.addUsing(ClassActionImpl::new, context);
+		assertThat(selector.selectAction("a/b/Foo.class", null)).isInstanceOf(ClassActionImpl.class);
+	}
+}
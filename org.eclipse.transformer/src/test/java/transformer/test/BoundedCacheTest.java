@@ -0,0 +1,127 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.BoundedCache;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class BoundedCacheTest {
+
+	@Test
+	void evicts_oldest_entries() {
+		BoundedCache<String, String> cache = new BoundedCache<>("test", 3);
+		for (int i = 0; i < 5; i++) {
+			cache.put("k" + i, "v" + i);
+		}
+
+		assertThat(cache.size()).isEqualTo(3);
+		assertThat(cache.get("k0")).isNull();
+		assertThat(cache.get("k1")).isNull();
+		assertThat(cache.get("k2")).isEqualTo("v2");
+		assertThat(cache.get("k4")).isEqualTo("v4");
+
+		BoundedCache.Statistics statistics = cache.getStatistics();
+		assertThat(statistics.hits()).isEqualTo(2);
+		assertThat(statistics.misses()).isEqualTo(2);
+		assertThat(statistics.evictions()).isEqualTo(2);
+	}
+
+	@Test
+	void does_not_replace_values() {
+		BoundedCache<String, String> cache = new BoundedCache<>("test", 3);
+		cache.put("k", "v1");
+		cache.put("k", "v2");
+
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.get("k")).isEqualTo("v1");
+	}
+
+	@Test
+	void disabled_cache() {
+		BoundedCache<String, String> cache = new BoundedCache<>("test", 0);
+		cache.put("k", "v");
+
+		assertThat(cache.size()).isZero();
+		assertThat(cache.get("k")).isNull();
+		assertThat(cache.getStatistics()
+			.misses()).isEqualTo(1);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> new BoundedCache<>("test", -1));
+	}
+
+	@Test
+	void concurrent_puts() throws Exception {
+		int maxSize = 100;
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>("test", maxSize);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int offset = t * 1000;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						Integer key = offset + i;
+						if (cache.get(key) == null) {
+							cache.put(key, key);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		BoundedCache.Statistics statistics = cache.getStatistics();
+		assertThat(statistics.size()).isEqualTo(maxSize);
+		assertThat(statistics.misses()).isEqualTo(4000);
+		assertThat(statistics.evictions()).isEqualTo(4000 - maxSize);
+	}
+
+	@Test
+	void signature_rule_caches() {
+		Logger logger = LoggerFactory.getLogger(getClass());
+		SignatureRuleImpl signatureRule = new SignatureRuleImpl(logger, Map.of("javax.servlet", "jakarta.servlet"),
+			null, null, null, null, Collections.emptyMap(), Collections.emptyMap(), 2);
+
+		assertThat(signatureRule.transformBinaryType("javax/servlet/Servlet")).isEqualTo("jakarta/servlet/Servlet");
+		assertThat(signatureRule.transformBinaryType("javax/servlet/Servlet")).isEqualTo("jakarta/servlet/Servlet");
+		assertThat(signatureRule.transformBinaryType("java/lang/Object")).isNull();
+		assertThat(signatureRule.transformBinaryType("java/lang/Object")).isNull();
+		assertThat(signatureRule.transformBinaryType("java/lang/String")).isNull();
+
+		BoundedCache.Statistics binaryTypes = signatureRule.getCacheStatistics()
+			.get(0);
+		assertThat(binaryTypes.name()).isEqualTo("binaryTypes");
+		assertThat(binaryTypes.hits()).isEqualTo(2);
+		assertThat(binaryTypes.misses()).isEqualTo(3);
+		assertThat(binaryTypes.size()).isEqualTo(2);
+		assertThat(binaryTypes.evictions()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,99 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.util.BufferPool;
+import org.eclipse.transformer.util.PooledOutputStream;
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+	@Test
+	void borrows_size_classes() {
+		BufferPool pool = new BufferPool();
+
+		assertThat(pool.borrow(0)).hasSize(1 << BufferPool.MIN_CLASS_SHIFT);
+		assertThat(pool.borrow(1025)).hasSize(2048);
+		assertThat(pool.borrow(4096)).hasSize(4096);
+
+		int unpooled = (1 << BufferPool.MAX_CLASS_SHIFT) + 1;
+		assertThat(pool.borrow(unpooled)).hasSize(unpooled);
+	}
+
+	@Test
+	void reuses_released_arrays() {
+		BufferPool pool = new BufferPool();
+
+		byte[] array = pool.borrow(3000);
+		pool.release(array);
+		assertThat(pool.getRetainedCount()).isEqualTo(1);
+
+		assertThat(pool.borrow(2049)).isSameAs(array);
+		assertThat(pool.getRetainedCount()).isZero();
+	}
+
+	@Test
+	void ignores_foreign_arrays() {
+		BufferPool pool = new BufferPool();
+
+		pool.release(new byte[100]);
+		pool.release(new byte[3000]);
+		pool.release(new byte[(1 << BufferPool.MAX_CLASS_SHIFT) << 1]);
+
+		assertThat(pool.getRetainedCount()).isZero();
+	}
+
+	@Test
+	void bounds_retained_arrays() {
+		BufferPool pool = new BufferPool();
+
+		int size = 1 << BufferPool.MAX_CLASS_SHIFT;
+		int maxRetained = Math.max(1, BufferPool.RETAINED_PER_CLASS / size);
+		for (int arrayNo = 0; arrayNo <= maxRetained; arrayNo++) {
+			pool.release(new byte[size]);
+		}
+
+		assertThat(pool.getRetainedCount()).isEqualTo(maxRetained);
+	}
+
+	@Test
+	void releases_byte_data_once() {
+		BufferPool pool = new BufferPool();
+
+		PooledOutputStream outputStream = new PooledOutputStream(pool, 16);
+		byte[] written = "pooled data".repeat(200)
+			.getBytes(StandardCharsets.UTF_8);
+		outputStream.write(written, 0, written.length);
+
+		ByteData data = outputStream.toByteData("data", StandardCharsets.UTF_8);
+		assertThat(data.length()).isEqualTo(written.length);
+		assertThat(data.buffer()
+			.array()).startsWith(written);
+
+		// The arrays which were outgrown were returned to the pool.
+		int outgrown = pool.getRetainedCount();
+		assertThat(outgrown).isPositive();
+
+		ByteData copy = data.copy("copy");
+		copy.release();
+		assertThat(pool.getRetainedCount()).isEqualTo(outgrown);
+
+		data.release();
+		data.release();
+		assertThat(pool.getRetainedCount()).isEqualTo(outgrown + 1);
+	}
+}
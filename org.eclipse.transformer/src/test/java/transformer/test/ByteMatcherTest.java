@@ -0,0 +1,77 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.transformer.util.ByteMatcher;
+import org.junit.jupiter.api.Test;
+
+class ByteMatcherTest {
+	static List<byte[]> patterns(String... patterns) {
+		List<byte[]> bytes = new ArrayList<>();
+		for (String pattern : patterns) {
+			bytes.add(pattern.getBytes(UTF_8));
+		}
+		return bytes;
+	}
+
+	@Test
+	void matches_patterns() {
+		ByteMatcher matcher = new ByteMatcher(patterns("javax/servlet", "javax.servlet", "javax/ejb"));
+
+		assertThat(matcher.isEmpty()).isFalse();
+		assertThat(matcher.matches("Ljavax/servlet/Servlet;".getBytes(UTF_8))).isTrue();
+		assertThat(matcher.matches("javax.servlet.http".getBytes(UTF_8))).isTrue();
+		assertThat(matcher.matches("javax/servle".getBytes(UTF_8))).isFalse();
+		assertThat(matcher.matches("javax/ej/javax/ejb".getBytes(UTF_8))).isTrue();
+		assertThat(matcher.matches(new byte[0])).isFalse();
+
+		ByteBuffer buffer = ByteBuffer.wrap("xxjavax/ejbxx".getBytes(UTF_8));
+		assertThat(matcher.matches(buffer, 2, 11)).isTrue();
+		assertThat(matcher.matches(buffer, 3, 13)).isFalse();
+		assertThat(buffer.position()).isZero();
+
+		ByteMatcher emptyMatcher = new ByteMatcher(Collections.emptyList());
+		assertThat(emptyMatcher.isEmpty()).isTrue();
+		assertThat(emptyMatcher.matches("javax".getBytes(UTF_8))).isFalse();
+
+		assertThat(new ByteMatcher(patterns("")).matches(new byte[0])).isTrue();
+	}
+
+	@Test
+	void matches_contains() {
+		Random random = new Random(0);
+		for (int trial = 0; trial < 500; trial++) {
+			List<String> patterns = new ArrayList<>();
+			for (int patternNo = random.nextInt(5); patternNo >= 0; patternNo--) {
+				patterns.add(SubstitutionMatcherTest.randomText(random, "ab\u00e9", 1 + random.nextInt(3)));
+			}
+			patterns.removeIf(String::isEmpty);
+			ByteMatcher matcher = new ByteMatcher(patterns(patterns.toArray(new String[0])));
+			for (int textNo = 0; textNo < 20; textNo++) {
+				String text = SubstitutionMatcherTest.randomText(random, "ab\u00e9c", 12);
+				boolean expected = patterns.stream()
+					.anyMatch(text::contains);
+				assertThat(matcher.matches(text.getBytes(UTF_8))).as("%s %s", patterns, text)
+					.isEqualTo(expected);
+			}
+		}
+	}
+}
@@ -25,8 +25,10 @@ import java.util.stream.Stream;
 
 import aQute.bnd.classfile.Attribute;
 import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.classfile.ConstantValueAttribute;
 import aQute.bnd.classfile.ElementInfo;
 import aQute.bnd.classfile.EnclosingMethodAttribute;
+import aQute.bnd.classfile.FieldInfo;
 import aQute.bnd.classfile.ModuleAttribute;
 import aQute.bnd.classfile.ModuleMainClassAttribute;
 import aQute.bnd.classfile.ModulePackagesAttribute;
@@ -276,4 +278,59 @@ public class ClassActionTest {
 			.isEqualTo(new EnclosingMethodAttribute("transformed/enclosing/Enclosing", "method",
 				"(Ltransformed/param/Param1;Lpkg/other/Param2;)Ltransformed/result/Result;"));
 	}
+
+	@Test
+	public void constant_scan_skip() throws Exception {
+		ClassFileBuilder builder = new ClassFileBuilder(Modifier.PUBLIC, ClassFile.MAJOR_VERSION, 0, "scan/Test",
+			"java/lang/Object");
+		builder.fields(new FieldInfo(Modifier.STATIC | Modifier.FINAL, "LIMIT", "J", new Attribute[] {
+			new ConstantValueAttribute(Long.valueOf(42L))
+		}));
+		builder.attributes(new EnclosingMethodAttribute("pkg/enclosing/Enclosing", "method",
+			"(Lpkg/other/Param;)Ljava/lang/String;"));
+		ByteBufferDataOutput dataOutput = new ByteBufferDataOutput();
+		builder.build()
+			.write(dataOutput);
+		ByteData unchangedData = new ByteDataImpl("scan/Test.class", dataOutput.toByteBuffer(),
+			FileUtils.DEFAULT_CHARSET);
+
+		builder.attributes()
+			.clear();
+		builder.attributes(new EnclosingMethodAttribute("original/enclosing/Enclosing", "method",
+			"(Lpkg/other/Param;)Ljava/lang/String;"));
+		dataOutput = new ByteBufferDataOutput();
+		builder.build()
+			.write(dataOutput);
+		ByteData changedData = new ByteDataImpl("scan/Test.class", dataOutput.toByteBuffer(),
+			FileUtils.DEFAULT_CHARSET);
+
+		Map<String, String> renames = new HashMap<>();
+		renames.put("original.enclosing", "transformed.enclosing");
+		ActionContext context = new ActionContext(logger,
+			new SelectionRuleImpl(logger, Collections.emptyMap(), Collections.emptyMap()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, null, Collections.emptyMap()));
+		ClassActionImpl classAction = new ClassActionImpl(context);
+
+		assertThat(classAction.apply(unchangedData)).as("skipped class data")
+			.isSameAs(unchangedData);
+		assertThat(classAction.getLastActiveChanges()
+			.getSkippedClasses()).as("skipped classes")
+			.isEqualTo(1);
+		assertThat(classAction.getLastActiveChanges()
+			.getInputClassName()).as("skipped class name")
+			.isEqualTo("scan/Test");
+
+		ByteData outputData = classAction.apply(changedData);
+		assertThat(classAction.getLastActiveChanges()
+			.getSkippedClasses()).as("skipped classes")
+			.isZero();
+		ClassFile transformed = ClassFile.parseClassFile(ByteBufferDataInput.wrap(outputData.buffer()));
+		assertThat(attribute(EnclosingMethodAttribute.class, transformed)).as("transformed class enclosing method")
+			.map(m -> m.class_name)
+			.get(InstanceOfAssertFactories.STRING)
+			.isEqualTo("transformed/enclosing/Enclosing");
+
+		assertThat(classAction.getSkippedClasses()).as("total skipped classes")
+			.isEqualTo(1L);
+	}
 }
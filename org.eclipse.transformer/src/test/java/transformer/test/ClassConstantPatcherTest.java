@@ -0,0 +1,201 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import aQute.bnd.classfile.ClassFile;
+import aQute.bnd.classfile.ConstantPool;
+import aQute.bnd.classfile.ConstantPool.AbstractRefInfo;
+import aQute.bnd.classfile.ConstantPool.MethodTypeInfo;
+import aQute.bnd.classfile.ConstantPool.NameAndTypeInfo;
+import aQute.lib.io.ByteBufferDataInput;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.impl.ByteDataImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compare the classes which are written by patching constants with the classes
+ * which are written by the full class transformation.
+ */
+class ClassConstantPatcherTest {
+	static final String[] CLASS_NAMES = {
+		"java/util/HashMap", "java/util/ArrayList", "java/util/concurrent/ConcurrentHashMap",
+		"java/util/stream/Collectors", "java/lang/invoke/MethodHandles", "java/lang/Module", "java/lang/Record",
+		"java/util/Optional", "transformer/test/data/Sample_InjectAPI_Javax",
+		"transformer/test/data/Sample_SecurityAPI_Javax", "transformer/test/data/Sample_Annotation",
+		"transformer/test/data/Sample_StringConstant", "transformer/test/data/Sample_DirectStrings"
+	};
+
+	Logger logger;
+
+	@BeforeEach
+	void setUp(TestInfo testInfo) {
+		logger = LoggerFactory.getLogger(testInfo.getTestClass()
+			.map(Class::getName)
+			.get() + "."
+			+ testInfo.getTestMethod()
+				.map(Method::getName)
+				.get());
+	}
+
+	static ByteData read(String className) throws Exception {
+		String resourceName = className + ".class";
+		try (InputStream inputStream = ClassConstantPatcherTest.class.getResourceAsStream("/" + resourceName)) {
+			assertThat(inputStream).as(resourceName)
+				.isNotNull();
+			return new ByteDataImpl(resourceName, ByteBuffer.wrap(inputStream.readAllBytes()),
+				FileUtils.DEFAULT_CHARSET);
+		}
+	}
+
+	ActionContext context(Map<String, String> renames, Map<String, String> directStrings) {
+		return new ActionContext(logger, new SelectionRuleImpl(logger, Collections.emptyMap(), Collections.emptyMap()),
+			new SignatureRuleImpl(logger, renames, null, null, null, null, directStrings, Collections.emptyMap()));
+	}
+
+	static String describe(ConstantPool pool, int index) {
+		Object entry = pool.entry(index);
+		switch (pool.tag(index)) {
+			case ConstantPool.CONSTANT_Class :
+				return "Class " + pool.className(index);
+			case ConstantPool.CONSTANT_String :
+				return "String " + pool.string(index);
+			case ConstantPool.CONSTANT_NameAndType : {
+				NameAndTypeInfo info = (NameAndTypeInfo) entry;
+				return "NameAndType " + pool.utf8(info.name_index) + " " + pool.utf8(info.descriptor_index);
+			}
+			case ConstantPool.CONSTANT_MethodType :
+				return "MethodType " + pool.utf8(((MethodTypeInfo) entry).descriptor_index);
+			case ConstantPool.CONSTANT_Fieldref :
+			case ConstantPool.CONSTANT_Methodref :
+			case ConstantPool.CONSTANT_InterfaceMethodref : {
+				AbstractRefInfo info = (AbstractRefInfo) entry;
+				return "Ref " + describe(pool, info.class_index) + " " + describe(pool, info.name_and_type_index);
+			}
+			default :
+				return String.valueOf(entry);
+		}
+	}
+
+	void assertSameClass(ByteData patchedData, ByteData rebuiltData, int initialCount) throws Exception {
+		assertThat(patchedData.name()).isEqualTo(rebuiltData.name());
+
+		ClassFile patched = ClassFile.parseClassFile(ByteBufferDataInput.wrap(patchedData.buffer()));
+		ClassFile rebuilt = ClassFile.parseClassFile(ByteBufferDataInput.wrap(rebuiltData.buffer()));
+
+		assertThat(patched).as(patchedData.name())
+			.usingRecursiveComparison()
+			.ignoringFields("constant_pool")
+			.withEqualsForType(ByteBuffer::equals, ByteBuffer.class)
+			.isEqualTo(rebuilt);
+
+		// Code refers to constants by index. The constants which existed
+		// before the transformation must have the same values.
+		for (int index = 1; index < initialCount; index++) {
+			if (patched.constant_pool.entry(index) != null) {
+				assertThat(describe(patched.constant_pool, index)).as("%s constant [ %s ]", patchedData.name(), index)
+					.isEqualTo(describe(rebuilt.constant_pool, index));
+			}
+		}
+	}
+
+	int compare(Map<String, String> renames, Map<String, String> directStrings) throws Exception {
+		AtomicInteger patchedCount = new AtomicInteger();
+		ClassActionImpl patchingAction = new ClassActionImpl(context(renames, directStrings)) {
+			@Override
+			protected ByteData patchConstants(ByteData inputData) throws org.eclipse.transformer.TransformException {
+				ByteData outputData = super.patchConstants(inputData);
+				if (outputData != null) {
+					patchedCount.incrementAndGet();
+				}
+				return outputData;
+			}
+		};
+		ClassActionImpl rebuildingAction = new ClassActionImpl(context(renames, directStrings)) {
+			@Override
+			protected ByteData patchConstants(ByteData inputData) {
+				return null;
+			}
+		};
+
+		for (String className : CLASS_NAMES) {
+			ByteData inputData = read(className);
+			int initialCount = ClassFile.parseClassFile(ByteBufferDataInput.wrap(inputData.buffer())).constant_pool
+				.size();
+
+			ByteData patchedData = patchingAction.apply(inputData);
+			int patchedConstants = patchingAction.getLastActiveChanges()
+				.getModifiedConstants();
+			ByteData rebuiltData = rebuildingAction.apply(inputData);
+			int rebuiltConstants = rebuildingAction.getLastActiveChanges()
+				.getModifiedConstants();
+
+			assertThat(patchedConstants).as("%s modified constants", className)
+				.isEqualTo(rebuiltConstants);
+			assertSameClass(patchedData, rebuiltData, initialCount);
+		}
+		return patchedCount.get();
+	}
+
+	@Test
+	void patch_package_renames() throws Exception {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("java.util", "alt.util");
+		renames.put("java.util.concurrent.*", "alt.util.concurrent");
+		renames.put("java.lang.invoke", "alt.lang.invoke");
+		renames.put("javax.inject", "jakarta.inject");
+		renames.put("javax.security.enterprise.*", "jakarta.security.enterprise");
+		renames.put("transformer.test.data", "transformed.test.data");
+
+		assertThat(compare(renames, Collections.emptyMap())).as("patched classes")
+			.isGreaterThan(CLASS_NAMES.length / 2);
+	}
+
+	@Test
+	void patch_direct_strings() throws Exception {
+		Map<String, String> renames = new HashMap<>();
+		renames.put("java.util", "alt.util");
+
+		Map<String, String> directStrings = new HashMap<>();
+		directStrings.put("DIRECT_1", "DIRECT_X");
+		directStrings.put("Sample value 1", "Sample value 2");
+		directStrings.put("hash", "HASH");
+		directStrings.put("java/lang/Object", "alt/lang/Object");
+
+		assertThat(compare(renames, directStrings)).as("patched classes")
+			.isGreaterThan(CLASS_NAMES.length / 2);
+	}
+
+	@Test
+	void patch_unchanged_replacement() throws Exception {
+		assertThat(compare(Collections.emptyMap(), TestTransformClass.getDirectStrings())).as("patched classes")
+			.isGreaterThan(0);
+	}
+}
@@ -0,0 +1,87 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.transformer.util.LineCursor;
+import org.eclipse.transformer.util.LineSeparatorBufferedReader;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LineCursorTest {
+	// Each line and its separator, as answered by the reader.
+	private static List<String> readerLines(String text) throws Exception {
+		List<String> lines = new ArrayList<>();
+		LineSeparatorBufferedReader reader = new LineSeparatorBufferedReader(new StringReader(text));
+		for (String line; (line = reader.readLine()) != null;) {
+			lines.add(line + "|" + reader.lineSeparator());
+		}
+		return lines;
+	}
+
+	private static List<String> cursorLines(CharBuffer buffer) {
+		List<String> lines = new ArrayList<>();
+		LineCursor cursor = LineCursor.of(buffer);
+		while (cursor.next()) {
+			lines.add(buffer.duplicate()
+				.clear()
+				.subSequence(cursor.start(), cursor.end()) + "|"
+				+ buffer.duplicate()
+					.clear()
+					.subSequence(cursor.end(), cursor.separatorEnd()));
+		}
+		assertThat(cursor.next()).isFalse();
+		return lines;
+	}
+
+	private static List<String> cursorLines(ByteBuffer buffer) {
+		List<String> lines = new ArrayList<>();
+		LineCursor cursor = LineCursor.of(buffer);
+		while (cursor.next()) {
+			lines.add(UTF_8.decode(buffer.duplicate()
+				.clear()
+				.position(cursor.start())
+				.limit(cursor.end())) + "|"
+				+ UTF_8.decode(buffer.duplicate()
+					.clear()
+					.position(cursor.end())
+					.limit(cursor.separatorEnd())));
+		}
+		assertThat(cursor.next()).isFalse();
+		return lines;
+	}
+
+	@ValueSource(strings = {
+		"", "foo=bar", "foo=bar\n", "foo=bar\r", "foo=bar\r\n", "\n", "\r\n\r\n", "\r\r\n\n",
+		"\nfoo1=bar\r\nfoo2=bar\nfoo3=bar\rfoo4=bar", "caf\u00e9\ncaf\u00e9"
+	})
+	@ParameterizedTest
+	void lines_same_as_reader(String text) throws Exception {
+		List<String> expected = readerLines(text);
+		assertThat(cursorLines(CharBuffer.wrap(text))).isEqualTo(expected);
+		assertThat(cursorLines(ByteBuffer.wrap(text.getBytes(UTF_8)))).isEqualTo(expected);
+
+		// Only the text between the position and the limit is scanned.
+		String padded = "x\r" + text + "\ny";
+		assertThat(cursorLines(CharBuffer.wrap(padded, 2, 2 + text.length()))).isEqualTo(expected);
+		byte[] textBytes = text.getBytes(UTF_8);
+		assertThat(cursorLines(ByteBuffer.wrap(padded.getBytes(UTF_8), 2, textBytes.length))).isEqualTo(expected);
+	}
+}
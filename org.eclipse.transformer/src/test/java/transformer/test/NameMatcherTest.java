@@ -0,0 +1,100 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.transformer.util.NameMatcher;
+import org.junit.jupiter.api.Test;
+
+class NameMatcherTest {
+	@Test
+	void matches_longest_prefix_and_suffix() {
+		NameMatcher<String> prefixes = NameMatcher.prefixes(Map.of("lib/", "short", "lib/ext/", "long"));
+		assertThat(prefixes.match("lib/ext/a.jar")).isEqualTo(Map.entry("lib/ext/", "long"));
+		assertThat(prefixes.match("lib/a.jar")).isEqualTo(Map.entry("lib/", "short"));
+		assertThat(prefixes.match("li")).isNull();
+		assertThat(prefixes.match("a/lib/")).isNull();
+
+		NameMatcher<String> suffixes = NameMatcher.suffixes(Map.of(".jar", "short", "-sources.jar", "long"));
+		assertThat(suffixes.match("a-sources.jar")).isEqualTo(Map.entry("-sources.jar", "long"));
+		assertThat(suffixes.match("a.jar")).isEqualTo(Map.entry(".jar", "short"));
+		assertThat(suffixes.match("a.jar/b")).isNull();
+
+		NameMatcher<String> emptyMatcher = NameMatcher.prefixes(Collections.emptyMap());
+		assertThat(emptyMatcher.isEmpty()).isTrue();
+		assertThat(emptyMatcher.match("a")).isNull();
+	}
+
+	@Test
+	void matches_infixes() {
+		NameMatcher<String> infixes = NameMatcher.infixes(Map.of("Abstract", "a", "stractThing", "b", "Thing", "c"));
+		assertThat(infixes.match("AbstractThing.class")).isEqualTo(Map.entry("Abstract", "a"));
+		assertThat(infixes.match("StractThing.class")).isEqualTo(Map.entry("Thing", "c"));
+		assertThat(infixes.match("Abstrac")).isNull();
+
+		assertThat(NameMatcher.infixes(Map.of("", "all"))
+			.match("")).isEqualTo(Map.entry("", "all"));
+	}
+
+	@Test
+	void matches_same_as_string_tests() {
+		Random random = new Random(0);
+		for (int trial = 0; trial < 500; trial++) {
+			Map<String, String> patterns = new HashMap<>();
+			for (int patternNo = random.nextInt(5); patternNo >= 0; patternNo--) {
+				String pattern = SubstitutionMatcherTest.randomText(random, "ab\u00e9", 1 + random.nextInt(3));
+				if (!pattern.isEmpty()) {
+					patterns.put(pattern, pattern);
+				}
+			}
+			NameMatcher<String> prefixes = NameMatcher.prefixes(patterns);
+			NameMatcher<String> suffixes = NameMatcher.suffixes(patterns);
+			NameMatcher<String> infixes = NameMatcher.infixes(patterns);
+			for (int textNo = 0; textNo < 20; textNo++) {
+				String text = SubstitutionMatcherTest.randomText(random, "ab\u00e9c", 12);
+
+				Map.Entry<String, String> prefix = prefixes.match(text);
+				assertThat(prefix != null).as("%s %s", patterns, text)
+					.isEqualTo(patterns.keySet()
+						.stream()
+						.anyMatch(text::startsWith));
+				if (prefix != null) {
+					assertThat(text).startsWith(prefix.getKey());
+				}
+
+				Map.Entry<String, String> suffix = suffixes.match(text);
+				assertThat(suffix != null).as("%s %s", patterns, text)
+					.isEqualTo(patterns.keySet()
+						.stream()
+						.anyMatch(text::endsWith));
+				if (suffix != null) {
+					assertThat(text).endsWith(suffix.getKey());
+				}
+
+				Map.Entry<String, String> infix = infixes.match(text);
+				assertThat(infix != null).as("%s %s", patterns, text)
+					.isEqualTo(patterns.keySet()
+						.stream()
+						.anyMatch(text::contains));
+				if (infix != null) {
+					assertThat(text).contains(infix.getKey());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.eclipse.transformer.util.SignatureUtils.containsWildcard;
+import static org.eclipse.transformer.util.SignatureUtils.packageMatch;
+import static org.eclipse.transformer.util.SignatureUtils.stripWildcard;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.transformer.util.PackageRenameMatcher;
+import org.eclipse.transformer.util.SignatureUtils.RenameKeyComparator;
+import org.junit.jupiter.api.Test;
+
+class PackageRenameMatcherTest {
+	static Map<String, String> renames() {
+		Map<String, String> renames = new LinkedHashMap<>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.servlet.*", "jakarta.servlet");
+		renames.put("javax.servlet.jsp", "jakarta.servlet.jsp");
+		renames.put("javax.ejb.*", "jakarta.ejb");
+		renames.put("javax.annotation", "jakarta.annotation");
+		renames.put("javax.annotation.security", "jakarta.annotation.security");
+		renames.put("javax.xml.bind.*", "jakarta.xml.bind");
+
+		Map<String, String> ordered = new LinkedHashMap<>();
+		renames.entrySet()
+			.stream()
+			.sorted((first, second) -> new RenameKeyComparator('.').compare(first.getKey(), second.getKey()))
+			.forEachOrdered(entry -> ordered.put(entry.getKey(), entry.getValue()));
+		return ordered;
+	}
+
+	/**
+	 * Replace packages by applying renames one at a time. This is the
+	 * reference behavior of the compiled matcher.
+	 */
+	static String replaceSequentially(String text, Map<String, String> renames) {
+		String initialText = text;
+		for (Map.Entry<String, String> renameEntry : renames.entrySet()) {
+			String key = renameEntry.getKey();
+			boolean matchPackageStem = containsWildcard(key);
+			if (matchPackageStem) {
+				key = stripWildcard(key);
+			}
+			int keyLen = key.length();
+			int textLimit = text.length() - keyLen;
+			for (int matchEnd = 0; matchEnd <= textLimit;) {
+				int matchStart = text.indexOf(key, matchEnd);
+				if (matchStart == -1) {
+					break;
+				}
+				matchEnd = matchStart + keyLen;
+				int packageEnd = packageMatch(text, matchStart, matchEnd, matchPackageStem);
+				if (packageEnd == -1) {
+					continue;
+				}
+				String value = renameEntry.getValue();
+				if (matchEnd < packageEnd) {
+					value = value.concat(text.substring(matchEnd, packageEnd));
+				}
+				text = text.substring(0, matchStart) + value + text.substring(packageEnd);
+				matchEnd = matchStart + value.length();
+				textLimit = text.length() - keyLen;
+			}
+		}
+		return (initialText == text) ? null : text;
+	}
+
+	@Test
+	void replace_packages() {
+		PackageRenameMatcher matcher = new PackageRenameMatcher(renames());
+
+		assertThat(matcher.replace("import javax.servlet.http.HttpServlet;"))
+			.isEqualTo("import jakarta.servlet.http.HttpServlet;");
+		assertThat(matcher.replace("javax.servlet.jsp.JspPage javax.servlet.Servlet"))
+			.isEqualTo("jakarta.servlet.jsp.JspPage jakarta.servlet.Servlet");
+		assertThat(matcher.replace("<class>javax.ejb.EJB</class>")).isEqualTo("<class>jakarta.ejb.EJB</class>");
+		assertThat(matcher.replace("xjavax.servlet.Servlet")).isNull();
+		assertThat(matcher.replace("com.javax.servlet.Servlet")).isNull();
+		assertThat(matcher.replace("javax.annotationx.Resource")).isNull();
+		assertThat(matcher.replace("javax.annotation.processing.Processor")).isNull();
+		assertThat(matcher.replace("javax.annotation.Resource")).isEqualTo("jakarta.annotation.Resource");
+		assertThat(matcher.replace("javax.servlet")).isEqualTo("jakarta.servlet");
+		assertThat(matcher.replace("")).isNull();
+
+		assertThat(new PackageRenameMatcher(Collections.emptyMap()).replace("javax.servlet")).isNull();
+	}
+
+	@Test
+	void matches_sequential_replacement() {
+		Map<String, String> renames = renames();
+		PackageRenameMatcher matcher = new PackageRenameMatcher(renames);
+
+		String[] tokens = {
+			"javax.servlet", "javax.servlet.http", "javax.servlet.jsp", "javax.servlet.jsp.tagext", "javax.ejb",
+			"javax.ejb.spi", "javax.annotation", "javax.annotation.security", "javax.annotation.processing",
+			"javax.xml.bind", "javax.xml.bind.annotation", "javax.xml", "javax", "xjavax.servlet", "javax.servletx",
+			".Servlet", ".http.HttpServlet", "$Inner", "/", ".", " ", ",", ";", "\"", "<", ">", "=", "\n", "x", "Y",
+			"_", "1"
+		};
+		Random random = new Random(0);
+		StringBuilder builder = new StringBuilder();
+		for (int trial = 0; trial < 2000; trial++) {
+			builder.setLength(0);
+			for (int tokenNo = random.nextInt(20); tokenNo >= 0; tokenNo--) {
+				builder.append(tokens[random.nextInt(tokens.length)]);
+			}
+			String text = builder.toString();
+			assertThat(matcher.replace(text)).as(text)
+				.isEqualTo(replaceSequentially(text, renames));
+		}
+	}
+
+	@Test
+	void update_tail() {
+		PackageRenameMatcher matcher = new PackageRenameMatcher(renames());
+		String text = "javax.servlet;version=\"[4.0,5)\",javax.servlet.http;version=\"[4.0,5)\",org.foo";
+
+		String replaced = matcher.replace(text, (packageName, tail) -> {
+			assertThat(packageName).startsWith("jakarta.servlet");
+			return tail.replaceFirst("\\[4\\.0,5\\)", "[5.0,6)");
+		});
+
+		assertThat(replaced).isEqualTo(
+			"jakarta.servlet;version=\"[5.0,6)\",jakarta.servlet.http;version=\"[5.0,6)\",org.foo");
+	}
+}
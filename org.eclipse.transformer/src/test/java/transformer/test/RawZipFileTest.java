@@ -0,0 +1,244 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.util.RawZipFile;
+import org.eclipse.transformer.util.RawZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RawZipFileTest {
+	static Random	rd	= new Random();
+
+	@TempDir
+	Path			tmp;
+
+	private Map<String, byte[]> writeSample(File file) throws Exception {
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+		contents.put("META-INF/", new byte[0]);
+		contents.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(UTF_8));
+		byte[] random = new byte[4096];
+		rd.nextBytes(random);
+		contents.put("stored.bin", random);
+		contents.put("text/deflated.txt", "javax.servlet ".repeat(1000)
+			.getBytes(UTF_8));
+
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(file.toPath()), UTF_8)) {
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				ZipEntry entry = new ZipEntry(content.getKey());
+				if (content.getKey()
+					.equals("stored.bin")) {
+					CRC32 crc = new CRC32();
+					crc.update(content.getValue());
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(content.getValue().length);
+					entry.setCrc(crc.getValue());
+					entry.setComment("stored comment");
+				}
+				zipOutputStream.putNextEntry(entry);
+				zipOutputStream.write(content.getValue());
+				zipOutputStream.closeEntry();
+			}
+		}
+		return contents;
+	}
+
+	private static Map<String, byte[]> readEntries(File file) throws Exception {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(file.toPath()), UTF_8)) {
+			for (ZipEntry entry; (entry = zipInputStream.getNextEntry()) != null;) {
+				entries.put(entry.getName(), zipInputStream.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	@Test
+	void read_entries() throws Exception {
+		File input = tmp.resolve("input.zip")
+			.toFile();
+		Map<String, byte[]> contents = writeSample(input);
+
+		try (RawZipFile zipFile = new RawZipFile(input, UTF_8)) {
+			List<RawZipFile.Entry> entries = zipFile.entries();
+			assertThat(entries).extracting(RawZipFile.Entry::getName)
+				.containsExactlyElementsOf(contents.keySet());
+
+			for (RawZipFile.Entry entry : entries) {
+				assertThat(entry.isCopyable()).isTrue();
+				try (InputStream inputStream = zipFile.getInputStream(entry)) {
+					assertThat(inputStream.readAllBytes()).as(entry.getName())
+						.containsExactly(contents.get(entry.getName()));
+				}
+				ZipEntry zipEntry = zipFile.toZipEntry(entry);
+				assertThat(zipEntry.getSize()).isEqualTo(contents.get(entry.getName()).length);
+				assertThat(zipEntry.isDirectory()).isEqualTo(entry.isDirectory());
+			}
+
+			RawZipFile.Entry stored = entries.get(2);
+			assertThat(stored.getMethod()).isEqualTo(ZipEntry.STORED);
+			assertThat(stored.getComment()).isEqualTo("stored comment");
+
+			RawZipFile.Entry deflated = entries.get(3);
+			assertThat(deflated.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+			assertThat(deflated.getCompressedSize()).isLessThan(deflated.getSize());
+		}
+	}
+
+	@Test
+	void copy_raw_entries() throws Exception {
+		File input = tmp.resolve("input.zip")
+			.toFile();
+		Map<String, byte[]> contents = writeSample(input);
+		File output = tmp.resolve("output.zip")
+			.toFile();
+
+		byte[] added = "jakarta.servlet ".repeat(100)
+			.getBytes(UTF_8);
+
+		try (RawZipFile zipFile = new RawZipFile(input, UTF_8);
+			OutputStream outputStream = Files.newOutputStream(output.toPath());
+			RawZipOutputStream zipOutputStream = new RawZipOutputStream(outputStream, UTF_8)) {
+			for (RawZipFile.Entry entry : zipFile.entries()) {
+				zipOutputStream.copyRawEntry(zipFile, entry, "renamed/" + entry.getName());
+			}
+			zipOutputStream.putNextEntry(new ZipEntry("added.txt"));
+			zipOutputStream.write(added);
+			zipOutputStream.closeEntry();
+		}
+
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		contents.forEach((name, bytes) -> expected.put("renamed/" + name, bytes));
+		expected.put("added.txt", added);
+
+		Map<String, byte[]> actual = readEntries(output);
+		assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+		expected.forEach((name, bytes) -> assertThat(actual.get(name)).as(name)
+			.containsExactly(bytes));
+
+		try (RawZipFile inputZipFile = new RawZipFile(input, UTF_8);
+			ZipFile outputZipFile = new ZipFile(output, UTF_8)) {
+			for (RawZipFile.Entry entry : inputZipFile.entries()) {
+				ZipEntry copied = outputZipFile.getEntry("renamed/" + entry.getName());
+				assertThat(copied.getCompressedSize()).isEqualTo(entry.getCompressedSize());
+				assertThat(copied.getCrc()).isEqualTo(entry.getCrc());
+				assertThat(copied.getMethod()).isEqualTo(entry.getMethod());
+				assertThat(copied.getComment()).isEqualTo(entry.getComment());
+			}
+		}
+	}
+
+	// Entries with each kind of time. Created for each write, since putting an
+	// entry updates the entry.
+	private static List<ZipEntry> timedEntries() {
+		ZipEntry dosTime = new ZipEntry("dos-time.txt");
+		dosTime.setTime(1_600_000_000_000L);
+
+		ZipEntry allTimes = new ZipEntry("all-times.txt");
+		allTimes.setLastModifiedTime(FileTime.fromMillis(1_600_000_000_000L));
+		allTimes.setLastAccessTime(FileTime.fromMillis(1_600_000_100_000L));
+		allTimes.setCreationTime(FileTime.fromMillis(1_500_000_000_000L));
+
+		ZipEntry accessTime = new ZipEntry("access-time.txt");
+		accessTime.setTime(1_600_000_000_000L);
+		accessTime.setLastAccessTime(FileTime.fromMillis(1_600_000_100_000L));
+
+		ZipEntry farTime = new ZipEntry("far-time.txt");
+		farTime.setLastModifiedTime(FileTime.from(Instant.parse("2200-01-01T00:00:00Z")));
+
+		return List.of(dosTime, allTimes, accessTime, farTime);
+	}
+
+	private static void writeTimed(ZipOutputStream zipOutputStream) throws IOException {
+		for (ZipEntry entry : timedEntries()) {
+			zipOutputStream.putNextEntry(entry);
+			zipOutputStream.write(entry.getName()
+				.getBytes(UTF_8));
+			zipOutputStream.closeEntry();
+		}
+	}
+
+	@Test
+	void put_entry_times() throws Exception {
+		File expected = tmp.resolve("expected.zip")
+			.toFile();
+		try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(expected.toPath()), UTF_8)) {
+			writeTimed(zipOutputStream);
+		}
+		File actual = tmp.resolve("actual.zip")
+			.toFile();
+		try (OutputStream outputStream = Files.newOutputStream(actual.toPath());
+			RawZipOutputStream zipOutputStream = new RawZipOutputStream(outputStream, UTF_8)) {
+			writeTimed(zipOutputStream);
+		}
+
+		// The central headers hold the last modified times.
+		try (ZipFile expectedZipFile = new ZipFile(expected, UTF_8); ZipFile actualZipFile = new ZipFile(actual, UTF_8)) {
+			for (ZipEntry entry : timedEntries()) {
+				ZipEntry expectedEntry = expectedZipFile.getEntry(entry.getName());
+				ZipEntry actualEntry = actualZipFile.getEntry(entry.getName());
+				assertThat(actualEntry.getExtra()).as(entry.getName())
+					.isEqualTo(expectedEntry.getExtra());
+				assertThat(actualEntry.getLastModifiedTime()).as(entry.getName())
+					.isEqualTo(expectedEntry.getLastModifiedTime());
+			}
+		}
+
+		// The local headers hold all of the times.
+		List<ZipEntry> expectedEntries = new ArrayList<>();
+		try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(expected.toPath()), UTF_8)) {
+			for (ZipEntry entry; (entry = zipInputStream.getNextEntry()) != null;) {
+				expectedEntries.add(entry);
+			}
+		}
+		try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(actual.toPath()), UTF_8)) {
+			for (ZipEntry expectedEntry : expectedEntries) {
+				ZipEntry actualEntry = zipInputStream.getNextEntry();
+				assertThat(actualEntry.getName()).isEqualTo(expectedEntry.getName());
+				assertThat(actualEntry.getExtra()).as(expectedEntry.getName())
+					.isEqualTo(expectedEntry.getExtra());
+				assertThat(actualEntry.getLastModifiedTime()).as(expectedEntry.getName())
+					.isEqualTo(expectedEntry.getLastModifiedTime());
+				assertThat(actualEntry.getLastAccessTime()).as(expectedEntry.getName())
+					.isEqualTo(expectedEntry.getLastAccessTime());
+				assertThat(actualEntry.getCreationTime()).as(expectedEntry.getName())
+					.isEqualTo(expectedEntry.getCreationTime());
+			}
+			assertThat(zipInputStream.getNextEntry()).isNull();
+		}
+
+		assertThat(expectedEntries.get(1)
+			.getLastAccessTime()).isEqualTo(FileTime.fromMillis(1_600_000_100_000L));
+	}
+}
@@ -21,10 +21,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import aQute.lib.utf8properties.UTF8Properties;
 import org.eclipse.transformer.TransformProperties;
+import org.eclipse.transformer.action.SelectionRule;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
 import org.junit.jupiter.api.Test;
 import transformer.test.util.CaptureLoggerImpl;
@@ -59,4 +61,39 @@ class SelectionTests {
 		assertThat(selectionRule.charset("wide/file.txt")).isEqualTo(StandardCharsets.UTF_16);
 		assertThat(selectionRule.select("foo.proto")).isFalse();
 	}
+
+	@Test
+	void selection_matches_once() throws Exception {
+		Map<String, String> includes = new HashMap<>();
+		includes.put("*.properties", "ISO-8859-1");
+		includes.put("*Abstract*", "US-ASCII");
+		includes.put("wide/*", "UTF-16");
+		includes.put("exact.txt", "");
+		Map<String, String> excludes = new HashMap<>();
+		excludes.put("lib/*", "");
+		excludes.put("*-sources.jar", "");
+		SelectionRuleImpl selectionRule = new SelectionRuleImpl(useLogger, includes, excludes);
+
+		for (String resourceName : List.of("foo.properties", "bar/AbstractThing.class", "wide/file.txt", "exact.txt",
+			"foo.txt", "lib/a.properties", "wide/a-sources.jar", "a-sources.jar")) {
+			SelectionRule.Selection selection = selectionRule.selection(resourceName);
+			assertThat(selection.included()).as(resourceName)
+				.isEqualTo(selectionRule.selectIncluded(resourceName));
+			assertThat(selection.excluded()).as(resourceName)
+				.isEqualTo(selectionRule.rejectExcluded(resourceName));
+			assertThat(selection.selected()).as(resourceName)
+				.isEqualTo(selectionRule.select(resourceName));
+			assertThat(selection.charset()).as(resourceName)
+				.isEqualTo(selectionRule.charset(resourceName));
+		}
+
+		assertThat(selectionRule.selection("wide/file.txt")
+			.charset()).isEqualTo(StandardCharsets.UTF_16);
+		assertThat(selectionRule.selection("lib/a.properties")
+			.selected()).isFalse();
+		assertThat(selectionRule.selection("foo.txt")
+			.selected()).isFalse();
+		assertThat(selectionRule.selection("exact.txt")
+			.selected()).isTrue();
+	}
 }
@@ -0,0 +1,106 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.transformer.util.SubstitutionMatcher;
+import org.junit.jupiter.api.Test;
+
+class SubstitutionMatcherTest {
+
+	/**
+	 * Apply substitutions one at a time. This is the reference behavior of
+	 * the compiled matcher.
+	 */
+	static String replaceSequentially(String text, Map<String, String> substitutions) {
+		String initialText = text;
+		for (Map.Entry<String, String> substitution : substitutions.entrySet()) {
+			if (text.contains(substitution.getKey())) {
+				text = text.replace(substitution.getKey(), substitution.getValue());
+			}
+		}
+		return (initialText == text) ? null : text;
+	}
+
+	static String randomText(Random random, String alphabet, int maxLength) {
+		StringBuilder builder = new StringBuilder();
+		for (int length = random.nextInt(maxLength + 1); length > 0; length--) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+
+	@Test
+	void replace_text() {
+		Map<String, String> substitutions = new LinkedHashMap<>();
+		substitutions.put("javax.servlet.error.exception", "jakarta.servlet.error.exception");
+		substitutions.put("javax.servlet.error.exception_type", "jakarta.servlet.error.exception_type");
+		substitutions.put("http://xmlns.jcp.org/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee");
+		SubstitutionMatcher matcher = new SubstitutionMatcher(substitutions);
+
+		assertThat(matcher.replace("javax.servlet.error.exception_type")).isEqualTo("jakarta.servlet.error.exception_type");
+		assertThat(matcher.replace("<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\">"))
+			.isEqualTo("<web-app xmlns=\"https://jakarta.ee/xml/ns/jakartaee\">");
+		assertThat(matcher.replace("javax.servlet.Servlet")).isNull();
+		assertThat(matcher.replace("")).isNull();
+
+		List<String> applied = new ArrayList<>();
+		matcher.replace("javax.servlet.error.exception http://xmlns.jcp.org/xml/ns/javaee",
+			(key, value) -> applied.add(key));
+		assertThat(applied).containsExactly("javax.servlet.error.exception", "http://xmlns.jcp.org/xml/ns/javaee");
+
+		assertThat(new SubstitutionMatcher(new LinkedHashMap<>()).replace("text")).isNull();
+	}
+
+	@Test
+	void chained_substitutions() {
+		Map<String, String> substitutions = new LinkedHashMap<>();
+		substitutions.put("a", "b");
+		substitutions.put("b", "c");
+		substitutions.put("xy", "");
+		substitutions.put("xz", "q");
+		SubstitutionMatcher matcher = new SubstitutionMatcher(substitutions);
+
+		assertThat(matcher.replace("ab")).isEqualTo("cc");
+		assertThat(matcher.replace("xxyz")).isEqualTo("q");
+		assertThat(matcher.replace("b")).isEqualTo("c");
+	}
+
+	@Test
+	void matches_sequential_replacement() {
+		Random random = new Random(0);
+		String alphabet = "abc";
+		for (int trial = 0; trial < 500; trial++) {
+			Map<String, String> substitutions = new LinkedHashMap<>();
+			for (int ruleNo = random.nextInt(6); ruleNo >= 0; ruleNo--) {
+				String key = randomText(random, alphabet, 3);
+				String value = randomText(random, alphabet + "xy", 4);
+				if (!key.isEmpty() && !key.equals(value)) {
+					substitutions.put(key, value);
+				}
+			}
+			SubstitutionMatcher matcher = new SubstitutionMatcher(substitutions);
+			for (int textNo = 0; textNo < 20; textNo++) {
+				String text = randomText(random, alphabet + "z", 16);
+				assertThat(matcher.replace(text)).as("%s %s", substitutions, text)
+					.isEqualTo(replaceSequentially(text, substitutions));
+			}
+		}
+	}
+}
@@ -11,15 +11,22 @@
 
 package transformer.test;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -29,6 +36,7 @@ import org.eclipse.transformer.action.ActionContext;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.Changes;
 import org.eclipse.transformer.action.impl.PropertiesActionImpl;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
 import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
@@ -220,6 +228,72 @@ public class TestTransformServiceConfig extends CaptureTest {
 		verifyTransform(javaxAction, JAKARTA_SAMPLE_READER_SERVICE_PATH, JAVAX_SAMPLE_READER_LINES); // Transformed
 	}
 
+	/**
+	 * Ensure that a single action can be applied concurrently, with the
+	 * changes of each application recorded for the applying thread.
+	 *
+	 * @throws Exception Thrown in case of a IO failure or a transformation
+	 *             failure.
+	 */
+	@Test
+	public void testConcurrentTransform() throws Exception {
+		ServiceLoaderConfigActionImpl jakartaAction = getJakartaServiceAction();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int taskNo = 0; taskNo < 64; taskNo++) {
+				boolean transformed = ((taskNo % 2) == 0);
+				results.add(executor.submit(() -> {
+					if (transformed) {
+						verifyTransform(jakartaAction, JAVAX_SAMPLE_READER_SERVICE_PATH, JAKARTA_SAMPLE_READER_LINES);
+					} else {
+						verifyTransform(jakartaAction, JAVAX_OTHER_READER_SERVICE_PATH, JAVAX_OTHER_READER_LINES);
+					}
+					Changes lastChanges = jakartaAction.getLastActiveChanges();
+					Assertions.assertEquals(transformed, lastChanges.isContentChanged());
+					Assertions.assertNull(jakartaAction.getActiveChanges());
+					return null;
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Ensure that a configuration which has no renamed lines is answered as
+	 * the input data, and that the lines and line separators which are not
+	 * renamed are kept.
+	 *
+	 * @throws Exception Thrown in case of a IO failure or a transformation
+	 *             failure.
+	 */
+	@Test
+	public void testUnchangedLines() throws Exception {
+		ServiceLoaderConfigActionImpl jakartaAction = getJakartaServiceAction();
+
+		String unchangedName = "META-INF/services/javax.other.Reader";
+		ByteData unchangedData = jakartaAction.collect(unchangedName, new ByteArrayInputStream(
+			"# javax.sample.ReaderImpl\r\n\r\n  javax.other.ReaderImpl # Other\r\nDefaultReader\n".getBytes(UTF_8)));
+		Assertions.assertSame(unchangedData, jakartaAction.apply(unchangedData));
+		Assertions.assertFalse(jakartaAction.getLastActiveChanges()
+			.isContentChanged());
+
+		String changedName = "META-INF/services/javax.other.Writer";
+		ByteData changedData = jakartaAction.collect(changedName, new ByteArrayInputStream(
+			"# Writers\r\n  javax.sample.WriterImpl # Sample\r\njavax.other.WriterImpl".getBytes(UTF_8)));
+		ByteData transformedData = jakartaAction.apply(changedData);
+		Assertions.assertTrue(jakartaAction.getLastActiveChanges()
+			.isContentChanged());
+		Assertions.assertEquals("# Writers\r\n  jakarta.sample.WriterImpl # Sample\r\njavax.other.WriterImpl",
+			new String(transformedData.stream()
+				.readAllBytes(), UTF_8));
+	}
+
 	/**
 	 * Ensure that the inputlength parameter in ServiceLoaderConfigActionImpl is
 	 * used. When processing using a ContainerAction, the data passed in may
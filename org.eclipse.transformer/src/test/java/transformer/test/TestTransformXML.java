@@ -203,4 +203,17 @@ public class TestTransformXML extends CaptureTest {
 	public void testTransform_TransactionManagerXml() throws TransformException, IOException {
 		testTransform(TRANSACTION_MANAGER_XML_PATH, TM_INITIAL_OCCURRENCES, TM_FINAL_OCCURRENCES);
 	}
+
+	@Test
+	public void testTransform_NoSubstitutions() throws TransformException, IOException {
+		TextActionImpl useTextAction = getTextAction();
+		try (InputStream resourceInput = TestUtils.getResourceStream(UTSERVICE_XML_PATH)) {
+			// The content has updates, but no substitutions apply to the name.
+			ByteData xmlInput = useTextAction.collect("META-INF/unlisted.xml", resourceInput);
+			ByteData xmlOutput = useTextAction.apply(xmlInput);
+			Assertions.assertSame(xmlInput, xmlOutput);
+			Assertions.assertFalse(useTextAction.getLastActiveChanges()
+				.isContentChanged());
+		}
+	}
 }
@@ -0,0 +1,145 @@
+/********************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import aQute.bnd.unmodifiable.Maps;
+import org.eclipse.transformer.action.ActionContext;
+import org.eclipse.transformer.action.ByteData;
+import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.XmlActionImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class TextActionTest {
+	Logger			logger;
+	XmlActionImpl	xmlAction;
+
+	@BeforeEach
+	public void setUp(TestInfo testInfo) {
+		String testName = testInfo.getTestClass()
+			.map(Class::getName)
+			.get() + "."
+			+ testInfo.getTestMethod()
+				.map(Method::getName)
+				.get();
+		logger = LoggerFactory.getLogger(testName);
+		ActionContext context = new ActionContext(logger,
+			new SelectionRuleImpl(logger, Maps.of("*.xml", "UTF-8", "*.xml16", "UTF-16"), Collections.emptyMap()),
+			new SignatureRuleImpl(logger, Maps.of("javax.servlet", "jakarta.servlet"), null, null, null,
+				Maps.of("*.xml", Maps.of("caf\u00e9", "bar"), "*.xml16", Maps.of("caf\u00e9", "bar")), null,
+				Collections.emptyMap()));
+		xmlAction = new XmlActionImpl(context);
+	}
+
+	private ByteData apply(String inputName, byte[] input) throws Exception {
+		return xmlAction.apply(xmlAction.collect(inputName, new ByteArrayInputStream(input), input.length));
+	}
+
+	private static byte[] bytes(ByteData data) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		data.stream()
+			.transferTo(output);
+		return output.toByteArray();
+	}
+
+	@Test
+	void transforms_utf8_lines_as_bytes() throws Exception {
+		String input = "<a>javax.servlet</a>\r\n<b>unchanged</b>\r<c>caf\u00e9</c>\n\n<d>javax.servlet</d>";
+		ByteData output = apply("web.xml", input.getBytes(UTF_8));
+		assertThat(new String(bytes(output), UTF_8)).isEqualTo(
+			"<a>jakarta.servlet</a>\r\n<b>unchanged</b>\r<c>bar</c>\n\n<d>jakarta.servlet</d>");
+		assertThat(xmlAction.getLastActiveChanges()
+			.isContentChanged()).isTrue();
+	}
+
+	@Test
+	void keeps_bytes_of_unchanged_lines() throws Exception {
+		ByteArrayOutputStream input = new ByteArrayOutputStream();
+		input.writeBytes("<a>\u00ff".getBytes(UTF_8));
+		input.write(0xC3); // Malformed
+		input.writeBytes("</a>\n<b>javax.servlet</b>\n".getBytes(UTF_8));
+		ByteData output = apply("web.xml", input.toByteArray());
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.writeBytes("<a>\u00ff".getBytes(UTF_8));
+		expected.write(0xC3);
+		expected.writeBytes("</a>\n<b>jakarta.servlet</b>\n".getBytes(UTF_8));
+		assertThat(bytes(output)).isEqualTo(expected.toByteArray());
+	}
+
+	@Test
+	void answers_unchanged_input() throws Exception {
+		ByteData input = xmlAction.collect("web.xml",
+			new ByteArrayInputStream("<a>javax.servletx</a>\n<b>cafe</b>".getBytes(UTF_8)));
+		assertThat(xmlAction.apply(input)).isSameAs(input);
+		assertThat(xmlAction.getLastActiveChanges()
+			.isContentChanged()).isFalse();
+	}
+
+	@Test
+	void transforms_other_charsets_as_text() throws Exception {
+		String input = "<a>javax.servlet</a>\r\n<c>caf\u00e9</c>";
+		ByteData output = apply("web.xml16", input.getBytes(UTF_16));
+		assertThat(new String(bytes(output), UTF_16)).isEqualTo("<a>jakarta.servlet</a>\r\n<c>bar</c>");
+	}
+
+	@Test
+	void answers_unchanged_utf16_input() throws Exception {
+		ByteData input = xmlAction.collect("web.xml16",
+			new ByteArrayInputStream("<a>javax.servletx</a>\r\n<b>cafe</b>\r".getBytes(UTF_16)));
+		assertThat(xmlAction.apply(input)).isSameAs(input);
+		assertThat(xmlAction.getLastActiveChanges()
+			.isContentChanged()).isFalse();
+	}
+
+	@Test
+	void transforms_utf8_lines_with_other_signature_rules() throws Exception {
+		// A signature rule which is not a SignatureRuleImpl: The text key
+		// matcher is compiled by the action.
+		SignatureRule signatureRule = xmlAction.getSignatureRule();
+		SignatureRule otherRule = (SignatureRule) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] {
+				SignatureRule.class
+			}, (proxy, method, args) -> {
+				try {
+					return method.invoke(signatureRule, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			});
+		XmlActionImpl otherAction = new XmlActionImpl(
+			new ActionContext(logger, xmlAction.getResourceSelectionRule(), otherRule));
+
+		byte[] input = "<a>javax.servlet</a>\n<b>unchanged</b>\n<c>caf\u00e9</c>".getBytes(UTF_8);
+		ByteData output = otherAction
+			.apply(otherAction.collect("web.xml", new ByteArrayInputStream(input), input.length));
+		assertThat(new String(bytes(output), UTF_8))
+			.isEqualTo("<a>jakarta.servlet</a>\n<b>unchanged</b>\n<c>bar</c>");
+	}
+}
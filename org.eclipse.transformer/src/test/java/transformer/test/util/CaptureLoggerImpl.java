@@ -12,6 +12,7 @@
 package transformer.test.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -38,7 +39,8 @@ public class CaptureLoggerImpl implements Logger {
 		this.baseLogger = baseLogger;
 
 		this.captureInactive = captureInactive;
-		this.capturedEvents = new ArrayList<>();
+		// Actions may log from several threads.
+		this.capturedEvents = Collections.synchronizedList(new ArrayList<>());
 	}
 
 	//
@@ -233,9 +235,11 @@ public class CaptureLoggerImpl implements Logger {
 	}
 
 	public List<LogEvent> consumeCapturedEvents() {
-		List<LogEvent> events = new ArrayList<>(capturedEvents);
-		capturedEvents.clear();
-		return events;
+		synchronized (capturedEvents) {
+			List<LogEvent> events = new ArrayList<>(capturedEvents);
+			capturedEvents.clear();
+			return events;
+		}
 	}
 
 	public int getCaptureEventCount() {